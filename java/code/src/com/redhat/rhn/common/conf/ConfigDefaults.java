@@ -147,6 +147,12 @@ public class ConfigDefaults {
     public static final String SPACEWALK_REPOSYNC_PATH = "spacewalk_reposync_path";
     public static final String SPACEWALK_REPOSYNC_LOG_PATH = "spacewalk_reposync_logpath";
     private static final String USE_DB_REPODATA = "user_db_repodata";
+
+    /**
+     * Process the gatherer results of a virtual host manager with preloaded lookups
+     */
+    public static final String GATHERER_BULK_PROCESSING = "java.gatherer_bulk_processing";
+
     public static final String CONFIG_MACRO_ARGUMENT_REGEX = "config_macro_argument_regex";
 
     private static final String DB_BACKEND = "db_backend";
@@ -204,8 +210,19 @@ public class ConfigDefaults {
      */
     public static final String SCC_URL = "server.susemanager.scc_url";
 
+    /**
+     * Maximum number of concurrent requests to SCC
+     */
+    public static final String SCC_MAX_PARALLEL_REQUESTS = "server.susemanager.scc_max_parallel_requests";
+
     public static final String MESSAGE_QUEUE_THREAD_POOL_SIZE = "java.message_queue_thread_pool_size";
 
+    /**
+     * Number of messages waiting in a message queue lane before overflows are reported. Lanes are unbounded,
+     * this is not a limit.
+     */
+    public static final String MESSAGE_QUEUE_LANE_CAPACITY = "java.message_queue_lane_capacity";
+
     public static final String VIRTPOLLER_CACHE_EXPIRATION = "server.susemanager.virtpoller.expire_time";
     public static final String VIRTPOLLER_CACHE_FILE = "server.susemanager.virtpoller.cache_file";
     public static final String VIRTPOLLER_INTERVAL = "server.susemanager.virtpoller.interval";
@@ -252,6 +269,11 @@ public class ConfigDefaults {
      */
     public static final String NOTIFICATIONS_LIFETIME = "java.notifications_lifetime";
 
+    /**
+     * Interval in seconds at which notification counts changed by other processes are pushed to web UI sessions
+     */
+    public static final String NOTIFICATIONS_REFRESH_INTERVAL = "java.notifications_refresh_interval";
+
     /**
      * Indicates the salt-api host to connect to (host)
      */
@@ -268,7 +290,8 @@ public class ConfigDefaults {
     public static final String SIGN_METADATA = "sign_metadata";
 
     /**
-     * Number of threads dedicated to processing Salt events.
+     * Number of threads dedicated to processing Salt events. Events are spread over this many queues by minion id,
+     * each processed by its own thread, plus one additional queue and thread for events without a minion id.
      */
     public static final String SALT_EVENT_THREAD_POOL_SIZE = "java.salt_event_thread_pool_size";
 
@@ -279,6 +302,56 @@ public class ConfigDefaults {
      */
     public static final String SALT_EVENTS_PER_COMMIT = "java.salt_events_per_commit";
 
+    /**
+     * Maximum number of threads compressing one repository metadata file at the same time.
+     */
+    public static final String REPODATA_COMPRESSION_THREADS = "java.repodata_compression_threads";
+
+    /**
+     * Number of servers whose errata cache is recomputed together by one Taskomatic worker.
+     */
+    public static final String ERRATA_CACHE_SERVER_BATCH_SIZE = "taskomatic.errata_cache_server_batch_size";
+
+    /**
+     * Age in minutes after which entries of the CVE patch status index are recomputed. 0 disables expiry.
+     */
+    public static final String CVE_AUDIT_INDEX_MAX_AGE_MINUTES = "java.cve_audit.index_max_age_minutes";
+
+    /**
+     * Maximum number of download tokens remembered as valid for a channel
+     */
+    public static final String DOWNLOAD_TOKEN_CACHE_SIZE = "java.download_token_cache_size";
+
+    /**
+     * Seconds a download token is remembered as valid for a channel
+     */
+    public static final String DOWNLOAD_TOKEN_CACHE_TTL = "java.download_token_cache_ttl";
+
+    /**
+     * Maximum number of cached package paths served to managed clients
+     */
+    public static final String DOWNLOAD_PACKAGE_CACHE_SIZE = "java.download_package_cache_size";
+
+    /**
+     * Seconds a package path served to managed clients is cached
+     */
+    public static final String DOWNLOAD_PACKAGE_CACHE_TTL = "java.download_package_cache_ttl";
+
+    /**
+     * Number of minions asked together for their running Salt jobs when cleaning up pending actions.
+     */
+    public static final String MINION_ACTION_CLEANUP_BATCH_SIZE = "java.minion_action_cleanup_batch_size";
+
+    /**
+     * Maximum number of cached diffs between config file revisions
+     */
+    public static final String FILE_DIFF_CACHE_SIZE = "java.file_diff_cache_size";
+
+    /**
+     * Seconds a diff between config file revisions is cached
+     */
+    public static final String FILE_DIFF_CACHE_TTL = "java.file_diff_cache_ttl";
+
     private ConfigDefaults() {
     }
 
@@ -596,6 +669,15 @@ public class ConfigDefaults {
         return Config.get().getString(USE_DB_REPODATA) == null || Config.get().getBoolean(USE_DB_REPODATA);
     }
 
+    /**
+     * Return true if gatherer results are to be processed in bulk, defaults to true
+     * @return true or false
+     */
+    public boolean isGathererBulkProcessing() {
+        return Config.get().getString(GATHERER_BULK_PROCESSING) == null ||
+                Config.get().getBoolean(GATHERER_BULK_PROCESSING);
+    }
+
     /**
      * Get the seperator to use when creating cobbler namse
      *  defaults to ':'
@@ -898,8 +980,19 @@ public class ConfigDefaults {
         return Config.get().getInt(NOTIFICATIONS_LIFETIME, 30);
     }
 
+    /**
+     * Returns the interval in seconds at which notification counts changed by other processes, like Taskomatic,
+     * are pushed to web UI sessions.
+     * @return the refresh interval in seconds
+     */
+    public int getNotificationsRefreshInterval() {
+        return Config.get().getInt(NOTIFICATIONS_REFRESH_INTERVAL, 30);
+    }
+
     /**
      * Returns the number of threads dedicated to processing Salt events.
+     * Events are spread over as many queues by minion id, so that events of the same minion are always processed
+     * in order by the same thread.
      * @return the number of threads
      */
     public int getSaltEventThreadPoolSize() {
@@ -919,4 +1012,126 @@ public class ConfigDefaults {
     public int getSaltEventsPerCommit() {
         return Config.get().getInt(SALT_EVENTS_PER_COMMIT, 1);
     }
+
+    /**
+     * Returns the size of the thread pool shared by all message queue lanes, that is the maximum number of
+     * messages executed at the same time.
+     * @return the number of threads
+     */
+    public int getMessageQueueThreadPoolSize() {
+        return Config.get().getInt(MESSAGE_QUEUE_THREAD_POOL_SIZE, 5);
+    }
+
+    /**
+     * Returns the maximum number of messages an action can process at the same time. Can be set per action with
+     * java.message_queue_thread_pool_size.&lt;ActionClassName&gt;, defaults to half of
+     * java.message_queue_thread_pool_size so that one event type cannot occupy the whole shared thread pool.
+     * @param actionClass the message action class
+     * @return the number of threads
+     */
+    public int getMessageQueueThreadPoolSize(Class<?> actionClass) {
+        return Config.get().getInt(MESSAGE_QUEUE_THREAD_POOL_SIZE + "." + actionClass.getSimpleName(),
+                Math.max(1, getMessageQueueThreadPoolSize() / 2));
+    }
+
+    /**
+     * Returns the number of messages waiting in a message queue lane before overflows are logged and counted.
+     * Lanes are unbounded: publishing never blocks and messages beyond this number are still queued.
+     * @return the lane capacity
+     */
+    public int getMessageQueueLaneCapacity() {
+        return Config.get().getInt(MESSAGE_QUEUE_LANE_CAPACITY, 1000);
+    }
+
+    /**
+     * Returns the maximum number of threads compressing one repository metadata file at the same time.
+     * 1 disables parallel compression.
+     * @return the number of threads
+     */
+    public int getRepodataCompressionThreads() {
+        return Config.get().getInt(REPODATA_COMPRESSION_THREADS,
+                Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Returns the number of servers whose errata cache is recomputed together by one Taskomatic worker.
+     * @return the batch size, at least 1
+     */
+    public int getErrataCacheServerBatchSize() {
+        return Math.max(1, Config.get().getInt(ERRATA_CACHE_SERVER_BATCH_SIZE, 100));
+    }
+
+    /**
+     * Returns the maximum number of concurrent requests to SCC.
+     * @return the number of requests, at least 1
+     */
+    public int getSCCMaxParallelRequests() {
+        return Math.max(1, Config.get().getInt(SCC_MAX_PARALLEL_REQUESTS, 4));
+    }
+
+    /**
+     * Returns the age in minutes after which entries of the CVE patch status index are recomputed.
+     * 0 or less disables expiry.
+     * @return the maximum age in minutes
+     */
+    public int getCVEAuditIndexMaxAgeMinutes() {
+        return Config.get().getInt(CVE_AUDIT_INDEX_MAX_AGE_MINUTES, 1440);
+    }
+
+    /**
+     * Returns the maximum number of download tokens remembered as valid for a channel.
+     * @return the cache size
+     */
+    public int getDownloadTokenCacheSize() {
+        return Config.get().getInt(DOWNLOAD_TOKEN_CACHE_SIZE, 10000);
+    }
+
+    /**
+     * Returns the number of seconds a download token is remembered as valid for a channel.
+     * @return the time to live in seconds
+     */
+    public int getDownloadTokenCacheTtl() {
+        return Config.get().getInt(DOWNLOAD_TOKEN_CACHE_TTL, 60);
+    }
+
+    /**
+     * Returns the maximum number of cached package paths served to managed clients.
+     * @return the cache size
+     */
+    public int getDownloadPackageCacheSize() {
+        return Config.get().getInt(DOWNLOAD_PACKAGE_CACHE_SIZE, 20000);
+    }
+
+    /**
+     * Returns the number of seconds a package path served to managed clients is cached.
+     * @return the time to live in seconds
+     */
+    public int getDownloadPackageCacheTtl() {
+        return Config.get().getInt(DOWNLOAD_PACKAGE_CACHE_TTL, 300);
+    }
+
+    /**
+     * Returns the number of minions asked together for their running Salt jobs when cleaning up pending
+     * actions.
+     * @return the batch size, at least 1
+     */
+    public int getMinionActionCleanupBatchSize() {
+        return Math.max(1, Config.get().getInt(MINION_ACTION_CLEANUP_BATCH_SIZE, 200));
+    }
+
+    /**
+     * Returns the maximum number of cached diffs between config file revisions.
+     * @return the cache size
+     */
+    public int getFileDiffCacheSize() {
+        return Config.get().getInt(FILE_DIFF_CACHE_SIZE, 200);
+    }
+
+    /**
+     * Returns the number of seconds a diff between config file revisions is cached.
+     * @return the time to live in seconds
+     */
+    public int getFileDiffCacheTtl() {
+        return Config.get().getInt(FILE_DIFF_CACHE_TTL, 3600);
+    }
 }
@@ -20,6 +20,7 @@ import com.redhat.rhn.common.db.NamedPreparedStatement;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.HibernateHelper;
 import com.redhat.rhn.common.hibernate.HibernateRuntimeException;
+import com.redhat.rhn.common.hibernate.QueryCounter;
 import com.redhat.rhn.common.translation.SqlExceptionTranslator;
 import com.redhat.rhn.common.util.MethodUtil;
 import com.redhat.rhn.common.util.StringUtil;
@@ -46,6 +47,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * A cached set of query/elaborator strings and the parameterMap hash maps.
@@ -228,20 +230,28 @@ public class CachedStatement implements Serializable {
     }
 
     /**
-     * Executes multiple updates with one only prepared statement.
+     * Executes multiple updates with one only prepared statement, sent to the
+     * database as a single JDBC batch.
      *
      * @param parameterList a list of parameter maps
      * @return a list of affected rows counts
      */
     List<Integer> executeUpdates(List<Map<String, Object>> parameterList) {
+        if (parameterList.isEmpty()) {
+            return new ArrayList<Integer>();
+        }
         return doWithStolenConnection(connection -> {
+            PreparedStatement ps = null;
             try {
                 List<Integer> result = new ArrayList<Integer>(parameterList.size());
 
                 sqlStatement = NamedPreparedStatement.replaceBindParams(sqlStatement, qMap);
+                ps = prepareStatement(connection, sqlStatement, null);
                 for (Map<String, Object> parameters : parameterList) {
-                    result.add((Integer) execute(connection, sqlStatement, qMap, parameters,
-                            null, null));
+                    NamedPreparedStatement.addBatch(ps, qMap, setupParamMap(parameters));
+                }
+                for (int count : ps.executeBatch()) {
+                    result.add(count);
                 }
                 return result;
             }
@@ -258,6 +268,9 @@ public class CachedStatement implements Serializable {
                 log.error("Error while processing cached statement sql: " + getQuery(), e);
                 throw e;
             }
+            finally {
+                HibernateHelper.cleanupDB(ps);
+            }
         });
     }
 
@@ -333,6 +346,173 @@ public class CachedStatement implements Serializable {
         }
     }
 
+    /**
+     * Executes the query and passes results to the consumer in batches of batchSize, fetching
+     * only batchSize rows at a time from the database and elaborating each batch before
+     * passing it on. Queries with an IN clause are not supported.
+     * @param parameters named query parameters
+     * @param mode the mode with class and elaborators
+     * @param batchSize number of rows fetched, elaborated and consumed at a time
+     * @param consumer called once per batch
+     * @param <T> type of the results
+     */
+    @SuppressWarnings("unchecked")
+    <T> void executeInBatches(Map<String, ?> parameters, SelectMode mode, int batchSize,
+            Consumer<DataResult<T>> consumer) {
+        this.sqlStatement = NamedPreparedStatement.replaceBindParams(sqlStatement, qMap);
+        if (sqlStatement.indexOf("%s") > 0) {
+            throw new IllegalArgumentException("Queries with IN clause cannot be executed in batches");
+        }
+
+        doWithStolenConnection(connection -> {
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                ps = prepareStatement(connection, sqlStatement, mode);
+                // rows are only fetched batchSize at a time if autocommit is off,
+                // which is the case within Hibernate transactions
+                ps.setFetchSize(batchSize);
+                NamedPreparedStatement.execute(ps, qMap, setupParamMap(parameters));
+                rs = ps.getResultSet();
+                List<String> columns = getColumnNames(rs.getMetaData());
+
+                DataResult<Object> batch = new DataResult<Object>(mode);
+                while (rs.next()) {
+                    batch.add(createRow(rs, columns, mode));
+                    if (batch.size() == batchSize) {
+                        mode.elaborate(batch, parameters);
+                        consumer.accept((DataResult<T>) batch);
+                        batch = new DataResult<Object>(mode);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    mode.elaborate(batch, parameters);
+                    consumer.accept((DataResult<T>) batch);
+                }
+                return null;
+            }
+            catch (SQLException e) {
+                throw SqlExceptionTranslator.sqlException(e);
+            }
+            finally {
+                HibernateHelper.cleanupDB(rs, ps);
+            }
+        });
+    }
+
+    /**
+     * Executes the query as subquery of an outer select, which filters, sorts, pages or
+     * aggregates the query rows in the database. Rows are not elaborated. Queries with an
+     * IN clause are not supported.
+     * @param prefix the outer select up to the subquery, without bind parameters
+     * @param suffix the outer select after the subquery, with its own bind parameters
+     * @param parameters named query parameters
+     * @param outerParameters named parameters of the suffix
+     * @param mode the mode with the row class
+     * @return the rows of the outer select
+     */
+    DataResult<Object> executeWrapped(String prefix, String suffix,
+            Map<String, ?> parameters, Map<String, ?> outerParameters, SelectMode mode) {
+        return executeWrapped(prefix, suffix, parameters, outerParameters, mode, (rs, columns) -> {
+            DataResult<Object> result = new DataResult<Object>(mode);
+            while (rs.next()) {
+                result.add(createRow(rs, columns, mode));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Returns the lower case column names of the query, without fetching any row.
+     * @param parameters named query parameters
+     * @return the column names
+     */
+    List<String> executeColumnNames(Map<String, ?> parameters) {
+        return executeWrapped("SELECT * FROM ", " names_q WHERE 1 = 0", parameters,
+                new HashMap<String, Object>(), null, (rs, columns) -> columns);
+    }
+
+    private <R> R executeWrapped(String prefix, String suffix, Map<String, ?> parameters,
+            Map<String, ?> outerParameters, SelectMode mode, ResultSetReader<R> reader) {
+        this.sqlStatement = NamedPreparedStatement.replaceBindParams(sqlStatement, qMap);
+        if (sqlStatement.indexOf("%s") > 0) {
+            throw new IllegalArgumentException("Queries with IN clause cannot be wrapped");
+        }
+
+        // positions of the outer parameters follow the ones of the subquery
+        int innerCount = qMap.values().stream().mapToInt(List::size).sum();
+        Map<String, List<Integer>> outerMap = new HashMap<String, List<Integer>>();
+        String outerSql = NamedPreparedStatement.replaceBindParams(suffix, outerMap);
+        Map<String, List<Integer>> parameterMap = new HashMap<String, List<Integer>>(qMap);
+        for (Map.Entry<String, List<Integer>> entry : outerMap.entrySet()) {
+            if (parameterMap.containsKey(entry.getKey())) {
+                throw new IllegalArgumentException("Parameter '" + entry.getKey() +
+                        "' is already used by query: " + sqlStatement);
+            }
+            List<Integer> positions = new ArrayList<Integer>();
+            entry.getValue().forEach(p -> positions.add(p + innerCount));
+            parameterMap.put(entry.getKey(), positions);
+        }
+        Map<String, Object> values = new HashMap<String, Object>(setupParamMap(parameters));
+        values.putAll(outerParameters);
+        String sql = prefix + "(" + sqlStatement + ")" + outerSql;
+
+        return doWithStolenConnection(connection -> {
+            if (log.isDebugEnabled()) {
+                log.debug("executeWrapped() - Executing: " + sql);
+                log.debug("executeWrapped() - With: " + values);
+            }
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+            try {
+                ps = prepareStatement(connection, sql, mode);
+                NamedPreparedStatement.execute(ps, parameterMap, values);
+                rs = ps.getResultSet();
+                return reader.read(rs, getColumnNames(rs.getMetaData()));
+            }
+            catch (SQLException e) {
+                throw SqlExceptionTranslator.sqlException(e);
+            }
+            finally {
+                HibernateHelper.cleanupDB(rs, ps);
+            }
+        });
+    }
+
+    /**
+     * Reads the results of a statement.
+     * @param <R> the type of the read result
+     */
+    private interface ResultSetReader<R> {
+        R read(ResultSet rs, List<String> columns) throws SQLException;
+    }
+
+    /**
+     * Creates a result object for the current row of a driving query.
+     * @param rs the result set
+     * @param columns the column names
+     * @param mode the mode with the result class
+     * @return a Map or an instance of the mode class
+     * @throws SQLException if reading the row fails
+     */
+    private Object createRow(ResultSet rs, List<String> columns, SelectMode mode)
+        throws SQLException {
+        String className = mode.getClassString();
+        if (className == null || className.equals("java.util.Map")) {
+            Map<String, Object> resultMap = new HashMap<String, Object>();
+            addToMap(columns, rs, resultMap, mode.getElaborators().indexOf(parentStatement));
+            return resultMap;
+        }
+        try {
+            Object obj = Class.forName(className).newInstance();
+            addToObject(columns, rs, obj, false);
+            return obj;
+        }
+        catch (ClassNotFoundException | InstantiationException | IllegalAccessException e) {
+            throw new ObjectCreateWrapperException("Could not create " + className, e);
+        }
+    }
+
     private String commaSeparatedList(List<?> list) {
         StringBuilder sb = new StringBuilder();
         boolean firstValue = true;
@@ -517,6 +697,7 @@ public class CachedStatement implements Serializable {
     private PreparedStatement prepareStatement(Connection connection, String sql, Mode mode)
         throws SQLException, HibernateException {
         PreparedStatement ps = connection.prepareStatement(sql);
+        QueryCounter.increment();
 
         // allow limiting the results for better performance.
         if (mode != null && mode instanceof SelectMode) {
@@ -555,6 +736,7 @@ public class CachedStatement implements Serializable {
             CallableStatement cs = null;
             try {
                 cs = connection.prepareCall(this.sqlStatement);
+                QueryCounter.increment();
                 NamedPreparedStatement.execute(cs, qMap, inParams, outParams);
                 return processOutputParams(cs, outParams);
             }
@@ -917,6 +1099,16 @@ public class CachedStatement implements Serializable {
         restartData = new RestartData(parameters, inClause, mode);
     }
 
+    /**
+     * Remembers the parameters for a later {@link #restartQuery()} without executing the
+     * query now.
+     * @param parameters named query parameters
+     * @param mode the mode to restart the query with
+     */
+    void prepareRestart(Map<String, ?> parameters, Mode mode) {
+        storeForRestart(parameters, null, mode);
+    }
+
     /**
      * Restart the latest query
      * @return what the previous query returned or null.
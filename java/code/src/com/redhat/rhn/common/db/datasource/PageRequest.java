@@ -0,0 +1,117 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+/**
+ * Describes the rows of a list to be fetched from a {@link PageableDataSource}: the
+ * filter to apply, the sort order and the window of rows (offset and limit).
+ *
+ * Attributes are bean property names of the row class, like 'lastCheckinDate'.
+ */
+public class PageRequest {
+
+    private String filterAttribute;
+    private String filterValue;
+    private String sortAttribute;
+    private boolean ascending = true;
+    private boolean ignoreCase;
+    private int offset;
+    private int limit;
+
+    /**
+     * Restricts the rows to those whose attribute contains the given value, ignoring case.
+     * @param attribute the attribute to filter on
+     * @param value the value to look for
+     */
+    public void setFilter(String attribute, String value) {
+        filterAttribute = attribute;
+        filterValue = value;
+    }
+
+    /**
+     * @return the attribute to filter on or null for no filter
+     */
+    public String getFilterAttribute() {
+        return filterAttribute;
+    }
+
+    /**
+     * @return the value the filter attribute has to contain
+     */
+    public String getFilterValue() {
+        return filterValue;
+    }
+
+    /**
+     * Sorts the rows by an attribute.
+     * @param attribute the attribute to sort by
+     * @param ascendingIn true to sort in ascending order
+     * @param ignoreCaseIn true to sort strings ignoring their case
+     */
+    public void setSort(String attribute, boolean ascendingIn, boolean ignoreCaseIn) {
+        sortAttribute = attribute;
+        ascending = ascendingIn;
+        ignoreCase = ignoreCaseIn;
+    }
+
+    /**
+     * @return the attribute to sort by or null to keep the query order
+     */
+    public String getSortAttribute() {
+        return sortAttribute;
+    }
+
+    /**
+     * @return true if sorting in ascending order
+     */
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    /**
+     * @return true if strings are sorted ignoring their case
+     */
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * @return the number of rows to skip
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @param offsetIn the number of rows to skip
+     */
+    public void setOffset(int offsetIn) {
+        offset = offsetIn;
+    }
+
+    /**
+     * @return the maximum number of rows to fetch, 0 for all of them
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * @param limitIn the maximum number of rows to fetch, 0 for all of them
+     */
+    public void setLimit(int limitIn) {
+        limit = limitIn;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import java.util.Set;
+
+/**
+ * Source of list data which filters, sorts and pages its rows itself, typically in the
+ * database, so that a list tag only needs to load the rows it displays.
+ *
+ * @param <T> the row type
+ */
+public interface PageableDataSource<T> {
+
+    /**
+     * Checks if rows can be filtered and sorted by an attribute. Lists fall back to
+     * loading all rows and filtering or sorting them in memory otherwise.
+     * @param attribute the attribute
+     * @return true if the attribute can be used in page requests
+     */
+    boolean isPageable(String attribute);
+
+    /**
+     * Counts the rows matching the filter of a request.
+     * @param request the request, sort order and window are ignored
+     * @return the number of rows
+     */
+    int getSize(PageRequest request);
+
+    /**
+     * Fetches the rows of a request.
+     * @param request the request
+     * @return the filtered, sorted rows within the requested window
+     */
+    DataResult<T> getPage(PageRequest request);
+
+    /**
+     * Returns the upper case first letters of an attribute among the rows matching the
+     * filter of a request, as needed by the alpha bar.
+     * @param request the request, sort order and window are ignored
+     * @param attribute the attribute
+     * @return the first letters
+     */
+    Set<Character> getAlphaIndex(PageRequest request, String attribute);
+
+    /**
+     * Returns the position of the first row with an attribute starting with a letter,
+     * among the rows matching the filter of a request sorted by that attribute,
+     * ignoring case.
+     * @param request the request, sort order and window are ignored
+     * @param attribute the attribute
+     * @param letter the upper case letter
+     * @return the position, 0 based
+     */
+    int getAlphaPosition(PageRequest request, String attribute, char letter);
+
+    /**
+     * Returns an empty result carrying the query needed to export all rows later on,
+     * like CSV downloads do.
+     * @return the empty result
+     */
+    DataResult<T> getExportResult();
+}
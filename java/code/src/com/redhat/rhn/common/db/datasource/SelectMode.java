@@ -19,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * A cached set of query/elaborator strings and the parameterMap hash maps.
@@ -117,6 +118,20 @@ public class SelectMode extends BaseMode implements Serializable {
         return getQuery().execute(parameters, inClause, this);
     }
 
+    /**
+     * Executes the query using the given parameters, fetching results from the database
+     * in batches instead of loading them all in memory. Each batch is elaborated before it
+     * is passed to the consumer. Must be called within a transaction.
+     * @param parameters Query parameters.
+     * @param batchSize number of rows fetched, elaborated and consumed at a time.
+     * @param consumer called once per batch of results.
+     * @param <T> type of the results
+     */
+    public <T> void executeInBatches(Map<String, ?> parameters, int batchSize,
+            Consumer<DataResult<T>> consumer) {
+        getQuery().executeInBatches(parameters, this, batchSize, consumer);
+    }
+
     /**
      * Elaborates a list by calling the elaboration queries with the given
      * parameters.
@@ -0,0 +1,218 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.db.datasource;
+
+import com.redhat.rhn.common.util.StringUtil;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Pageable data source backed by the driving query of a {@link SelectMode}.
+ *
+ * The query becomes the subquery of an outer select doing the filtering, sorting and
+ * paging, so only columns of the driving query can be used as attributes. Values added
+ * by elaborators are not available to the database, lists fall back to sorting and
+ * filtering them in memory. Only the rows of the requested page are elaborated, when
+ * the list renders them.
+ *
+ * @param <T> the row type
+ */
+public class SelectModeDataSource<T> implements PageableDataSource<T> {
+
+    private static final Pattern ATTRIBUTE = Pattern.compile("[a-zA-Z][a-zA-Z0-9]*");
+
+    private final SelectMode mode;
+    private final Map<String, Object> params;
+    private final Map<String, Object> elabParams;
+    private final SelectMode rowMode = new SelectMode();
+    private List<String> columns;
+    private Integer unfilteredSize;
+    private Consumer<DataResult<T>> pageHandler = page -> { };
+
+    /**
+     * Standard constructor.
+     * @param modeIn the mode, its driving query must not use an IN clause
+     * @param paramsIn the query parameters
+     * @param elabParamsIn the elaborator parameters
+     */
+    public SelectModeDataSource(SelectMode modeIn, Map<String, Object> paramsIn,
+            Map<String, Object> elabParamsIn) {
+        mode = modeIn;
+        params = paramsIn;
+        elabParams = elabParamsIn;
+    }
+
+    /**
+     * Sets a handler called with every page fetched, before it is rendered, to update
+     * rows as actions do for complete lists, eg. to mark them as selected.
+     * @param pageHandlerIn the handler
+     */
+    public void setPageHandler(Consumer<DataResult<T>> pageHandlerIn) {
+        pageHandler = pageHandlerIn;
+    }
+
+    /**
+     * @return the elaborator of the fetched pages
+     */
+    public Elaborator getElaborator() {
+        return new ModeElaborator(mode, elabParams);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isPageable(String attribute) {
+        if (attribute == null || !ATTRIBUTE.matcher(attribute).matches()) {
+            return false;
+        }
+        if (columns == null) {
+            columns = mode.getQuery().executeColumnNames(params);
+        }
+        return columns.contains(StringUtil.debeanify(attribute));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSize(PageRequest request) {
+        boolean filtered = request.getFilterAttribute() != null;
+        if (!filtered && unfilteredSize != null) {
+            return unfilteredSize;
+        }
+        Map<String, Object> outerParams = new HashMap<String, Object>();
+        String where = where(request, outerParams);
+        DataResult<Object> rows = mode.getQuery().executeWrapped("SELECT COUNT(*) AS total FROM ",
+                " paged_q" + where, params, outerParams, rowMode);
+        int size = total(rows);
+        if (!filtered) {
+            unfilteredSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataResult<T> getPage(PageRequest request) {
+        Map<String, Object> outerParams = new HashMap<String, Object>();
+        StringBuilder suffix = new StringBuilder(" paged_q").append(where(request, outerParams));
+        if (request.getSortAttribute() != null) {
+            String column = "paged_q." + column(request.getSortAttribute());
+            if (request.isIgnoreCase()) {
+                column = "UPPER(" + column + ")";
+            }
+            // nulls sort first, like they do in memory
+            suffix.append(" ORDER BY ").append(column)
+                .append(request.isAscending() ? " ASC NULLS FIRST" : " DESC NULLS LAST");
+            if (isPageable("id") && !request.getSortAttribute().equals("id")) {
+                // make the order of rows with equal values stable across pages
+                suffix.append(", paged_q.id");
+            }
+        }
+        if (request.getLimit() > 0) {
+            suffix.append(" OFFSET ").append(request.getOffset())
+                .append(" ROWS FETCH NEXT ").append(request.getLimit()).append(" ROWS ONLY");
+        }
+
+        DataResult<T> page = (DataResult<T>) mode.getQuery().executeWrapped("SELECT paged_q.* FROM ",
+                suffix.toString(), params, outerParams, mode);
+        page.setElaborationParams(elabParams);
+        page.setStart(request.getOffset() + 1);
+        page.setEnd(request.getOffset() + page.size());
+        pageHandler.accept(page);
+        return page;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<Character> getAlphaIndex(PageRequest request, String attribute) {
+        Map<String, Object> outerParams = new HashMap<String, Object>();
+        String column = "paged_q." + column(attribute);
+        DataResult<Object> rows = mode.getQuery().executeWrapped(
+                "SELECT DISTINCT UPPER(SUBSTR(" + column + ", 1, 1)) AS alpha FROM ",
+                " paged_q" + where(request, outerParams), params, outerParams, rowMode);
+
+        Set<Character> index = new HashSet<Character>();
+        for (Object row : rows) {
+            String alpha = (String) ((Map<?, ?>) row).get("alpha");
+            if (alpha != null && !alpha.trim().isEmpty()) {
+                index.add(alpha.charAt(0));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getAlphaPosition(PageRequest request, String attribute, char letter) {
+        Map<String, Object> outerParams = new HashMap<String, Object>();
+        String where = where(request, outerParams);
+        String column = "paged_q." + column(attribute);
+        outerParams.put("page_alpha", String.valueOf(letter));
+        DataResult<Object> rows = mode.getQuery().executeWrapped("SELECT COUNT(*) AS total FROM ",
+                " paged_q" + (where.isEmpty() ? " WHERE " : where + " AND ") +
+                "(" + column + " IS NULL OR UPPER(SUBSTR(" + column + ", 1, 1)) < :page_alpha)",
+                params, outerParams, rowMode);
+        return total(rows);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataResult<T> getExportResult() {
+        mode.getQuery().prepareRestart(params, mode);
+        DataResult<T> result = new DataResult<T>(mode);
+        result.setElaborationParams(elabParams);
+        return result;
+    }
+
+    private String column(String attribute) {
+        if (!isPageable(attribute)) {
+            throw new IllegalArgumentException("Not a column of query " +
+                    mode.getQuery().getName() + ": " + attribute);
+        }
+        return StringUtil.debeanify(attribute);
+    }
+
+    private String where(PageRequest request, Map<String, Object> outerParams) {
+        if (request.getFilterAttribute() == null) {
+            return "";
+        }
+        String value = request.getFilterValue().toLowerCase()
+                .replace("!", "!!").replace("%", "!%").replace("_", "!_");
+        outerParams.put("page_filter", "%" + value + "%");
+        return " WHERE LOWER(CAST(paged_q." + column(request.getFilterAttribute()) +
+                " AS VARCHAR(4000))) LIKE :page_filter ESCAPE '!'";
+    }
+
+    private int total(DataResult<Object> rows) {
+        return ((Number) ((Map<?, ?>) rows.get(0)).get("total")).intValue();
+    }
+}
@@ -317,6 +317,30 @@ public class AdvDataSourceTest extends RhnBaseTestCase {
         }
     }
 
+    public void testExecuteInBatches() throws Exception {
+        int startId = 1000;
+        int endId = startId + 50;
+
+        for (int i = startId; i < endId; i++) {
+            insert("foobar" + TestUtils.randomString(), i);
+        }
+        SelectMode m = ModeFactory.getMode("test_queries", "find_all_in_table");
+        int expected = m.execute(Collections.EMPTY_MAP).size();
+
+        List<Integer> batchSizes = new ArrayList<>();
+        m.executeInBatches(Collections.EMPTY_MAP, 20, (DataResult<AdvDataSourceDto> batch) -> {
+            batchSizes.add(batch.size());
+            for (AdvDataSourceDto row : batch) {
+                assertNotNull(row.getTestColumn());
+                assertNotNull(row.getPin());
+                assertNotNull(row.getFoobar());
+            }
+        });
+
+        assertEquals(expected, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 20));
+    }
+
     public void testSelectInWithParams() throws Exception {
         SelectMode m = ModeFactory.getMode("test_queries", "select_in_withparams");
         List inclause = new ArrayList();
@@ -14,6 +14,12 @@
  */
 package com.redhat.rhn.common.filediff;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
+
+import com.suse.utils.ExpiringCache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -26,19 +32,52 @@ import java.util.List;
  */
 public class Diff {
 
+    /**
+     * Files with more lines are diffed with {@link LinearDiffer}, whose memory use does
+     * not depend on the number of differences.
+     */
+    private static final int LARGE_FILE_LINES = 1000;
+
+    /**
+     * Hunks of diffs between contents identified by checksums, keyed by both
+     * checksums. Contents with a given checksum never change, so entries are only
+     * evicted to bound memory use.
+     */
+    private static final ExpiringCache<List<String>, List<Hunk>> HUNKS = new ExpiringCache<>(
+            "file_diff_hunks",
+            ConfigDefaults.get().getFileDiffCacheSize(),
+            ConfigDefaults.get().getFileDiffCacheTtl() * 1000L);
+
     private final String[] firstfile;
     private final String[] secondfile;
     private final int maxLength;
+    private final List<String> checksums;
 
     /**
      * @param firstfileIn The old(from) file as a String array.
      * @param secondfileIn The new(to) file as a String array.
      */
     public Diff(String[] firstfileIn, String[] secondfileIn) {
+        this(firstfileIn, null, secondfileIn, null);
+    }
+
+    /**
+     * Diff of files identified by checksums, like config file revisions. Files with
+     * the same checksum are not compared line by line and the resulting hunks are
+     * cached by checksums, as the same revisions are often compared repeatedly.
+     * @param firstfileIn The old(from) file as a String array.
+     * @param firstChecksum The checksum of the old file, null if unknown
+     * @param secondfileIn The new(to) file as a String array.
+     * @param secondChecksum The checksum of the new file, null if unknown
+     */
+    public Diff(String[] firstfileIn, String firstChecksum, String[] secondfileIn,
+            String secondChecksum) {
         firstfile = firstfileIn;
         secondfile = secondfileIn;
         maxLength = firstfile.length > secondfile.length ?
                 firstfile.length : secondfile.length;
+        checksums = firstChecksum != null && secondChecksum != null ?
+                Arrays.asList(firstChecksum, secondChecksum) : null;
     }
 
     /**
@@ -88,10 +127,45 @@ public class Diff {
      * @see Hunk
      */
     public List<Hunk> diffFiles() {
+        if (checksums == null) {
+            return computeHunks(Arrays.equals(firstfile, secondfile));
+        }
+        List<Hunk> hunks = HUNKS.get(checksums).orElse(null);
+        if (hunks == null) {
+            hunks = computeHunks(checksums.get(0).equals(checksums.get(1)));
+            HUNKS.put(checksums, hunks);
+        }
+        return hunks;
+    }
+
+    private List<Hunk> computeHunks(boolean identical) {
+        if (identical) {
+            List<Hunk> hunks = new ArrayList<Hunk>();
+            if (firstfile.length > 0) {
+                MatchHunk hunk = new MatchHunk();
+                hunk.setOldLines(matchedLines(firstfile));
+                hunk.setNewLines(matchedLines(secondfile));
+                hunks.add(hunk);
+            }
+            return hunks;
+        }
+        if (maxLength > LARGE_FILE_LINES) {
+            return new LinearDiffer(firstfile, secondfile).diff();
+        }
         Differ differ = new Differ(firstfile.length, secondfile.length);
         return differ.diff(firstfile, secondfile);
     }
 
+    private static FileLines matchedLines(String[] file) {
+        FileLines lines = new FileLines();
+        lines.setFromLine(1);
+        lines.setToLine(file.length + 1);
+        for (String line : file) {
+            lines.addLine(line);
+        }
+        return lines;
+    }
+
     private void writeHunks(List<Hunk> hunks, DiffWriter writer) {
         Iterator<Hunk> i = hunks.iterator();
         while (i.hasNext()) {
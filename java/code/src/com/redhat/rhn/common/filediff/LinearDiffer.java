@@ -0,0 +1,314 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.filediff;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * File diff using the linear space refinement of Eugene W. Myers's algorithm, as
+ * described in section 4b of "An O(ND) Difference Algorithm and Its Variations".
+ *
+ * Unlike {@link Differ}, memory use only grows with the size of the files. Lines are
+ * compared as integers, lines only present in one file are marked as changed upfront and
+ * common prefixes and suffixes are skipped, so that the quadratic part of the algorithm
+ * only sees lines that can match. Like GNU diff, these heuristics trade minimality for
+ * speed: the result is close to, but not always, the shortest edit script. Ranges where
+ * no progress can be made are reported as changed entirely.
+ */
+public class LinearDiffer {
+
+    private final String[] oldFile;
+    private final String[] newFile;
+    private final boolean[] oldChanged;
+    private final boolean[] newChanged;
+    private int[] oldIds;
+    private int[] newIds;
+    private int[] oldIndexes;
+    private int[] newIndexes;
+    private int[] forward;
+    private int[] reverse;
+
+    /**
+     * @param oldFileIn The old(first, from) file
+     * @param newFileIn The new(second, to) file
+     */
+    public LinearDiffer(String[] oldFileIn, String[] newFileIn) {
+        oldFile = oldFileIn;
+        newFile = newFileIn;
+        oldChanged = new boolean[oldFile.length];
+        newChanged = new boolean[newFile.length];
+    }
+
+    /**
+     * @return A list of Hunks representing the differences.
+     */
+    public List<Hunk> diff() {
+        prepare();
+        int size = oldIds.length + newIds.length + 2;
+        forward = new int[size];
+        reverse = new int[size];
+        compare(0, oldIds.length, 0, newIds.length);
+        return createHunks();
+    }
+
+    /**
+     * Numbers lines so that equal lines get the same id, and keeps the lines which
+     * exist in both files.
+     */
+    private void prepare() {
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        int[] allOld = new int[oldFile.length];
+        for (int i = 0; i < oldFile.length; i++) {
+            Integer id = ids.get(oldFile[i]);
+            if (id == null) {
+                id = ids.size();
+                ids.put(oldFile[i], id);
+            }
+            allOld[i] = id;
+        }
+        boolean[] inOld = new boolean[ids.size()];
+        for (int id : allOld) {
+            inOld[id] = true;
+        }
+        boolean[] inNew = new boolean[ids.size()];
+        int[] allNew = new int[newFile.length];
+        for (int j = 0; j < newFile.length; j++) {
+            Integer id = ids.get(newFile[j]);
+            allNew[j] = id == null ? -1 : id;
+            if (id != null) {
+                inNew[id] = true;
+            }
+        }
+
+        int[][] oldKept = keep(allOld, inNew, oldChanged);
+        oldIds = oldKept[0];
+        oldIndexes = oldKept[1];
+        int[][] newKept = keep(allNew, inOld, newChanged);
+        newIds = newKept[0];
+        newIndexes = newKept[1];
+    }
+
+    private static int[][] keep(int[] lineIds, boolean[] inOther, boolean[] changed) {
+        int count = 0;
+        for (int i = 0; i < lineIds.length; i++) {
+            if (lineIds[i] == -1 || !inOther[lineIds[i]]) {
+                changed[i] = true;
+            }
+            else {
+                count++;
+            }
+        }
+        int[] keptIds = new int[count];
+        int[] keptIndexes = new int[count];
+        int k = 0;
+        for (int i = 0; i < lineIds.length; i++) {
+            if (!changed[i]) {
+                keptIds[k] = lineIds[i];
+                keptIndexes[k] = i;
+                k++;
+            }
+        }
+        return new int[][] {keptIds, keptIndexes};
+    }
+
+    /**
+     * Marks the changed lines between two ranges of the kept lines.
+     */
+    private void compare(int oldLo, int oldHi, int newLo, int newHi) {
+        while (oldLo < oldHi && newLo < newHi && oldIds[oldLo] == newIds[newLo]) {
+            oldLo++;
+            newLo++;
+        }
+        while (oldLo < oldHi && newLo < newHi && oldIds[oldHi - 1] == newIds[newHi - 1]) {
+            oldHi--;
+            newHi--;
+        }
+        if (oldLo == oldHi || newLo == newHi) {
+            markChanged(oldLo, oldHi, newLo, newHi);
+            return;
+        }
+
+        int[] split = middleSnake(oldLo, oldHi, newLo, newHi);
+        if (split == null || (split[0] == oldLo && split[1] == newLo) ||
+                (split[0] == oldHi && split[1] == newHi)) {
+            // no common line or no progress possible, the ranges are replaced entirely
+            markChanged(oldLo, oldHi, newLo, newHi);
+            return;
+        }
+        compare(oldLo, split[0], newLo, split[1]);
+        compare(split[0], oldHi, split[1], newHi);
+    }
+
+    private void markChanged(int oldLo, int oldHi, int newLo, int newHi) {
+        for (int i = oldLo; i < oldHi; i++) {
+            oldChanged[oldIndexes[i]] = true;
+        }
+        for (int j = newLo; j < newHi; j++) {
+            newChanged[newIndexes[j]] = true;
+        }
+    }
+
+    /**
+     * Walks the shortest edit paths from both ends of the ranges until they overlap.
+     * @return the point where they meet, relative to the kept lines, or null if the
+     * ranges have no line in common
+     */
+    private int[] middleSnake(int oldLo, int oldHi, int newLo, int newHi) {
+        int n = oldHi - oldLo;
+        int m = newHi - newLo;
+        int maxD = (n + m + 1) / 2;
+        int offset = maxD;
+        int length = 2 * maxD;
+        for (int i = 0; i < length; i++) {
+            forward[i] = -1;
+            reverse[i] = -1;
+        }
+        forward[offset + 1] = 0;
+        reverse[offset + 1] = 0;
+        int delta = n - m;
+        // if the delta is odd, paths can only overlap on a forward step
+        boolean front = delta % 2 != 0;
+        int forwardStart = 0;
+        int forwardEnd = 0;
+        int reverseStart = 0;
+        int reverseEnd = 0;
+
+        for (int d = 0; d < maxD; d++) {
+            for (int k = -d + forwardStart; k <= d - forwardEnd; k += 2) {
+                int kOffset = offset + k;
+                int x;
+                if (k == -d || (k != d && forward[kOffset - 1] < forward[kOffset + 1])) {
+                    x = forward[kOffset + 1];
+                }
+                else {
+                    x = forward[kOffset - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m && oldIds[oldLo + x] == newIds[newLo + y]) {
+                    x++;
+                    y++;
+                }
+                forward[kOffset] = x;
+                if (x > n) {
+                    forwardEnd += 2;
+                }
+                else if (y > m) {
+                    forwardStart += 2;
+                }
+                else if (front) {
+                    int reverseOffset = offset + delta - k;
+                    if (reverseOffset >= 0 && reverseOffset < length &&
+                            reverse[reverseOffset] != -1 && x >= n - reverse[reverseOffset]) {
+                        return new int[] {oldLo + x, newLo + y};
+                    }
+                }
+            }
+
+            for (int k = -d + reverseStart; k <= d - reverseEnd; k += 2) {
+                int kOffset = offset + k;
+                int x;
+                if (k == -d || (k != d && reverse[kOffset - 1] < reverse[kOffset + 1])) {
+                    x = reverse[kOffset + 1];
+                }
+                else {
+                    x = reverse[kOffset - 1] + 1;
+                }
+                int y = x - k;
+                while (x < n && y < m &&
+                        oldIds[oldHi - x - 1] == newIds[newHi - y - 1]) {
+                    x++;
+                    y++;
+                }
+                reverse[kOffset] = x;
+                if (x > n) {
+                    reverseEnd += 2;
+                }
+                else if (y > m) {
+                    reverseStart += 2;
+                }
+                else if (!front) {
+                    int forwardOffset = offset + delta - k;
+                    if (forwardOffset >= 0 && forwardOffset < length &&
+                            forward[forwardOffset] != -1) {
+                        int forwardX = forward[forwardOffset];
+                        int forwardY = forwardX - (forwardOffset - offset);
+                        if (forwardX >= n - x) {
+                            return new int[] {oldLo + forwardX, newLo + forwardY};
+                        }
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Groups the lines into hunks, in the same way {@link Trace} does: changed lines
+     * between two matching lines form a change hunk if lines were both deleted and
+     * inserted, a delete or insert hunk otherwise.
+     */
+    private List<Hunk> createHunks() {
+        List<Hunk> hunks = new ArrayList<Hunk>();
+        int i = 0;
+        int j = 0;
+        while (i < oldFile.length || j < newFile.length) {
+            int oldStart = i;
+            int newStart = j;
+            Hunk hunk;
+            if (i < oldFile.length && j < newFile.length && !oldChanged[i] && !newChanged[j]) {
+                while (i < oldFile.length && j < newFile.length &&
+                        !oldChanged[i] && !newChanged[j]) {
+                    i++;
+                    j++;
+                }
+                hunk = new MatchHunk();
+            }
+            else {
+                while (i < oldFile.length && oldChanged[i]) {
+                    i++;
+                }
+                while (j < newFile.length && newChanged[j]) {
+                    j++;
+                }
+                if (i > oldStart && j > newStart) {
+                    hunk = new ChangeHunk();
+                }
+                else if (i > oldStart) {
+                    hunk = new DeleteHunk();
+                }
+                else {
+                    hunk = new InsertHunk();
+                }
+            }
+            hunk.setOldLines(createFileLines(oldFile, oldStart, i - oldStart));
+            hunk.setNewLines(createFileLines(newFile, newStart, j - newStart));
+            hunks.add(hunk);
+        }
+        return hunks;
+    }
+
+    private static FileLines createFileLines(String[] file, int fromLine, int numLines) {
+        FileLines retval = new FileLines();
+        retval.setFromLine(fromLine + 1);
+        retval.setToLine(fromLine + numLines + 1);
+        for (int i = fromLine; i < fromLine + numLines; i++) {
+            retval.addLine(file[i]);
+        }
+        return retval;
+    }
+}
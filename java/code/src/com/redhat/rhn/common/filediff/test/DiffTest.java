@@ -52,6 +52,33 @@ public class DiffTest extends RhnBaseTestCase {
         checkDiff(testOld, testNew, testType);
     }
 
+    public void testLargeFiles() {
+        String[] testOld = new String[2000];
+        String[] testNew = new String[2001];
+        for (int i = 0; i < testOld.length; i++) {
+            testOld[i] = "line " + i;
+            testNew[i] = "line " + i;
+        }
+        testNew[500] = "changed";
+        testNew[2000] = "added";
+        Class<?>[] testTypes = { MatchHunk.class, ChangeHunk.class,
+                MatchHunk.class, InsertHunk.class};
+        checkDiff(testOld, testNew, testTypes);
+    }
+
+    public void testChecksums() {
+        String[] testOld = {"one", "two"};
+        String[] testNew = {"one", "too"};
+        List<Hunk> hunks = new Diff(testOld, "sha256:a", testNew, "sha256:b").diffFiles();
+        assertEquals(2, hunks.size());
+        assertSame(hunks, new Diff(testOld, "sha256:a", testNew, "sha256:b").diffFiles());
+
+        hunks = new Diff(testOld, "sha256:a", testOld, "sha256:a").diffFiles();
+        assertEquals(1, hunks.size());
+        assertTrue(hunks.get(0) instanceof MatchHunk);
+        assertEquals(testOld.length, hunks.get(0).getNewLines().getLines().size());
+    }
+
     private void checkDiff(String[] oldFile, String[] newFile, Class<?>[] types) {
         Diff diff = new Diff(oldFile, newFile);
         List<Hunk> hunks = diff.diffFiles();
@@ -80,6 +80,16 @@ public class EmptyVarcharInterceptor extends EmptyInterceptor {
                 types, autoConvert);
     }
 
+    /**
+     * Counts the statement in {@link QueryCounter}.
+     * {@inheritDoc}
+     */
+    @Override
+    public String onPrepareStatement(String sql) {
+        QueryCounter.increment();
+        return super.onPrepareStatement(sql);
+    }
+
     /**
      * Flag indicating if the interceptor correct the varchar errors automatically
      *
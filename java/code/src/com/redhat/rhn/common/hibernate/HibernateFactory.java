@@ -62,6 +62,7 @@ public abstract class HibernateFactory {
 
     private static ConnectionManager connectionManager = new ConnectionManager();
     private static final Logger LOG = Logger.getLogger(HibernateFactory.class);
+    private static final int JDBC_BATCH_SIZE = 50;
 
     protected HibernateFactory() {
     }
@@ -726,6 +727,32 @@ public abstract class HibernateFactory {
         }, createSession);
     }
 
+    /**
+     * Runs <code>body</code> and flushes the session, writing the changes with JDBC
+     * batches of up to 50 statements. The batch size of the
+     * session is restored afterwards.
+     *
+     * Hibernate orders the queued inserts and updates by entity before the flush
+     * (hibernate.order_inserts and hibernate.order_updates), so that statements of
+     * interleaved changes to different entities still end up in the same batch.
+     *
+     * Use for code saving or changing many objects of the same kinds at once.
+     *
+     * @param body code whose changes are written in batches
+     */
+    public static void doWithJdbcBatching(Runnable body) {
+        Session session = getSession();
+        Integer batchSize = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(JDBC_BATCH_SIZE);
+        try {
+            body.run();
+            session.flush();
+        }
+        finally {
+            session.setJdbcBatchSize(batchSize);
+        }
+    }
+
     /**
      * Returns the current initialization status
      * @return boolean current status
@@ -0,0 +1,42 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.hibernate;
+
+/**
+ * Counts SQL statements prepared by the current thread, through Hibernate or through
+ * DataSource modes. Callers take the difference of two readings to find out how many
+ * statements a unit of work needed.
+ */
+public final class QueryCounter {
+
+    private static final ThreadLocal<long[]> COUNT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private QueryCounter() {
+    }
+
+    /**
+     * Counts one statement prepared by the current thread.
+     */
+    public static void increment() {
+        COUNT.get()[0]++;
+    }
+
+    /**
+     * @return the number of statements prepared by the current thread so far
+     */
+    public static long get() {
+        return COUNT.get()[0];
+    }
+}
@@ -86,6 +86,19 @@ class ActionExecutor implements Runnable {
         return actionHandlers.stream().allMatch(MessageAction::canRunConcurrently);
     }
 
+    /**
+     * Return the maximum number of threads that may run message executors like this one at the same time,
+     * that is the lowest concurrency allowed by any of the message actions.
+     *
+     * @return the maximum concurrency, at least 1
+     */
+    public int getMaxConcurrency() {
+        if (!canRunConcurrently()) {
+            return 1;
+        }
+        return Math.max(1, actionHandlers.stream().mapToInt(MessageAction::getMaxConcurrency).min().orElse(1));
+    }
+
     @Override
     public String toString() {
         return "ActionExecutor[message=" + msg.getClass().getSimpleName() + "]";
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.common.messaging;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Queues the messages of one event type in front of the thread pool shared by all event types.
+ *
+ * A lane hands at most a fixed number of its messages to the shared pool at the same time, the others
+ * wait in the lane. Messages of a slow or flooded event type therefore only occupy a few threads of
+ * the pool, while the pool keeps bounding the total number of messages executed at the same time.
+ *
+ * Lanes are unbounded. Publishing never blocks and messages are never dropped: when more messages than
+ * the lane capacity are waiting, a warning is logged and the overflow is counted.
+ */
+public class EventLane {
+
+    private static final Logger LOG = Logger.getLogger(EventLane.class);
+
+    /** Time messages spend waiting in a lane, across all lanes */
+    public static final Histogram WAIT_TIME = Histogram.build()
+            .name("message_queue_lane_wait_seconds")
+            .help("message_queue - Time messages waited in a lane before being executed")
+            .labelNames("lane")
+            .create();
+
+    /** Time spent executing messages, across all lanes */
+    public static final Histogram EXECUTION_TIME = Histogram.build()
+            .name("message_queue_lane_execution_seconds")
+            .help("message_queue - Time spent executing messages of a lane")
+            .labelNames("lane")
+            .create();
+
+    /** Messages published while their lane was full, across all lanes */
+    public static final Counter OVERFLOWS = Counter.build()
+            .name("message_queue_lane_overflow_total")
+            .help("message_queue - Messages published while their lane was over capacity")
+            .labelNames("lane")
+            .create();
+
+    private final String name;
+    private final int concurrency;
+    private final int capacity;
+    private final Executor pool;
+
+    /* Guarded by this */
+    private final Deque<LaneTask> waiting = new ArrayDeque<>();
+    private int running;
+    private long completed;
+    private boolean isShutdown;
+
+    /**
+     * Constructor.
+     *
+     * @param nameIn the lane name, typically the event type
+     * @param concurrencyIn the number of messages executed at the same time
+     * @param capacityIn the number of messages in the lane before overflows are reported, not a limit
+     * @param poolIn the thread pool shared by all lanes
+     */
+    EventLane(String nameIn, int concurrencyIn, int capacityIn, Executor poolIn) {
+        name = nameIn;
+        concurrency = concurrencyIn;
+        capacity = capacityIn;
+        pool = poolIn;
+    }
+
+    /**
+     * Queues a message for execution on this lane, without waiting.
+     *
+     * @param executor the message executor
+     * @param onCompletion called after the message has been executed
+     * @throws RejectedExecutionException if the lane has been shut down
+     */
+    synchronized void dispatch(ActionExecutor executor, Runnable onCompletion) {
+        if (isShutdown) {
+            throw new RejectedExecutionException("Lane " + name + " is shut down");
+        }
+        int depth = getDepth();
+        if (depth >= capacity) {
+            OVERFLOWS.labels(name).inc();
+            if (depth == capacity) {
+                LOG.warn("Lane " + name + " is full (" + depth + " messages), further messages are queued anyway");
+            }
+        }
+        waiting.add(new LaneTask(executor, System.nanoTime(), onCompletion));
+        submitWaiting();
+    }
+
+    /**
+     * Hands waiting messages to the shared pool as long as the lane concurrency allows it.
+     */
+    private synchronized void submitWaiting() {
+        while (running < concurrency && !waiting.isEmpty()) {
+            LaneTask task = waiting.poll();
+            running++;
+            try {
+                pool.execute(task);
+            }
+            catch (RejectedExecutionException e) {
+                // the shared pool is shutting down, keep the message so that it is reported as pending
+                running--;
+                waiting.addFirst(task);
+                LOG.warn("Unable to execute " + task + " on lane " + name + ": " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    private synchronized void taskDone() {
+        running--;
+        completed++;
+        submitWaiting();
+        notifyAll();
+    }
+
+    /**
+     * Stops accepting messages, already queued ones are still executed.
+     */
+    synchronized void shutdown() {
+        isShutdown = true;
+        notifyAll();
+    }
+
+    /**
+     * Waits for queued messages to be executed after {@link #shutdown()}.
+     *
+     * @param timeoutMillis maximum time to wait
+     * @return true if the lane terminated, false if the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!isTerminated()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the lane has been shut down and all its messages have been executed
+     */
+    public synchronized boolean isTerminated() {
+        return isShutdown && running == 0 && waiting.isEmpty();
+    }
+
+    /**
+     * @return the lane name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of messages executed at the same time
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return the number of messages waiting or being executed
+     */
+    public synchronized int getDepth() {
+        return waiting.size() + running;
+    }
+
+    /**
+     * @return the number of messages handed to the shared pool and not completed yet
+     */
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of messages ever completed
+     */
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    @Override
+    public String toString() {
+        return "EventLane[name=" + name + ", concurrency=" + concurrency + "]";
+    }
+
+    /**
+     * Executes one message and keeps track of lane statistics.
+     */
+    private class LaneTask implements Runnable {
+
+        private final ActionExecutor executor;
+        private final long queuedAt;
+        private final Runnable onCompletion;
+
+        LaneTask(ActionExecutor executorIn, long queuedAtIn, Runnable onCompletionIn) {
+            executor = executorIn;
+            queuedAt = queuedAtIn;
+            onCompletion = onCompletionIn;
+        }
+
+        @Override
+        public void run() {
+            WAIT_TIME.labels(name).observe((System.nanoTime() - queuedAt) / 1.0E9);
+            Histogram.Timer timer = EXECUTION_TIME.labels(name).startTimer();
+            try {
+                executor.run();
+            }
+            finally {
+                timer.observeDuration();
+                taskDone();
+                onCompletion.run();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return executor.toString();
+        }
+    }
+}
@@ -15,6 +15,8 @@
 
 package com.redhat.rhn.common.messaging;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
+
 import java.util.function.Consumer;
 
 /**
@@ -29,11 +31,10 @@ public interface MessageAction {
     void execute(EventMessage msg);
 
     /**
-     * Return true in case this action can run concurrently with others. Depending on this
-     * flag the action will either be executed in the main message queue dispatcher thread
-     * and thus block other messages from being dispatched, or (in case of true) there will
-     * be a background thread executing this action while the main dispatcher thread can go
-     * on dispatching other messages.
+     * Return true in case this action can run concurrently with others. Every event type is
+     * dispatched on its own lane, so messages of other types never wait for this action.
+     * Depending on this flag messages of the same type will either be executed one after the
+     * other, or (in case of true) by up to {@link #getMaxConcurrency()} threads at the same time.
      *
      * @return true if this action can run concurrently with others, else false
      */
@@ -41,6 +42,16 @@ public interface MessageAction {
         return false;
     }
 
+    /**
+     * Return the maximum number of messages this action can process at the same time.
+     * Only taken into account if {@link #canRunConcurrently()} returns true.
+     *
+     * @return the maximum number of concurrently processed messages
+     */
+    default int getMaxConcurrency() {
+        return canRunConcurrently() ? ConfigDefaults.get().getMessageQueueThreadPoolSize(getClass()) : 1;
+    }
+
     /**
      * Return true in case this action needs Hibernate session and transaction handling.
      *
@@ -14,47 +14,132 @@
  */
 package com.redhat.rhn.common.messaging;
 
-import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
-import com.redhat.rhn.frontend.events.TraceBackAction;
-import com.redhat.rhn.frontend.events.TraceBackEvent;
 import com.suse.manager.metrics.PrometheusExporter;
 import org.apache.log4j.Logger;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Polls the EventQueue for events and executes them
+ * Dispatches events to per event type lanes, which execute them on a thread pool shared by all
+ * event types. The pool size bounds the number of messages executed at the same time.
  *
  * @version $Rev $
  */
-public class MessageDispatcher implements Runnable {
+public class MessageDispatcher {
 
     private static Logger log = Logger.getLogger(MessageDispatcher.class);
     private boolean isStopped = false;
 
-    /* Thread pool for concurrent execution of message actions */
-    private ExecutorService threadPool = new MessageQueueThreadPool(
-            Config.get().getInt(ConfigDefaults.MESSAGE_QUEUE_THREAD_POOL_SIZE));
+    private final int laneCapacity = ConfigDefaults.get().getMessageQueueLaneCapacity();
+    private final int poolSize = ConfigDefaults.get().getMessageQueueThreadPoolSize();
+
+    /* Maximum concurrency of a lane, at least one thread of the pool is left to other lanes */
+    private final int maxLaneConcurrency = Math.max(1, poolSize - 1);
+
+    /* Thread pool shared by all lanes */
+    private final MessageQueueThreadPool threadPool = new MessageQueueThreadPool(poolSize);
+
+    /* One lane per event type, created when the first message of a type is published */
+    private final Map<Class, EventLane> lanes = new ConcurrentHashMap<>();
+
+    /* Lanes that have been replaced but may still be executing messages */
+    private final List<EventLane> retiredLanes = new ArrayList<>();
+
+    /**
+     * Default constructor, registers lanes for exporting metrics
+     */
+    public MessageDispatcher() {
+        PrometheusExporter.INSTANCE.registerMessageQueue(this::getLanes);
+    }
+
+    /**
+     * Queues a message on the lane for its event type.
+     *
+     * @param eventType the event type
+     * @param executor the executor for the message
+     * @param onCompletion called after the message has been executed
+     */
+    void dispatch(Class eventType, ActionExecutor executor, Runnable onCompletion) {
+        // a lane can be shut down by a concurrent (de)registration, retry on the replacement lane in that case
+        for (int attempt = 0; attempt < 2; attempt++) {
+            EventLane lane = lanes.computeIfAbsent(eventType, type -> new EventLane(type.getSimpleName(),
+                    Math.min(executor.getMaxConcurrency(), maxLaneConcurrency), laneCapacity, threadPool));
+            try {
+                if (log.isDebugEnabled()) {
+                    log.debug("Dispatching " + executor + " on " + lane);
+                }
+                lane.dispatch(executor, onCompletion);
+                return;
+            }
+            catch (RejectedExecutionException e) {
+                lanes.remove(eventType, lane);
+            }
+        }
+        throw new RejectedExecutionException("Unable to dispatch " + executor);
+    }
+
+    /**
+     * Shuts down the lane of an event type after the actions for it changed. Queued messages are
+     * still executed, new messages will go to a new lane matching the new actions.
+     *
+     * @param eventType the event type
+     */
+    void retireLane(Class eventType) {
+        EventLane lane = lanes.remove(eventType);
+        if (lane != null) {
+            lane.shutdown();
+            synchronized (retiredLanes) {
+                retiredLanes.removeIf(EventLane::isTerminated);
+                retiredLanes.add(lane);
+            }
+        }
+    }
+
+    /**
+     * Returns the currently active lanes
+     * @return the lanes
+     */
+    public Collection<EventLane> getLanes() {
+        return new ArrayList<>(lanes.values());
+    }
 
     /**
      * Signals the dispatcher to stop
      */
     public synchronized void stop() {
-        // Gracefully shut down the thread pool
-        threadPool.shutdown();
+        isStopped = true;
+
+        List<EventLane> toStop = new ArrayList<>(lanes.values());
+        lanes.clear();
+        synchronized (retiredLanes) {
+            toStop.addAll(retiredLanes);
+            retiredLanes.clear();
+        }
+
+        // Gracefully shut down the lanes, then the pool they execute their messages on
+        toStop.forEach(EventLane::shutdown);
         log.info("Awaiting termination of threads (for 1 minute)");
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
         try {
-            final boolean done = threadPool.awaitTermination(1, TimeUnit.MINUTES);
+            boolean done = true;
+            for (EventLane lane : toStop) {
+                done &= lane.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()));
+            }
+            threadPool.shutdown();
+            done &= threadPool.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
             log.info("Thread pool shut down: " + done);
         }
         catch (InterruptedException e) {
             log.error("Interrupted while awaiting termination", e);
         }
-
-        isStopped = true;
     }
 
     /**
@@ -64,57 +149,4 @@ public class MessageDispatcher implements Runnable {
     public synchronized boolean isStopped() {
         return isStopped;
     }
-
-    /**
-     * Main run loop where events are popped off the queue
-     * and executed. Events are wrapped inside of a Runnable instance
-     */
-    public void run() {
-
-        // register the executor service for exporting metrics
-        PrometheusExporter.INSTANCE.registerThreadPool((ThreadPoolExecutor) this.threadPool, "message_queue");
-
-
-        while (!isStopped) {
-            try {
-                ActionExecutor actionHandler = MessageQueue.popEventMessage();
-                if (actionHandler == null) {
-                    continue;
-                }
-                else if (actionHandler.canRunConcurrently()) {
-                    log.info("Executing in thread pool: " + actionHandler);
-                    threadPool.execute(actionHandler);
-                }
-                else {
-                    actionHandler.run();
-                }
-            }
-            catch (InterruptedException e) {
-                log.error("Error occurred in the MessageQueue", e);
-                return;
-            }
-            catch (Throwable t) {
-                // better log this puppy to let folks know we have a problem
-                // but keep the queue running.
-                log.error("Error occurred with an event in the MessageQueue", t);
-
-                try {
-                    // ok let's email the admins of what's going on.
-                    // WARNING! DO NOT PUBLISH THE EVENT TO THE QUEUE!
-                    TraceBackEvent evt = new TraceBackEvent();
-                    evt.setUser(null);
-                    evt.setRequest(null);
-                    evt.setException(t);
-
-                    TraceBackAction tba = new TraceBackAction();
-                    tba.execute(evt);
-                }
-                catch (Throwable t1) {
-                    log.error("Error sending traceback email, logging for posterity.", t1);
-                }
-            }
-
-        }
-    }
-
 }
@@ -17,6 +17,8 @@ package com.redhat.rhn.common.messaging;
 
 import com.redhat.rhn.frontend.events.CloneErrataAction;
 import com.redhat.rhn.frontend.events.CloneErrataEvent;
+import com.redhat.rhn.frontend.events.IndexCVEPatchStatusAction;
+import com.redhat.rhn.frontend.events.IndexCVEPatchStatusEvent;
 import com.redhat.rhn.frontend.events.NewCloneErrataAction;
 import com.redhat.rhn.frontend.events.NewCloneErrataEvent;
 import com.redhat.rhn.frontend.events.NewUserAction;
@@ -56,18 +58,19 @@ import com.suse.manager.reactor.messaging.ChannelsChangedEventMessage;
 import com.suse.manager.reactor.messaging.ChannelsChangedEventMessageAction;
 import org.apache.log4j.Logger;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
-import EDU.oswego.cs.dl.util.concurrent.Channel;
-import EDU.oswego.cs.dl.util.concurrent.LinkedQueue;
-
 /**
  * A class that passes messages from the sender to an action class
+ *
+ * Messages are executed on one lane per event type (see {@link EventLane}), so slow
+ * actions only hold back messages of their own type.
  */
 public class MessageQueue {
 
@@ -77,11 +80,9 @@ public class MessageQueue {
     private static Logger logger = Logger.getLogger(MessageQueue.class);
 
     private static final Map<Class, List<MessageAction>> ACTIONS =
-            new HashMap<Class, List<MessageAction>>();
-    private static Channel messages = new LinkedQueue();
-    private static Thread dispatcherThread = null;
-    private static MessageDispatcher dispatcher = null;
-    private static int messageCount;
+            new ConcurrentHashMap<Class, List<MessageAction>>();
+    private static volatile MessageDispatcher dispatcher = null;
+    private static final AtomicInteger MESSAGE_COUNT = new AtomicInteger();
 
     /**
      * Util class so we don't have a usable constructor
@@ -102,23 +103,22 @@ public class MessageQueue {
             startMessaging();
         }
         if (msg != null) {
-            synchronized (ACTIONS) {
-                List<MessageAction> handlers = ACTIONS.get(msg.getClass());
-                if (handlers != null && handlers.size() > 0) {
-                    logger.debug("creating ActionExecutor");
-                    ActionExecutor executor = new ActionExecutor(handlers, msg);
-                    try {
-                        messages.put(executor);
-                        messageCount++;
-                    }
-                    catch (InterruptedException e) {
-                        logger.error(e.getMessage(), e);
-                    }
+            List<MessageAction> handlers = ACTIONS.get(msg.getClass());
+            if (handlers != null && handlers.size() > 0) {
+                logger.debug("creating ActionExecutor");
+                ActionExecutor executor = new ActionExecutor(handlers, msg);
+                MESSAGE_COUNT.incrementAndGet();
+                try {
+                    dispatcher.dispatch(msg.getClass(), executor, MESSAGE_COUNT::decrementAndGet);
                 }
-                else {
-                    logger.debug("handlers is null, not processing!");
+                catch (RejectedExecutionException e) {
+                    MESSAGE_COUNT.decrementAndGet();
+                    logger.error(e.getMessage(), e);
                 }
             }
+            else {
+                logger.debug("handlers is null, not processing!");
+            }
         }
 
         if (logger.isDebugEnabled()) {
@@ -135,16 +135,6 @@ public class MessageQueue {
         return ACTIONS.get(message.getClass()).stream();
     }
 
-    static ActionExecutor popEventMessage() throws InterruptedException {
-        ActionExecutor retval = (ActionExecutor) messages.poll(500);
-        if (retval != null) {
-            synchronized (ACTIONS) {
-                messageCount--;
-            }
-        }
-        return retval;
-    }
-
     /**
      * Start the messaging system
      */
@@ -156,10 +146,6 @@ public class MessageQueue {
             return;
         }
         dispatcher = new MessageDispatcher();
-        dispatcherThread = new Thread(dispatcher);
-        dispatcherThread.setName("RHN Message Dispatcher");
-        dispatcherThread.setDaemon(false);
-        dispatcherThread.start();
         if (logger.isDebugEnabled()) {
             logger.debug("startMessaging() - end");
         }
@@ -179,11 +165,11 @@ public class MessageQueue {
     }
 
     /**
-     * Get the number of messages in the queue
+     * Get the number of messages in the queue, including messages being executed
      * @return int number of messages in queue.
      */
     public static int getMessageCount() {
-        return messageCount;
+        return MESSAGE_COUNT.get();
     }
 
     /**
@@ -196,14 +182,8 @@ public class MessageQueue {
             logger.debug("registerAction(MessageAction, Class) - : " + act +
                     " class: " + eventType.getName());
         }
-        synchronized (ACTIONS) {
-            List<MessageAction> handlers = ACTIONS.get(eventType);
-            if (handlers == null) {
-                handlers = new ArrayList<MessageAction>();
-                ACTIONS.put(eventType, handlers);
-            }
-            handlers.add(act);
-        }
+        ACTIONS.computeIfAbsent(eventType, type -> new CopyOnWriteArrayList<MessageAction>()).add(act);
+        retireLane(eventType);
     }
 
     /**
@@ -215,15 +195,26 @@ public class MessageQueue {
         if (logger.isDebugEnabled()) {
             logger.debug("deRegisterAction(MessageAction, Class) - start");
         }
-        synchronized (ACTIONS) {
-            List<MessageAction> handlers = ACTIONS.get(eventType);
-            handlers.remove(act);
+        List<MessageAction> handlers = ACTIONS.get(eventType);
+        if (handlers != null && handlers.remove(act)) {
+            retireLane(eventType);
         }
         if (logger.isDebugEnabled()) {
             logger.debug("deRegisterAction(MessageAction, Class) - end");
         }
     }
 
+    /**
+     * Makes sure the next message of a type goes to a lane matching its current actions
+     * @param eventType Type of event.
+     */
+    private static void retireLane(Class eventType) {
+        MessageDispatcher current = dispatcher;
+        if (current != null) {
+            current.retireLane(eventType);
+        }
+    }
+
     /**
      * Get list of String Classnames of the registered Actions.  For Managment
      * of the MessageQueue and testability.
@@ -234,15 +225,13 @@ public class MessageQueue {
             logger.debug("getRegisteredEventNames() - start");
         }
         String[] retval = null;
-        synchronized (ACTIONS) {
-            if (ACTIONS.keySet().size() > 0) {
-                retval = new String[ACTIONS.keySet().size()];
-                int index = 0;
-                for (Iterator<Class> iter = ACTIONS.keySet().iterator(); iter.hasNext();) {
-                    Class klazz = iter.next();
-                    retval[index] = klazz.getName();
-                    index++;
-                }
+        Class[] eventTypes = ACTIONS.keySet().toArray(new Class[0]);
+        if (eventTypes.length > 0) {
+            retval = new String[eventTypes.length];
+            int index = 0;
+            for (Class klazz : eventTypes) {
+                retval[index] = klazz.getName();
+                index++;
             }
         }
 
@@ -280,6 +269,10 @@ public class MessageQueue {
         MessageQueue.registerAction(new UpdateErrataCacheAction(),
                                     UpdateErrataCacheEvent.class);
 
+        // Fill the CVE patch status index after audits, outside of the request
+        MessageQueue.registerAction(new IndexCVEPatchStatusAction(),
+                                    IndexCVEPatchStatusEvent.class);
+
         // Used for asynchronusly restarting the satellite
         MessageQueue.registerAction(new RestartSatelliteAction(),
                                     RestartSatelliteEvent.class);
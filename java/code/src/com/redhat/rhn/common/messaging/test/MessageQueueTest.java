@@ -18,10 +18,17 @@ package com.redhat.rhn.common.messaging.test;
 import org.apache.log4j.Logger;
 
 import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.MessageAction;
 import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.testing.RhnBaseTestCase;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MessageQueueTest extends RhnBaseTestCase {
 
     private static Logger logger = Logger.getLogger(MessageQueueTest.class);
@@ -176,6 +183,153 @@ public class MessageQueueTest extends RhnBaseTestCase {
         logger.debug("testThreadKiller - end");
     }
 
+    public void testSlowActionDoesNotBlockOtherEventTypes() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MessageAction blocking = new MessageAction() {
+            public void execute(EventMessage msg) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public boolean needsTransactionHandling() {
+                return false;
+            }
+        };
+        MessageQueue.registerAction(blocking, BlockingEventMessage.class);
+        try {
+            MessageQueue.publish(new BlockingEventMessage());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            TestEventMessage me = new TestEventMessage();
+            MessageQueue.publish(me);
+            int count = 0;
+            while (!me.getMessageReceived() && count < 50) {
+                Thread.sleep(100);
+                count++;
+            }
+            assertTrue(me.getMessageReceived());
+        }
+        finally {
+            release.countDown();
+            MessageQueue.deRegisterAction(blocking, BlockingEventMessage.class);
+        }
+    }
+
+    public void testSaturatedLaneDoesNotBlockOtherEventTypes() throws Exception {
+        String poolSize = Config.get().getString(ConfigDefaults.MESSAGE_QUEUE_THREAD_POOL_SIZE);
+        Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_THREAD_POOL_SIZE, "4");
+        MessageQueue.stopMessaging();
+        MessageQueue.startMessaging();
+
+        AtomicInteger running = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        MessageAction blocking = new MessageAction() {
+            public void execute(EventMessage msg) {
+                running.incrementAndGet();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    running.decrementAndGet();
+                }
+            }
+
+            @Override
+            public boolean canRunConcurrently() {
+                return true;
+            }
+
+            @Override
+            public boolean needsTransactionHandling() {
+                return false;
+            }
+        };
+        MessageQueue.registerAction(blocking, BlockingEventMessage.class);
+        try {
+            for (int i = 0; i < 10; i++) {
+                MessageQueue.publish(new BlockingEventMessage());
+            }
+            Thread.sleep(500);
+            // half of the shared pool by default
+            assertEquals(2, running.get());
+
+            TestEventMessage me = new TestEventMessage();
+            MessageQueue.publish(me);
+            int count = 0;
+            while (!me.getMessageReceived() && count < 50) {
+                Thread.sleep(100);
+                count++;
+            }
+            assertTrue(me.getMessageReceived());
+        }
+        finally {
+            release.countDown();
+            MessageQueue.deRegisterAction(blocking, BlockingEventMessage.class);
+            Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_THREAD_POOL_SIZE, poolSize == null ? "5" : poolSize);
+        }
+    }
+
+    public void testPublishToFullLaneDoesNotBlock() throws Exception {
+        String capacity = Config.get().getString(ConfigDefaults.MESSAGE_QUEUE_LANE_CAPACITY);
+        Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_LANE_CAPACITY, "1");
+        MessageQueue.stopMessaging();
+        MessageQueue.startMessaging();
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MessageAction blocking = new MessageAction() {
+            public void execute(EventMessage msg) {
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public boolean needsTransactionHandling() {
+                return false;
+            }
+        };
+        MessageQueue.registerAction(blocking, BlockingEventMessage.class);
+        try {
+            MessageQueue.publish(new BlockingEventMessage());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 5; i++) {
+                MessageQueue.publish(new BlockingEventMessage());
+            }
+            assertTrue(System.currentTimeMillis() - start < 1000);
+            assertEquals(6, MessageQueue.getMessageCount());
+
+            release.countDown();
+            int count = 0;
+            while (MessageQueue.getMessageCount() > 0 && count < 50) {
+                Thread.sleep(100);
+                count++;
+            }
+            assertEquals(0, MessageQueue.getMessageCount());
+        }
+        finally {
+            release.countDown();
+            MessageQueue.deRegisterAction(blocking, BlockingEventMessage.class);
+            Config.get().setString(ConfigDefaults.MESSAGE_QUEUE_LANE_CAPACITY, capacity == null ? "1000" : capacity);
+        }
+    }
+
     private void verifyMessageEvent(TestEventMessage me, boolean matchingValue)
             throws InterruptedException {
         MessageQueue.publish(me);
@@ -201,6 +355,20 @@ public class MessageQueueTest extends RhnBaseTestCase {
 
     }
 
+    /**
+     * Event type handled by an action that blocks until released.
+     */
+    public static class BlockingEventMessage implements EventMessage {
+
+        public String toText() {
+            return "Blocking test event";
+        }
+
+        public Long getUserId() {
+            return null;
+        }
+    }
+
     /**
     * Util thread to simulate multiple Threads publishing
     * events.
@@ -17,6 +17,10 @@ package com.redhat.rhn.common.translation;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * TranslationFactory, simple factory class that uses ManifestFactory to
@@ -27,6 +31,9 @@ import java.lang.reflect.Method;
 
 public class Translations {
 
+    /** Translator methods found so far, by translator class, source and target class */
+    private static final Map<List<Class>, Method> TRANSLATORS = new ConcurrentHashMap<>();
+
     protected Translations() {
     }
 
@@ -40,57 +47,62 @@ public class Translations {
             return have;
         }
 
-        Method[] methods = thisClass.getDeclaredMethods();
-
-        // tries to find an exact match
-        Object rc = findMatch(methods, have, want, false);
+        List<Class> key = Arrays.asList(thisClass, have.getClass(), want);
+        Method translator = TRANSLATORS.get(key);
+        if (translator == null) {
+            Method[] methods = thisClass.getDeclaredMethods();
 
-        if (rc == null) {
-            // try to find the best match
-            rc = findMatch(methods, have, want, true);
-
-            if (rc == null) {
+            // tries to find an exact match, then the best match
+            translator = findMatch(methods, have.getClass(), want, false);
+            if (translator == null) {
+                translator = findMatch(methods, have.getClass(), want, true);
+            }
+            if (translator == null) {
                 throw new TranslationException("Could not find translator for " +
                         have.getClass() + " to " + want);
             }
+            TRANSLATORS.put(key, translator);
         }
 
+        Object rc;
+        try {
+            rc = translator.invoke(null, have);
+        }
+        catch (IllegalAccessException e) {
+            throw new TranslationException("Could not execute " +
+                            "translator for " + have.getClass() +
+                            " to " + want, e);
+        }
+        catch (InvocationTargetException e) {
+            throw new TranslationException("Error when executing " +
+                            "translator for " + have.getClass() +
+                            " to " + want, e.getCause());
+        }
+        if (rc == null) {
+            throw new TranslationException("Could not find translator for " +
+                    have.getClass() + " to " + want);
+        }
         return rc;
     }
 
-    private static Object findMatch(Method[] methods, Object have,
-                                    Class want, boolean bestMatch)
-            throws TranslationException {
+    private static Method findMatch(Method[] methods, Class have, Class want,
+                                    boolean bestMatch) {
 
         for (int i = 0; i < methods.length; i++) {
             Class returnType = methods[i].getReturnType();
             Class[] params = methods[i].getParameterTypes();
 
             // All conversions have a single parameter, the object to transform
-            if (!bestMatch && have != null &&
-                (params.length != 1 || !params[0].equals(have.getClass()))) {
+            if (!bestMatch && (params.length != 1 || !params[0].equals(have))) {
                 continue;
             }
-            else if (bestMatch && have != null &&
-                    (params.length != 1 || !params[0].isAssignableFrom(have.getClass()))) {
+            else if (bestMatch &&
+                    (params.length != 1 || !params[0].isAssignableFrom(have))) {
                 continue;
             }
 
             if (returnType.equals(want)) {
-                Object[] objs = {have};
-                try {
-                    return methods[i].invoke(null, objs);
-                }
-                catch (IllegalAccessException e) {
-                    throw new TranslationException("Could not execute " +
-                                    "translator for " + have.getClass() +
-                                    " to " + want, e);
-                }
-                catch (InvocationTargetException e) {
-                    throw new TranslationException("Error when executing " +
-                                    "translator for " + have.getClass() +
-                                    " to " + want, e.getCause());
-                }
+                return methods[i];
             }
         }
 
@@ -75,6 +75,10 @@ public class HttpClientAdapter {
     /** The log. */
     private static Logger log = Logger.getLogger(HttpClientAdapter.class);
 
+    /** HttpClient defaults for connection pooling */
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 2;
+    private static final int DEFAULT_MAX_CONNECTIONS_TOTAL = 20;
+
     /** The proxy host. */
     private HttpHost proxyHost;
 
@@ -94,6 +98,15 @@ public class HttpClientAdapter {
      * be read from the configuration and applied transparently.
      */
     public HttpClientAdapter() {
+        this(DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Initialize an {@link HttpClient} for performing requests, allowing to perform
+     * up to the given number of concurrent requests to the same host.
+     * @param maxConnectionsPerRoute maximum number of concurrent connections to a host
+     */
+    public HttpClientAdapter(int maxConnectionsPerRoute) {
         Optional<SSLConnectionSocketFactory> sslSocketFactory = Optional.empty();
         try {
             SSLContext sslContext = SSLContext.getDefault();
@@ -108,6 +121,8 @@ public class HttpClientAdapter {
         }
 
         HttpClientBuilder clientBuilder = HttpClientBuilder.create();
+        clientBuilder.setMaxConnPerRoute(maxConnectionsPerRoute);
+        clientBuilder.setMaxConnTotal(Math.max(DEFAULT_MAX_CONNECTIONS_TOTAL, maxConnectionsPerRoute));
         sslSocketFactory.ifPresent(sf -> clientBuilder.setSSLSocketFactory(sf));
 
         clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
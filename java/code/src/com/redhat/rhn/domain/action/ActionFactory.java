@@ -74,6 +74,7 @@ import org.hibernate.Session;
 
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -807,12 +808,22 @@ public class ActionFactory extends HibernateFactory {
     }
 
     /**
-     * Returns all pending actions that contain minions
-     * @return list of pending minions that contain minions
-     */
-    public static List<Action> pendingMinionServerActions() {
-        List<Action> result = singleton.listObjectsByNamedQuery(
-                "Action.lookupPendingMinionActions", null);
+     * Returns the pending server actions of minions using the default contact method,
+     * for actions which should already have been executed. Their minions and actions
+     * are loaded by the same query.
+     * @param earliestBefore only return actions scheduled before this date
+     * @return list of pending minion server actions
+     */
+    public static List<ServerAction> pendingMinionServerActions(Date earliestBefore) {
+        List<Object[]> rows = HibernateFactory.getSession()
+                .getNamedQuery("ServerAction.findPendingMinionServerActions")
+                .setParameter("earliest", earliestBefore)
+                .setParameterList("statusList", Arrays.asList(STATUS_QUEUED, STATUS_PICKED_UP))
+                .list();
+        List<ServerAction> result = new ArrayList<ServerAction>(rows.size());
+        for (Object[] row : rows) {
+            result.add((ServerAction) row[0]);
+        }
         return result;
     }
 
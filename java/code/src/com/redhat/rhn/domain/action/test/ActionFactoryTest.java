@@ -49,7 +49,9 @@ import com.redhat.rhn.domain.rhnpackage.PackageEvr;
 import com.redhat.rhn.domain.rhnpackage.PackageEvrFactory;
 import com.redhat.rhn.domain.rhnpackage.PackageName;
 import com.redhat.rhn.domain.role.RoleFactory;
+import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.domain.server.test.ServerFactoryTest;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.testing.ConfigTestUtils;
@@ -59,6 +61,7 @@ import com.redhat.rhn.testing.UserTestUtils;
 
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * ActionFactoryTest
@@ -329,6 +332,31 @@ public class ActionFactoryTest extends RhnBaseTestCase {
 
 
 
+    public void testPendingMinionServerActions() throws Exception {
+        User user1 = UserTestUtils.findNewUser("testUser",
+            "testOrg" + this.getClass().getSimpleName());
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user1);
+        Server server = ServerFactoryTest.createTestServer(user1);
+        Action past = createAction(user1, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        past.setEarliestAction(new Date(System.currentTimeMillis() - 3600000L));
+        ServerAction pending = createServerAction(minion, past);
+        past.addServerAction(pending);
+        past.addServerAction(createServerAction(server, past));
+        Action future = createAction(user1, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        future.setEarliestAction(new Date(System.currentTimeMillis() + 3600000L));
+        future.addServerAction(createServerAction(minion, future));
+        ActionFactory.save(past);
+        ActionFactory.save(future);
+
+        List<ServerAction> result = ActionFactory.pendingMinionServerActions(new Date());
+        assertTrue(result.contains(pending));
+        assertTrue(result.stream().allMatch(sa -> sa.getServer().asMinionServer().isPresent()));
+        assertFalse(result.stream().anyMatch(sa -> sa.getParentAction().equals(future)));
+
+        pending.setStatus(ActionFactory.STATUS_COMPLETED);
+        assertFalse(ActionFactory.pendingMinionServerActions(new Date()).contains(pending));
+    }
+
     public void testCreateAction() throws Exception {
         Action a = createAction(UserTestUtils.createUser("testUser", UserTestUtils
                 .createOrg("testOrg" + this.getClass().getSimpleName())),
@@ -90,6 +90,7 @@ public class AccessTokenFactory extends HibernateFactory {
      */
     public static AccessToken save(AccessToken accessToken) {
         singleton.saveObject(accessToken);
+        DownloadCaches.invalidateToken(accessToken.getToken());
         return accessToken;
     }
 
@@ -226,6 +227,7 @@ public class AccessTokenFactory extends HibernateFactory {
      */
     public static void delete(AccessToken token) {
         HibernateFactory.getSession().delete(token);
+        DownloadCaches.invalidateToken(token.getToken());
     }
 
     /**
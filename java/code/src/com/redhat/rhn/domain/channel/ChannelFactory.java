@@ -598,6 +598,8 @@ public class ChannelFactory extends HibernateFactory {
         inParams.put("label", label);
 
         m.execute(inParams, new HashMap<String, Integer>());
+        // channel contents changed, do not serve stale package locations
+        DownloadCaches.invalidatePackagePaths();
     }
 
     /**
@@ -1236,14 +1238,14 @@ public class ChannelFactory extends HibernateFactory {
      * @param cid channel id we're cloning into
      */
     public static void addClonedErrataToChannel(Set<Long> eids, Long cid) {
+        if (eids.isEmpty()) {
+            return;
+        }
         WriteMode m = ModeFactory.getWriteMode("Channel_queries",
-                "add_cloned_erratum_to_channel");
+                "add_cloned_errata_to_channel");
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("cid", cid);
-        for (Long eid : eids) {
-            params.put("eid", eid);
-            m.executeUpdate(params);
-        }
+        m.executeUpdate(params, new ArrayList<Long>(eids));
     }
 
     /**
@@ -0,0 +1,64 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.domain.channel;
+
+import com.redhat.rhn.common.conf.ConfigDefaults;
+
+import com.suse.utils.ExpiringCache;
+
+import java.util.List;
+
+/**
+ * Caches used when serving packages to managed clients. They live in the domain layer so
+ * that the factories changing tokens and channels can invalidate them.
+ */
+public class DownloadCaches {
+
+    /**
+     * Tokens already validated for a channel, keyed by token and channel label. Changes done by other
+     * processes, like the token cleanup in Taskomatic, are seen once entries expire.
+     */
+    public static final ExpiringCache<List<String>, Boolean> VALIDATED_TOKENS = new ExpiringCache<>(
+            "download_tokens",
+            ConfigDefaults.get().getDownloadTokenCacheSize(),
+            ConfigDefaults.get().getDownloadTokenCacheTtl() * 1000L);
+
+    /**
+     * Package paths relative to the mount point, keyed by channel label, name, version, release and arch.
+     */
+    public static final ExpiringCache<List<String>, String> PACKAGE_PATHS = new ExpiringCache<>(
+            "download_package_paths",
+            ConfigDefaults.get().getDownloadPackageCacheSize(),
+            ConfigDefaults.get().getDownloadPackageCacheTtl() * 1000L);
+
+    private DownloadCaches() {
+    }
+
+    /**
+     * Forgets any validation of a token, to be called when the token changes.
+     *
+     * @param token the token
+     */
+    public static void invalidateToken(String token) {
+        VALIDATED_TOKENS.invalidateIf(key -> key.get(0).equals(token));
+    }
+
+    /**
+     * Forgets cached package paths, to be called when channel contents change.
+     */
+    public static void invalidatePackagePaths() {
+        PACKAGE_PATHS.clear();
+    }
+}
@@ -20,6 +20,7 @@ import com.redhat.rhn.domain.channel.AccessToken;
 import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelFactory;
+import com.redhat.rhn.domain.channel.DownloadCaches;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
@@ -90,6 +91,19 @@ public class AccessTokenFactoryTest extends BaseTestCaseWithUser {
         assertTrue(token.getValid());
     }
 
+    public void testSaveInvalidatesDownloadCache() throws Exception {
+        MinionServer testMinionServer = MinionServerFactoryTest.createTestMinionServer(user);
+        Channel base = ChannelFactoryTest.createBaseChannel(user);
+        AccessToken token = AccessTokenFactory.generate(testMinionServer, Collections.singleton(base)).get();
+        List<String> key = Arrays.asList(token.getToken(), base.getLabel());
+        DownloadCaches.VALIDATED_TOKENS.put(key, true);
+        assertTrue(DownloadCaches.VALIDATED_TOKENS.get(key).isPresent());
+
+        token.setValid(false);
+        AccessTokenFactory.save(token);
+        assertFalse(DownloadCaches.VALIDATED_TOKENS.get(key).isPresent());
+    }
+
     public void testGenerate() throws Exception {
         MinionServer testMinionServer = MinionServerFactoryTest.createTestMinionServer(user);
         Channel base = ChannelFactoryTest.createBaseChannel(user);
@@ -1243,6 +1243,20 @@ public class ErrataFactory extends HibernateFactory {
         return (DataResult<OwnedErrata>) mode.execute(params);
     }
 
+    /**
+     * List all owned, published, cloned errata in an org, including locally modified
+     * ones. Useful when merging errata.
+     * @param orgId Org id to look for
+     * @return List of OwnedErrata
+     */
+    public static DataResult<OwnedErrata> listPublishedOwnedClonedErrata(Long orgId) {
+        SelectMode mode = ModeFactory.getMode("Errata_queries",
+                "published_owned_cloned_errata");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("org_id", orgId);
+        return (DataResult<OwnedErrata>) mode.execute(params);
+    }
+
     /**
      * Get all advisory strings (published or unpublished) that end in the given string.
      * Useful when cloning errata.
@@ -1261,6 +1275,47 @@ public class ErrataFactory extends HibernateFactory {
         return ret;
     }
 
+    /**
+     * Get those of the given advisories that exist (published or unpublished).
+     * Useful when cloning many errata at once.
+     * @param advisories advisories to look for
+     * @return Set of existing advisories
+     */
+    public static Set<String> listExistingAdvisories(Collection<String> advisories) {
+        return listExisting("existing_advisories", "advisory", advisories);
+    }
+
+    /**
+     * Get those of the given advisory names that exist (published or unpublished).
+     * Useful when cloning many errata at once.
+     * @param advisoryNames advisory names to look for
+     * @return Set of existing advisory names
+     */
+    public static Set<String> listExistingAdvisoryNames(Collection<String> advisoryNames) {
+        return listExisting("existing_advisory_names", "advisory_name", advisoryNames);
+    }
+
+    private static Set<String> listExisting(String modeName, String column,
+            Collection<String> values) {
+        Set<String> ret = new HashSet<String>();
+        if (values.isEmpty()) {
+            return ret;
+        }
+        SelectMode mode = ModeFactory.getMode("Errata_queries", modeName);
+        List<Map<String, Object>> results = mode.execute(quoted(values));
+        for (Map<String, Object> result : results) {
+            ret.add((String) result.get(column));
+        }
+        return ret;
+    }
+
+    /**
+     * Strings of IN clauses are inlined in the query, quotes have to be escaped.
+     */
+    private static List<String> quoted(Collection<String> values) {
+        return values.stream().map(v -> v.replace("'", "''")).collect(Collectors.toList());
+    }
+
     /**
      * Get all advisory names (published or unpublished) that end in the given string.
      * Useful when cloning errata.
@@ -1297,6 +1352,21 @@ public class ErrataFactory extends HibernateFactory {
         return results.get(0);
     }
 
+    /**
+     * Get ErrataOverviews by ids
+     * @param eids the errata ids
+     * @return the ErrataOverviews of the existing errata
+     */
+    public static List<ErrataOverview> getOverviewsById(Collection<Long> eids) {
+        if (eids.isEmpty()) {
+            return new ArrayList<ErrataOverview>();
+        }
+        SelectMode mode = ModeFactory.getMode("Errata_queries", "overview_by_ids");
+        DataResult<ErrataOverview> results = mode.execute(new ArrayList<Long>(eids));
+        results.elaborate();
+        return results;
+    }
+
     /**
      * Get ErrataOverview by advisory
      * @param advisory the advisory
@@ -1365,5 +1435,55 @@ public class ErrataFactory extends HibernateFactory {
         return clone;
     }
 
-}
+    /**
+     * Clone errata in the db, like {@link #cloneErratum(Long, String, String, Long)}
+     * does for one erratum, with a fixed number of statements for any number of errata.
+     * @param clones maps with the original erratum id as "eid", the advisory as
+     * "advisory" and the advisory name as "name" of each clone
+     * @param orgId the org id to clone into
+     * @return the ids of the clones by original erratum id
+     */
+    public static Map<Long, Long> cloneErrata(List<Map<String, Object>> clones, Long orgId) {
+        Map<Long, Long> cloneIds = new HashMap<Long, Long>();
+        if (clones.isEmpty()) {
+            return cloneIds;
+        }
+        Map<String, Long> originalIds = new HashMap<String, Long>();
+        List<Map<String, Object>> params = new ArrayList<Map<String, Object>>(clones.size());
+        for (Map<String, Object> clone : clones) {
+            Map<String, Object> p = new HashMap<String, Object>(clone);
+            p.put("org_id", orgId);
+            params.add(p);
+            originalIds.put((String) clone.get("advisory"), (Long) clone.get("eid"));
+        }
+        ModeFactory.getWriteMode("Errata_queries", "clone_erratum").executeUpdates(params);
+
+        SelectMode mode = ModeFactory.getMode("Errata_queries", "ids_by_advisories");
+        Map<String, Object> orgParams = new HashMap<String, Object>();
+        orgParams.put("org_id", orgId);
+        List<Map<String, Object>> rows = mode.execute(orgParams,
+                quoted(originalIds.keySet()));
+        List<Map<String, Object>> originals = new ArrayList<Map<String, Object>>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Long originalId = originalIds.get((String) row.get("advisory"));
+            Long cloneId = (Long) row.get("id");
+            cloneIds.put(originalId, cloneId);
+            Map<String, Object> p = new HashMap<String, Object>();
+            p.put("original_id", originalId);
+            p.put("clone_id", cloneId);
+            originals.add(p);
+        }
+        ModeFactory.getWriteMode("Errata_queries", "set_original").executeUpdates(originals);
 
+        List<Long> ids = new ArrayList<Long>(cloneIds.values());
+        if (ids.isEmpty()) {
+            return cloneIds;
+        }
+        for (String modeName : new String[] {"clone_bugs_of_clones", "clone_keywords_of_clones",
+                "clone_packages_of_clones", "clone_cves_of_clones", "clone_files_of_clones"}) {
+            ModeFactory.getWriteMode("Errata_queries", modeName)
+                    .executeUpdate(new HashMap<String, Object>(), ids);
+        }
+        return cloneIds;
+    }
+}
@@ -26,11 +26,14 @@ import com.suse.manager.webui.websocket.Notification;
 
 import org.apache.log4j.Logger;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -106,8 +109,8 @@ public class UserNotificationFactory extends HibernateFactory {
         singleton.saveObject(notificationMessageIn);
         users.forEach(user -> UserNotificationFactory.store(new UserNotification(user, notificationMessageIn)));
 
-        // Update Notification WebSocket Sessions right now
-        Notification.spreadUpdate();
+        // Update Notification WebSocket Sessions of the affected users right now
+        Notification.spreadUpdate(users.stream().map(User::getId).collect(Collectors.toSet()));
     }
 
     /**
@@ -134,9 +137,6 @@ public class UserNotificationFactory extends HibernateFactory {
                     allUsers.filter(user -> !Collections.disjoint(user.getRoles(), rolesIn)).collect(Collectors.toSet())
             );
         }
-
-        // Update Notification WebSocket Sessions right now
-        Notification.spreadUpdate();
     }
 
     /**
@@ -201,6 +201,32 @@ public class UserNotificationFactory extends HibernateFactory {
         return getSession().createQuery(count).getSingleResult();
     }
 
+    /**
+     * Get the count of unread messages of several users with one query
+     *
+     * @param userIds the user ids
+     * @return the unread messages size count by user id, including users without unread messages
+     */
+    public static Map<Long, Long> unreadUserNotificationsSizes(Collection<Long> userIds) {
+        Map<Long, Long> sizes = userIds.stream().collect(Collectors.toMap(Function.identity(), id -> 0L));
+        if (userIds.isEmpty()) {
+            return sizes;
+        }
+
+        CriteriaBuilder builder = getSession().getCriteriaBuilder();
+        CriteriaQuery<Object[]> criteria = builder.createQuery(Object[].class);
+        Root<UserNotification> root = criteria.from(UserNotification.class);
+        criteria.multiselect(root.get("userId"), builder.count(root))
+                .where(
+                    root.get("userId").in(userIds),
+                    builder.isFalse(root.get("read")))
+                .groupBy(root.get("userId"));
+
+        getSession().createQuery(criteria).getResultList()
+                .forEach(row -> sizes.put((Long) row[0], (Long) row[1]));
+        return sizes;
+    }
+
     /**
      * Lookup for a single {@link UserNotification} by its id
      *
@@ -20,12 +20,18 @@ import com.redhat.rhn.domain.notification.UserNotification;
 import com.redhat.rhn.domain.notification.UserNotificationFactory;
 import com.redhat.rhn.domain.notification.types.OnboardingFailed;
 import com.redhat.rhn.domain.role.RoleFactory;
+import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.testing.BaseTestCaseWithUser;
+import com.redhat.rhn.testing.UserTestUtils;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.util.Optional.empty;
 
@@ -77,6 +83,20 @@ public class NotificationFactoryTest extends BaseTestCaseWithUser {
         assertEquals(1, UserNotificationFactory.listAllByUser(user).size());
     }
 
+    public final void testUnreadSizesOfSeveralUsers() {
+        User other = UserTestUtils.createUser("otherUser", user.getOrg().getId());
+        Set<Long> userIds = new HashSet<>(Arrays.asList(user.getId(), other.getId()));
+        assertEquals(Long.valueOf(0), UserNotificationFactory.unreadUserNotificationsSizes(userIds).get(user.getId()));
+
+        NotificationMessage msg = UserNotificationFactory.createNotificationMessage(new OnboardingFailed("minion1"));
+        UserNotificationFactory.storeForUsers(msg, Collections.singleton(user));
+
+        Map<Long, Long> sizes = UserNotificationFactory.unreadUserNotificationsSizes(userIds);
+        assertEquals(2, sizes.size());
+        assertEquals(Long.valueOf(1), sizes.get(user.getId()));
+        assertEquals(Long.valueOf(0), sizes.get(other.getId()));
+    }
+
     public final void testDeleteNotificationMessagesBefore() {
         // Clean up all notifications that might be present
         if (UserNotificationFactory.listAllNotificationMessages().size() > 0) {
@@ -43,15 +43,24 @@ public class CachingSUSEProductFactory {
      * @param ip an installed product
      */
     private SUSEProduct lookupCachedSUSEProduct(InstalledProduct ip) {
-        String name = ip.getName();
-        String version = ip.getVersion();
-        String release = ip.getRelease();
         String arch = Opt.fold(ofNullable(ip.getArch()), () -> null, PackageArch::getLabel);
+        return lookup(ip.getName(), ip.getVersion(), ip.getRelease(), arch);
+    }
 
+    /**
+     * Returns the SUSE product with the given name, version, release and architecture,
+     * like an installed product has, if available. Caches results for faster lookups.
+     * @param name the product name
+     * @param version the product version
+     * @param release the product release
+     * @param arch the architecture label
+     * @return the SUSE product or null
+     */
+    public SUSEProduct lookup(String name, String version, String release, String arch) {
         String key = name + "-" + version + "-" + release + "-" + arch;
-        SUSEProduct cached = suseProductCache.get(key);
-        if (cached != null) {
-            return cached;
+        // products which are not found are cached as well, as null
+        if (suseProductCache.containsKey(key)) {
+            return suseProductCache.get(key);
         }
         else {
             SUSEProduct result = SUSEProductFactory.findSUSEProduct(name, version, release, arch, true);
@@ -25,6 +25,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -35,6 +36,9 @@ public class SaltEventFactory extends HibernateFactory {
     private static Logger log = Logger.getLogger(SaltEventFactory.class);
     private static SaltEventFactory singleton = new SaltEventFactory();
 
+    /** Number of slots events with a minion id are spread over, see the suse_salt_event_queue_trig trigger */
+    public static final int QUEUE_SLOTS = 64;
+
     @Override
     protected Logger getLogger() {
         return log;
@@ -44,23 +48,30 @@ public class SaltEventFactory extends HibernateFactory {
     }
 
     /**
-     * Returns the approximate number of Salt events currently queued.
-     * @return the count
-     */
-    public static long countSaltEvents() {
-        return (Long) singleton.lookupObjectByNamedQuery("SaltEvent.countSaltEvents", Collections.EMPTY_MAP);
-    }
-
-    /**
-     * Returns Salt events, if any, up to limit.
+     * Returns Salt events, if any, up to limit, from one of the event queues.
+     *
+     * On insert, events get a slot from a hash of their minion id, so that all events of the same minion always end
+     * up in the same slot. Events without a minion id get slot 0 and are always returned from queue 0. Slots 1 to
+     * QUEUE_SLOTS are spread over queues 1 to queues (inclusive).
+     *
      * @param limit the maximum count of events to return
-     * @return events
+     * @param queue the queue number, from 0 to queues (inclusive)
+     * @param queues the number of queues events with a minion id are spread over, at most QUEUE_SLOTS
+     * @return events, ordered by minion id and id
      */
     @SuppressWarnings("unchecked")
-    public static Stream<SaltEvent> popSaltEvents(int limit) {
+    public static Stream<SaltEvent> popSaltEvents(int limit, int queue, int queues) {
+        List<Integer> slots = queue == 0 ? Collections.singletonList(0) :
+                IntStream.rangeClosed(1, QUEUE_SLOTS)
+                        .filter(slot -> (slot - 1) % queues == queue - 1)
+                        .boxed()
+                        .collect(toList());
         List<Object[]> eventObjects = singleton.listObjectsByNamedQuery(
-                "SaltEvent.popSaltEvents",
-                new HashMap() { { put("limit", limit); } }
+                "SaltEvent.popSaltEventsFromQueue",
+                new HashMap() { {
+                    put("limit", limit);
+                    put("slots", slots);
+                } }
         );
 
         return eventObjects.stream()
@@ -77,6 +77,17 @@ public class PackageFactory extends HibernateFactory {
         return (Package) singleton.lookupObjectByNamedQuery("Package.findById", params);
     }
 
+    /**
+     * Lookup Packages by their IDs, loading them in batches instead of one by one.
+     * Does no security check.
+     * @param ids to search for
+     * @return the Packages found, in the order of the ids
+     */
+    public static List<Package> lookupByIds(List<Long> ids) {
+        return HibernateFactory.getSession().byMultipleIds(Package.class)
+                .withBatchSize(CachedStatement.BATCH_SIZE).multiLoad(ids);
+    }
+
     /**
      * Returns true if the Package with the given name and evr ids exists in the
      * Channel whose id is cid.
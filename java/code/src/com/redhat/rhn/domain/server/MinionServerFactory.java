@@ -28,6 +28,7 @@ import org.hibernate.Session;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -47,6 +48,8 @@ public class MinionServerFactory extends HibernateFactory {
 
     private static Logger log = Logger.getLogger(MinionServerFactory.class);
 
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
     /**
      * Lookup all Servers that belong to an org
      * @param orgId the org id to search for
@@ -149,6 +152,30 @@ public class MinionServerFactory extends HibernateFactory {
         );
     }
 
+    /**
+     * Lookup multiple minions by id, together with their server paths, access tokens and
+     * the channels of these, as needed to generate their pillars.
+     * @param ids minion ids
+     * @return the minions found
+     */
+    @SuppressWarnings("unchecked")
+    public static List<MinionServer> lookupByIdsWithAccessTokens(List<Long> ids) {
+        List<MinionServer> minions = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_MAX_SIZE) {
+            List<Long> batch = ids.subList(i, Math.min(i + IN_CLAUSE_MAX_SIZE, ids.size()));
+            minions.addAll(getSession().createQuery("select distinct m from MinionServer m " +
+                    "left join fetch m.serverPaths left join fetch m.accessTokens " +
+                    "where m.id in (:ids)")
+                    .setParameterList("ids", batch)
+                    .list());
+            getSession().createQuery("select distinct t from AccessToken t " +
+                    "left join fetch t.channels where t.minion.id in (:ids)")
+                    .setParameterList("ids", batch)
+                    .list();
+        }
+        return minions;
+    }
+
     /**
      * List all the minions by there minionIds
      * @param minionIds set of minion ids
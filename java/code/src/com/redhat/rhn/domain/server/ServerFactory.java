@@ -17,8 +17,10 @@ package com.redhat.rhn.domain.server;
 import com.redhat.rhn.common.client.ClientCertificate;
 import com.redhat.rhn.common.client.InvalidCertificateException;
 import com.redhat.rhn.common.db.datasource.CallableMode;
+import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.SelectMode;
+import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.validator.ValidatorError;
 import com.redhat.rhn.domain.channel.ChannelArch;
@@ -470,6 +472,20 @@ public class ServerFactory extends HibernateFactory {
         return null;
     }
 
+    /**
+     * Lookup all foreign entitled systems whose digital server id starts with the given
+     * prefix, together with their CPU, server info and virtual instances.
+     * @param prefix the prefix of the digital server ids
+     * @return the foreign entitled systems found
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Server> listForeignSystemsByDigitalServerIdPrefix(String prefix) {
+        return getSession().getNamedQuery("Server.listForeignSystemsByDigitalServerIdPrefix")
+                .setParameter("prefix", prefix + "%")
+                .setParameter("entitlement", EntitlementManager.FOREIGN.getLabel())
+                .list();
+    }
+
     /**
      * Lookup Servers by their ids
      * @param ids the ids to search for
@@ -1224,6 +1240,45 @@ public class ServerFactory extends HibernateFactory {
         );
     }
 
+    /**
+     * Lists the installed packages of a server as rows with name_id, evr_id,
+     * package_arch_id, name, epoch, version, release and arch, without loading
+     * the packages collection of the server.
+     * @param serverId the server id
+     * @return the installed package rows
+     */
+    public static DataResult<Map<String, Object>> listInstalledPackageRows(Long serverId) {
+        SelectMode m = ModeFactory.getMode("System_queries", "installed_package_keys");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("server_id", serverId);
+        return m.execute(params);
+    }
+
+    /**
+     * Inserts installed packages of a server in a single JDBC batch, bypassing the
+     * packages collection of the server.
+     * @param serverId the server id
+     * @param rows maps with name_id, evr_id, package_arch_id and installtime
+     */
+    public static void insertInstalledPackages(Long serverId, List<Map<String, Object>> rows) {
+        WriteMode m = ModeFactory.getWriteMode("System_queries", "insert_installed_package");
+        rows.forEach(row -> row.put("server_id", serverId));
+        m.executeUpdates(rows);
+    }
+
+    /**
+     * Deletes installed packages of a server in a single JDBC batch, bypassing the
+     * packages collection of the server.
+     * @param serverId the server id
+     * @param rows maps with name_id, evr_id and package_arch_id, -1 for packages
+     * without architecture
+     */
+    public static void deleteInstalledPackages(Long serverId, List<Map<String, Object>> rows) {
+        WriteMode m = ModeFactory.getWriteMode("System_queries", "delete_installed_package");
+        rows.forEach(row -> row.put("server_id", serverId));
+        m.executeUpdates(rows);
+    }
+
     /**
      * Save NetworkInterface
      * @param networkInterfaceIn the interface to save
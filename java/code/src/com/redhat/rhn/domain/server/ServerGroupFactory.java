@@ -25,6 +25,7 @@ import org.apache.log4j.Logger;
 import org.hibernate.Session;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,7 @@ public class ServerGroupFactory extends HibernateFactory {
 
     public static final String NULL_DESCRIPTION = "none";
     private static final ServerGroupFactory SINGLETON = new ServerGroupFactory();
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
     private static Logger log = Logger.getLogger(ServerGroupFactory.class);
 
     protected Logger getLogger() {
@@ -274,6 +276,27 @@ public class ServerGroupFactory extends HibernateFactory {
         return  SINGLETON.listObjectsByNamedQuery(queryName, params);
     }
 
+    /**
+     * Returns the ServerGroups, managed and entitlement ones, of the given servers.
+     * @param serverIds the ids of the servers
+     * @return the ServerGroups ordered by id, keyed by server id
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Long, List<ServerGroup>> listServerGroups(Collection<Long> serverIds) {
+        List<Long> ids = new ArrayList<>(serverIds);
+        Map<Long, List<ServerGroup>> result = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += IN_CLAUSE_MAX_SIZE) {
+            List<Object[]> rows = HibernateFactory.getSession()
+                    .getNamedQuery("ServerGroup.lookupGroupsByServerIds")
+                    .setParameterList("ids", ids.subList(i, Math.min(i + IN_CLAUSE_MAX_SIZE, ids.size())))
+                    .list();
+            for (Object[] row : rows) {
+                result.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((ServerGroup) row[1]);
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns the list of Entitlement ServerGroups  associated to a server.
      * @param org the Org to find the server groups of
@@ -21,6 +21,7 @@ import org.apache.log4j.Logger;
 import org.hibernate.Session;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -37,6 +38,8 @@ public class VirtualInstanceFactory extends HibernateFactory {
 
     private static VirtualInstanceFactory instance = new VirtualInstanceFactory();
 
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
     /**
      * Logger for this class
      */
@@ -383,4 +386,47 @@ public class VirtualInstanceFactory extends HibernateFactory {
                 .setParameter("uuid", uuid)
             .uniqueResult();
     }
+
+    /**
+     * Returns the VirtualInstances with any of the given uuids.
+     * @param uuids - uuids of the guests
+     * @return VirtualInstances with the given uuids
+     */
+    public List<VirtualInstance> lookupVirtualInstancesByUuids(Collection<String> uuids) {
+        return listInBatches("VirtualInstance.lookupVirtualInstancesByUuids", "uuids", uuids);
+    }
+
+    /**
+     * Returns the VirtualInstances that are linked to the host systems with given ids.
+     * @param hostIds - ids of the host systems
+     * @return VirtualInstances linked to the hosts with given ids
+     */
+    public List<VirtualInstance> lookupHostVirtInstancesByHostIds(Collection<Long> hostIds) {
+        return listInBatches("VirtualInstance.lookupHostVirtInstancesByHostIds", "hostIds",
+                hostIds);
+    }
+
+    /**
+     * Returns the ids of the given systems which are the host of a virtual instance.
+     * @param hostIds - ids of the systems
+     * @return ids of the systems hosting virtual instances
+     */
+    public Set<Long> listHostSystemIds(Collection<Long> hostIds) {
+        return new HashSet<>(listInBatches("VirtualInstance.listHostSystemIds", "hostIds",
+                hostIds));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> listInBatches(String queryName, String parameter,
+            Collection<?> values) {
+        List<?> valueList = new ArrayList<>(values);
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < valueList.size(); i += IN_CLAUSE_MAX_SIZE) {
+            result.addAll(getSession().getNamedQuery(queryName)
+                    .setParameterList(parameter, valueList.subList(i,
+                            Math.min(i + IN_CLAUSE_MAX_SIZE, valueList.size())))
+                    .list());
+        }
+        return result;
+    }
 }
@@ -36,7 +36,9 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
@@ -68,6 +70,8 @@ public class VirtualHostManagerFactory extends HibernateFactory {
     private static final List<String> CONFIGS_TO_SKIP = Arrays.asList(
             new String[] {CONFIG_USER, CONFIG_PASS, "id", "module"});
 
+    private static final int IN_CLAUSE_MAX_SIZE = 1000;
+
     /**
      * Default constructor.
      * (public for testing reasons so that we can override it in tests)
@@ -484,4 +488,22 @@ public class VirtualHostManagerFactory extends HibernateFactory {
         return Optional.ofNullable(result);
     }
 
+    /**
+     * @param identifiers node identifiers
+     * @return the nodes with any of the given identifiers
+     */
+    @SuppressWarnings("unchecked")
+    public List<VirtualHostManagerNodeInfo> lookupNodeInfosByIdentifiers(
+            Collection<String> identifiers) {
+        List<String> identifierList = new ArrayList<>(identifiers);
+        List<VirtualHostManagerNodeInfo> result = new ArrayList<>();
+        for (int i = 0; i < identifierList.size(); i += IN_CLAUSE_MAX_SIZE) {
+            result.addAll(getSession()
+                    .createCriteria(VirtualHostManagerNodeInfo.class)
+                    .add(Restrictions.in("identifier", identifierList.subList(i,
+                            Math.min(i + IN_CLAUSE_MAX_SIZE, identifierList.size()))))
+                    .list());
+        }
+        return result;
+    }
 }
@@ -34,7 +34,6 @@ import org.apache.struts.action.ActionForward;
 import org.apache.struts.action.ActionMapping;
 import org.apache.struts.action.DynaActionForm;
 
-import java.util.Collections;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -83,10 +82,8 @@ public class ChannelDetailsAction extends RhnAction {
             chan = (Channel) ChannelFactory.reload(chan);
             params.put("cid", cid);
             fwd = "success";
-            ServerFactory.listMinionsByChannel(cid).stream().forEach(ms -> {
-                SaltStateGeneratorService.INSTANCE.generatePillar(ms, false,
-                        Collections.emptySet());
-            });
+            SaltStateGeneratorService.INSTANCE.generatePillars(
+                    ServerFactory.listMinionsByChannel(cid));
         }
 
         request.setAttribute("systems_subscribed",
@@ -60,7 +60,6 @@ import org.apache.struts.action.DynaActionForm;
 import org.stringtree.json.JSONWriter;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -412,10 +411,8 @@ public class EditChannelAction extends RhnAction implements Listable<OrgTrust> {
             updated.setGloballySubscribable((sharing != null) &&
                     ("all".equals(sharing)), loggedInUser.getOrg());
             updated = (Channel) ChannelFactory.reload(updated);
-            ServerFactory.listMinionsByChannel(updated.getId()).stream().forEach(ms -> {
-                SaltStateGeneratorService.INSTANCE.generatePillar(ms, false,
-                        Collections.emptySet());
-            });
+            SaltStateGeneratorService.INSTANCE.generatePillars(
+                    ServerFactory.listMinionsByChannel(updated.getId()));
 
         }
         catch (InvalidGPGFingerprintException borg) {
@@ -30,7 +30,13 @@ import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.ErrataOverview;
 import com.redhat.rhn.manager.errata.ErrataManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -81,6 +87,53 @@ public class PublishErrataHelper {
         return clone.getId();
     }
 
+    /**
+     * Clones many errata like {@link #cloneErrataFaster(Long, Org)}, checking the
+     * default clone names of all of them at once and copying their details with one
+     * statement per table.
+     * @param eids Ids of the original errata to clone
+     * @param org Org to clone into
+     * @return Ids of the cloned errata by id of the original erratum
+     */
+    public static Map<Long, Long> cloneErrataFaster(Collection<Long> eids, Org org) {
+        List<ErrataOverview> originals = ErrataFactory.getOverviewsById(eids);
+
+        Map<Long, String[]> suffixes = new HashMap<Long, String[]>();
+        Set<String> candidateAdvisories = new HashSet<String>();
+        Set<String> candidateNames = new HashSet<String>();
+        for (ErrataOverview original : originals) {
+            String advisorySuffix = getSuffix(original.getAdvisory(), original.isCloned());
+            String nameSuffix = getSuffix(original.getAdvisoryName(), original.isCloned());
+            suffixes.put(original.getId(), new String[] {advisorySuffix, nameSuffix});
+            candidateAdvisories.add(DEFAULT_ERRATA_CLONE_PREFIX + advisorySuffix);
+            candidateNames.add(DEFAULT_ERRATA_CLONE_PREFIX + nameSuffix);
+        }
+        Set<String> usedAdvisories = ErrataFactory.listExistingAdvisories(candidateAdvisories);
+        Set<String> usedNames = ErrataFactory.listExistingAdvisoryNames(candidateNames);
+
+        List<Map<String, Object>> clones = new ArrayList<Map<String, Object>>(originals.size());
+        for (ErrataOverview original : originals) {
+            String advisorySuffix = suffixes.get(original.getId())[0];
+            String nameSuffix = suffixes.get(original.getId())[1];
+            String prefix = DEFAULT_ERRATA_CLONE_PREFIX;
+            if (usedAdvisories.contains(prefix + advisorySuffix) ||
+                    usedNames.contains(prefix + nameSuffix)) {
+                // only look at all taken prefixes if the default one is
+                prefix = findNextPrefix(advisorySuffix, nameSuffix, usedAdvisories, usedNames);
+            }
+            // errata cloned in this batch take their names as well
+            usedAdvisories.add(prefix + advisorySuffix);
+            usedNames.add(prefix + nameSuffix);
+
+            Map<String, Object> clone = new HashMap<String, Object>();
+            clone.put("eid", original.getId());
+            clone.put("advisory", prefix + advisorySuffix);
+            clone.put("name", prefix + nameSuffix);
+            clones.add(clone);
+        }
+        return ErrataFactory.cloneErrata(clones, org.getId());
+    }
+
 
     /**
      * Clones an errata Similarly to ErrataFactory.createClone, but creates a published
@@ -179,8 +232,16 @@ public class PublishErrataHelper {
     }
 
     private static String findNextPrefix(String advisoryLike, String nameLike) {
+        return findNextPrefix(advisoryLike, nameLike, Collections.<String>emptySet(),
+                Collections.<String>emptySet());
+    }
+
+    private static String findNextPrefix(String advisoryLike, String nameLike,
+            Set<String> usedAdvisories, Set<String> usedNames) {
         Set<String> advisories = ErrataFactory.listAdvisoriesEndingWith(advisoryLike);
         Set<String> advisoryNames = ErrataFactory.listAdvisoryNamesEndingWith(nameLike);
+        advisories.addAll(usedAdvisories);
+        advisoryNames.addAll(usedNames);
 
         boolean unusedNameFound = false;
         String prefix = DEFAULT_ERRATA_CLONE_PREFIX;
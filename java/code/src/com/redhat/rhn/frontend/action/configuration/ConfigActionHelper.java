@@ -14,8 +14,11 @@
  */
 package com.redhat.rhn.frontend.action.configuration;
 
+import com.redhat.rhn.common.filediff.Diff;
 import com.redhat.rhn.common.localization.LocalizationService;
+import com.redhat.rhn.domain.common.Checksum;
 import com.redhat.rhn.domain.config.ConfigChannel;
+import com.redhat.rhn.domain.config.ConfigContent;
 import com.redhat.rhn.domain.config.ConfigFile;
 import com.redhat.rhn.domain.config.ConfigFileCount;
 import com.redhat.rhn.domain.config.ConfigRevision;
@@ -225,6 +228,29 @@ public abstract class ConfigActionHelper {
         return cr;
     }
 
+    /**
+     * Creates the diff between the contents of two revisions. Revisions are identified
+     * by content checksums, so that equal contents are not compared line by line and
+     * diffs of the same contents are only computed once.
+     * @param revision The old(from) revision
+     * @param other The new(to) revision
+     * @return the diff
+     */
+    public static Diff createDiff(ConfigRevision revision, ConfigRevision other) {
+        ConfigContent content = revision.getConfigContent();
+        ConfigContent otherContent = other.getConfigContent();
+        return new Diff(content.getContentsString().split("\n"), checksumKey(content),
+                otherContent.getContentsString().split("\n"), checksumKey(otherContent));
+    }
+
+    private static String checksumKey(ConfigContent content) {
+        Checksum checksum = content.getChecksum();
+        if (checksum == null) {
+            return null;
+        }
+        return checksum.getChecksumType().getLabel() + ":" + checksum.getChecksum();
+    }
+
     /**
      * Clears all of the configuration management sets.
      * @param user The user for which to clear the sets.
@@ -93,12 +93,8 @@ public class DiffAction extends RhnAction {
 
     private String performFileDiff(ConfigRevision revision, ConfigRevision other,
             boolean showChanged) {
-        //Get the content that we will diff.
-        String[] rev = revision.getConfigContent().getContentsString().split("\n");
-        String[] orev = other.getConfigContent().getContentsString().split("\n");
-
         //Diff the content.
-        Diff diff = new Diff(rev, orev);
+        Diff diff = ConfigActionHelper.createDiff(revision, other);
         return diff.htmlDiff(showChanged);
     }
 
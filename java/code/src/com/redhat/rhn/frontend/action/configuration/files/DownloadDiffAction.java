@@ -61,11 +61,7 @@ public class DownloadDiffAction extends RhnAction {
         ConfigRevision other = ConfigurationManager.getInstance()
             .lookupConfigRevision(user, ocrid);
 
-        //Get the content that we will diff.
-        String[] rev = revision.getConfigContent().getContentsString().split("\n");
-        String[] orev = other.getConfigContent().getContentsString().split("\n");
-
-        Diff diff = new Diff(rev, orev);
+        Diff diff = ConfigActionHelper.createDiff(revision, other);
         String charSet = response.getCharacterEncoding();
         String mimeType = "text/plain";
         response.setContentType(mimeType + ";charset=" + charSet);
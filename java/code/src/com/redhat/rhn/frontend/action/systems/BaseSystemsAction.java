@@ -15,6 +15,8 @@
 package com.redhat.rhn.frontend.action.systems;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageRequest;
+import com.redhat.rhn.common.db.datasource.SelectModeDataSource;
 import com.redhat.rhn.domain.rhnset.RhnSet;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.SystemOverview;
@@ -52,33 +54,44 @@ public abstract class BaseSystemsAction extends RhnListAction {
         RequestContext requestContext = new RequestContext(request);
 
         User user = requestContext.getCurrentUser();
-        DataResult result = getDataResult(user, null, formIn);
-
-        if (result.isEmpty()) {
-            request.setAttribute(SHOW_NO_SYSTEMS, Boolean.TRUE);
-        }
-
         RhnSet set =  getSetDecl().get(user);
-
-
         RhnListSetHelper helper = new RhnListSetHelper(request);
-        if (ListTagHelper.getListAction("systemList", request) != null) {
-            helper.execute(set, "systemList", result);
-        }
 
-        if (!set.isEmpty()) {
-            helper.syncSelections(set, result);
-            ListTagHelper.setSelectedAmount("systemList", set.size(), request);
+        SelectModeDataSource<SystemOverview> source = getDataSource(user, formIn);
+        if (source != null && ListTagHelper.getListAction("systemList", request) == null) {
+            // the list tag loads, sorts and elaborates only the displayed page
+            if (source.getSize(new PageRequest()) == 0) {
+                request.setAttribute(SHOW_NO_SYSTEMS, Boolean.TRUE);
+            }
+            if (!set.isEmpty()) {
+                source.setPageHandler(page -> helper.syncSelections(set, page));
+                ListTagHelper.setSelectedAmount("systemList", set.size(), request);
+            }
+            request.setAttribute(RequestContext.PAGE_LIST, source);
+            TagHelper.bindElaboratorTo("systemList", source.getElaborator(), request);
+        }
+        else {
+            DataResult result = getDataResult(user, null, formIn);
+
+            if (result.isEmpty()) {
+                request.setAttribute(SHOW_NO_SYSTEMS, Boolean.TRUE);
+            }
+
+            if (ListTagHelper.getListAction("systemList", request) != null) {
+                helper.execute(set, "systemList", result);
+            }
+
+            if (!set.isEmpty()) {
+                helper.syncSelections(set, result);
+                ListTagHelper.setSelectedAmount("systemList", set.size(), request);
+            }
+            request.setAttribute(RequestContext.PAGE_LIST, result);
+            TagHelper.bindElaboratorTo("systemList", result.getElaborator(), request);
         }
-
 
         ListTagHelper.bindSetDeclTo("systemList", getSetDecl(), request);
-
-        request.setAttribute(RequestContext.PAGE_LIST, result);
         request.setAttribute(ListTagHelper.PARENT_URL, request.getRequestURI());
 
-        TagHelper.bindElaboratorTo("systemList", result.getElaborator(), request);
-
         return mapping.findForward(RhnHelper.DEFAULT_FORWARD);
     }
     /**
@@ -110,5 +123,18 @@ public abstract class BaseSystemsAction extends RhnListAction {
     protected abstract DataResult getDataResult(User user,
                                                 PageControl pc,
                                                 ActionForm formIn);
+
+    /**
+     * Returns the systems to list as a data source the list tag fetches single pages
+     * from, instead of loading all of them with {@link #getDataResult}. Actions on the
+     * whole list, like selecting all systems, still use the complete result.
+     * @param user the user viewing the list
+     * @param formIn the form of the request
+     * @return the data source or null if all systems have to be loaded
+     */
+    protected SelectModeDataSource<SystemOverview> getDataSource(User user,
+            ActionForm formIn) {
+        return null;
+    }
 }
 
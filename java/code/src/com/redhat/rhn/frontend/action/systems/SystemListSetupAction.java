@@ -15,6 +15,7 @@
 package com.redhat.rhn.frontend.action.systems;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.SelectModeDataSource;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.SystemOverview;
 import com.redhat.rhn.frontend.listview.PageControl;
@@ -34,4 +35,10 @@ public class SystemListSetupAction extends BaseSystemsAction {
         return SystemManager.systemList(user, pc);
     }
 
+    @Override
+    protected SelectModeDataSource<SystemOverview> getDataSource(User user,
+            ActionForm formIn) {
+        return SystemManager.systemListDataSource(user);
+    }
+
 }
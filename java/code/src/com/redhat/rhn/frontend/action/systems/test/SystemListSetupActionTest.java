@@ -20,6 +20,8 @@ import java.util.Iterator;
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageRequest;
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.Server;
@@ -46,8 +48,9 @@ public class SystemListSetupActionTest extends RhnMockStrutsTestCase {
     public void testPerformExecute() throws Exception {
         ServerFactoryTest.createTestServer(user, true);
         actionPerform();
-        DataResult dr = (DataResult) request.getAttribute(RequestContext.PAGE_LIST);
-        assertTrue(dr.size() > 0);
+        PageableDataSource source =
+                (PageableDataSource) request.getAttribute(RequestContext.PAGE_LIST);
+        assertTrue(source.getSize(new PageRequest()) > 0);
     }
 
     public void aTestSetStatusDisplay() throws Exception {
@@ -46,6 +46,7 @@ public class ErrataOverview extends BaseDto {
     private Long associatedSystemId;
     private Date lastModified;
     private Long fromErrataId;
+    private Long orgId;
     private String relationship;
     private boolean rebootSuggested;
     private boolean restartSuggested;
@@ -450,6 +451,20 @@ public class ErrataOverview extends BaseDto {
         fromErrataId = fromErrataIdIn;
     }
 
+    /**
+     * @return Returns the id of the org owning the erratum, null for vendor errata.
+     */
+    public Long getOrgId() {
+        return orgId;
+    }
+
+    /**
+     * @param orgIdIn The orgId to set.
+     */
+    public void setOrgId(Long orgIdIn) {
+        orgId = orgIdIn;
+    }
+
     /**
      * @return true if the erratum is a clone
      */
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.events;
+
+import com.redhat.rhn.common.messaging.EventMessage;
+import com.redhat.rhn.common.messaging.MessageAction;
+import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.domain.user.UserFactory;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
+
+import org.apache.log4j.Logger;
+
+/**
+ * IndexCVEPatchStatusAction
+ */
+public class IndexCVEPatchStatusAction implements MessageAction {
+
+    /** The logger. */
+    protected static Logger logger = Logger.getLogger(IndexCVEPatchStatusAction.class);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void execute(EventMessage msg) {
+        IndexCVEPatchStatusEvent event = (IndexCVEPatchStatusEvent) msg;
+        User user = UserFactory.lookupById(event.getUserId());
+        if (user == null) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Indexing CVE patch status for: " + event.getCveIdentifier());
+        }
+        CVEAuditManager.indexCVEPatchStatus(user, event.getCveIdentifier());
+    }
+}
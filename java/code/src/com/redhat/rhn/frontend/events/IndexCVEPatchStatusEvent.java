@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.events;
+
+import com.redhat.rhn.common.messaging.EventMessage;
+
+/**
+ * Publish this event to put the patch status of the systems visible to a user into the
+ * CVE patch status index, after they were audited for a CVE.
+ */
+public class IndexCVEPatchStatusEvent implements EventMessage {
+
+    private final String cveIdentifier;
+    private final Long userId;
+
+    /**
+     * Constructor expecting a CVE identifier.
+     * @param cveIdentifierIn the CVE identifier
+     * @param userIdIn the user who audited the CVE
+     */
+    public IndexCVEPatchStatusEvent(String cveIdentifierIn, Long userIdIn) {
+        cveIdentifier = cveIdentifierIn;
+        userId = userIdIn;
+    }
+
+    /**
+     * @return Returns the CVE identifier
+     */
+    public String getCveIdentifier() {
+        return cveIdentifier;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getUserId() {
+        return userId;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toText() {
+        return "";
+    }
+}
@@ -80,4 +80,26 @@ public abstract class BaseListFilter implements ListFilter {
     public void postFilter(List filteredList) {
         // No default behavior
     }
+
+    /**
+     * Returns the bean property this filter looks at, if rows are filtered the default
+     * way, so that a pageable data source can do the filtering instead.
+     * @return the bean property or null if a subclass changes how rows are filtered
+     */
+    public String getPageableAttribute() {
+        try {
+            Class<?> clazz = getClass();
+            if (fieldMap == null || fieldMap.isEmpty() ||
+                    clazz.getMethod("filter", Object.class, String.class, String.class)
+                        .getDeclaringClass() != BaseListFilter.class ||
+                    clazz.getMethod("postFilter", List.class)
+                        .getDeclaringClass() != BaseListFilter.class) {
+                return null;
+            }
+        }
+        catch (NoSuchMethodException e) {
+            return null;
+        }
+        return (String) fieldMap.values().iterator().next();
+    }
 }
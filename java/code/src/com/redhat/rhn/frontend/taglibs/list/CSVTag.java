@@ -15,6 +15,7 @@
 package com.redhat.rhn.frontend.taglibs.list;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.frontend.action.CSVDownloadAction;
 import com.redhat.rhn.frontend.dto.SystemSearchPartialResult;
@@ -127,10 +128,15 @@ public class CSVTag extends BodyTagSupport {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                // only the query is exported, rows are fetched on download
+                pageData = ((PageableDataSource) d).getExportResult();
+            }
             else {
                 throw new JspException("Dataset named \'" + dataSetName +
                         "\' is incompatible." +
-                        " Must be an an instance of java.util.List.");
+                        " Must be an an instance of java.util.List or" +
+                        " PageableDataSource.");
             }
         }
     }
@@ -31,6 +31,8 @@ import javax.servlet.jsp.PageContext;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
+import com.redhat.rhn.common.db.datasource.PageRequest;
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.common.util.DynamicComparator;
 import com.redhat.rhn.common.util.MethodUtil;
@@ -52,6 +54,8 @@ public class DataSetManipulator {
 
     private final int pageSize;
     private List dataset;
+    private PageableDataSource source;
+    private final PageRequest pageRequest = new PageRequest();
     private ListFilter filter;
     private String filterBy;
     private String filterValue;
@@ -91,6 +95,27 @@ public class DataSetManipulator {
         parentIsAnElement = parentIsElement;
     }
 
+    /**
+     * Constructor for data filtered, sorted and paged by a data source, so that only
+     * the rows of the displayed page are loaded. Filters and sort attributes the source
+     * does not support make the manipulator load all rows and work in memory.
+     * @param pageSizeIn page size of the list
+     * @param sourceIn source of the data to be displayed
+     * @param requestIn HttpServletRequest of the caller
+     * @param listNameIn name of the list
+     */
+    public DataSetManipulator(int pageSizeIn, PageableDataSource sourceIn,
+            HttpServletRequest requestIn, String listNameIn) {
+        pageSize = pageSizeIn;
+        source = sourceIn;
+        dataset = Collections.EMPTY_LIST;
+        request = requestIn;
+        uniqueName = listNameIn;
+        totalDataSetSize = source.getSize(pageRequest);
+        unfilteredDataSize = totalDataSetSize;
+        parentIsAnElement = true;
+    }
+
     /**
      * Filters the dataset based on filter criteria
      * @param f ListFilter instance
@@ -114,6 +139,16 @@ public class DataSetManipulator {
         filterClass.setAttribute("value", f.getClass().getCanonicalName());
         ListTagUtil.write(context, filterClass.render());
 
+        if (source != null) {
+            String attribute = f instanceof BaseListFilter ?
+                    ((BaseListFilter) f).getPageableAttribute() : null;
+            if (source.isPageable(attribute)) {
+                pageRequest.setFilter(attribute, filterValue);
+                totalDataSetSize = source.getSize(pageRequest);
+                return;
+            }
+            loadAllData();
+        }
         dataset = ListFilterHelper.filter(dataset, f, filterBy, filterValue);
         totalDataSetSize = dataset.size();
     }
@@ -122,12 +157,23 @@ public class DataSetManipulator {
      * Sorts the dataset in place
      */
     public void sort() {
+        if (source != null && !StringUtils.isBlank(alphaCol) && !source.isPageable(alphaCol)) {
+            loadAllData();
+        }
         String sortAttr = getActiveSortAttribute();
         if (StringUtils.isEmpty(sortAttr)) {
             return;
         }
 
         String sortDir = getActiveSortDirection();
+        if (source != null) {
+            if (source.isPageable(sortAttr)) {
+                pageRequest.setSort(sortAttr, RequestContext.SORT_ASC.equals(sortDir),
+                        AlphaBarHelper.getInstance().isSelected(uniqueName, request));
+                return;
+            }
+            loadAllData();
+        }
         try {
             Collections.sort(dataset, new DynamicComparator(sortAttr, sortDir));
         }
@@ -150,6 +196,13 @@ public class DataSetManipulator {
      * @return list representing one page of data
      */
     public List getPage() {
+        if (source != null) {
+            pageRequest.setOffset(getPageOffset());
+            pageRequest.setLimit(Math.max(pageSize, 0));
+            dataset = source.getPage(pageRequest);
+            return expand(dataset);
+        }
+
         List retval = new LinkedList();
         if (pageSize > 0) {
             int startOffset = getCurrentPageNumber() * pageSize;
@@ -176,6 +229,9 @@ public class DataSetManipulator {
      * @return List representing all data available
      */
     public List getAllData() {
+        if (source != null) {
+            return expand(source.getPage(getAllDataRequest()));
+        }
         List retval = new LinkedList();
         retval.addAll(dataset);
         return expand(retval);
@@ -248,10 +304,10 @@ public class DataSetManipulator {
      * @return answer to that burning question
      */
     public boolean isLastPage() {
-        int maxPage = (dataset.size() / pageSize) - 1;
+        int maxPage = (totalDataSetSize / pageSize) - 1;
         // Add a page for overflow, since the dataset is not
         // evenly divisible by the pagesize
-        if (dataset.size() % pageSize > 0) {
+        if (totalDataSetSize % pageSize > 0) {
             maxPage++;
         }
         return getCurrentPageNumber() == maxPage;
@@ -300,7 +356,7 @@ public class DataSetManipulator {
      */
     public Map getPaginationLinks() {
         Map links = new HashMap();
-        if (pageSize > 0 && dataset.size() > 0 && getTotalDataSetSize() > pageSize) {
+        if (pageSize > 0 && getTotalDataSetSize() > pageSize) {
             String pageLinkName = "list_" + uniqueName + "_page";
             String[] data = new String[4];
             if (!isFirstPage()) {
@@ -365,7 +421,7 @@ public class DataSetManipulator {
      * @return boolean
      */
     public boolean isListEmpty() {
-        return dataset == null || dataset.size() == 0;
+        return totalDataSetSize == 0;
     }
 
     /**
@@ -373,6 +429,9 @@ public class DataSetManipulator {
      * @return the set of characters that are active
      */
     public Set<Character> getAlphaBarIndex() {
+        if (source != null) {
+            return source.getAlphaIndex(pageRequest, alphaCol);
+        }
         Set<Character> chars = new HashSet<Character>();
         int i = 0;
         for (Object inputRow : dataset) {
@@ -413,6 +472,10 @@ public class DataSetManipulator {
             }
             char alpha = Character
                     .toUpperCase(helper.getAlphaValue(uniqueName, request).charAt(0));
+            if (source != null) {
+                alphaPosition = source.getAlphaPosition(pageRequest, alphaCol, alpha);
+                return alphaPosition;
+            }
             int i = 0;
             for (Object inputRow : dataset) {
                 String value = getAlphaValue(inputRow);
@@ -507,6 +570,40 @@ public class DataSetManipulator {
         return value;
     }
 
+    /**
+     * Continues with all rows matching the filter in memory, for filters and sort
+     * attributes the data source does not support.
+     */
+    private void loadAllData() {
+        log.debug("Loading all rows of list " + uniqueName + " to filter or sort them");
+        dataset = source.getPage(getAllDataRequest());
+        totalDataSetSize = dataset.size();
+        source = null;
+    }
+
+    private PageRequest getAllDataRequest() {
+        PageRequest all = new PageRequest();
+        all.setFilter(pageRequest.getFilterAttribute(), pageRequest.getFilterValue());
+        all.setSort(pageRequest.getSortAttribute(), pageRequest.isAscending(),
+                pageRequest.isIgnoreCase());
+        return all;
+    }
+
+    /**
+     * Returns the offset of the first row of the current page in a data source
+     * @return int
+     */
+    private int getPageOffset() {
+        if (pageSize <= 0) {
+            return 0;
+        }
+        int offset = getCurrentPageNumber() * pageSize;
+        if (offset > totalDataSetSize) {
+            offset = totalDataSetSize - 1;
+        }
+        return Math.max(offset, 0);
+    }
+
     private List expand(List data) {
         List expanded = new LinkedList();
         for (Object obj : data) {
@@ -530,6 +627,9 @@ public class DataSetManipulator {
         if (getTotalDataSetSize() == 0) {
             return 0;
         }
+        if (source != null) {
+            return getPageOffset() + 1;
+        }
 
         int startOffset = getCurrentPageNumber() * pageSize;
 
@@ -551,6 +651,10 @@ public class DataSetManipulator {
      * @return int
      */
     private int getPageEndIndex() {
+        if (source != null) {
+            return pageSize > 0 ?
+                    Math.min(getPageOffset() + pageSize, totalDataSetSize) : totalDataSetSize;
+        }
         int startOffset = getCurrentPageNumber() * pageSize;
         if (startOffset < 0) {
             startOffset = 0;
@@ -571,6 +675,9 @@ public class DataSetManipulator {
     }
 
     private int getExpandedDataSize() {
+        if (source != null) {
+            return totalDataSetSize;
+        }
         if (!parentIsAnElement) {
             return expand(dataset).size() - dataset.size();
         }
@@ -31,6 +31,7 @@ import javax.servlet.jsp.tagext.BodyTagSupport;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.context.Context;
@@ -72,6 +73,7 @@ public class ListTag extends BodyTagSupport {
     private String name = ListHelper.LIST;
     private String uniqueName;
     private List pageData;
+    private PageableDataSource pageDataSource;
     private Iterator iterator;
     private Object currentObject;
     private Object parentObject;
@@ -340,14 +342,20 @@ public class ListTag extends BodyTagSupport {
                     .getRequest();
             d = request.getSession(true).getAttribute(nameIn);
         }
+        pageDataSource = null;
         if (d != null) {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                pageDataSource = (PageableDataSource) d;
+                pageData = Collections.EMPTY_LIST;
+            }
             else {
                 throw new JspException("Dataset named \'" + nameIn +
                          "\' is incompatible." +
-                         " Must be an an instance of java.util.List.");
+                         " Must be an an instance of java.util.List or" +
+                         " PageableDataSource.");
             }
         }
         else {
@@ -831,14 +839,20 @@ public class ListTag extends BodyTagSupport {
                     .getRequest();
             d = request.getSession(true).getAttribute(dataSetName);
         }
+        pageDataSource = null;
         if (d != null) {
             if (d instanceof List) {
                 pageData = (List) d;
             }
+            else if (d instanceof PageableDataSource) {
+                pageDataSource = (PageableDataSource) d;
+                pageData = Collections.EMPTY_LIST;
+            }
             else {
                 throw new JspException("Dataset named \'" + dataSetName +
                          "\' is incompatible." +
-                         " Must be an an instance of java.util.List.");
+                         " Must be an an instance of java.util.List or" +
+                         " PageableDataSource.");
             }
         }
         else {
@@ -854,9 +868,15 @@ public class ListTag extends BodyTagSupport {
         addDecorator(decoratorName);
         setupPageData();
         setPageSize();
-        manip = new DataSetManipulator(pageSize, pageData,
-                (HttpServletRequest) pageContext.getRequest(),
-                getUniqueName(), isParentAnElement());
+        if (pageDataSource != null) {
+            manip = new DataSetManipulator(pageSize, pageDataSource,
+                    (HttpServletRequest) pageContext.getRequest(), getUniqueName());
+        }
+        else {
+            manip = new DataSetManipulator(pageSize, pageData,
+                    (HttpServletRequest) pageContext.getRequest(),
+                    getUniqueName(), isParentAnElement());
+        }
         ListTagUtil.setCurrentCommand(pageContext, getUniqueName(),
                     ListCommand.ENUMERATE);
         return BodyTagSupport.EVAL_BODY_INCLUDE;
@@ -875,7 +895,7 @@ public class ListTag extends BodyTagSupport {
             ListTagUtil.write(pageContext, "<div class=\"site-info\">");
 
             if (manip.getTotalDataSetSize() != manip.getUnfilteredDataSize()) {
-                if (manip.getAllData().size() == 0) {
+                if (manip.getTotalDataSetSize() == 0) {
                     ListTagUtil.write(pageContext, ls.getMessage(
                             "listtag.filteredmessageempty",
                             new Integer(manip.getTotalDataSetSize())));
@@ -929,6 +949,7 @@ public class ListTag extends BodyTagSupport {
         name = ListHelper.LIST;
         uniqueName = null;
         pageData = null;
+        pageDataSource = null;
         iterator = null;
         currentObject = null;
         parentObject = null;
@@ -17,6 +17,8 @@ package com.redhat.rhn.frontend.taglibs.list.helper;
 
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.Elaborator;
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
+import com.redhat.rhn.common.db.datasource.SelectModeDataSource;
 import com.redhat.rhn.frontend.struts.RequestContext;
 import com.redhat.rhn.frontend.taglibs.list.ListTagHelper;
 import com.redhat.rhn.frontend.taglibs.list.TagHelper;
@@ -104,9 +106,20 @@ public class ListHelper {
      *
      */
     private void setupDataSet() {
-        List dataSet = listable.getResult(context);
         HttpServletRequest request = context.getRequest();
         request.setAttribute(ListTagHelper.PARENT_URL, getParentUrl());
+        if (listable instanceof PageableListable) {
+            PageableDataSource source = ((PageableListable) listable).getDataSource(context);
+            request.setAttribute(getDataSetName(), source);
+            if (!StringUtils.isBlank(getListName()) &&
+                    source instanceof SelectModeDataSource) {
+                TagHelper.bindElaboratorTo(getListName(),
+                        ((SelectModeDataSource) source).getElaborator(), request);
+            }
+            return;
+        }
+
+        List dataSet = listable.getResult(context);
         request.setAttribute(getDataSetName(), dataSet);
         if (!StringUtils.isBlank(getListName()) && dataSet instanceof DataResult) {
             DataResult data = (DataResult) dataSet;
@@ -121,11 +134,16 @@ public class ListHelper {
      * @return the dataset associated to this listable tag.
      */
     public List getDataSet() {
-        List data =  (List) context.getRequest().getAttribute(getDataSetName());
+        Object data = context.getRequest().getAttribute(getDataSetName());
         if (data == null) {
             setupDataSet();
+            data = context.getRequest().getAttribute(getDataSetName());
+        }
+        if (data instanceof PageableDataSource) {
+            // pageable sources only load single pages, get all rows from the listable
+            return listable.getResult(context);
         }
-        return (List) context.getRequest().getAttribute(getDataSetName());
+        return (List) data;
     }
     /**
      * @return the dataSetName
@@ -0,0 +1,36 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.taglibs.list.helper;
+
+import com.redhat.rhn.common.db.datasource.PageableDataSource;
+import com.redhat.rhn.frontend.struts.RequestContext;
+
+/**
+ * Listable whose data can be filtered, sorted and paged by the data source, so that the
+ * list tag only loads the rows of the displayed page.
+ * <p>
+ * {@link #getResult(RequestContext)} is still used where all rows are needed.
+ * @param <T> Type of objects to be listed.
+ */
+public interface PageableListable<T> extends Listable<T> {
+
+    /**
+     * Returns the data to display on the web page, one page at a time.
+     *
+     * @param context the request context; will not be <code>null</code>
+     * @return the data source
+     */
+    PageableDataSource<T> getDataSource(RequestContext context);
+}
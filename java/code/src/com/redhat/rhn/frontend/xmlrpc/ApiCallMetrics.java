@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.xmlrpc;
+
+import com.redhat.rhn.common.hibernate.QueryCounter;
+import com.suse.manager.metrics.PrometheusExporter;
+
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
+/**
+ * Prometheus metrics of XML-RPC API calls, labeled by handler namespace and method.
+ *
+ * Calls of methods which do not exist in the handler are accounted to the "unknown" method,
+ * so that clients cannot create arbitrary label values.
+ */
+public final class ApiCallMetrics {
+
+    /** Method label of calls which could not be resolved to a handler method */
+    public static final String UNKNOWN_METHOD = "unknown";
+
+    private static final Histogram DURATION = Histogram.build()
+            .name("xmlrpc_call_duration_seconds")
+            .help("Time spent executing XML-RPC API calls")
+            .labelNames("handler", "method")
+            .create();
+
+    private static final Counter ERRORS = Counter.build()
+            .name("xmlrpc_call_errors_total")
+            .help("XML-RPC API calls ending with a fault")
+            .labelNames("handler", "method")
+            .create();
+
+    private static final Histogram QUERIES = Histogram.build()
+            .name("xmlrpc_call_queries")
+            .help("SQL statements prepared per XML-RPC API call")
+            .labelNames("handler", "method")
+            .buckets(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000)
+            .create();
+
+    static {
+        PrometheusExporter.INSTANCE.registerCollector(DURATION);
+        PrometheusExporter.INSTANCE.registerCollector(ERRORS);
+        PrometheusExporter.INSTANCE.registerCollector(QUERIES);
+    }
+
+    private ApiCallMetrics() {
+    }
+
+    /**
+     * Starts measuring a call.
+     * @param methodCalled the XML-RPC method name, like 'system.listSystems'
+     * @return the call measurement, to be finished after the call
+     */
+    public static Call start(String methodCalled) {
+        int lastDot = methodCalled.lastIndexOf('.');
+        return new Call(lastDot > 0 ? methodCalled.substring(0, lastDot) : "");
+    }
+
+    /**
+     * Measurement of one API call.
+     */
+    public static class Call {
+
+        private final String handler;
+        private final long startNanos = System.nanoTime();
+        private final long startQueries = QueryCounter.get();
+        private String method = UNKNOWN_METHOD;
+        private boolean failed = true;
+
+        Call(String handlerIn) {
+            handler = handlerIn;
+        }
+
+        /**
+         * Sets the method label once the handler method has been resolved.
+         * @param methodIn the handler method name
+         */
+        public void setMethod(String methodIn) {
+            method = methodIn;
+        }
+
+        /**
+         * Marks the call as completed without fault.
+         */
+        public void succeeded() {
+            failed = false;
+        }
+
+        /**
+         * Records the call duration, statement count and failure, if any.
+         */
+        public void finish() {
+            DURATION.labels(handler, method).observe((System.nanoTime() - startNanos) / 1.0E9);
+            QUERIES.labels(handler, method).observe(QueryCounter.get() - startQueries);
+            if (failed) {
+                ERRORS.labels(handler, method).inc();
+            }
+        }
+    }
+}
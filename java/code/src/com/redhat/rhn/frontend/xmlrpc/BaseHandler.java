@@ -19,13 +19,12 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import org.xml.sax.SAXException;
@@ -40,7 +39,6 @@ import com.redhat.rhn.common.client.ClientCertificateDigester;
 import com.redhat.rhn.common.client.InvalidCertificateException;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
-import com.redhat.rhn.common.translation.Translator;
 import com.redhat.rhn.common.util.MethodUtil;
 import com.redhat.rhn.common.util.StringUtil;
 import com.redhat.rhn.domain.entitlement.Entitlement;
@@ -65,8 +63,7 @@ public class BaseHandler implements XmlRpcInvocationHandler {
 
     private static Logger log = Logger.getLogger(BaseHandler.class);
 
-    private static final String RO_REGEX = "^(list|get|is|find).*$";
-    private static final String KEY_REGEX = "^[1-9][0-9]*x[a-f0-9]{64}$";
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[1-9][0-9]*x[a-f0-9]{64}$");
 
     protected boolean providesAuthentication() {
         return false;
@@ -83,30 +80,30 @@ public class BaseHandler implements XmlRpcInvocationHandler {
      * @exception XmlRpcFault if some error occurs
      */
     public Object invoke(String methodCalled, List params) throws XmlRpcFault {
-        Class myClass = this.getClass();
-        Method[] methods;
+        ApiCallMetrics.Call call = ApiCallMetrics.start(methodCalled);
         try {
-            methods = myClass.getMethods();
+            Object result = invoke(methodCalled, params, call);
+            call.succeeded();
+            return result;
         }
-        catch (SecurityException e) {
-            // This should _never_ happen, because the Handler classes must
-            // have public classes if they're expected to work.
-            throw new XmlRpcFault(-1, "no public methods in class " + myClass);
+        finally {
+            call.finish();
         }
+    }
 
-        String[] byNamespace = methodCalled.split("\\.");
-        String beanifiedMethod = StringUtil.beanify(byNamespace[byNamespace.length - 1]);
+    private Object invoke(String methodCalled, List params, ApiCallMetrics.Call call)
+        throws XmlRpcFault {
+        HandlerDispatchTable table = HandlerDispatchTable.forHandler(this);
+        String beanifiedMethod = table.getMethodName(methodCalled);
         WebSession session = null;
 
         if (params.size() > 0 && params.get(0) instanceof String &&
                 isSessionKey((String)params.get(0))) {
-            if (!myClass.getName().endsWith("AuthHandler") &&
-                !myClass.getName().endsWith("SearchHandler")) {
+            if (table.isSessionUserHandler()) {
                 session = SessionManager.loadSession((String)params.get(0));
                 params.set(0, getLoggedInUser((String)params.get(0)));
                 if (((User)params.get(0)).isReadOnly()) {
-                    if (!beanifiedMethod.matches(RO_REGEX) && !getReadonlyMethodNames()
-                            .stream().anyMatch(m -> m.equals(beanifiedMethod))) {
+                    if (!table.isReadOnly(beanifiedMethod)) {
                         throw new SecurityException("The " + beanifiedMethod +
                                 " API is not available to read-only API users");
                     }
@@ -114,31 +111,10 @@ public class BaseHandler implements XmlRpcInvocationHandler {
             }
         }
 
-        //we've found all the methods that have the same number of parameters
-        List<Method> matchedMethods = findMethods(methods, params, beanifiedMethod);
-
-        //Attempt to find a perfect match
-        Method foundMethod = findPerfectMethod(params, matchedMethods);
-
-        Object[] converted = params.toArray();
-
-
-        //If we were not able to find the exact method match, let's just use the first one
-        //      This isn't the best method, but if you can figure out a better way
-        //      that is easy feel free to change.
-        //Since it is not an exact match, we have to translate the params.
-        if (foundMethod == null) {
-            foundMethod = matchedMethods.get(0);
-            Class[] types = foundMethod.getParameterTypes();
-
-            Iterator iter = params.iterator();
-            for (int i = 0; i < types.length; i++) {
-                Object curr = iter.next();
-                if (!types[i].equals(curr.getClass())) {
-                    converted[i] = Translator.convert(curr, types[i]);
-                }
-            }
-        }
+        HandlerDispatchTable.Target target = table.lookup(beanifiedMethod, params);
+        call.setMethod(beanifiedMethod);
+        Method foundMethod = target.getMethod();
+        Object[] converted = target.getArguments(params);
 
         try {
             return foundMethod.invoke(this, converted);
@@ -190,79 +166,6 @@ public class BaseHandler implements XmlRpcInvocationHandler {
         }
     }
 
-    /**
-     * Finds the perfect match for a method based upon type
-     * @param params The parameters to find the match for.
-     * @param matchedMethods the list of methods to check for a perfect match
-     * @return null if no perfect match was found, otherwise the matched method.
-     */
-    private Method findPerfectMethod(List params, List<Method> matchedMethods) {
-        //now lets try to find one that matches parameters exactly
-        for (Method currMethod : matchedMethods) {
-            Class[] types = currMethod.getParameterTypes();
-            for (int i = 0; i < types.length; i++) {
-                //if we find a param that doesn't match, go to the next method
-                if (!types[i].isAssignableFrom(params.get(i).getClass())) {
-                    break;
-                }
-                //if we have gone through all of the params, and are here it is a
-                //      perfect match.
-                if (i == types.length - 1) {
-                    return currMethod;
-                }
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Private method to find the method in the java class that is being called
-     * via xml-rpc
-     * @param methods The methods contained in the class
-     * @param params The parameters sent to us via xml-rpc
-     * @param beanifiedMethod The method name we are looking for
-     * @return The matching method we're looking for
-     * @throws XmlRpcFault Thrown if we can't find the method asked for
-     */
-    /*
-     * TODO: Make this method even smarterer.
-     *      Currently this finds methods that match the number of parameters and returns
-     *          those.
-     */
-    private List<Method> findMethods(Method[] methods, Collection params,
-            String beanifiedMethod) throws XmlRpcFault {
-
-        List<Method> toReturn = new ArrayList<Method>();
-
-        //Loop through the methods array and find the one we are trying to call.
-        for (int i = 0; i < methods.length; i++) {
-            if (methods[i].getName().equals(beanifiedMethod)) {
-                // We found a method with the right name, but does the parameter count
-                // match?
-                int numberOfParams = methods[i].getParameterTypes().length;
-                if (numberOfParams == params.size()) {
-                    //Method name and number of parameters match.
-                    toReturn.add(methods[i]);
-                }
-            }
-        }
-        if (toReturn.isEmpty()) {
-            //The caller didn't get the method name or number of parameters right
-            String message = "Could not find method: " + beanifiedMethod +
-            " in class: " + this.getClass().getName() + " with params: [";
-            for (Iterator iter = params.iterator(); iter.hasNext();) {
-                Object param = iter.next();
-                message += (param.getClass().getName());
-                    if (iter.hasNext()) {
-                        message = message + ", ";
-                    }
-            }
-            message = message + "]";
-            throw new XmlRpcFault(-1, message);
-        }
-        return toReturn;
-    }
-
     /**
      * Gets the currently logged in user. This is all done through the sessionkey we send
      * the user in AuthHandler.login.
@@ -488,7 +391,7 @@ public class BaseHandler implements XmlRpcInvocationHandler {
     }
 
     private boolean isSessionKey(String string) {
-        return string.matches(KEY_REGEX);
+        return KEY_PATTERN.matcher(string).matches();
     }
 
 }
@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.xmlrpc;
+
+import com.redhat.rhn.common.translation.Translator;
+import com.redhat.rhn.common.util.StringUtil;
+
+import redstone.xmlrpc.XmlRpcFault;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Dispatch table of an XML-RPC handler class: its public methods indexed by name and
+ * number of parameters, the method names available to read-only users and, for every
+ * combination of parameter types called so far, the resolved method and the needed
+ * argument conversions.
+ *
+ * Tables are built once per handler class, so that dispatching a call is a map lookup.
+ */
+public class HandlerDispatchTable {
+
+    private static final Pattern RO_PATTERN = Pattern.compile("^(list|get|is|find).*$");
+
+    private static final ConcurrentMap<Class<?>, HandlerDispatchTable> TABLES =
+            new ConcurrentHashMap<>();
+
+    private final Class<?> handlerClass;
+    private final boolean sessionUserHandler;
+    private final Map<String, Map<Integer, List<Method>>> methods = new HashMap<>();
+    private final Set<String> readOnlyMethods = new HashSet<>();
+    private final ConcurrentMap<String, String> methodNames = new ConcurrentHashMap<>();
+    private final ConcurrentMap<List<Object>, Target> targets = new ConcurrentHashMap<>();
+
+    private HandlerDispatchTable(Class<?> handlerClassIn, List<String> readOnlyMethodNames) {
+        handlerClass = handlerClassIn;
+        sessionUserHandler = !handlerClass.getName().endsWith("AuthHandler") &&
+                !handlerClass.getName().endsWith("SearchHandler");
+
+        for (Method method : handlerClass.getMethods()) {
+            methods.computeIfAbsent(method.getName(), name -> new HashMap<>())
+                .computeIfAbsent(method.getParameterTypes().length, n -> new ArrayList<>())
+                .add(method);
+        }
+        readOnlyMethods.addAll(readOnlyMethodNames);
+        methods.keySet().stream()
+            .filter(name -> RO_PATTERN.matcher(name).matches())
+            .forEach(readOnlyMethods::add);
+    }
+
+    /**
+     * Returns the dispatch table of a handler, building it on first use.
+     * @param handler the handler
+     * @return the dispatch table of the handler class
+     */
+    public static HandlerDispatchTable forHandler(BaseHandler handler) {
+        return TABLES.computeIfAbsent(handler.getClass(),
+                c -> new HandlerDispatchTable(c, handler.getReadonlyMethodNames()));
+    }
+
+    /**
+     * @return true if calls with a session key as first parameter get the logged in user
+     * passed instead
+     */
+    public boolean isSessionUserHandler() {
+        return sessionUserHandler;
+    }
+
+    /**
+     * Returns the Java method name for an XML-RPC method name.
+     * @param methodCalled the XML-RPC method name, like 'registration.privacy_statement'
+     * @return the beanified method name, like 'privacyStatement'
+     */
+    public String getMethodName(String methodCalled) {
+        String name = methodNames.get(methodCalled);
+        if (name == null) {
+            name = StringUtil.beanify(methodCalled.substring(methodCalled.lastIndexOf('.') + 1));
+            // only remember existing methods, so that the map cannot grow unbounded
+            if (methods.containsKey(name)) {
+                methodNames.put(methodCalled, name);
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Checks if a method is available to read-only users. Besides explicitly listed methods,
+     * methods whose name start with 'get', 'list', 'is' and 'find' are.
+     * @param methodName the beanified method name
+     * @return true if read-only users may call the method
+     */
+    public boolean isReadOnly(String methodName) {
+        return readOnlyMethods.contains(methodName) ||
+                (!methods.containsKey(methodName) && RO_PATTERN.matcher(methodName).matches());
+    }
+
+    /**
+     * Finds the method to call for the given parameters. A method whose parameter types
+     * accept all parameters is preferred, otherwise the first method with the same
+     * number of parameters is used and the parameters are converted as needed.
+     * @param methodName the beanified method name
+     * @param params the parameters of the call
+     * @return the method to call
+     * @throws XmlRpcFault if no method with this name and number of parameters exists
+     */
+    public Target lookup(String methodName, List<?> params) throws XmlRpcFault {
+        Object[] signature = new Object[params.size() + 1];
+        signature[0] = methodName;
+        for (int i = 0; i < params.size(); i++) {
+            signature[i + 1] = params.get(i).getClass();
+        }
+        List<Object> key = Arrays.asList(signature);
+
+        Target target = targets.get(key);
+        if (target == null) {
+            List<Method> candidates = methods.getOrDefault(methodName, Collections.emptyMap())
+                    .get(params.size());
+            if (candidates == null) {
+                // The caller didn't get the method name or number of parameters right
+                throw new XmlRpcFault(-1, "Could not find method: " + methodName +
+                        " in class: " + handlerClass.getName() + " with params: [" +
+                        params.stream().map(p -> p.getClass().getName())
+                            .collect(Collectors.joining(", ")) + "]");
+            }
+            target = Target.resolve(candidates, key.subList(1, key.size()));
+            targets.put(key, target);
+        }
+        return target;
+    }
+
+    /**
+     * A handler method resolved for a combination of parameter types.
+     */
+    public static class Target {
+
+        private final Method method;
+        private final Class<?>[] conversions;
+
+        private Target(Method methodIn, Class<?>[] conversionsIn) {
+            method = methodIn;
+            conversions = conversionsIn;
+        }
+
+        private static Target resolve(List<Method> candidates, List<Object> paramTypes) {
+            for (Method candidate : candidates) {
+                Class<?>[] types = candidate.getParameterTypes();
+                boolean perfect = types.length > 0;
+                for (int i = 0; perfect && i < types.length; i++) {
+                    perfect = types[i].isAssignableFrom((Class<?>) paramTypes.get(i));
+                }
+                if (perfect) {
+                    return new Target(candidate, new Class<?>[types.length]);
+                }
+            }
+
+            // If we were not able to find the exact method match, let's just use the
+            // first one and translate the parameters.
+            Method method = candidates.get(0);
+            Class<?>[] types = method.getParameterTypes();
+            Class<?>[] conversions = new Class<?>[types.length];
+            for (int i = 0; i < types.length; i++) {
+                if (!types[i].equals(paramTypes.get(i))) {
+                    conversions[i] = types[i];
+                }
+            }
+            return new Target(method, conversions);
+        }
+
+        /**
+         * @return the handler method
+         */
+        public Method getMethod() {
+            return method;
+        }
+
+        /**
+         * Converts call parameters to the types the method expects.
+         * @param params the parameters of the call
+         * @return the arguments to invoke the method with
+         */
+        public Object[] getArguments(List<?> params) {
+            Object[] arguments = params.toArray();
+            for (int i = 0; i < conversions.length; i++) {
+                if (conversions[i] != null) {
+                    arguments[i] = Translator.convert(arguments[i], conversions[i]);
+                }
+            }
+            return arguments;
+        }
+    }
+}
@@ -38,6 +38,10 @@ public class HandlerFactory {
 
     protected HandlerFactory(ClassBuilder builder) {
         factory = new ManifestFactory(builder);
+        // resolve handler methods once at startup instead of on every call
+        for (Object key : factory.getKeys()) {
+            HandlerDispatchTable.forHandler(getHandler((String) key));
+        }
     }
 
     /**
@@ -725,10 +725,8 @@ public class ChannelSoftwareHandler extends BaseHandler {
         setChangedValues(ucc, details);
 
         ucc.update(channelId.longValue());
-        ServerFactory.listMinionsByChannel(channelId).stream().forEach(ms -> {
-            SaltStateGeneratorService.INSTANCE.generatePillar(ms, false,
-                    Collections.emptySet());
-        });
+        SaltStateGeneratorService.INSTANCE.generatePillars(
+                ServerFactory.listMinionsByChannel(channelId));
         return 1;
     }
 
@@ -2163,7 +2161,7 @@ public class ChannelSoftwareHandler extends BaseHandler {
      * errata into")
      * @xmlrpc.returntype
      *      #array()
-     *          $ErrataSerializer
+     *          $ErrataOverviewSerializer
      *      #array_end()
      */
     public Object[] mergeErrata(User loggedInUser, String mergeFromLabel,
@@ -2177,8 +2175,9 @@ public class ChannelSoftwareHandler extends BaseHandler {
             throw new PermissionCheckFailureException();
         }
 
-        Set<Errata> mergedErrata = mergeErrataToChannel(loggedInUser, new HashSet(mergeFrom
-                .getErratas()), mergeTo, mergeFrom);
+        List<ErrataOverview> mergedErrata = ErrataManager.listMergeableErrata(mergeFrom,
+                mergeTo);
+        ErrataManager.mergeErrataToChannel(mergedErrata, mergeTo, loggedInUser);
 
         return mergedErrata.toArray();
     }
@@ -2203,7 +2202,7 @@ public class ChannelSoftwareHandler extends BaseHandler {
      * @xmlrpc.param #param("string", "endDate")
      * @xmlrpc.returntype
      *      #array()
-     *          $ErrataSerializer
+     *          $ErrataOverviewSerializer
      *      #array_end()
      */
     public Object[] mergeErrata(User loggedInUser, String mergeFromLabel,
@@ -2217,11 +2216,9 @@ public class ChannelSoftwareHandler extends BaseHandler {
             throw new PermissionCheckFailureException();
         }
 
-        List<Errata> fromErrata = ErrataFactory.lookupByChannelBetweenDates(
-                loggedInUser.getOrg(), mergeFrom, startDate, endDate);
-
-        Set<Errata> mergedErrata = mergeErrataToChannel(loggedInUser,
-                new HashSet<Errata>(fromErrata), mergeTo, mergeFrom);
+        List<ErrataOverview> mergedErrata = ErrataManager.listMergeableErrata(mergeFrom,
+                mergeTo, loggedInUser.getOrg(), startDate, endDate);
+        ErrataManager.mergeErrataToChannel(mergedErrata, mergeTo, loggedInUser);
 
         return mergedErrata.toArray();
     }
@@ -2244,7 +2241,7 @@ public class ChannelSoftwareHandler extends BaseHandler {
      *      #array_single("string", " advisory - The advisory name of the errata to merge")
      * @xmlrpc.returntype
      *      #array()
-     *          $ErrataSerializer
+     *          $ErrataOverviewSerializer
      *      #array_end()
      */
     public Object[] mergeErrata(User loggedInUser, String mergeFromLabel,
@@ -2259,61 +2256,13 @@ public class ChannelSoftwareHandler extends BaseHandler {
             throw new PermissionCheckFailureException();
         }
 
-        Set<Errata> sourceErrata = mergeFrom.getErratas();
-        Set<Errata> errataToMerge = new HashSet<Errata>();
-
-        // make sure our errata exist in the "from" channel
-        for (String erratumName : errataNames) {
-            Errata toMerge = ErrataManager.lookupByAdvisory(erratumName,
-                    loggedInUser.getOrg());
-
-            for (Errata erratum : sourceErrata) {
-                if (erratum.getAdvisoryName().equals(toMerge.getAdvisoryName())) {
-                    errataToMerge.add(toMerge);
-                    break;
-                }
-            }
-        }
-
-        Set<Errata> mergedErrata =
-            mergeErrataToChannel(loggedInUser, errataToMerge, mergeTo, mergeFrom);
+        List<ErrataOverview> mergedErrata = ErrataManager.listMergeableErrata(mergeFrom,
+                mergeTo, errataNames);
+        ErrataManager.mergeErrataToChannel(mergedErrata, mergeTo, loggedInUser);
 
         return mergedErrata.toArray();
     }
 
-    private Set<Errata> mergeErrataToChannel(User user, Set<Errata> errataToMergeIn,
-            Channel toChannel, Channel fromChannel) {
-
-        Set<Errata> errataToMerge = new HashSet<>(errataToMergeIn);
-
-        // find errata that we do not need to merge
-        List<Errata> same = ErrataManager.listSamePublishedInChannels(
-                user, fromChannel, toChannel);
-        List<Errata> brothers = ErrataManager.listPublishedBrothersInChannels(
-                user, fromChannel, toChannel);
-        List<Errata> clones = ErrataManager.listPublishedClonesInChannels(
-                user, fromChannel, toChannel);
-        // and remove them
-        errataToMerge.removeAll(same);
-        errataToMerge.removeAll(brothers);
-        errataToMerge.removeAll(clones);
-
-        ErrataManager.publishErrataToChannelAsync(toChannel,
-                getErrataIds(errataToMerge), user);
-
-        // no need to regenerate errata cache, because we didn't touch any packages
-
-        return errataToMerge;
-    }
-
-    private Set<Long> getErrataIds(Set<Errata> errata) {
-        Set<Long> ids = new HashSet<Long>();
-        for (Errata erratum : errata) {
-            ids.add(erratum.getId());
-        }
-        return ids;
-    }
-
     /**
      * Merge a channel's packages into another channel.
      * @param loggedInUser The current user
@@ -2342,25 +2291,18 @@ public class ChannelSoftwareHandler extends BaseHandler {
             throw new PermissionCheckFailureException();
         }
 
-        List<Package> differentPackages = new ArrayList<Package>();
-
-        Set<Package> toPacks = mergeTo.getPackages();
-        Set<Package> fromPacks = mergeFrom.getPackages();
-        List<Long> pids = new ArrayList<Long>();
-        for (Package pack : fromPacks) {
-            if (!toPacks.contains(pack)) {
-                pids.add(pack.getId());
-                differentPackages.add(pack);
-            }
+        // compare and copy the package lists in the database, without loading them
+        List<Long> pids = ChannelManager.listPackagesMissingFromChannel(mergeFrom, mergeTo);
+        if (pids.isEmpty()) {
+            return new Object[0];
         }
-        mergeTo.getPackages().addAll(differentPackages);
-        ChannelFactory.save(mergeTo);
+        ChannelManager.addPackages(mergeTo, pids, loggedInUser);
         ChannelManager.refreshWithNewestPackages(mergeTo, "java::mergePackages");
 
         List<Long> cids = new ArrayList<Long>();
         cids.add(mergeTo.getId());
         ErrataCacheManager.insertCacheForChannelPackagesAsync(cids, pids);
-        return differentPackages.toArray();
+        return PackageFactory.lookupByIds(pids).toArray();
     }
 
     /**
@@ -37,6 +37,7 @@ import com.redhat.rhn.domain.server.ServerFactory;
 import com.redhat.rhn.domain.server.test.ServerFactoryTest;
 import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.context.Context;
+import com.redhat.rhn.frontend.dto.ErrataOverview;
 import com.redhat.rhn.frontend.dto.PackageDto;
 import com.redhat.rhn.frontend.xmlrpc.InvalidChannelException;
 import com.redhat.rhn.frontend.xmlrpc.InvalidChannelLabelException;
@@ -1062,6 +1063,32 @@ public class ChannelSoftwareHandlerTest extends BaseHandlerTestCase {
         assertEquals(mergeResult.length, 0);
     }
 
+    public void testMergeErrataByNames() throws Exception {
+        Channel mergeFrom = ChannelFactoryTest.createTestChannel(admin);
+        Channel mergeTo = ChannelFactoryTest.createTestChannel(admin);
+
+        Errata merged = ErrataFactoryTest.createTestPublishedErrata(admin.getOrg().getId());
+        Errata notMerged = ErrataFactoryTest.createTestPublishedErrata(
+                admin.getOrg().getId());
+        mergeFrom.addErrata(merged);
+        mergeFrom.addErrata(notMerged);
+        TestUtils.saveAndFlush(mergeFrom);
+
+        List<String> names = Arrays.asList(merged.getAdvisoryName(), "unknown advisory");
+        Object[] mergeResult = handler.mergeErrata(admin, mergeFrom.getLabel(),
+                mergeTo.getLabel(), names);
+        assertEquals(1, mergeResult.length);
+        assertEquals(merged.getId(), ((ErrataOverview) mergeResult[0]).getId());
+
+        List<Map<String, Object>> toList = handler.listErrata(admin, mergeTo.getLabel());
+        assertEquals(1, toList.size());
+
+        // errata already in the target channel are skipped
+        mergeResult = handler.mergeErrata(admin, mergeFrom.getLabel(),
+                mergeTo.getLabel(), names);
+        assertEquals(0, mergeResult.length);
+    }
+
 
     public void testListLatestPackages() throws Exception {
         Channel chan = ChannelFactoryTest.createTestChannel(admin);
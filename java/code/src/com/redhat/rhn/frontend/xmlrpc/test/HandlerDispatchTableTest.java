@@ -0,0 +1,69 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.frontend.xmlrpc.test;
+
+import com.redhat.rhn.frontend.xmlrpc.HandlerDispatchTable;
+
+import junit.framework.TestCase;
+import redstone.xmlrpc.XmlRpcFault;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link HandlerDispatchTable}.
+ */
+public class HandlerDispatchTableTest extends TestCase {
+
+    private HandlerDispatchTable table;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        table = HandlerDispatchTable.forHandler(new UnitTestHandler());
+    }
+
+    public void testMethodName() {
+        assertEquals("getUserLogin", table.getMethodName("unittest.get_user_login"));
+        assertEquals("getUserLogin", table.getMethodName("unittest.getUserLogin"));
+    }
+
+    public void testReadOnly() {
+        assertTrue(table.isReadOnly("getUserLogin"));
+        assertTrue(table.isReadOnly("listSomethingMissing"));
+        assertFalse(table.isReadOnly("add"));
+        assertFalse(table.isReadOnly("throwFault"));
+    }
+
+    public void testLookup() throws Exception {
+        List<Object> params = Arrays.asList(1, 2);
+        HandlerDispatchTable.Target target = table.lookup("add", params);
+        assertEquals("add", target.getMethod().getName());
+        assertTrue(Arrays.equals(new Object[] {1, 2}, target.getArguments(params)));
+        assertSame(target, table.lookup("add", Arrays.asList(3, 4)));
+        assertSame(table, HandlerDispatchTable.forHandler(new UnitTestHandler()));
+    }
+
+    public void testLookupMissingMethod() {
+        try {
+            table.lookup("add", Collections.singletonList(1));
+            fail("Method with wrong number of parameters should not be found");
+        }
+        catch (XmlRpcFault e) {
+            assertTrue(e.getMessage().startsWith("Could not find method: add"));
+        }
+    }
+}
@@ -19,6 +19,7 @@ import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.action.Action;
@@ -745,6 +746,22 @@ public class ActionManager extends BaseManager {
         return ActionFactory.save(actionIn);
     }
 
+    /**
+     * Stores the action in the database and schedules it for execution on many servers
+     * at once, inserting rows to rhnServerAction in batches instead of creating one
+     * ServerAction entity per server.
+     * @param actionIn The action to be stored, without server actions
+     * @param serverIds ids of the servers to schedule the action for
+     * @return action, with its server actions loaded
+     */
+    public static Action storeAction(Action actionIn, Collection<Long> serverIds) {
+        Action action = ActionFactory.save(actionIn);
+        HibernateFactory.getSession().flush();
+        scheduleForExecution(action, new HashSet<Long>(serverIds));
+        HibernateFactory.getSession().refresh(action);
+        return action;
+    }
+
     /**
      * Reschedule the action so it can be attempted again.
      *
@@ -1432,13 +1449,13 @@ public class ActionManager extends BaseManager {
      */
     public static void checkScriptingOnServers(List<Long> sids)
         throws MissingCapabilityException {
+        Set<Long> capable = SystemManager.filterClientCapable(sids, "script.run");
         for (Long sid : sids) {
-            if (!SystemManager.clientCapable(sid, "script.run")) {
+            if (!capable.contains(sid)) {
                 throw new MissingCapabilityException("script.run", sid);
             }
-
-            checkSaltOrManagementEntitlement(sid);
         }
+        checkSaltOrManagementEntitlement(sids);
     }
 
     /**
@@ -1689,10 +1706,13 @@ public class ActionManager extends BaseManager {
      */
     public static Action scheduleHardwareRefreshAction(User scheduler, Date earliestAction,
             Set<Long> serverIds) {
+        Set<Long> available = SystemManager.filterAvailableToUser(scheduler, serverIds);
         for (Long sid : serverIds) {
-            Server s = SystemManager.lookupByIdAndUser(sid, scheduler);
-            checkSaltOrManagementEntitlement(sid);
+            if (!available.contains(sid)) {
+                SystemManager.ensureAvailableToUser(scheduler, sid);
+            }
         }
+        checkSaltOrManagementEntitlement(serverIds);
         return scheduleAction(scheduler, ActionFactory.TYPE_HARDWARE_REFRESH_LIST,
                 ActionFactory.TYPE_HARDWARE_REFRESH_LIST.getName(), earliestAction,
                 serverIds);
@@ -1737,15 +1757,29 @@ public class ActionManager extends BaseManager {
     private static void checkSaltOrManagementEntitlement(Long sid) {
         if (!SystemManager.hasEntitlement(sid, EntitlementManager.MANAGEMENT) &&
                 !SystemManager.hasEntitlement(sid, EntitlementManager.SALT)) {
-            log.error("Unable to run action on a system without either Salt or " +
-                    "Management entitlement, id " + sid);
-            throw new MissingEntitlementException(
-                    EntitlementManager.MANAGEMENT.getHumanReadableLabel() + " or " +
-                    EntitlementManager.SALT.getHumanReadableLabel()
-            );
+            throw missingSaltOrManagementEntitlement(sid);
         }
     }
 
+    private static void checkSaltOrManagementEntitlement(Collection<Long> sids) {
+        Set<Long> entitled = SystemManager.filterEntitled(sids, EntitlementManager.MANAGEMENT);
+        entitled.addAll(SystemManager.filterEntitled(sids, EntitlementManager.SALT));
+        for (Long sid : sids) {
+            if (!entitled.contains(sid)) {
+                throw missingSaltOrManagementEntitlement(sid);
+            }
+        }
+    }
+
+    private static MissingEntitlementException missingSaltOrManagementEntitlement(Long sid) {
+        log.error("Unable to run action on a system without either Salt or " +
+                "Management entitlement, id " + sid);
+        return new MissingEntitlementException(
+                EntitlementManager.MANAGEMENT.getHumanReadableLabel() + " or " +
+                EntitlementManager.SALT.getHumanReadableLabel()
+        );
+    }
+
     /**
      * Schedules all Errata for the given system.
      * @param scheduler Person scheduling the action.
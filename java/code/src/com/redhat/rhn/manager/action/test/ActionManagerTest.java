@@ -95,6 +95,7 @@ import org.jmock.Expectations;
 import org.jmock.lib.legacy.ClassImposteriser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -638,6 +639,20 @@ public class ActionManagerTest extends JMockBaseTestCaseWithUser {
         assertTrue(sa.getServer().equals(s));
     }
 
+    public void testStoreActionForServers() throws Exception {
+        Server s1 = ServerFactoryTest.createTestServer(user, true);
+        Server s2 = ServerFactoryTest.createTestServer(user, true);
+        Action a = ActionManager.createAction(user, ActionFactory.TYPE_ERRATA,
+                "test", new Date());
+        a = ActionManager.storeAction(a, Arrays.asList(s1.getId(), s2.getId()));
+
+        assertEquals(2, a.getServerActions().size());
+        for (ServerAction sa : a.getServerActions()) {
+            assertEquals(ActionFactory.STATUS_QUEUED, sa.getStatus());
+            assertTrue(sa.getServer().equals(s1) || sa.getServer().equals(s2));
+        }
+    }
+
     public void testSchedulePackageRemoval() throws Exception {
         Server srvr = ServerFactoryTest.createTestServer(user, true);
         RhnSet set = RhnSetManager.createSet(user.getId(), "removable_package_list",
@@ -16,11 +16,13 @@ package com.redhat.rhn.manager.audit;
 
 import static com.redhat.rhn.common.hibernate.HibernateFactory.getSession;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.common.messaging.MessageQueue;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelArch;
 import com.redhat.rhn.domain.image.ImageInfo;
@@ -34,10 +36,12 @@ import com.redhat.rhn.domain.user.User;
 import com.redhat.rhn.frontend.dto.EssentialChannelDto;
 import com.redhat.rhn.frontend.dto.SUSEProductDto;
 import com.redhat.rhn.frontend.dto.SystemOverview;
+import com.redhat.rhn.frontend.events.IndexCVEPatchStatusEvent;
 import com.redhat.rhn.manager.distupgrade.DistUpgradeManager;
 
 import org.apache.log4j.Logger;
 
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -86,6 +90,9 @@ public class CVEAuditManager {
 
     private static final String KERNEL_XEN_NAME = "kernel-xen";
 
+    /** Number of servers whose relevant channels are compared with the stored ones at once. */
+    private static final int SERVER_CHANNELS_BATCH_SIZE = 500;
+
     /**
      * Not to be instantiated.
      */
@@ -93,7 +100,8 @@ public class CVEAuditManager {
     }
 
     /**
-     * Empty the suseCVEServerChannel and suseCVEImageChannel table.
+     * Empty the suseCVEServerChannel and suseCVEImageChannel table. The CVE patch status
+     * index of all servers is emptied as well, as it depends on the relevant channels.
      */
     public static void deleteRelevantChannels() {
         WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
@@ -102,6 +110,96 @@ public class CVEAuditManager {
         m = ModeFactory.getWriteMode("cve_audit_queries",
                 "delete_relevant_image_channels");
         m.executeUpdate(new HashMap<String, Long>());
+        invalidateCVEPatchStatusIndex();
+    }
+
+    /**
+     * Delete the suseCVEServerChannel rows of the given servers.
+     *
+     * @param serverIds the server ids
+     */
+    public static void deleteRelevantServerChannels(List<Long> serverIds) {
+        if (serverIds.isEmpty()) {
+            return;
+        }
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_relevant_server_channels_for_servers");
+        m.executeUpdate(new HashMap<String, Long>(), serverIds);
+    }
+
+    /**
+     * List the suseCVEServerChannel rows of the given servers.
+     *
+     * @param serverIds the server ids
+     * @return map of server ids to maps of relevant channel ids to their rank
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<Long, Map<Long, Long>> listRelevantServerChannels(List<Long> serverIds) {
+        if (serverIds.isEmpty()) {
+            return new HashMap<>();
+        }
+        SelectMode m = ModeFactory.getMode("cve_audit_queries",
+                "list_relevant_server_channels_for_servers");
+        DataResult<Map<String, Object>> results = m.execute(new HashMap<String, Long>(), serverIds);
+        Map<Long, Map<Long, Long>> ret = new HashMap<>();
+        for (Map<String, Object> row : results) {
+            ret.computeIfAbsent((Long) row.get("server_id"), sid -> new HashMap<>())
+                    .put((Long) row.get("channel_id"), (Long) row.get("channel_rank"));
+        }
+        return ret;
+    }
+
+    /**
+     * Empty the CVE patch status index of all servers, so that it gets recomputed by
+     * the next audit of each CVE.
+     */
+    public static void invalidateCVEPatchStatusIndex() {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_cve_patch_status_index");
+        m.executeUpdate(new HashMap<String, Long>());
+    }
+
+    /**
+     * Empty the CVE patch status index of the given servers, eg. after their installed
+     * packages or their channels changed.
+     *
+     * @param serverIds the server ids
+     */
+    public static void invalidateCVEPatchStatusIndex(List<Long> serverIds) {
+        if (serverIds.isEmpty()) {
+            return;
+        }
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_cve_patch_status_index_for_servers");
+        m.executeUpdate(new HashMap<String, Long>(), serverIds);
+    }
+
+    /**
+     * Empty the CVE patch status index of all servers the given channel is relevant for,
+     * eg. after packages or errata of the channel changed.
+     *
+     * @param channelId the channel id
+     */
+    public static void invalidateCVEPatchStatusIndexForChannel(Long channelId) {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_cve_patch_status_index_for_channel");
+        Map<String, Long> params = new HashMap<>();
+        params.put("channel_id", channelId);
+        m.executeUpdate(params);
+    }
+
+    /**
+     * Empty the CVE patch status index of all servers a channel containing the given
+     * erratum is relevant for.
+     *
+     * @param errataId the erratum id
+     */
+    public static void invalidateCVEPatchStatusIndexForErrata(Long errataId) {
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_cve_patch_status_index_for_errata");
+        Map<String, Long> params = new HashMap<>();
+        params.put("errata_id", errataId);
+        m.executeUpdate(params);
     }
 
     /**
@@ -431,12 +529,10 @@ public class CVEAuditManager {
     }
 
     /**
-     * Populate channels for CVE Audit
+     * Populate channels for CVE Audit. Only servers whose relevant channels changed are
+     * updated, their CVE patch status index is invalidated.
      */
     public static void populateCVEChannels() {
-        // Empty the table first
-        deleteRelevantChannels();
-
         // Empty caches
         suseProductChannelCache.clear();
         sourceProductCache.clear();
@@ -456,7 +552,38 @@ public class CVEAuditManager {
                 server -> populateCVEChannels(new ServerAuditTarget(server, productFactory))
             ));
 
-        insertRelevantServerChannels(relevantServerChannels);
+        // rows of deleted servers are gone already, as they cascade
+        List<Server> auditedServers = new ArrayList<>(relevantServerChannels.keySet());
+        int changed = 0;
+        for (int i = 0; i < auditedServers.size(); i += SERVER_CHANNELS_BATCH_SIZE) {
+            List<Server> batch = auditedServers.subList(i,
+                    Math.min(i + SERVER_CHANNELS_BATCH_SIZE, auditedServers.size()));
+            Map<Long, Map<Long, Long>> currentServerChannels = listRelevantServerChannels(
+                    batch.stream().map(Server::getId).collect(Collectors.toList()));
+            Map<Server, List<RankedChannel>> changedServerChannels = new HashMap<>();
+            List<Long> outdatedServerIds = new ArrayList<>();
+            for (Server server : batch) {
+                Map<Long, Long> current = currentServerChannels.get(server.getId());
+                Map<Long, Long> relevant = relevantServerChannels.get(server).stream().collect(
+                        Collectors.toMap(RankedChannel::getChannelId, c -> (long) c.getRank()));
+                if (!relevant.equals(current == null ? Collections.emptyMap() : current)) {
+                    outdatedServerIds.add(server.getId());
+                    changedServerChannels.put(server, relevantServerChannels.get(server));
+                }
+            }
+            deleteRelevantServerChannels(outdatedServerIds);
+            invalidateCVEPatchStatusIndex(outdatedServerIds);
+            insertRelevantServerChannels(changedServerChannels);
+            changed += outdatedServerIds.size();
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Relevant channels changed for " + changed + " servers");
+        }
+
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "delete_relevant_image_channels");
+        m.executeUpdate(new HashMap<String, Long>());
 
         Map<ImageInfo, List<RankedChannel>> relevantImageChannels =
                 ImageInfoFactory.list().stream().collect(Collectors.toMap(
@@ -778,6 +905,40 @@ public class CVEAuditManager {
 
     }
 
+    /**
+     * Computes the patch status of the servers visible to the user which are not yet in
+     * the CVE patch status index for the given CVE. Entries older than
+     * java.cve_audit.index_max_age_minutes are recomputed, to catch up with changes not
+     * invalidating the index, like CVEs being added to existing errata.
+     *
+     * Audits do not call this, they publish an {@link IndexCVEPatchStatusEvent} instead
+     * and compute the patch status of servers not in the index on the fly.
+     *
+     * @param user the user whose servers are indexed
+     * @param cveIdentifier the CVE identifier
+     */
+    public static void indexCVEPatchStatus(User user, String cveIdentifier) {
+        int maxAge = ConfigDefaults.get().getCVEAuditIndexMaxAgeMinutes();
+        if (maxAge > 0) {
+            WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                    "delete_outdated_cve_patch_status_index");
+            Map<String, Object> params = new HashMap<>();
+            params.put("cve_identifier", cveIdentifier);
+            params.put("created", new Timestamp(System.currentTimeMillis() - maxAge * 60000L));
+            m.executeUpdate(params);
+        }
+
+        WriteMode m = ModeFactory.getWriteMode("cve_audit_queries",
+                "index_cve_patch_status");
+        Map<String, Object> params = new HashMap<>();
+        params.put("cve_identifier", cveIdentifier);
+        params.put("user_id", user.getId());
+        int count = m.executeUpdate(params);
+        if (log.isDebugEnabled()) {
+            log.debug("Indexed " + count + " patch status rows for " + cveIdentifier);
+        }
+    }
+
     private static Stream<CVEPatchStatus> listSystemsByPatchStatus(User user,
         String cveIdentifier) {
         SelectMode m = ModeFactory.getMode("cve_audit_queries",
@@ -826,6 +987,8 @@ public class CVEAuditManager {
 
         List<CVEPatchStatus> results = listSystemsByPatchStatus(user, cveIdentifier)
                 .collect(Collectors.toList());
+        // servers not indexed yet are indexed in the background for the next audit
+        MessageQueue.publish(new IndexCVEPatchStatusEvent(cveIdentifier, user.getId()));
 
         return listSystemsByPatchStatus(results, patchStatuses)
                 .stream()
@@ -39,6 +39,7 @@ import static com.redhat.rhn.testing.ImageTestUtils.createImagePackage;
 
 import java.util.*;
 
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.ChannelFamily;
@@ -505,6 +506,56 @@ public class CVEAuditManagerTest extends RhnBaseTestCase {
         assertSystemNotFound(server, results);
     }
 
+    /**
+     * Verify that audits return the same results with and without the CVE patch status
+     * index, and fresh results after the index of a server was invalidated:
+     * {@link CVEAuditManager#invalidateCVEPatchStatusIndex(List)}
+     * @throws Exception if anything goes wrong
+     */
+    public void testCVEPatchStatusIndexInvalidation() throws Exception {
+        // Create a CVE number
+        String cveName = TestUtils.randomString().substring(0, 13);
+        Cve cve = createTestCve(cveName);
+        Set<Cve> cves = new HashSet<Cve>();
+        cves.add(cve);
+
+        // Create a server with a channel, one errata and an upgradable package
+        // already installed
+        User user = createTestUser();
+        Errata errata = createTestErrata(user, cves);
+        Channel channel = createTestChannel(user, errata);
+        Set<Channel> channels = new HashSet<Channel>();
+        channels.add(channel);
+        Package unpatched = createTestPackage(user, channel, "noarch");
+        Package patched = createLaterTestPackage(user, errata, channel, unpatched);
+        Server server = createTestServer(user, channels);
+        createTestInstalledPackage(unpatched, server);
+        CVEAuditManager.populateCVEChannels();
+
+        // Not indexed yet, computed on the fly
+        EnumSet<PatchStatus> filter = EnumSet.allOf(PatchStatus.class);
+        List<CVEAuditServer> results =
+                CVEAuditManager.listSystemsByPatchStatus(user, cveName, filter);
+        assertSystemPatchStatus(server, PatchStatus.AFFECTED_PATCH_APPLICABLE, results);
+
+        // Served from the index
+        CVEAuditManager.indexCVEPatchStatus(user, cveName);
+        results = CVEAuditManager.listSystemsByPatchStatus(user, cveName, filter);
+        assertSystemPatchStatus(server, PatchStatus.AFFECTED_PATCH_APPLICABLE, results);
+
+        // Install the patch and invalidate the index, as the needed cache update does
+        createTestInstalledPackage(patched, server);
+        HibernateFactory.getSession().flush();
+        CVEAuditManager.invalidateCVEPatchStatusIndex(Collections.singletonList(server.getId()));
+        results = CVEAuditManager.listSystemsByPatchStatus(user, cveName, filter);
+        assertSystemPatchStatus(server, PatchStatus.PATCHED, results);
+
+        // Indexed again
+        CVEAuditManager.indexCVEPatchStatus(user, cveName);
+        results = CVEAuditManager.listSystemsByPatchStatus(user, cveName, filter);
+        assertSystemPatchStatus(server, PatchStatus.PATCHED, results);
+    }
+
     /**
      * Runs listSystemsByPatchStatus on a server with patch status
      * AFFECTED_PATCH_APPLICABLE and tests result filtering.
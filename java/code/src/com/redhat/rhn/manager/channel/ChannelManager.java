@@ -2257,6 +2257,21 @@ public class ChannelManager extends BaseManager {
 
     }
 
+    /**
+     * Lists the ids of the packages of a channel which are not in another channel.
+     * @param from the channel to compare
+     * @param to the channel to compare with
+     * @return the ids of the packages missing from the second channel
+     */
+    public static List<Long> listPackagesMissingFromChannel(Channel from, Channel to) {
+        SelectMode m = ModeFactory.getMode("Channel_queries", "packages_missing_from_channel");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("from_cid", from.getId());
+        params.put("to_cid", to.getId());
+        List<Map<String, Object>> rows = m.execute(params);
+        return rows.stream().map(row -> (Long) row.get("id")).collect(Collectors.toList());
+    }
+
     /**
      * Adds packages to a channel
      * @param chan the channel
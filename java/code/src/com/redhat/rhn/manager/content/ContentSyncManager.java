@@ -56,6 +56,7 @@ import com.suse.scc.model.SCCSubscription;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.log4j.Logger;
 import org.simpleframework.xml.core.Persister;
 
@@ -85,6 +86,11 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -96,6 +102,26 @@ public class ContentSyncManager {
     // Logger instance
     private static Logger log = Logger.getLogger(ContentSyncManager.class);
 
+    /** Pool fetching data of independent SCC endpoints and credentials concurrently. */
+    private static final ExecutorService FETCH_POOL = Executors.newFixedThreadPool(
+            ConfigDefaults.get().getSCCMaxParallelRequests(),
+            new BasicThreadFactory.Builder().namingPattern("scc-fetch-%d").daemon(true).build());
+
+    /**
+     * Kinds of SCC data applied to the database by this process, mapped to the credentials
+     * the data was fetched with. Data SCC reports as unchanged is only skipped if it is
+     * listed here, so a failed or foreign update of the tables is always repaired.
+     */
+    private static final Map<String, String> APPLIED_SCC_DATA = new ConcurrentHashMap<String, String>();
+    private static final String PRODUCTS = "products";
+    private static final String REPOSITORIES = "repositories";
+    private static final String SUBSCRIPTIONS = "subscriptions:";
+
+    // Products last returned by getProducts() and whether SCC reported them as unchanged
+    private Collection<SCCProduct> fetchedProducts;
+    private String fetchedProductsSource;
+    private boolean fetchedProductsUnchanged;
+
     // Base channels have "BASE" as their parent in channels.xml
     public static final String BASE_CHANNEL = "BASE";
 
@@ -281,6 +307,8 @@ public class ContentSyncManager {
         Set<SCCProduct> productList = new HashSet<SCCProduct>();
         List<Credentials> credentials = filterCredentials();
         Iterator<Credentials> i = credentials.iterator();
+        fetchedProductsSource = null;
+        fetchedProductsUnchanged = false;
 
         // stop as soon as a credential pair works
         while (i.hasNext() && productList.size() == 0) {
@@ -288,6 +316,8 @@ public class ContentSyncManager {
             try {
                 SCCClient scc = getSCCClient(c);
                 List<SCCProduct> products = scc.listProducts();
+                fetchedProductsSource = getSource(c);
+                fetchedProductsUnchanged = scc.isUnchanged(products);
                 for (SCCProduct product : products) {
                     // Check for missing attributes
                     String missing = verifySCCProduct(product);
@@ -319,9 +349,35 @@ public class ContentSyncManager {
         // to be removed when SCC team fixes this
         addDirtyFixes(productList);
 
+        fetchedProducts = productList;
         return productList;
     }
 
+    /**
+     * Tells whether data fetched from SCC does not need to be applied to the database,
+     * because it is unchanged and was applied by this process already.
+     * @param kind the kind of data
+     * @param source the credentials the data was fetched with, see {@link #getSource}
+     * @param unchanged true if SCC reported the data as unchanged
+     * @return true if applying the data can be skipped
+     */
+    private static boolean isApplied(String kind, String source, boolean unchanged) {
+        if (unchanged && source.equals(APPLIED_SCC_DATA.get(kind))) {
+            log.debug("Skipping unchanged " + kind + " from SCC");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the source data was fetched with.
+     * @param c the credentials, null when reading from a directory
+     * @return the source
+     */
+    private static String getSource(Credentials c) {
+        return c == null ? "fromdir" : String.valueOf(c.getId());
+    }
+
     /**
      * Return a fixed friendly name
      * @param friendlyName input friendly name
@@ -653,12 +709,31 @@ public class ContentSyncManager {
         Set<SCCRepository> reposList = new HashSet<SCCRepository>();
         List<Credentials> credentials = filterCredentials();
 
-        // Query repos for all mirror credentials and consolidate
+        // Query repos for all mirror credentials at the same time
+        Map<Credentials, Future<List<SCCRepository>>> fetches =
+                new HashMap<Credentials, Future<List<SCCRepository>>>();
+        Map<Credentials, SCCClient> clients = new HashMap<Credentials, SCCClient>();
         for (Credentials c : credentials) {
             try {
                 log.debug("Getting repos for: " + c);
                 SCCClient scc = getSCCClient(c);
-                List<SCCRepository> repos = scc.listRepositories();
+                clients.put(c, scc);
+                fetches.put(c, FETCH_POOL.submit(scc::listRepositories));
+            }
+            catch (SCCClientException e) {
+                throw new ContentSyncException(e);
+            }
+            catch (URISyntaxException e) {
+                throw new ContentSyncException(e);
+            }
+        }
+
+        // Consolidate
+        boolean unchanged = true;
+        for (Credentials c : credentials) {
+            try {
+                List<SCCRepository> repos = awaitFetch(fetches.get(c));
+                unchanged &= clients.get(c).isUnchanged(repos);
 
                 // Add mirror credentials to all repos
                 for (SCCRepository r : repos) {
@@ -673,16 +748,19 @@ public class ContentSyncManager {
             catch (SCCClientException e) {
                 throw new ContentSyncException(e);
             }
-            catch (URISyntaxException e) {
-                throw new ContentSyncException(e);
-            }
         }
 
         // Update the repositories cache
+        String source = credentials.stream().map(ContentSyncManager::getSource)
+                .collect(Collectors.joining(","));
+        if (isApplied(REPOSITORIES, source, unchanged)) {
+            return;
+        }
         if (log.isDebugEnabled()) {
             log.debug("Populating cache with " + reposList.size() + " repositories.");
         }
         refreshRepositoriesCache(reposList);
+        APPLIED_SCC_DATA.put(REPOSITORIES, source);
     }
 
     /**
@@ -690,6 +768,7 @@ public class ContentSyncManager {
      * @param repositories the new repositories
      */
     public void refreshRepositoriesCache(Collection<SCCRepository> repositories) {
+        APPLIED_SCC_DATA.remove(REPOSITORIES);
         SCCCachingFactory.clearRepositories();
         for (SCCRepository repo : repositories) {
             SCCCachingFactory.saveRepository(repo);
@@ -706,6 +785,7 @@ public class ContentSyncManager {
      */
     public void refreshSubscriptionCache(List<SCCSubscription> subscriptions,
             Credentials c) {
+        APPLIED_SCC_DATA.remove(SUBSCRIPTIONS + getSource(c));
         List<Long> cachedSccIDs = SCCCachingFactory.listSubscriptionsIdsByCredentials(c);
         for (SCCSubscription s : subscriptions) {
             SCCCachingFactory.saveJsonSubscription(s, c);
@@ -732,11 +812,11 @@ public class ContentSyncManager {
             throws SCCClientException {
         try {
             SCCClient scc = this.getSCCClient(credentials);
-            List<SCCSubscription> subscriptions = scc.listSubscriptions();
-            refreshSubscriptionCache(subscriptions, credentials);
-            refreshOrderItemCache(credentials);
-            generateOEMOrderItems(subscriptions, credentials);
-            return subscriptions;
+            Future<List<SCCSubscription>> subscriptions =
+                    FETCH_POOL.submit(scc::listSubscriptions);
+            Future<List<SCCOrder>> orders = FETCH_POOL.submit(scc::listOrders);
+            return refreshSubscriptionAndOrderItemCache(credentials, scc,
+                    awaitFetch(subscriptions), awaitFetch(orders));
         }
         catch (URISyntaxException e) {
             log.error("Invalid URL:" + e.getMessage());
@@ -744,6 +824,53 @@ public class ContentSyncManager {
         }
     }
 
+    /**
+     * Puts subscriptions and order items fetched from SCC into the DB, unless both are
+     * unchanged since they were put there last time.
+     * @param credentials username/password pair
+     * @param scc the client the data was fetched with
+     * @param subscriptions the subscriptions
+     * @param orders the orders
+     * @return the subscriptions
+     */
+    private List<SCCSubscription> refreshSubscriptionAndOrderItemCache(
+            Credentials credentials, SCCClient scc, List<SCCSubscription> subscriptions,
+            List<SCCOrder> orders) {
+        String kind = SUBSCRIPTIONS + getSource(credentials);
+        if (isApplied(kind, getSource(credentials),
+                scc.isUnchanged(subscriptions) && scc.isUnchanged(orders))) {
+            return subscriptions;
+        }
+        refreshSubscriptionCache(subscriptions, credentials);
+        refreshOrderItemCache(orders, credentials);
+        generateOEMOrderItems(subscriptions, credentials);
+        APPLIED_SCC_DATA.put(kind, getSource(credentials));
+        return subscriptions;
+    }
+
+    /**
+     * Waits for data being fetched from SCC.
+     * @param <T> the result type
+     * @param fetch the fetch task
+     * @return the fetched data
+     * @throws SCCClientException if fetching failed
+     */
+    private static <T> T awaitFetch(Future<T> fetch) throws SCCClientException {
+        try {
+            return fetch.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SCCClientException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof SCCClientException) {
+                throw (SCCClientException) e.getCause();
+            }
+            throw new SCCClientException(e.getCause());
+        }
+    }
+
     /**
      * Returns all subscriptions available to all configured credentials.
      * @return list of all available subscriptions
@@ -753,10 +880,34 @@ public class ContentSyncManager {
         log.info("ContentSyncManager.getSubscriptions called");
         Set<SCCSubscription> subscriptions = new HashSet<SCCSubscription>();
         List<Credentials> credentials = filterCredentials();
-        // Query subscriptions for all mirror credentials
+        // Query subscriptions and orders for all mirror credentials at the same time
+        Map<Credentials, Future<List<SCCSubscription>>> subscriptionFetches =
+                new HashMap<Credentials, Future<List<SCCSubscription>>>();
+        Map<Credentials, Future<List<SCCOrder>>> orderFetches =
+                new HashMap<Credentials, Future<List<SCCOrder>>>();
+        Map<Credentials, SCCClient> clients = new HashMap<Credentials, SCCClient>();
+        for (Credentials c : credentials) {
+            try {
+                SCCClient scc = this.getSCCClient(c);
+                clients.put(c, scc);
+                subscriptionFetches.put(c, FETCH_POOL.submit(scc::listSubscriptions));
+                orderFetches.put(c, FETCH_POOL.submit(scc::listOrders));
+            }
+            catch (SCCClientException e) {
+                throw new ContentSyncException(e);
+            }
+            catch (URISyntaxException e) {
+                log.error("Invalid URL:" + e.getMessage());
+            }
+        }
         for (Credentials c : credentials) {
+            if (!subscriptionFetches.containsKey(c)) {
+                continue;
+            }
             try {
-                subscriptions.addAll(getSubscriptions(c));
+                subscriptions.addAll(refreshSubscriptionAndOrderItemCache(c, clients.get(c),
+                        awaitFetch(subscriptionFetches.get(c)),
+                        awaitFetch(orderFetches.get(c))));
             }
             catch (SCCClientException e) {
                 throw new ContentSyncException(e);
@@ -779,20 +930,30 @@ public class ContentSyncManager {
     public void refreshOrderItemCache(Credentials c) throws SCCClientException  {
         try {
             SCCClient scc = this.getSCCClient(c);
-            List<SCCOrder> orders = scc.listOrders();
-            SCCCachingFactory.clearOrderItems(c);
-            for (SCCOrder order : orders) {
-                for (SCCOrderItem item : order.getOrderItems()) {
-                    item.setCredentials(c);
-                    SCCCachingFactory.saveOrderItem(item);
-                }
-            }
+            refreshOrderItemCache(scc.listOrders(), c);
         }
         catch (URISyntaxException e) {
             log.error("Invalid URL:" + e.getMessage());
         }
     }
 
+    /**
+     * Deletes all order items stored in the database below the given credentials
+     * and inserts the ones of the given orders.
+     * @param orders the orders fetched from SCC
+     * @param c the credentials
+     */
+    private void refreshOrderItemCache(List<SCCOrder> orders, Credentials c) {
+        APPLIED_SCC_DATA.remove(SUBSCRIPTIONS + getSource(c));
+        SCCCachingFactory.clearOrderItems(c);
+        for (SCCOrder order : orders) {
+            for (SCCOrderItem item : order.getOrderItems()) {
+                item.setCredentials(c);
+                SCCCachingFactory.saveOrderItem(item);
+            }
+        }
+    }
+
     /**
      * Generates OrderItems for OEM subscriptions.
      *
@@ -1058,6 +1219,12 @@ public class ContentSyncManager {
     public void updateSUSEProducts(Collection<SCCProduct> products)
             throws ContentSyncException {
         log.info("ContentSyncManager.updateSUSEProducts called");
+        boolean fetched = products == fetchedProducts;
+        if (fetched && isApplied(PRODUCTS, fetchedProductsSource, fetchedProductsUnchanged)) {
+            log.info("ContentSyncManager.updateSUSEProducts finished, products are unchanged");
+            return;
+        }
+        APPLIED_SCC_DATA.remove(PRODUCTS);
         Map<Integer, SUSEProduct> processed = new HashMap<>();
         List<SUSEProductExtension> latestProductExtensions =
                 new LinkedList<SUSEProductExtension>();
@@ -1070,6 +1237,9 @@ public class ContentSyncManager {
         // Sync the database list of product extensions with the updated one
         SUSEProductFactory.mergeAllProductExtension(latestProductExtensions);
         updateUpgradePaths(products);
+        if (fetched && fetchedProductsSource != null) {
+            APPLIED_SCC_DATA.put(PRODUCTS, fetchedProductsSource);
+        }
         log.info("ContentSyncManager.updateSUSEProducts finished");
     }
 
@@ -93,6 +93,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -1422,6 +1423,110 @@ public class ErrataManager extends BaseManager {
         MessageQueue.publish(eve);
     }
 
+    /**
+     * Lists the errata of a channel that can be merged into another channel: those
+     * which neither are in the other channel already, nor have a clone, nor a clone of
+     * the same original there.
+     * @param from the channel to merge errata from
+     * @param to the channel to merge errata into
+     * @return the mergeable errata
+     */
+    public static DataResult<ErrataOverview> listMergeableErrata(Channel from, Channel to) {
+        SelectMode m = ModeFactory.getMode("Errata_queries", "mergeable_errata");
+        return m.execute(mergeParams(from, to));
+    }
+
+    /**
+     * Lists the errata of a channel, last modified between two dates, that can be
+     * merged into another channel.
+     * @param from the channel to merge errata from
+     * @param to the channel to merge errata into
+     * @param org the org of the user merging, errata of other orgs are skipped
+     * @param startDate begin date, formatted as YYYY-MM-DD HH24:MI:SS
+     * @param endDate end date, formatted as YYYY-MM-DD HH24:MI:SS
+     * @return the mergeable errata
+     * @see #listMergeableErrata(Channel, Channel)
+     */
+    public static DataResult<ErrataOverview> listMergeableErrata(Channel from, Channel to,
+            Org org, String startDate, String endDate) {
+        SelectMode m = ModeFactory.getMode("Errata_queries",
+                "mergeable_errata_between_dates");
+        Map<String, Object> params = mergeParams(from, to);
+        params.put("org_id", org.getId());
+        params.put("start_date", startDate);
+        params.put("end_date", endDate);
+        return m.execute(params);
+    }
+
+    /**
+     * Lists the errata of a channel with the given advisory names, that can be merged
+     * into another channel.
+     * @param from the channel to merge errata from
+     * @param to the channel to merge errata into
+     * @param advisoryNames the advisory names of the errata to merge
+     * @return the mergeable errata
+     * @see #listMergeableErrata(Channel, Channel)
+     */
+    public static DataResult<ErrataOverview> listMergeableErrata(Channel from, Channel to,
+            Collection<String> advisoryNames) {
+        SelectMode m = ModeFactory.getMode("Errata_queries",
+                "mergeable_errata_by_advisory_names");
+        // strings of IN clauses are inlined in the query, quotes have to be escaped
+        List<String> names = advisoryNames.stream().distinct()
+                .map(name -> name.replace("'", "''")).collect(Collectors.toList());
+        return m.execute(mergeParams(from, to), names);
+    }
+
+    private static Map<String, Object> mergeParams(Channel from, Channel to) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("from_cid", from.getId());
+        params.put("to_cid", to.getId());
+        return params;
+    }
+
+    /**
+     * Merges errata into a channel with set based queries: errata of an org are added
+     * directly, vendor errata are replaced by a clone of the org, which is created if
+     * needed. Like merging always did, any existing clone is reused, including locally
+     * modified ones. The errata cache of the channel is then regenerated
+     * asynchronously, once for all errata, and repodata regeneration is queued.
+     * @param errata the errata to merge, usually listed by listMergeableErrata
+     * @param to the channel to merge errata into
+     * @param user the user doing the merge
+     */
+    public static void mergeErrataToChannel(List<ErrataOverview> errata, Channel to,
+            User user) {
+        if (errata.isEmpty()) {
+            return;
+        }
+        // let's avoid deadlocks with concurrent publishing
+        ChannelFactory.lock(to);
+
+        Set<Long> orgErrata = new HashSet<Long>();
+        List<ErrataOverview> vendorErrata = new ArrayList<ErrataOverview>();
+        for (ErrataOverview erratum : errata) {
+            if (erratum.getOrgId() != null) {
+                orgErrata.add(erratum.getId());
+            }
+            else {
+                vendorErrata.add(erratum);
+            }
+        }
+        ChannelFactory.addClonedErrataToChannel(orgErrata, to.getId());
+        addErrataChannelNotifications(orgErrata, to.getId());
+        if (!vendorErrata.isEmpty()) {
+            cloneChannelErrata(vendorErrata, to.getId(), user,
+                    ErrataFactory.listPublishedOwnedClonedErrata(user.getOrg().getId()));
+        }
+
+        to.setLastModified(new Date());
+        ChannelFactory.save(to);
+        ErrataCacheManager.updateCacheForChannelsAsync(
+                Collections.singletonList(to.getId()));
+        ChannelManager.queueChannelChange(to.getLabel(), "java::mergeErrata",
+                "Errata merged");
+    }
+
     /**
      * Clone errata to a channel
      * @param chan the channel
@@ -1502,13 +1607,26 @@ public class ErrataManager extends BaseManager {
      */
     public static Set<Long> cloneChannelErrata(List<ErrataOverview> toClone, Long toCid,
             User user) {
-        List<OwnedErrata> owned = ErrataFactory
-                .listPublishedOwnedUnmodifiedClonedErrata(user.getOrg().getId());
+        return cloneChannelErrata(toClone, toCid, user, ErrataFactory
+                .listPublishedOwnedUnmodifiedClonedErrata(user.getOrg().getId()));
+    }
+
+    /**
+     * Clone errata as necessary, reusing the given clones, and link cloned errata with
+     * new channel.
+     * @param toClone List of ErrataOverview to clone
+     * @param toCid Channel id to clone them into
+     * @param user the requesting user
+     * @param owned the clones of the org which can be reused, ordered by creation
+     * @return list of errata ids that were published into channel
+     */
+    private static Set<Long> cloneChannelErrata(List<ErrataOverview> toClone, Long toCid,
+            User user, List<OwnedErrata> owned) {
         Set<Long> eids = new HashSet<Long>();
 
         // add published, cloned, owned errata to mapping. we want the oldest owned
-        // clone to reuse. listPublishedOwnedUnmodifiedClonedErrata orders by created,
-        // so we just add the first one we come across to the mapping and skip others
+        // clone to reuse. the clones are ordered by created, so we just add the first
+        // one we come across to the mapping and skip others
         Map<Long, OwnedErrata> eidToClone = new HashMap<Long, OwnedErrata>();
         for (OwnedErrata erratum : owned) {
             if (!eidToClone.containsKey(erratum.getFromErrataId())) {
@@ -1520,27 +1638,24 @@ public class ErrataManager extends BaseManager {
             }
         }
 
+        Set<Long> toCloneIds = new LinkedHashSet<Long>();
         for (ErrataOverview erratum : toClone) {
             if (!eidToClone.containsKey(erratum.getId())) {
                 // no published owned clones yet, lets make our own
-                // hibernate was too slow, had to rewrite in mode queries
-                Long cloneId = PublishErrataHelper.cloneErrataFaster(erratum.getId(), user
-                        .getOrg());
-                eids.add(cloneId);
-
+                toCloneIds.add(erratum.getId());
             }
             else {
                 // we have one already, reuse it
                 eids.add(eidToClone.get(erratum.getId()).getId());
             }
         }
+        // hibernate was too slow, had to rewrite in set based mode queries
+        eids.addAll(PublishErrataHelper.cloneErrataFaster(toCloneIds, user.getOrg()).values());
 
         ChannelFactory.addClonedErrataToChannel(eids, toCid);
 
         // for things like errata email and auto errata updates
-        for (Long eid : eids) {
-            ErrataManager.addErrataChannelNotifications(eid, toCid);
-        }
+        ErrataManager.addErrataChannelNotifications(eids, toCid);
         return eids;
     }
 
@@ -1624,6 +1739,28 @@ public class ErrataManager extends BaseManager {
         m.executeUpdate(params);
     }
 
+    /**
+     * delete any present and then enqueue channel notifications for the given
+     * channel and errata, with one statement each for all of them.
+     * @param eids the errata to enqueue
+     * @param cid affected channel
+     */
+    public static void addErrataChannelNotifications(Collection<Long> eids, Long cid) {
+        if (eids.isEmpty()) {
+            return;
+        }
+        List<Long> eidList = new ArrayList<Long>(eids);
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("cid", cid);
+        WriteMode m = ModeFactory.getWriteMode("Errata_queries",
+                "clear_errata_channel_notifications");
+        m.executeUpdate(params, eidList);
+        java.sql.Date newDate = new java.sql.Date(new java.util.Date().getTime());
+        params.put("datetime", newDate);
+        m = ModeFactory.getWriteMode("Errata_queries", "insert_errata_notifications");
+        m.executeUpdate(params, eidList);
+    }
+
     /**
      * Delete all errata notifications for an errata in specified channel
      * @param e the errata to clear notifications for
@@ -2026,7 +2163,9 @@ public class ErrataManager extends BaseManager {
 
         errataUpdate.setName(getErrataName(errata, updateStack));
 
-        servers.stream().forEach(s -> ActionManager.addServerToAction(s, errataUpdate));
+        // insert server actions in bulk, as there can be thousands of them
+        ActionManager.storeAction(errataUpdate,
+                servers.stream().map(Server::getId).collect(toList()));
 
         return Stream.of(errataUpdate);
     }
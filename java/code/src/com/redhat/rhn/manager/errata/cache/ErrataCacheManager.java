@@ -17,6 +17,7 @@ package com.redhat.rhn.manager.errata.cache;
 import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.messaging.MessageQueue;
@@ -25,9 +26,12 @@ import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.errata.ErrataFactory;
 import com.redhat.rhn.domain.org.Org;
 import com.redhat.rhn.frontend.events.UpdateErrataCacheEvent;
+import com.redhat.rhn.manager.audit.CVEAuditManager;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -205,6 +209,41 @@ public class ErrataCacheManager extends HibernateFactory {
         return m.executeUpdate(params);
     }
 
+    /**
+     * Recomputes the needed cache of the given servers with set based queries, only
+     * touching rows which actually changed. Servers are locked in id order first, so
+     * that concurrent updates of overlapping server sets cannot deadlock.
+     * @param sids Server Ids
+     * @return number of rows deleted and inserted
+     */
+    public static int updateNeededCacheForServers(List<Long> sids) {
+        if (sids.isEmpty()) {
+            return 0;
+        }
+        List<Long> sorted = new ArrayList<Long>(sids);
+        Collections.sort(sorted);
+
+        SelectMode lock = ModeFactory.getMode("ErrataCache_queries",
+                "lock_servers_for_needed_cache");
+        lock.execute(sorted);
+
+        WriteMode delete = ModeFactory.getWriteMode("ErrataCache_queries",
+                "delete_stale_needed_cache_for_servers");
+        int deleted = delete.executeUpdate(new HashMap<String, Object>(), sorted);
+
+        WriteMode insert = ModeFactory.getWriteMode("ErrataCache_queries",
+                "insert_missing_needed_cache_for_servers");
+        int inserted = insert.executeUpdate(new HashMap<String, Object>(), sorted);
+
+        CVEAuditManager.invalidateCVEPatchStatusIndex(sorted);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Needed cache of " + sorted.size() + " servers updated: " +
+                    deleted + " rows deleted, " + inserted + " rows inserted");
+        }
+        return deleted + inserted;
+    }
+
     /**
      * Asynchronusly updates the errata caches for the channels passed in.
      * Deletes the entire cache for All servers in the channel VERY INEFFICIENT
@@ -320,6 +359,7 @@ public class ErrataCacheManager extends HibernateFactory {
             "insert_new_cache_entries_by_packages");
             count = m.executeUpdate(params, pids);
         }
+        CVEAuditManager.invalidateCVEPatchStatusIndexForChannel(cid);
         if (log.isDebugEnabled()) {
             log.debug("updateCacheForChannelErrata : " + "cache entries inserted: " +
                     count);
@@ -345,6 +385,7 @@ public class ErrataCacheManager extends HibernateFactory {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("channel_id", cid);
         count = m.executeUpdate(params, eids);
+        CVEAuditManager.invalidateCVEPatchStatusIndexForChannel(cid);
         if (log.isDebugEnabled()) {
             log.debug("updateCacheForChannelErrata : " + "cache entries deleted: " + count);
         }
@@ -366,6 +407,7 @@ public class ErrataCacheManager extends HibernateFactory {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("errata_id", eid);
         count = m.executeUpdate(params, pids);
+        CVEAuditManager.invalidateCVEPatchStatusIndexForErrata(eid);
         if (log.isDebugEnabled()) {
             log.debug("updateCacheForChannelErrata : " + "cache entries deleted: " + count);
         }
@@ -387,6 +429,7 @@ public class ErrataCacheManager extends HibernateFactory {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("channel_id", cid);
         m.execute(params, new HashMap<String, Integer>());
+        CVEAuditManager.invalidateCVEPatchStatusIndexForChannel(cid);
     }
 
     /**
@@ -402,6 +445,7 @@ public class ErrataCacheManager extends HibernateFactory {
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("channel_id", cid);
         int count = m.executeUpdate(params, pids);
+        CVEAuditManager.invalidateCVEPatchStatusIndexForChannel(cid);
         if (log.isDebugEnabled()) {
             log.debug("delete_needed_cache_for_channel_packages : " +
                 "package_cache deleted: " + count);
@@ -118,6 +118,28 @@ public class UpdateErrataCacheCommand extends BaseTransactionCommand {
         log.info("Finished errata cache for server [" + serverId + "]");
     }
 
+    /**
+     * Updates the errata cache for the given servers at once, with set based queries.
+     * @param serverIds Server ids which need to get updated.
+     * @param commit commit the database transaction when complete
+     */
+    public void updateErrataCacheForServers(List<Long> serverIds, boolean commit) {
+        log.info("Updating errata cache for " + serverIds.size() + " servers");
+        try {
+            ErrataCacheManager.updateNeededCacheForServers(serverIds);
+        }
+        catch (Exception e) {
+            log.error("Problem updating cache for servers " + serverIds, e);
+            HibernateFactory.rollbackTransaction();
+        }
+        finally {
+            if (commit) {
+                handleTransaction();
+            }
+        }
+        log.info("Finished errata cache for " + serverIds.size() + " servers");
+    }
+
     /**
      * Updates the errata cache for the given image.
      * @param imageId Image id which needs to get updated.
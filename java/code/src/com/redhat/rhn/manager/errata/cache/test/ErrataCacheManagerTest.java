@@ -41,6 +41,7 @@ import com.redhat.rhn.testing.UserTestUtils;
 
 import java.sql.ResultSet;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -327,6 +328,30 @@ public class ErrataCacheManagerTest extends RhnBaseTestCase {
         }
     }
 
+    public void testUpdateNeededCacheForServers() throws Exception {
+        Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
+        Org org = OrgFactory.lookupById(oid);
+        User user = UserTestUtils.createUser("testUser", oid);
+        Server server = ServerFactoryTest.createTestServer(user);
+        Server other = ServerFactoryTest.createTestServer(user);
+        Package pkg = PackageTest.createTestPackage(org);
+        Errata e = ErrataFactoryTest.createTestErrata(oid);
+
+        // neither server has the package installed, so these rows are stale
+        ErrataCacheManager.insertNeededErrataCache(server.getId(), e.getId(), pkg.getId());
+        ErrataCacheManager.insertNeededErrataCache(other.getId(), e.getId(), pkg.getId());
+
+        int rows = ErrataCacheManager.updateNeededCacheForServers(
+                Arrays.asList(other.getId(), server.getId()));
+        assertEquals(2, rows);
+        assertTrue(ErrataCacheManager.packagesNeedingUpdates(server.getId()).isEmpty());
+        assertTrue(ErrataCacheManager.packagesNeedingUpdates(other.getId()).isEmpty());
+
+        // nothing changed since the last run
+        assertEquals(0, ErrataCacheManager.updateNeededCacheForServers(
+                Arrays.asList(server.getId(), other.getId())));
+    }
+
     public void testAllServerIdsForOrg() throws Exception {
         // create a lot of stuff to test this simple insert.
         Long oid = UserTestUtils.createOrg("testOrg" + this.getClass().getSimpleName());
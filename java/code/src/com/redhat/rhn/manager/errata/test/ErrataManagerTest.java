@@ -30,12 +30,14 @@ import com.redhat.rhn.domain.action.ActionChainFactory;
 import com.redhat.rhn.domain.action.ActionFactory;
 import com.redhat.rhn.domain.action.errata.ErrataAction;
 import com.redhat.rhn.domain.channel.Channel;
+import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.test.ChannelFactoryTest;
 import com.redhat.rhn.domain.errata.Bug;
 import com.redhat.rhn.domain.errata.Errata;
 import com.redhat.rhn.domain.errata.ErrataFactory;
 import com.redhat.rhn.domain.errata.Keyword;
 import com.redhat.rhn.domain.errata.impl.PublishedBug;
+import com.redhat.rhn.domain.errata.impl.PublishedClonedErrata;
 import com.redhat.rhn.domain.errata.impl.PublishedErrata;
 import com.redhat.rhn.domain.errata.impl.PublishedKeyword;
 import com.redhat.rhn.domain.errata.impl.UnpublishedBug;
@@ -52,6 +54,7 @@ import com.redhat.rhn.domain.server.test.MinionServerFactoryTest;
 import com.redhat.rhn.domain.session.WebSession;
 import com.redhat.rhn.domain.session.WebSessionFactory;
 import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.frontend.action.channel.manage.PublishErrataHelper;
 import com.redhat.rhn.frontend.dto.ErrataOverview;
 import com.redhat.rhn.frontend.listview.PageControl;
 import com.redhat.rhn.frontend.xmlrpc.system.test.SystemHandlerTest;
@@ -76,6 +79,8 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -440,6 +445,62 @@ public class ErrataManagerTest extends JMockBaseTestCaseWithUser {
         assertTrue(new HashSet<Long>(eids).size() == eids.size());
     }
 
+    public void testMergeErrataToChannelReusesModifiedClone() throws Exception {
+        Errata vendorErrata = ErrataFactoryTest.createTestPublishedErrata(null);
+        HibernateFactory.getSession().flush();
+        Long cloneId = PublishErrataHelper.cloneErrataFaster(
+                Collections.singletonList(vendorErrata.getId()), user.getOrg())
+                .get(vendorErrata.getId());
+        Errata clone = ErrataFactory.lookupById(cloneId);
+        clone.setLocallyModified(true);
+        TestUtils.saveAndFlush(clone);
+
+        Channel from = ChannelFactoryTest.createTestChannel(user);
+        from.addErrata(vendorErrata);
+        TestUtils.saveAndFlush(from);
+        Channel to = ChannelFactoryTest.createTestChannel(user);
+
+        List<ErrataOverview> mergeable = ErrataManager.listMergeableErrata(from, to);
+        assertEquals(1, mergeable.size());
+        ErrataManager.mergeErrataToChannel(mergeable, to, user);
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        // the modified clone is merged, no second clone is created
+        Channel merged = ChannelFactory.lookupById(to.getId());
+        assertEquals(1, merged.getErratas().size());
+        assertEquals(cloneId, merged.getErratas().iterator().next().getId());
+    }
+
+    public void testCloneErrataFasterInBulk() throws Exception {
+        Errata errata1 = ErrataFactoryTest.createTestPublishedErrata(user.getOrg().getId());
+        Errata errata2 = ErrataFactoryTest.createTestPublishedErrata(user.getOrg().getId());
+        HibernateFactory.getSession().flush();
+        List<Long> eids = Arrays.asList(errata1.getId(), errata2.getId());
+
+        Map<Long, Long> clones = PublishErrataHelper.cloneErrataFaster(eids, user.getOrg());
+        Map<Long, Long> secondClones = PublishErrataHelper.cloneErrataFaster(eids,
+                user.getOrg());
+        HibernateFactory.getSession().clear();
+
+        assertEquals(eids.size(), clones.size());
+        assertEquals(eids.size(), secondClones.size());
+        for (Long eid : eids) {
+            Errata original = ErrataFactory.lookupById(eid);
+            PublishedClonedErrata clone =
+                    (PublishedClonedErrata) ErrataFactory.lookupById(clones.get(eid));
+            assertEquals(eid, clone.getOriginal().getId());
+            assertEquals("CL-" + original.getAdvisory(), clone.getAdvisory());
+            assertEquals(original.getPackages().size(), clone.getPackages().size());
+            assertEquals(original.getKeywords().size(), clone.getKeywords().size());
+            assertEquals(original.getFiles().size(), clone.getFiles().size());
+
+            // the default prefix is taken by the first clone now
+            Errata secondClone = ErrataFactory.lookupById(secondClones.get(eid));
+            assertEquals("CM-" + original.getAdvisory(), secondClone.getAdvisory());
+        }
+    }
+
     /**
      * Tests applyErrata(), note that the onlyRelevant flag is always set in
      * this case. {@link SystemHandlerTest#testApplyIrrelevantErrata} covers the
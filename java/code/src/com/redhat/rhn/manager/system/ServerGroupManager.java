@@ -20,10 +20,12 @@ import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.hibernate.LookupException;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.common.security.PermissionException;
+import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.entitlement.Entitlement;
 import com.redhat.rhn.domain.role.RoleFactory;
 import com.redhat.rhn.domain.server.EntitlementServerGroup;
 import com.redhat.rhn.domain.server.ManagedServerGroup;
+import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerGroup;
 import com.redhat.rhn.domain.server.ServerGroupFactory;
@@ -334,12 +336,12 @@ public class ServerGroupManager {
     public void addServers(ServerGroup sg, Collection<Server> servers, User loggedInUser) {
         validateAccessCredentials(loggedInUser, sg, sg.getName());
         validateAdminCredentials(loggedInUser);
+        List<MinionServer> minions = new LinkedList<>();
         for (Server s : servers) {
             SystemManager.addServerToServerGroup(s, sg);
-            s.asMinionServer().ifPresent(
-                    SaltStateGeneratorService.INSTANCE::generatePillar);
+            s.asMinionServer().ifPresent(minions::add);
         }
-
+        generatePillars(minions);
     }
 
     /**
@@ -363,11 +365,22 @@ public class ServerGroupManager {
      * @param servers a collection of servers to dissociate
      */
     public void removeServers(ServerGroup sg, Collection<Server> servers) {
+        List<MinionServer> minions = new LinkedList<>();
         for (Server s : servers) {
             SystemManager.removeServerFromServerGroup(s, sg);
-            s.asMinionServer().ifPresent(
-                    SaltStateGeneratorService.INSTANCE::generatePillar);
+            s.asMinionServer().ifPresent(minions::add);
         }
+        generatePillars(minions);
+    }
+
+    /**
+     * Regenerates the pillars of minions whose groups changed, refreshing their access
+     * tokens first.
+     * @param minions the minions
+     */
+    private void generatePillars(List<MinionServer> minions) {
+        minions.forEach(AccessTokenFactory::refreshTokens);
+        SaltStateGeneratorService.INSTANCE.generatePillars(minions);
     }
 
     /**
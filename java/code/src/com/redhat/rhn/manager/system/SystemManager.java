@@ -22,6 +22,7 @@ import com.redhat.rhn.common.db.datasource.CallableMode;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
 import com.redhat.rhn.common.db.datasource.SelectMode;
+import com.redhat.rhn.common.db.datasource.SelectModeDataSource;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
@@ -740,6 +741,20 @@ public class SystemManager extends BaseManager {
         return makeDataResult(params, elabParams, pc, m, SystemOverview.class);
     }
 
+    /**
+     * Returns all systems visible to user as a data source, which filters, sorts and
+     * pages them in the database.
+     * @param user Currently logged in user.
+     * @return data source of SystemOverviews.
+     */
+    public static SelectModeDataSource<SystemOverview> systemListDataSource(User user) {
+        SelectMode m = ModeFactory.getMode("System_queries", "visible_to_user");
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("user_id", user.getId());
+        return new SelectModeDataSource<SystemOverview>(m, params,
+                new HashMap<String, Object>());
+    }
+
     /**
      * Returns list of all physical systems visible to user.
      * @param user Currently logged in user.
@@ -1638,6 +1653,60 @@ public class SystemManager extends BaseManager {
         return !dr.isEmpty();
     }
 
+    /**
+     * Returns the servers having a capability, among the given ones.
+     * @param sids Server ids
+     * @param capability capability
+     * @return the ids of the servers having the capability
+     */
+    public static Set<Long> filterClientCapable(Collection<Long> sids, String capability) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("name", capability);
+        return filterServerIds("client_capable_in", params, sids);
+    }
+
+    /**
+     * Returns the servers having an entitlement, among the given ones.
+     * @param sids Server ids
+     * @param ent Entitlement to look for
+     * @return the ids of the servers having the entitlement
+     */
+    public static Set<Long> filterEntitled(Collection<Long> sids, Entitlement ent) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("label", ent.getLabel());
+        return filterServerIds("entitled_in", params, sids);
+    }
+
+    /**
+     * Returns the servers a user has permissions to see, among the given ones.
+     * @param user User being checked
+     * @param sids Server ids
+     * @return the ids of the servers available to the user
+     */
+    public static Set<Long> filterAvailableToUser(User user, Collection<Long> sids) {
+        Map<String, Object> params = new HashMap<String, Object>();
+        params.put("uid", user.getId());
+        return filterServerIds("available_to_user_in", params, sids);
+    }
+
+    /**
+     * Runs a query of System_queries selecting the id of servers in an IN clause, in
+     * one round trip per batch of ids instead of one per server.
+     */
+    private static Set<Long> filterServerIds(String modeName, Map<String, Object> params,
+            Collection<Long> sids) {
+        Set<Long> result = new HashSet<Long>();
+        if (sids.isEmpty()) {
+            return result;
+        }
+        SelectMode m = ModeFactory.getMode("System_queries", modeName);
+        DataResult<Map<String, Object>> rows = m.execute(params, new ArrayList<Long>(sids));
+        for (Map<String, Object> row : rows) {
+            result.add(((Number) row.get("id")).longValue());
+        }
+        return result;
+    }
+
     /**
      * Returns a list of Servers which are compatible with the given server.
      * @param user User owner
@@ -24,9 +24,11 @@ import com.redhat.rhn.manager.BaseManager;
 import com.suse.manager.utils.SaltUtils;
 import com.suse.manager.webui.utils.salt.custom.VmInfo;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
@@ -46,6 +48,12 @@ public class VirtualInstanceManager extends BaseManager {
     private static Logger log = Logger
             .getLogger(VirtualInstanceManager.class);
 
+    /**
+     * Looks up guest VirtualInstances by uuid in the database.
+     */
+    private static final Function<String, List<VirtualInstance>> DB_LOOKUP = uuid ->
+            new ArrayList<>(VirtualInstanceFactory.getInstance().lookupVirtualInstanceByUuid(uuid));
+
     private VirtualInstanceManager() {
     }
 
@@ -153,6 +161,26 @@ public class VirtualInstanceManager extends BaseManager {
      */
     public static void updateGuestsVirtualInstances(Server server, VirtualInstanceType type,
             Map<String, String> vms, Map<String, Map<String, String>> optionalVmData) {
+        updateGuestsVirtualInstances(server, type, vms, optionalVmData, DB_LOOKUP);
+    }
+
+    /**
+     * Goes through all the vms(guests), creates/updates VirtualInstance entries
+     * (Server - guests mapping), looking up existing guest VirtualInstances with the
+     * given function.
+     * This function expect to always get a full list of guests running on the host
+     *
+     * @param server to be processed
+     * @param type - virtualization type to be set to the guests
+     * @param vms - guests to be mapped to this server
+     * @param optionalVmData - guests optional data
+     * @param lookup - returns the VirtualInstances of a uuid as a modifiable list, which
+     * is kept up to date when VirtualInstances are added or deleted. This allows
+     * lookups from preloaded VirtualInstances.
+     */
+    public static void updateGuestsVirtualInstances(Server server, VirtualInstanceType type,
+            Map<String, String> vms, Map<String, Map<String, String>> optionalVmData,
+            Function<String, List<VirtualInstance>> lookup) {
         VirtualInstanceFactory vinst = VirtualInstanceFactory.getInstance();
         List<String> uuidsToRemove = server.getGuests().stream().map(g -> g.getUuid())
                 .collect(Collectors.toList());
@@ -161,10 +189,10 @@ public class VirtualInstanceManager extends BaseManager {
                     String name = vmEntry.getKey();
                     String guid = vmEntry.getValue().replaceAll("-", "");
 
-                    guid = fixUuidIfSwappedUuidExists(guid);
+                    guid = fixUuidIfSwappedUuidExists(guid, lookup);
                     uuidsToRemove.remove(guid);
                     List<VirtualInstance> virtualInstances =
-                            vinst.lookupVirtualInstanceByUuid(guid);
+                            new ArrayList<>(lookup.apply(guid));
 
                     Map<String, String> vmData = optionalVmData.get(name);
                     VirtualInstanceState st = (vmData != null && vmData.get("vmState") != null) ?
@@ -172,25 +200,25 @@ public class VirtualInstanceManager extends BaseManager {
                                     .orElse(vinst.getUnknownState()) : vinst.getUnknownState();
 
                     if (virtualInstances.isEmpty()) {
-                        addGuestVirtualInstance(guid, name, type, st, server, null);
+                        addGuestVirtualInstance(guid, name, type, st, server, null, 0, 0,
+                                lookup);
                     }
                     else {
                         virtualInstances.stream().forEach(virtualInstance ->
                             updateGuestVirtualInstance(virtualInstance, name, st, server,
-                                    virtualInstance.getGuestSystem()));
+                                    virtualInstance.getGuestSystem(), lookup));
                     }
                 });
 
         for (String uuid : uuidsToRemove) {
-            List<VirtualInstance> virtualInstances =
-                    vinst.lookupVirtualInstanceByUuid(uuid);
+            List<VirtualInstance> virtualInstances = new ArrayList<>(lookup.apply(uuid));
             virtualInstances.stream().forEach(virtualInstance -> {
                 if (virtualInstance.isRegisteredGuest()) {
                     virtualInstance.getHostSystem().removeGuest(virtualInstance);
                     virtualInstance.setHostSystem(null);
                 }
                 else {
-                    vinst.deleteVirtualInstanceOnly(virtualInstance);
+                    deleteGuestVirtualInstance(virtualInstance, lookup);
                 }
             });
         }
@@ -229,9 +257,16 @@ public class VirtualInstanceManager extends BaseManager {
     public static void addGuestVirtualInstance(String vmGuid, String name,
             VirtualInstanceType type, VirtualInstanceState state,
             Server host, Server guest, int vCpus, long memory) {
+        addGuestVirtualInstance(vmGuid, name, type, state, host, guest, vCpus, memory,
+                DB_LOOKUP);
+    }
+
+    private static void addGuestVirtualInstance(String vmGuid, String name,
+            VirtualInstanceType type, VirtualInstanceState state,
+            Server host, Server guest, int vCpus, long memory,
+            Function<String, List<VirtualInstance>> lookup) {
 
-        List<VirtualInstance> virtualInstances = VirtualInstanceFactory
-                .getInstance().lookupVirtualInstanceByUuid(vmGuid);
+        List<VirtualInstance> virtualInstances = lookup.apply(vmGuid);
 
         if (virtualInstances.isEmpty()) {
             VirtualInstance virtualInstance = new VirtualInstance();
@@ -251,6 +286,7 @@ public class VirtualInstanceManager extends BaseManager {
 
             VirtualInstanceFactory.getInstance()
                     .saveVirtualInstance(virtualInstance);
+            virtualInstances.add(virtualInstance);
         }
         else {
             log.warn("Preventing creation of a duplicated VirtualInstance " +
@@ -271,6 +307,12 @@ public class VirtualInstanceManager extends BaseManager {
      */
     public static void updateGuestVirtualInstance(VirtualInstance virtualInstance,
             String name, VirtualInstanceState state, Server host, Server guest) {
+        updateGuestVirtualInstance(virtualInstance, name, state, host, guest, DB_LOOKUP);
+    }
+
+    private static void updateGuestVirtualInstance(VirtualInstance virtualInstance,
+            String name, VirtualInstanceState state, Server host, Server guest,
+            Function<String, List<VirtualInstance>> lookup) {
         int vCpu = 0;
         long memory = 0;
         if (virtualInstance.getNumberOfCPUs() != null) {
@@ -280,7 +322,7 @@ public class VirtualInstanceManager extends BaseManager {
             memory = virtualInstance.getTotalMemory().longValue();
         }
         updateGuestVirtualInstance(virtualInstance, name, state, host, guest, vCpu,
-                memory);
+                memory, lookup);
     }
 
     /**
@@ -299,6 +341,13 @@ public class VirtualInstanceManager extends BaseManager {
     public static void updateGuestVirtualInstance(VirtualInstance virtualInstance,
             String name, VirtualInstanceState state, Server host, Server guest,
             int vCpus, long memory) {
+        updateGuestVirtualInstance(virtualInstance, name, state, host, guest, vCpus, memory,
+                DB_LOOKUP);
+    }
+
+    private static void updateGuestVirtualInstance(VirtualInstance virtualInstance,
+            String name, VirtualInstanceState state, Server host, Server guest,
+            int vCpus, long memory, Function<String, List<VirtualInstance>> lookup) {
         Server oldHost = virtualInstance.getHostSystem();
         Server oldGuest = virtualInstance.getGuestSystem();
         if (oldHost == null || oldGuest == null ||
@@ -307,12 +356,18 @@ public class VirtualInstanceManager extends BaseManager {
                 !virtualInstance.getState().equals(state) ||
                 !virtualInstance.getNumberOfCPUs().equals(vCpus) ||
                 !virtualInstance.getTotalMemory().equals(memory)) {
-            VirtualInstanceFactory.getInstance().deleteVirtualInstanceOnly(virtualInstance);
+            deleteGuestVirtualInstance(virtualInstance, lookup);
             addGuestVirtualInstance(virtualInstance.getUuid(), name,
-                    virtualInstance.getType(), state, host, guest, vCpus, memory);
+                    virtualInstance.getType(), state, host, guest, vCpus, memory, lookup);
         }
     }
 
+    private static void deleteGuestVirtualInstance(VirtualInstance virtualInstance,
+            Function<String, List<VirtualInstance>> lookup) {
+        lookup.apply(virtualInstance.getUuid()).remove(virtualInstance);
+        VirtualInstanceFactory.getInstance().deleteVirtualInstanceOnly(virtualInstance);
+    }
+
     /**
      * Return swapped uuid in case it already exists in a virtual instance.
      *
@@ -320,12 +375,16 @@ public class VirtualInstanceManager extends BaseManager {
      * @return Returns same uuid or swapped version if it exists as virtual instance
      */
     public static String fixUuidIfSwappedUuidExists(String uuid) {
+        return fixUuidIfSwappedUuidExists(uuid, DB_LOOKUP);
+    }
+
+    private static String fixUuidIfSwappedUuidExists(String uuid,
+            Function<String, List<VirtualInstance>> lookup) {
         // The uuid value for the VM might not be read properly as little endian,
         // so we always try to match it with the possible swapped version in case
         // it already exists in the database.
         String virtUuidSwapped = SaltUtils.uuidToLittleEndian(uuid);
-        if (!VirtualInstanceFactory.getInstance()
-                .lookupVirtualInstanceByUuid(virtUuidSwapped).isEmpty()) {
+        if (!lookup.apply(virtUuidSwapped).isEmpty()) {
             log.warn("Detected swapped UUID for a virtual instance: Coercing [" +
                     uuid + "] -> [" + virtUuidSwapped + "]");
             return virtUuidSwapped;
@@ -27,6 +27,8 @@ import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.PageRequest;
+import com.redhat.rhn.common.db.datasource.SelectModeDataSource;
 import com.redhat.rhn.common.db.datasource.WriteMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.hibernate.LookupException;
@@ -331,6 +333,37 @@ public class SystemManagerTest extends JMockBaseTestCaseWithUser {
         assertTrue(systems.size() > 0);
     }
 
+    public void testSystemListDataSource() throws Exception {
+        User user = UserTestUtils.findNewUser("testUser",
+                "testOrg" + this.getClass().getSimpleName());
+        user.addPermanentRole(RoleFactory.ORG_ADMIN);
+
+        String[] names = {"pageB", "pagea", "pageC", "other"};
+        for (String name : names) {
+            Server s = ServerFactoryTest.createTestServer(user, true);
+            s.setName(name);
+        }
+
+        SelectModeDataSource<SystemOverview> source = SystemManager.systemListDataSource(user);
+        assertTrue(source.isPageable("name"));
+        assertFalse(source.isPageable("lastCheckinDate"));
+        assertEquals(4, source.getSize(new PageRequest()));
+
+        PageRequest request = new PageRequest();
+        request.setFilter("name", "PAGE");
+        request.setSort("name", false, true);
+        request.setOffset(1);
+        request.setLimit(1);
+        assertEquals(3, source.getSize(request));
+        DataResult<SystemOverview> page = source.getPage(request);
+        assertEquals(1, page.size());
+        assertEquals("pageB", page.get(0).getName());
+
+        assertEquals(new HashSet<>(Arrays.asList('O', 'P')),
+                source.getAlphaIndex(new PageRequest(), "name"));
+        assertEquals(1, source.getAlphaPosition(new PageRequest(), "name", 'P'));
+    }
+
     public void testSystemWithFeature() throws Exception {
         User user = UserTestUtils.findNewUser("testUser",
                 "testOrg" + this.getClass().getSimpleName());
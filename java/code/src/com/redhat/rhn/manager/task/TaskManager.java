@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  *
@@ -42,16 +43,19 @@ public class TaskManager {
     }
 
     /**
-     *  Get the channel package list for a channel
+     * Get the channel packages with all details needed for metadata generation,
+     * fetched from the database batchSize packages at a time
      * @param channel channel info
-     * @return the iterator
+     * @param batchSize number of packages fetched and passed to the consumer at a time
+     * @param consumer called for each batch of packages
      */
-    public static DataResult<PackageDto> getChannelPackageDtos(Channel channel) {
+    public static void getChannelPackageDtos(Channel channel, int batchSize,
+            Consumer<DataResult<PackageDto>> consumer) {
         SelectMode m = ModeFactory.getMode(TaskConstants.MODE_NAME,
-                TaskConstants.TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES);
+                TaskConstants.TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES_DETAILS);
         Map<String, Object> params = new HashMap<String, Object>();
         params.put("channel_id", channel.getId());
-        return m.execute(params);
+        m.executeInBatches(params, batchSize, consumer);
     }
 
     /**
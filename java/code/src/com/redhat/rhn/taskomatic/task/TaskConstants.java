@@ -124,8 +124,8 @@ public class TaskConstants {
     public static final String TASK_QUERY_ERRATAMAILER_GET_USERINFO =
         "erratamailer_get_userinfo";
 
-    public static final String TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES =
-        "repomdgenerator_channel_packages";
+    public static final String TASK_QUERY_REPOMD_GENERATOR_CHANNEL_PACKAGES_DETAILS =
+        "repomdgenerator_channel_packages_details";
 
     public static final String TASK_QUERY_REPOMD_GENERATOR_CAPABILITY_FILES =
         "repomdgenerator_capability_files";
@@ -15,12 +15,15 @@
 package com.redhat.rhn.taskomatic.task;
 
 import com.redhat.rhn.domain.channel.AccessTokenFactory;
+import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.suse.manager.webui.services.SaltStateGeneratorService;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
 
 /**
@@ -38,12 +41,11 @@ public class TokenCleanup extends RhnJavaJob {
             log.debug("start token cleanup");
         }
         try {
+            List<MinionServer> refreshed = new ArrayList<>();
             MinionServerFactory.listMinions().forEach(minionServer -> {
                 try {
                     if (AccessTokenFactory.refreshTokens(minionServer, Collections.emptySet())) {
-                        // TODO schedule state.apply channels to refresh channels on minion ?
-                        SaltStateGeneratorService.INSTANCE.generatePillar(
-                                minionServer, false, Collections.emptySet());
+                        refreshed.add(minionServer);
                     }
                 }
                 catch (Exception e) {
@@ -51,6 +53,8 @@ public class TokenCleanup extends RhnJavaJob {
                             minionServer.getMinionId(), e);
                 }
             });
+            // TODO schedule state.apply channels to refresh channels on minion ?
+            SaltStateGeneratorService.INSTANCE.generatePillars(refreshed);
             AccessTokenFactory.cleanupUnusedExpired();
         }
         catch (Exception e) {
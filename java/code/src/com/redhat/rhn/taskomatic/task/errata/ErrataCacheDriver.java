@@ -15,10 +15,12 @@
 package com.redhat.rhn.taskomatic.task.errata;
 
 import com.redhat.rhn.common.conf.Config;
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.domain.task.Task;
 import com.redhat.rhn.domain.task.TaskFactory;
 import com.redhat.rhn.taskomatic.task.threaded.QueueDriver;
 import com.redhat.rhn.taskomatic.task.threaded.QueueWorker;
+import com.suse.manager.metrics.PrometheusExporter;
 
 import org.apache.log4j.Logger;
 
@@ -26,6 +28,8 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Driver for the threaded errata cache update queue
@@ -33,6 +37,15 @@ import java.util.Set;
  */
 public class ErrataCacheDriver implements QueueDriver {
 
+    /* queue statistics as of the last getCandidates() call, exported as metrics */
+    private static final AtomicInteger PENDING_TASKS = new AtomicInteger();
+    private static final AtomicLong OLDEST_TASK_MILLIS = new AtomicLong();
+
+    static {
+        PrometheusExporter.INSTANCE.registerTaskQueue(PENDING_TASKS::get, OLDEST_TASK_MILLIS::get,
+                "errata_cache");
+    }
+
     private Logger logger = null;
 
     /**
@@ -45,13 +58,16 @@ public class ErrataCacheDriver implements QueueDriver {
     /**
      * {@inheritDoc}
      */
-    public List<Task> getCandidates() {
-        List<Task> tasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL);
-        tasks.addAll(consolidateTasks(
-                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER)));
-        tasks.addAll(consolidateTasks(
-                TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_IMAGE)));
-        return tasks;
+    public List<Object> getCandidates() {
+        List<Task> channelTasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.BY_CHANNEL);
+        List<Task> serverTasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_SERVER);
+        List<Task> imageTasks = TaskFactory.getTaskListByNameLike(ErrataCacheWorker.FOR_IMAGE);
+        updateQueueStatistics(channelTasks, serverTasks, imageTasks);
+
+        List<Object> candidates = new ArrayList<Object>(channelTasks);
+        candidates.addAll(batchTasks(consolidateTasks(serverTasks)));
+        candidates.addAll(consolidateTasks(imageTasks));
+        return candidates;
     }
 
     /**
@@ -78,7 +94,11 @@ public class ErrataCacheDriver implements QueueDriver {
     /**
      * {@inheritDoc}
      */
+    @SuppressWarnings("unchecked")
     public QueueWorker makeWorker(Object workItem) {
+        if (workItem instanceof List) {
+            return new ErrataCacheWorker((List<Task>) workItem, logger);
+        }
         Task task = (Task) workItem;
         return new ErrataCacheWorker(task, logger);
     }
@@ -107,4 +127,37 @@ public class ErrataCacheDriver implements QueueDriver {
         }
         return consolidated;
     }
+
+    /**
+     * Split server tasks into batches, each recomputed by a single worker with set
+     * based queries. Servers of a batch may belong to different orgs.
+     *
+     * @param tasks list of {@link Task} objects for servers
+     * @return list of batches
+     */
+    private List<List<Task>> batchTasks(List<Task> tasks) {
+        int batchSize = ConfigDefaults.get().getErrataCacheServerBatchSize();
+        List<List<Task>> batches = new ArrayList<List<Task>>();
+        for (int i = 0; i < tasks.size(); i += batchSize) {
+            batches.add(new ArrayList<Task>(tasks.subList(i, Math.min(i + batchSize, tasks.size()))));
+        }
+        return batches;
+    }
+
+    @SafeVarargs
+    private static void updateQueueStatistics(List<Task>... taskLists) {
+        int pending = 0;
+        long oldest = 0;
+        for (List<Task> tasks : taskLists) {
+            pending += tasks.size();
+            for (Task task : tasks) {
+                if (task.getEarliest() != null &&
+                        (oldest == 0 || task.getEarliest().getTime() < oldest)) {
+                    oldest = task.getEarliest().getTime();
+                }
+            }
+        }
+        PENDING_TASKS.set(pending);
+        OLDEST_TASK_MILLIS.set(oldest);
+    }
 }
@@ -24,7 +24,10 @@ import com.redhat.rhn.taskomatic.task.threaded.TaskQueue;
 
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -37,7 +40,7 @@ public class ErrataCacheWorker implements QueueWorker {
     public static final String FOR_SERVER = "update_server_errata_cache";
     public static final String FOR_IMAGE  = "update_image_errata_cache";
 
-    private Task task;
+    private List<Task> tasks;
     private Logger logger;
     private TaskQueue parentQueue;
 
@@ -47,7 +50,16 @@ public class ErrataCacheWorker implements QueueWorker {
      * @param parentLogger logger to use
      */
     public ErrataCacheWorker(Task taskIn, Logger parentLogger) {
-        task = taskIn;
+        this(Collections.singletonList(taskIn), parentLogger);
+    }
+
+    /**
+     * Constructor for a batch of {@link #FOR_SERVER} tasks, recomputed all at once
+     * @param tasksIn the server tasks to work on
+     * @param parentLogger logger to use
+     */
+    public ErrataCacheWorker(List<Task> tasksIn, Logger parentLogger) {
+        tasks = tasksIn;
         logger = parentLogger;
     }
 
@@ -56,10 +68,24 @@ public class ErrataCacheWorker implements QueueWorker {
      */
     public void run() {
         try {
-            removeTask();
+            removeTasks();
             parentQueue.workerStarting();
             UpdateErrataCacheCommand uecc = new UpdateErrataCacheCommand();
-            if (ErrataCacheWorker.FOR_SERVER.equals(task.getName())) {
+            Task task = tasks.get(0);
+            if (tasks.size() > 1) {
+                List<Long> sids = new ArrayList<Long>(tasks.size());
+                for (Task t : tasks) {
+                    sids.add(t.getData());
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Updating errata cache for sids " + sids);
+                }
+                uecc.updateErrataCacheForServers(sids, false);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Finished errata cache for sids " + sids);
+                }
+            }
+            else if (ErrataCacheWorker.FOR_SERVER.equals(task.getName())) {
                 Long sid = task.getData();
                 if (logger.isDebugEnabled()) {
                     logger.debug("Updating errata cache for sid [" + sid + "]");
@@ -110,15 +136,19 @@ public class ErrataCacheWorker implements QueueWorker {
     }
 
     /**
-     * Remove the task related to this worker from the DB via mode query.
+     * Remove the tasks related to this worker from the DB via mode query.
      */
-    private void removeTask() {
+    private void removeTasks() {
         WriteMode mode = ModeFactory.getWriteMode("Task_queries", "delete_task");
-        Map<String, Object> params = new HashMap<String, Object>();
-        params.put("org_id", task.getOrg().getId());
-        params.put("name", task.getName());
-        params.put("task_data", task.getData());
-        params.put("priority", new Integer(task.getPriority()));
-        mode.executeUpdate(params);
+        List<Map<String, Object>> paramList = new ArrayList<Map<String, Object>>(tasks.size());
+        for (Task task : tasks) {
+            Map<String, Object> params = new HashMap<String, Object>();
+            params.put("org_id", task.getOrg().getId());
+            params.put("name", task.getName());
+            params.put("task_data", task.getData());
+            params.put("priority", new Integer(task.getPriority()));
+            paramList.add(params);
+        }
+        mode.executeUpdates(paramList);
     }
 }
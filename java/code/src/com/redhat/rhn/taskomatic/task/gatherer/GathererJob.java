@@ -15,6 +15,7 @@
 
 package com.redhat.rhn.taskomatic.task.gatherer;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManagerFactory;
@@ -84,8 +85,8 @@ public class GathererJob extends RhnJavaJob {
                     continue;
                 }
                 log.debug("Processing " + label);
-                new VirtualHostManagerProcessor(manager, results.get(label))
-                        .processMapping();
+                new VirtualHostManagerProcessor(manager, results.get(label),
+                        ConfigDefaults.get().isGathererBulkProcessing()).processMapping();
             }
         }
         catch (Throwable t) {
@@ -15,9 +15,13 @@
 
 package com.redhat.rhn.taskomatic.task.gatherer;
 
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.server.CPU;
+import com.redhat.rhn.domain.server.CPUArch;
 import com.redhat.rhn.domain.server.Server;
+import com.redhat.rhn.domain.server.ServerArch;
 import com.redhat.rhn.domain.server.ServerFactory;
+import com.redhat.rhn.domain.server.VirtualInstance;
 import com.redhat.rhn.domain.server.VirtualInstanceFactory;
 import com.redhat.rhn.domain.server.VirtualInstanceType;
 import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
@@ -28,27 +32,46 @@ import com.redhat.rhn.manager.system.VirtualInstanceManager;
 
 import org.apache.commons.lang3.RandomStringUtils;
 import com.suse.manager.gatherer.HostJson;
+import com.suse.manager.utils.SaltUtils;
 import org.apache.log4j.Logger;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Logic for processing Virtual Host Managers based on the gatherer output.
  * Handles mapping of virtual systems.
  *
  * Based on rhnVirtualization.py logic.
+ *
+ * In bulk mode the foreign systems, nodes and virtual instances of the virtual host
+ * manager are loaded upfront, the changes are computed against these in memory and
+ * written with JDBC batching when the session is flushed.
  */
 public class VirtualHostManagerProcessor {
 
     private final VirtualHostManager virtualHostManager;
     private final Map<String, HostJson> virtualHosts;
+    private final boolean bulk;
     private Set<Server> serversToDelete;
     private Set<VirtualHostManagerNodeInfo> nodesToDelete;
     private Logger log;
 
+    private final Map<String, ServerArch> serverArchs = new HashMap<>();
+    private final Map<String, CPUArch> cpuArchs = new HashMap<>();
+
+    // preloaded in bulk mode
+    private Map<String, Server> foreignServers;
+    private Map<String, VirtualHostManagerNodeInfo> nodeInfos;
+    private Map<Long, VirtualInstance> hostInstances;
+    private Map<String, List<VirtualInstance>> guestInstances;
+
     /**
      * Instantiates a new virtual host manager processor, will update a virtual
      * host manager with information coming from a HostJson.
@@ -58,9 +81,23 @@ public class VirtualHostManagerProcessor {
      */
     public VirtualHostManagerProcessor(VirtualHostManager managerIn,
             Map<String, HostJson> virtualHostsIn) {
+        this(managerIn, virtualHostsIn, false);
+    }
+
+    /**
+     * Instantiates a new virtual host manager processor, will update a virtual
+     * host manager with information coming from a HostJson.
+     *
+     * @param managerIn the virtual host manager
+     * @param virtualHostsIn the virtual hosts information from JSON
+     * @param bulkIn true to preload all lookups and write the changes in batches
+     */
+    public VirtualHostManagerProcessor(VirtualHostManager managerIn,
+            Map<String, HostJson> virtualHostsIn, boolean bulkIn) {
         this.log = Logger.getLogger(VirtualHostManagerProcessor.class);
         this.virtualHostManager = managerIn;
         this.virtualHosts = virtualHostsIn;
+        this.bulk = bulkIn;
         this.serversToDelete = new HashSet<>();
         this.nodesToDelete = new HashSet<>();
     }
@@ -79,6 +116,79 @@ public class VirtualHostManagerProcessor {
                       ": Please check the virtual-host-gatherer logfile.");
             return;
         }
+        if (bulk) {
+            processMappingInBulk();
+        }
+        else {
+            updateMapping();
+        }
+    }
+
+    /**
+     * Preloads the lookups, updates the mapping and flushes the changes in JDBC batches,
+     * logging the time spent in each step.
+     */
+    private void processMappingInBulk() {
+        long start = System.currentTimeMillis();
+        preload();
+        long loaded = System.currentTimeMillis();
+        HibernateFactory.doWithJdbcBatching(this::updateMapping);
+        long written = System.currentTimeMillis();
+        log.info(String.format("Virtual Host Manager %s: processed %d hosts in %d ms " +
+                "(loading %d ms, updating and writing %d ms)",
+                virtualHostManager.getLabel(), virtualHosts.size(), written - start,
+                loaded - start, written - loaded));
+    }
+
+    /**
+     * Loads the foreign systems of the virtual host manager, the nodes and the virtual
+     * instances of the reported hosts and guests.
+     */
+    private void preload() {
+        foreignServers = new HashMap<>();
+        ServerFactory.listForeignSystemsByDigitalServerIdPrefix(buildServerFullDigitalId(""))
+                .forEach(server -> foreignServers.put(server.getDigitalServerId(), server));
+
+        nodeInfos = new HashMap<>();
+        Set<String> nodeIdentifiers = virtualHosts.values().stream()
+                .filter(host -> VirtualHostManagerFactory.KUBERNETES.equalsIgnoreCase(host.getType()))
+                .map(HostJson::getHostIdentifier)
+                .collect(Collectors.toSet());
+        VirtualHostManagerFactory.getInstance().lookupNodeInfosByIdentifiers(nodeIdentifiers)
+                .forEach(info -> nodeInfos.put(info.getIdentifier(), info));
+
+        hostInstances = new HashMap<>();
+        Set<Long> hostIds = foreignServers.values().stream()
+                .map(Server::getId)
+                .collect(Collectors.toSet());
+        VirtualInstanceFactory.getInstance().lookupHostVirtInstancesByHostIds(hostIds)
+                .forEach(instance -> hostInstances.put(instance.getHostSystem().getId(), instance));
+
+        // reported guests with their swapped uuids, and the guests which may be removed
+        Set<String> uuids = new HashSet<>();
+        virtualHosts.values().stream()
+                .filter(host -> host.getVms() != null)
+                .flatMap(host -> host.getVms().values().stream())
+                .map(uuid -> uuid.replaceAll("-", ""))
+                .forEach(uuid -> {
+                    uuids.add(uuid);
+                    try {
+                        uuids.add(SaltUtils.uuidToLittleEndian(uuid));
+                    }
+                    catch (IllegalArgumentException e) {
+                        // not a valid uuid, fails when the guest gets processed
+                    }
+                });
+        foreignServers.values().forEach(server -> server.getGuests()
+                .forEach(guest -> uuids.add(guest.getUuid())));
+        guestInstances = new HashMap<>();
+        VirtualInstanceFactory.getInstance().lookupVirtualInstancesByUuids(uuids)
+                .forEach(instance -> guestInstances
+                        .computeIfAbsent(instance.getUuid(), uuid -> new ArrayList<>())
+                        .add(instance));
+    }
+
+    private void updateMapping() {
         serversToDelete.addAll(virtualHostManager.getServers());
         nodesToDelete.addAll(virtualHostManager.getNodes());
         virtualHosts.entrySet().forEach(
@@ -129,13 +239,51 @@ public class VirtualHostManagerProcessor {
         }
 
         VirtualInstanceType virtType = extractVirtualInstanceType(host.getType());
-        VirtualInstanceManager.updateHostVirtualInstance(server, virtType);
-        VirtualInstanceManager.updateGuestsVirtualInstances(server, virtType,
-                host.getVms(), host.getOptionalVmData());
+        if (bulk) {
+            updateHostVirtualInstance(server, virtType);
+            VirtualInstanceManager.updateGuestsVirtualInstances(server, virtType,
+                    host.getVms(), host.getOptionalVmData(),
+                    uuid -> guestInstances.computeIfAbsent(uuid, u -> new ArrayList<>()));
+        }
+        else {
+            VirtualInstanceManager.updateHostVirtualInstance(server, virtType);
+            VirtualInstanceManager.updateGuestsVirtualInstances(server, virtType,
+                    host.getVms(), host.getOptionalVmData());
+        }
+    }
+
+    /**
+     * Preloaded counterpart of {@link VirtualInstanceManager#updateHostVirtualInstance}.
+     */
+    private void updateHostVirtualInstance(Server server, VirtualInstanceType type) {
+        VirtualInstance serverVirtInstance = hostInstances.get(server.getId());
+        if (serverVirtInstance == null) {
+            serverVirtInstance = new VirtualInstance();
+            serverVirtInstance.setHostSystem(server);
+            serverVirtInstance.setConfirmed(1L);
+            serverVirtInstance.setState(
+                    VirtualInstanceFactory.getInstance().getUnknownState());
+            serverVirtInstance.setType(type);
+
+            VirtualInstanceFactory.getInstance().saveVirtualInstance(serverVirtInstance);
+            hostInstances.put(server.getId(), serverVirtInstance);
+        }
+        else if (serverVirtInstance.getConfirmed() != 1L) {
+            serverVirtInstance.setConfirmed(1L);
+        }
     }
 
     private VirtualHostManagerNodeInfo updateAndGetNodeInfo(String hostLabel,
                                                             HostJson host) {
+        if (bulk) {
+            VirtualHostManagerNodeInfo info = nodeInfos.get(host.getHostIdentifier());
+            if (info == null) {
+                info = createNewNodeInfo(hostLabel, host);
+                nodeInfos.put(host.getHostIdentifier(), info);
+                return info;
+            }
+            return updateNodeInfo(info, hostLabel, host);
+        }
         return VirtualHostManagerFactory.getInstance()
                 .lookupNodeInfoByIdentifier(host.getHostIdentifier())
                 .map(i -> updateNodeInfo(i, hostLabel, host))
@@ -145,7 +293,7 @@ public class VirtualHostManagerProcessor {
     private VirtualHostManagerNodeInfo updateNodeInfo(VirtualHostManagerNodeInfo info,
             String hostLabel, HostJson host) {
         info.setName(hostLabel);
-        info.setNodeArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        info.setNodeArch(lookupServerArchByName(host.getCpuArch()));
         info.setCpuSockets(host.getTotalCpuSockets());
         info.setCpuCores(host.getTotalCpuCores());
         info.setRam(host.getRamMb());
@@ -192,13 +340,16 @@ public class VirtualHostManagerProcessor {
     private Server updateAndGetServer(String hostId,
                                       HostJson host,
                                       String skipCreateForType) {
-        Server server = ServerFactory.lookupForeignSystemByDigitalServerId(
-                buildServerFullDigitalId(host.getHostIdentifier()));
+        String digitalServerId = buildServerFullDigitalId(host.getHostIdentifier());
+        Server server = bulk ? foreignServers.get(digitalServerId) :
+                ServerFactory.lookupForeignSystemByDigitalServerId(digitalServerId);
+        boolean created = false;
         if (server == null) {
             if (skipCreateForType.equalsIgnoreCase(host.getType())) {
                 return null;
             }
             server = createNewServer(hostId, host);
+            created = true;
         }
         else {
             updateServerMiscFields(server, host);
@@ -208,9 +359,13 @@ public class VirtualHostManagerProcessor {
         server.updateServerInfo();
         updateServerNetwork(server, hostId);
 
-        if (server.getBaseEntitlement() == null) {
+        // preloaded servers are known to be foreign entitled
+        if ((!bulk || created) && server.getBaseEntitlement() == null) {
             server.setBaseEntitlement(EntitlementManager.FOREIGN);
         }
+        if (bulk) {
+            foreignServers.put(digitalServerId, server);
+        }
         return server;
     }
 
@@ -262,7 +417,7 @@ public class VirtualHostManagerProcessor {
         // and update server
         server.setModified(new Date());
         server.setRam(host.getRamMb());
-        server.setServerArch(ServerFactory.lookupServerArchByName(host.getCpuArch()));
+        server.setServerArch(lookupServerArchByName(host.getCpuArch()));
     }
 
     private void updateServerCpu(Server server, HostJson host) {
@@ -271,7 +426,7 @@ public class VirtualHostManagerProcessor {
             cpu = new CPU();
         }
 
-        cpu.setArch(ServerFactory.lookupCPUArchByName(host.getCpuArch()));
+        cpu.setArch(lookupCPUArchByName(host.getCpuArch()));
         cpu.setMHz(new Long(Math.round(host.getCpuMhz())).toString());
         cpu.setNrCPU(host.getTotalCpuCores().longValue());
         cpu.setNrsocket(host.getTotalCpuSockets().longValue());
@@ -285,4 +440,12 @@ public class VirtualHostManagerProcessor {
     private void updateServerNetwork(Server server, String hostId) {
         server.setHostname(hostId);
     }
+
+    private ServerArch lookupServerArchByName(String name) {
+        return serverArchs.computeIfAbsent(name, ServerFactory::lookupServerArchByName);
+    }
+
+    private CPUArch lookupCPUArchByName(String name) {
+        return cpuArchs.computeIfAbsent(name, ServerFactory::lookupCPUArchByName);
+    }
 }
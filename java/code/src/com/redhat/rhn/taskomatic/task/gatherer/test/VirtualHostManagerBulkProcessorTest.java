@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.gatherer.test;
+
+import com.redhat.rhn.common.hibernate.HibernateFactory;
+import com.redhat.rhn.domain.server.VirtualInstance;
+import com.redhat.rhn.domain.server.VirtualInstanceFactory;
+import com.redhat.rhn.domain.server.virtualhostmanager.VirtualHostManager;
+import com.redhat.rhn.taskomatic.task.gatherer.VirtualHostManagerProcessor;
+
+import com.suse.manager.gatherer.HostJson;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the VirtualHostManagerProcessor tests in bulk mode.
+ */
+public class VirtualHostManagerBulkProcessorTest extends VirtualHostManagerProcessorTest {
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void processMapping(VirtualHostManager manager, Map<String, HostJson> data) {
+        new VirtualHostManagerProcessor(manager, data, true).processMapping();
+    }
+
+    /**
+     * Tests that guests reported again without changes keep their VirtualInstance.
+     */
+    public void testUnchangedGuestKept() {
+        HostJson host = new HostJson();
+        host.setHostIdentifier("esxi_host_unchanged");
+        host.setType("para_virtualized");
+        host.setRamMb(128);
+        host.setCpuArch("x86_64");
+        host.setCpuMhz(400.0);
+        host.setTotalCpuCores(1);
+        host.setTotalCpuSockets(1);
+        host.setOs("Windows");
+        host.setOsVersion("Vista");
+        Map<String, String> vms = new HashMap<>();
+        vms.put("vm1", "dd4ae2ba-5e1a-4b26-9fbc-64e1c2a4f3a1");
+        host.setVms(vms);
+        Map<String, HostJson> data = new HashMap<>();
+        data.put("esxi_host_unchanged", host);
+
+        processMapping(getVirtualHostManager(), data);
+        HibernateFactory.getSession().flush();
+        List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("dd4ae2ba5e1a4b269fbc64e1c2a4f3a1");
+        assertEquals(1, guests.size());
+        Long guestId = guests.get(0).getId();
+        HibernateFactory.getSession().clear();
+
+        processMapping(getVirtualHostManager(), data);
+        HibernateFactory.getSession().flush();
+        guests = VirtualInstanceFactory.getInstance()
+                .lookupVirtualInstanceByUuid("dd4ae2ba5e1a4b269fbc64e1c2a4f3a1");
+        assertEquals(1, guests.size());
+        assertEquals(guestId, guests.get(0).getId());
+    }
+}
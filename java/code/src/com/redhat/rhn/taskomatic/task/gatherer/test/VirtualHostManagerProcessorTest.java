@@ -40,6 +40,22 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         virtualHostManager.setOrg(user.getOrg());
     }
 
+    /**
+     * @return the virtual host manager the tests process results for
+     */
+    protected VirtualHostManager getVirtualHostManager() {
+        return virtualHostManager;
+    }
+
+    /**
+     * Runs the VirtualHostManagerProcessor on gatherer results.
+     * @param manager the virtual host manager
+     * @param data the gatherer results
+     */
+    protected void processMapping(VirtualHostManager manager, Map<String, HostJson> data) {
+        new VirtualHostManagerProcessor(manager, data).processMapping();
+    }
+
     /**
      * Tests that the VirtualHostManagerProcessor creates a new Server entity
      * for a host reported from gatherer. Digital server id of this Server bears information
@@ -49,7 +65,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
     public void testCreateServer() {
         Map<String, HostJson> data = createHostData("esxi_host_1_id", null);
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check if a Server is created
         Server host = ServerFactory
@@ -65,7 +81,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
     public void testCreateVirtualInstance() {
         Map<String, HostJson> data = createHostData("esxi_host_1_id", null);
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check if a VirtualInstance is created
         Server host = ServerFactory
@@ -97,7 +113,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         // thing is the digital server id is equal)
         Map<String, HostJson> data = createHostData("esxi_host_1_id", null);
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
         assertContains(virtualHostManager.getServers(), existingHost);
     }
 
@@ -114,7 +130,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
 
         // gatherer reports this host
         Map<String, HostJson> data = createHostData("existing_host_id", null);
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check if a VirtualInstance is created
         VirtualInstance virtualInstance = VirtualInstanceFactory.getInstance()
@@ -147,7 +163,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
 
         // gatherer reports this host
         Map<String, HostJson> data = createHostData("existing_host_id", null);
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check if a VirtualInstance of the host is the same after processing
         VirtualInstance virtualInstanceAfter = VirtualInstanceFactory.getInstance()
@@ -167,7 +183,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> data = createHostData("esxi_host_1",
                 pairsToMap("myVM", "42309db29d991a2f681f74f4c851f4bd"));
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         Server newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-esxi_host_1");
@@ -204,7 +220,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         // do the mapping
         Map<String, HostJson> data = createHostData("existing_host_id",
                 pairsToMap("myVM", "42309db29d991a2f681f74f4c851f4bd"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // verify guest is linked to the 1st host
         Server host = ServerFactory
@@ -219,7 +235,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         // now our guest is reported by a different host
         data = createHostData("another_host_id",
                 pairsToMap("myVM", "42309db29d991a2f681f74f4c851f4bd"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // after processing, the virtual instance should be mapped to "another_host"
         Server anotherHost = ServerFactory
@@ -239,9 +255,9 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
     public void testGuestNameUpdated() {
         Map<String, HostJson> data = createHostData("my-host-id",
                 pairsToMap("old name", "38a4e1c14d8e440780b3b59745ba9ce5"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
         data = createHostData("my-host-id", pairsToMap("new name", "38a4e1c14d8e440780b3b59745ba9ce5"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         VirtualInstance guest = VirtualInstanceFactory.getInstance()
                 .lookupVirtualInstanceByUuid("38a4e1c14d8e440780b3b59745ba9ce5").iterator().next();
@@ -262,7 +278,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
 
         Map<String, HostJson> data = createHostData("hostid",
                 pairsToMap("guestname", "1d7d250e9fca4d3ebb04099fe9a3e129"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         VirtualInstance dbGuest = VirtualInstanceFactory.getInstance()
                 .lookupVirtualInstanceByUuid("1d7d250e9fca4d3ebb04099fe9a3e129").iterator().next();
@@ -296,7 +312,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> data = createHostData(foreignSystemId,
                 pairsToMap("vm name", vmUuid));
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // verify that processor linked this guest to its host
         List<VirtualInstance> guestsFromDb = VirtualInstanceFactory.getInstance()
@@ -329,8 +345,8 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         virtualHostManager2.setOrg(virtualHostManager.getOrg());
         assertEquals(virtualHostManager, virtualHostManager2);
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
-        new VirtualHostManagerProcessor(virtualHostManager2, data).processMapping();
+        processMapping(virtualHostManager, data);
+        processMapping(virtualHostManager2, data);
 
         List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
                 .lookupVirtualInstanceByUuid("42309db29d991a2f681f74f4c851f4bd");
@@ -356,7 +372,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         HostJson host = data.entrySet().iterator().next().getValue();
         host.setType(fullyVirtType.getLabel());
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         Server newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-esxi_host_id");
@@ -376,7 +392,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> data = createHostData("foreign_system_id",
                 pairsToMap("my vm", "06b6-0065-9810-4186b513b33bd6190360"));
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         VirtualInstanceFactory factory = VirtualInstanceFactory.getInstance();
         assertTrue(factory.lookupVirtualInstanceByUuid("06b6-0065-9810-4186b513b33bd6190360").isEmpty());
@@ -403,7 +419,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
                 pairsToMap(newVmName, guestUuid));
 
         // do the mapping
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         Server newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-existing_host_id");
@@ -439,7 +455,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
                 pairsToMap(newVmName, guestUuid));
 
         // do the mapping
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         Server newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-existing_host_id");
@@ -470,7 +486,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> data = createHostData("esxi_host_1_id",
                 pairsToMap("myVM", "42309db29d991a2f681f74f4c851f4bd"));
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // rename host
         Server host = ServerFactory
@@ -480,7 +496,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         HibernateFactory.getSession().clear();
 
         data = createHostData("esxi_host_1_id", pairsToMap("renamed vm", "42309db29d991a2f681f74f4c851f4bd"));
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check that the guest is renamed and still belongs to the original server
         List<VirtualInstance> guests = VirtualInstanceFactory.getInstance()
@@ -502,7 +518,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> data = new HashMap<>();
         data.put(TestUtils.randomString(), myHost);
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         Server newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-esx_host_1");
@@ -519,7 +535,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         // vm2 was removed from this host
         myHost.setVms(pairsToMap("vm1", "de5629cb8c5a4de485a8fc8d1b170412"));
 
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         newHost = ServerFactory
                 .lookupForeignSystemByDigitalServerId("101-esx_host_1");
@@ -539,7 +555,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
      */
     public void testCreateNodeInfo() {
         Map<String, HostJson> data = createHostData("kubernetes_host_1_id", "Kubernetes",null);
-        new VirtualHostManagerProcessor(virtualHostManager, data).processMapping();
+        processMapping(virtualHostManager, data);
 
         // check that aServer was not created
         Server host = ServerFactory
@@ -562,7 +578,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
         Map<String, HostJson> dataCreate = new HashMap<>();
         dataCreate.putAll(createHostData("kubernetes_host_1_id", "Kubernetes",null));
         dataCreate.putAll(createHostData("kubernetes_host_2_id", "Kubernetes",null));
-        new VirtualHostManagerProcessor(virtualHostManager, dataCreate).processMapping();
+        processMapping(virtualHostManager, dataCreate);
 
         // check that aServer was not created
         assertNull(ServerFactory
@@ -580,7 +596,7 @@ public class VirtualHostManagerProcessorTest extends BaseTestCaseWithUser {
 
         Map<String, HostJson> dataUpdate = new HashMap<>();
         dataUpdate.putAll(createHostData("kubernetes_host_2_id", "Kubernetes",null));
-        new VirtualHostManagerProcessor(virtualHostManager, dataUpdate).processMapping();
+        processMapping(virtualHostManager, dataUpdate);
 
         assertEquals(1, virtualHostManager.getNodes().size());
         assertTrue(virtualHostManager.getNodes().stream()
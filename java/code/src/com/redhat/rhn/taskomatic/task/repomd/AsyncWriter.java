@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writer that collects characters in chunks and hands them over to a background thread
+ * writing them to the underlying writer, in order.
+ *
+ * This allows the (typically compressing) underlying writer to run in parallel with the
+ * code producing metadata. The number of chunks waiting to be written is limited, so a
+ * slow underlying writer slows down the producer instead of filling up memory.
+ */
+public class AsyncWriter extends Writer {
+
+    /** Default chunk size in characters */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /** Default maximum number of chunks waiting to be written */
+    public static final int DEFAULT_MAX_PENDING_CHUNKS = 8;
+
+    private final Writer out;
+    private final int chunkSize;
+    private final Semaphore pendingChunks;
+    private final ExecutorService executor;
+
+    private StringBuilder chunk;
+    private volatile IOException failure;
+    private boolean closed = false;
+
+    /**
+     * Creates a writer with default chunk size and number of pending chunks.
+     * @param outIn the underlying writer, closed when this writer is closed
+     * @param name name of the background thread
+     */
+    public AsyncWriter(Writer outIn, String name) {
+        this(outIn, name, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_PENDING_CHUNKS);
+    }
+
+    /**
+     * Standard constructor.
+     * @param outIn the underlying writer, closed when this writer is closed
+     * @param name name of the background thread
+     * @param chunkSizeIn number of characters collected before handing them over
+     * @param maxPendingChunks maximum number of chunks waiting to be written
+     */
+    public AsyncWriter(Writer outIn, String name, int chunkSizeIn, int maxPendingChunks) {
+        out = outIn;
+        chunkSize = chunkSizeIn;
+        chunk = new StringBuilder(chunkSizeIn);
+        pendingChunks = new Semaphore(maxPendingChunks);
+        executor = Executors.newSingleThreadExecutor(
+                new BasicThreadFactory.Builder().namingPattern(name).daemon(true).build());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        ensureOpen();
+        chunk.append(cbuf, off, len);
+        if (chunk.length() >= chunkSize) {
+            submitChunk();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        ensureOpen();
+        chunk.append(str, off, off + len);
+        if (chunk.length() >= chunkSize) {
+            submitChunk();
+        }
+    }
+
+    /**
+     * Hands over collected characters to the background thread without waiting for them to be written.
+     * @throws IOException if a previous write failed
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitChunk();
+    }
+
+    /**
+     * Writes out all collected characters, waits for completion and closes the underlying writer.
+     * The underlying writer is closed even if writing failed.
+     * @throws IOException if writing or closing failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        IOException error = null;
+        try {
+            submitChunk();
+        }
+        catch (IOException e) {
+            error = e;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+            error = addFailure(error, new InterruptedIOException("Interrupted while closing"));
+        }
+        error = addFailure(error, failure);
+        try {
+            out.close();
+        }
+        catch (IOException e) {
+            error = addFailure(error, e);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static IOException addFailure(IOException error, IOException e) {
+        if (error == null) {
+            return e;
+        }
+        if (e != null && e != error) {
+            error.addSuppressed(e);
+        }
+        return error;
+    }
+
+    private void submitChunk() throws IOException {
+        checkFailure();
+        if (chunk.length() == 0) {
+            return;
+        }
+        String data = chunk.toString();
+        chunk = new StringBuilder(chunkSize);
+        try {
+            pendingChunks.acquire();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for pending writes");
+        }
+        executor.execute(() -> {
+            try {
+                if (failure == null) {
+                    out.write(data);
+                }
+            }
+            catch (IOException e) {
+                failure = e;
+            }
+            catch (RuntimeException e) {
+                failure = new IOException(e);
+            }
+            finally {
+                pendingChunks.release();
+            }
+        });
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer closed");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
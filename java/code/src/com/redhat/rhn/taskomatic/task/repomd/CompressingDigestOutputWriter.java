@@ -14,6 +14,7 @@
  */
 package com.redhat.rhn.taskomatic.task.repomd;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.util.StringUtil;
 
 import java.io.BufferedOutputStream;
@@ -47,7 +48,13 @@ public class CompressingDigestOutputWriter extends OutputStream {
                                         throws NoSuchAlgorithmException, IOException {
             compressedDigestStream = new DigestOutputStream(stream,
                     MessageDigest.getInstance(checksumAlgo));
-            compressedStream = new GZIPOutputStream(compressedDigestStream);
+            int threads = ConfigDefaults.get().getRepodataCompressionThreads();
+            if (threads > 1) {
+                compressedStream = new ParallelGZIPOutputStream(compressedDigestStream, threads);
+            }
+            else {
+                compressedStream = new GZIPOutputStream(compressedDigestStream);
+            }
             uncompressedDigestStream = new DigestOutputStream(compressedStream,
                     MessageDigest.getInstance(checksumAlgo));
             bufferedStream = new BufferedOutputStream(uncompressedDigestStream);
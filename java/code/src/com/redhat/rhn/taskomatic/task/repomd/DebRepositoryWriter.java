@@ -18,7 +18,6 @@ import java.io.File;
 import java.util.Calendar;
 import java.util.Date;
 
-import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.domain.channel.Channel;
@@ -90,13 +89,12 @@ public class DebRepositoryWriter extends RepositoryWriter {
         log.info("Generating new DEB repository for channel " + channel.getLabel());
         Date start = new Date();
         DebPackageWriter writer = new DebPackageWriter(channel, prefix);
-        // TODO: is it possible to make this batched to reduce memory requirements
-        // like in RpmReporsitoryWriter?
-        DataResult<PackageDto> packages = TaskManager.getChannelPackageDtos(channel);
-        packages.elaborate();
-        for (PackageDto pkgDto : packages) {
-            writer.addPackage(pkgDto);
-        }
+        // stream packages from the database in batches to reduce memory requirements
+        TaskManager.getChannelPackageDtos(channel, 1000, packageBatch -> {
+            for (PackageDto pkgDto : packageBatch) {
+                writer.addPackage(pkgDto);
+            }
+        });
         writer.generatePackagesGz();
 
         log.info("Repository metadata generation for '" +
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream compressing blocks of input on multiple threads, like pigz does.
+ *
+ * Every block is compressed as a raw deflate stream primed with the last 32KB of the previous
+ * block as dictionary and terminated with a sync flush, so the concatenated blocks form a single
+ * valid deflate stream. Output is a standard gzip file readable by any gzip implementation.
+ */
+public class ParallelGZIPOutputStream extends FilterOutputStream {
+
+    /** Size of uncompressed blocks compressed by a single thread */
+    public static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new BasicThreadFactory.Builder().namingPattern("parallel-gzip-%d").daemon(true).build());
+
+    private final int maxPendingBlocks;
+    private final CRC32 crc = new CRC32();
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+
+    private byte[] block = new byte[BLOCK_SIZE];
+    private int blockLength = 0;
+    private byte[] dictionary = null;
+    private long totalLength = 0;
+    private boolean finished = false;
+
+    /**
+     * Creates a stream compressing on up to threads blocks at the same time.
+     * @param outIn the stream to write compressed data to
+     * @param threads maximum number of blocks compressed at the same time
+     * @throws IOException if writing the gzip header fails
+     */
+    public ParallelGZIPOutputStream(OutputStream outIn, int threads) throws IOException {
+        super(outIn);
+        maxPendingBlocks = Math.max(1, threads);
+        writeHeader();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (finished) {
+            throw new IOException("Stream already finished");
+        }
+        crc.update(b, off, len);
+        totalLength += len;
+
+        int written = 0;
+        while (written < len) {
+            int n = Math.min(len - written, BLOCK_SIZE - blockLength);
+            System.arraycopy(b, off + written, block, blockLength, n);
+            blockLength += n;
+            written += n;
+            if (blockLength == BLOCK_SIZE) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Writes out all blocks compressed so far. Data still being collected for the current
+     * block is not compressed before more data comes in or the stream is closed.
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peekFirst().isDone()) {
+            writeBlock(pendingBlocks.pollFirst());
+        }
+        out.flush();
+    }
+
+    /**
+     * Compresses remaining data and writes the gzip trailer, without closing the underlying stream.
+     * @throws IOException if writing fails
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        submitBlock(true);
+        while (!pendingBlocks.isEmpty()) {
+            writeBlock(pendingBlocks.pollFirst());
+        }
+        writeInt((int) crc.getValue());
+        writeInt((int) totalLength);
+        finished = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        byte[] input = block;
+        int length = blockLength;
+        byte[] dict = dictionary;
+
+        // the tail of this block primes the compression of the next one
+        if (length >= DICTIONARY_SIZE) {
+            dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+        }
+        else if (length > 0) {
+            dictionary = Arrays.copyOf(input, length);
+        }
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+
+        pendingBlocks.addLast(POOL.submit(() -> compress(input, length, dict, last)));
+        while (pendingBlocks.size() > maxPendingBlocks) {
+            writeBlock(pendingBlocks.pollFirst());
+        }
+    }
+
+    private static byte[] compress(byte[] input, int length, byte[] dict, boolean last) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            if (dict != null) {
+                deflater.setDictionary(dict);
+            }
+            deflater.setInput(input, 0, length);
+
+            ByteArrayOutputStream result = new ByteArrayOutputStream(length / 3 + 64);
+            byte[] buffer = new byte[16 * 1024];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int n = deflater.deflate(buffer);
+                    result.write(buffer, 0, n);
+                }
+            }
+            else {
+                int n;
+                do {
+                    n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    result.write(buffer, 0, n);
+                } while (n == buffer.length);
+            }
+            return result.toByteArray();
+        }
+        finally {
+            deflater.end();
+        }
+    }
+
+    private void writeBlock(Future<byte[]> future) throws IOException {
+        try {
+            out.write(future.get());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        }
+        catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        out.write(new byte[] {
+                (byte) GZIP_MAGIC,      // magic number
+                (byte) (GZIP_MAGIC >> 8),
+                Deflater.DEFLATED,      // compression method
+                0,                      // flags
+                0, 0, 0, 0,             // modification time
+                0,                      // extra flags
+                0                       // operating system
+        });
+    }
+
+    private void writeInt(int i) throws IOException {
+        out.write(i & 0xff);
+        out.write((i >> 8) & 0xff);
+        out.write((i >> 16) & 0xff);
+        out.write((i >> 24) & 0xff);
+    }
+}
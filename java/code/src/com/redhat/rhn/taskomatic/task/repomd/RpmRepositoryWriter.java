@@ -16,7 +16,6 @@ package com.redhat.rhn.taskomatic.task.repomd;
 
 import com.redhat.rhn.common.conf.Config;
 import com.redhat.rhn.common.conf.ConfigDefaults;
-import com.redhat.rhn.common.db.datasource.DataResult;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.common.localization.LocalizationService;
 import com.redhat.rhn.common.util.StringUtil;
@@ -29,6 +28,8 @@ import com.redhat.rhn.manager.rhnpackage.PackageManager;
 import com.redhat.rhn.manager.satellite.SystemCommandExecutor;
 import com.redhat.rhn.manager.task.TaskManager;
 
+import org.apache.commons.io.IOUtils;
+
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
@@ -37,6 +38,7 @@ import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.file.Files;
@@ -172,14 +174,15 @@ public class RpmRepositoryWriter extends RepositoryWriter {
             throw new RepomdRuntimeException(e);
         }
 
-        BufferedWriter primaryBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(primaryFile));
-        BufferedWriter filelistsBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(filelistsFile));
-        BufferedWriter otherBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(otherFile));
-        BufferedWriter susedataBufferedWriter = new BufferedWriter(
-                new OutputStreamWriter(susedataFile));
+        // compression of each file runs in its own thread, in parallel with metadata generation
+        Writer primaryBufferedWriter = new AsyncWriter(new BufferedWriter(
+                new OutputStreamWriter(primaryFile)), "repomd-primary-writer-%d");
+        Writer filelistsBufferedWriter = new AsyncWriter(new BufferedWriter(
+                new OutputStreamWriter(filelistsFile)), "repomd-filelists-writer-%d");
+        Writer otherBufferedWriter = new AsyncWriter(new BufferedWriter(
+                new OutputStreamWriter(otherFile)), "repomd-other-writer-%d");
+        Writer susedataBufferedWriter = new AsyncWriter(new BufferedWriter(
+                new OutputStreamWriter(susedataFile)), "repomd-susedata-writer-%d");
         PrimaryXmlWriter primary = new PrimaryXmlWriter(
                 primaryBufferedWriter);
         FilelistsXmlWriter filelists = new FilelistsXmlWriter(
@@ -189,46 +192,46 @@ public class RpmRepositoryWriter extends RepositoryWriter {
                 susedataBufferedWriter);
         Date start = new Date();
 
-        primary.begin(channel);
-        filelists.begin(channel);
-        other.begin(channel);
-        susedata.begin(channel);
-
-        // batch the elaboration so we don't have to hold many thousands of
-        // packages in memory at once
-        final int batchSize = 1000;
-        DataResult<PackageDto> packages = TaskManager.getChannelPackageDtos(channel);
-        for (int i = 0; i < packages.size(); i += batchSize) {
-            DataResult<PackageDto> packageBatch = packages.subList(i, i + batchSize);
-            packageBatch.elaborate();
-            for (PackageDto pkgDto : packageBatch) {
-                // this is a sanity check
-                // package may have been deleted before packageBatch.elaborate()
-                if (pkgDto.getChecksum() == null) {
-                    // channel content changed, we cannot guarantee correct repodata
-                    throw new RepomdRuntimeException("Package with id " + pkgDto.getId() +
-                            " removed from server, interrupting repo generation for " +
-                            channel.getLabel());
+        try {
+            primary.begin(channel);
+            filelists.begin(channel);
+            other.begin(channel);
+            susedata.begin(channel);
+
+            // stream packages from the database in batches so we don't have to
+            // hold many thousands of packages in memory at once
+            final int batchSize = 1000;
+            TaskManager.getChannelPackageDtos(channel, batchSize, packageBatch -> {
+                for (PackageDto pkgDto : packageBatch) {
+                    // primary, filelists and other XML come from the rhnPackageRepodata cache
+                    // and are only rendered for packages that are not cached yet
+                    primary.addPackage(pkgDto);
+                    filelists.addPackage(pkgDto);
+                    other.addPackage(pkgDto);
+                    susedata.addPackage(pkgDto);
                 }
-                primary.addPackage(pkgDto);
-                filelists.addPackage(pkgDto);
-                other.addPackage(pkgDto);
-                susedata.addPackage(pkgDto);
                 try {
-                    primaryFile.flush();
-                    filelistsFile.flush();
-                    otherFile.flush();
-                    susedataFile.flush();
+                    primaryBufferedWriter.flush();
+                    filelistsBufferedWriter.flush();
+                    otherBufferedWriter.flush();
+                    susedataBufferedWriter.flush();
                 }
                 catch (IOException e) {
                     throw new RepomdRuntimeException(e);
                 }
-            }
+            });
+            primary.end();
+            filelists.end();
+            other.end();
+            susedata.end();
+        }
+        catch (RuntimeException e) {
+            IOUtils.closeQuietly(primaryBufferedWriter);
+            IOUtils.closeQuietly(filelistsBufferedWriter);
+            IOUtils.closeQuietly(otherBufferedWriter);
+            IOUtils.closeQuietly(susedataBufferedWriter);
+            throw e;
         }
-        primary.end();
-        filelists.end();
-        other.end();
-        susedata.end();
         try {
             primaryBufferedWriter.close();
             filelistsBufferedWriter.close();
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd.test;
+
+import com.redhat.rhn.taskomatic.task.repomd.AsyncWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link AsyncWriter}.
+ */
+public class AsyncWriterTest extends TestCase {
+
+    public void testWritesInOrder() throws Exception {
+        StringWriter out = new StringWriter();
+        StringBuilder expected = new StringBuilder();
+
+        Writer writer = new AsyncWriter(out, "async-writer-test-%d", 16, 2);
+        for (int i = 0; i < 1000; i++) {
+            String line = "<package id=\"" + i + "\"/>\n";
+            writer.write(line);
+            expected.append(line);
+            if (i % 100 == 0) {
+                writer.flush();
+            }
+        }
+        writer.close();
+
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    public void testFailurePropagates() throws Exception {
+        FailingWriter failing = new FailingWriter();
+        Writer writer = new AsyncWriter(failing, "async-writer-test-%d", 4, 1);
+        writer.write("some metadata");
+        try {
+            writer.close();
+            fail("IOException expected");
+        }
+        catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertEquals("close failed", e.getSuppressed()[0].getMessage());
+        }
+        assertTrue(failing.closed);
+    }
+
+    public void testClosesAfterEarlierFailure() throws Exception {
+        FailingWriter failing = new FailingWriter();
+        Writer writer = new AsyncWriter(failing, "async-writer-test-%d", 4, 1);
+        writer.write("some metadata");
+        // wait for the background thread to fail
+        boolean failed = false;
+        for (int i = 0; i < 50 && !failed; i++) {
+            try {
+                writer.flush();
+                Thread.sleep(100);
+            }
+            catch (IOException e) {
+                failed = true;
+            }
+        }
+        assertTrue(failed);
+
+        try {
+            writer.close();
+            fail("IOException expected");
+        }
+        catch (IOException e) {
+            assertEquals("disk full", e.getMessage());
+        }
+        assertTrue(failing.closed);
+    }
+
+    /**
+     * Writer failing on every write and on close.
+     */
+    private static class FailingWriter extends Writer {
+
+        private volatile boolean closed = false;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            throw new IOException("disk full");
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            throw new IOException("close failed");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.rhn.taskomatic.task.repomd.test;
+
+import com.redhat.rhn.taskomatic.task.repomd.ParallelGZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ParallelGZIPOutputStream}.
+ */
+public class ParallelGZIPOutputStreamTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        StringBuilder xml = new StringBuilder();
+        for (int i = 0; i < 50000; i++) {
+            xml.append("<package type=\"rpm\"><name>package-").append(i % 977).append("</name></package>\n");
+        }
+        byte[] data = xml.toString().getBytes("UTF-8");
+
+        // sizes around block boundaries and empty input
+        int blockSize = ParallelGZIPOutputStream.BLOCK_SIZE;
+        for (int size : new int[] {0, 1, blockSize - 1, blockSize, blockSize + 1, data.length}) {
+            byte[] input = Arrays.copyOf(data, size);
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream out = new ParallelGZIPOutputStream(compressed, 4)) {
+                // write in odd sized pieces to cross block boundaries
+                for (int offset = 0; offset < size; offset += 7777) {
+                    out.write(input, offset, Math.min(7777, size - offset));
+                }
+            }
+
+            byte[] decompressed = IOUtils.toByteArray(
+                    new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())));
+            assertTrue("size " + size, Arrays.equals(input, decompressed));
+        }
+    }
+}
@@ -15,6 +15,7 @@
 
 package com.suse.manager.matcher;
 
+import static java.util.Collections.emptyList;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
@@ -22,6 +23,9 @@ import static java.util.stream.Stream.concat;
 import static java.util.stream.Stream.empty;
 import static java.util.stream.Stream.of;
 
+import com.redhat.rhn.common.db.datasource.DataResult;
+import com.redhat.rhn.common.db.datasource.ModeFactory;
+import com.redhat.rhn.common.db.datasource.SelectMode;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.credentials.Credentials;
 import com.redhat.rhn.domain.matcher.MatcherRunData;
@@ -41,6 +45,7 @@ import com.redhat.rhn.manager.entitlement.EntitlementManager;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.suse.matcher.json.InputJson;
 import com.suse.matcher.json.MatchJson;
 import com.suse.matcher.json.OutputJson;
@@ -50,12 +55,20 @@ import com.suse.matcher.json.SystemJson;
 import com.suse.matcher.json.VirtualizationGroupJson;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -67,6 +80,9 @@ public class MatcherJsonIO {
     /** Fake ID for the SUSE Manager server system. */
     public static final long SELF_SYSTEM_ID = 2000010000L;
 
+    /** Number of systems fetched at a time. */
+    private static final int SYSTEMS_BATCH_SIZE = 500;
+
     /** (De)serializer instance. */
     private Gson gson;
 
@@ -127,25 +143,65 @@ public class MatcherJsonIO {
      * about systems on this Server
      */
     public List<SystemJson> getJsonSystems(boolean includeSelf, String arch) {
-        Stream<SystemJson> systems = ServerFactory.list(true, true).stream()
-            .map(system -> {
-                Long cpus = system.getCpu() == null ? null : system.getCpu().getNrsocket();
-                Set<String> entitlements = system.getEntitlementLabels();
-                boolean virtualHost = entitlements.contains(EntitlementManager.VIRTUALIZATION_ENTITLED) ||
-                        !system.getGuests().isEmpty();
-                Set<Long> productIds = productIdsForServer(system, entitlements).collect(toSet());
-                return new SystemJson(
-                    system.getId(),
-                    system.getName(),
-                    cpus == null ? null : cpus.intValue(),
-                    !system.isVirtualGuest(),
-                    virtualHost,
-                    getVirtualGuests(system),
-                    productIds
-                );
-            });
+        List<SystemJson> systems = new LinkedList<>();
+        forEachJsonSystem(includeSelf, arch, systems::add);
+        return systems;
+    }
+
+    /**
+     * Passes the JSON input for the matcher about each system on this Server to a
+     * consumer. Systems are fetched in batches, with only the columns needed, so that
+     * they never are all in memory.
+     * @param includeSelf - true if we want to add SUMa products and host
+     * @param arch - cpu architecture of this SUMa
+     * @param consumer called with each system
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachJsonSystem(boolean includeSelf, String arch,
+            Consumer<SystemJson> consumer) {
+        SelectMode mode = ModeFactory.getMode("System_queries", "matcher_systems");
+        mode.executeInBatches(new HashMap<String, Object>(), SYSTEMS_BATCH_SIZE,
+                (DataResult<Map<String, Object>> batch) -> batch.stream()
+                    .map(this::toJsonSystem)
+                    .forEach(consumer));
+        jsonSystemForSelf(includeSelf, arch).forEach(consumer);
+    }
 
-        return concat(systems, jsonSystemForSelf(includeSelf, arch)).collect(toList());
+    @SuppressWarnings("unchecked")
+    private SystemJson toJsonSystem(Map<String, Object> row) {
+        List<Map<String, Object>> groups = (List<Map<String, Object>>) row
+                .getOrDefault("matcher_system_entitlements", emptyList());
+        List<Map<String, Object>> guests = (List<Map<String, Object>>) row
+                .getOrDefault("matcher_system_guests", emptyList());
+        List<Map<String, Object>> installedProducts = (List<Map<String, Object>>) row
+                .getOrDefault("matcher_system_installed_products", emptyList());
+
+        Long cpus = (Long) row.get("nrsocket");
+        Set<String> entitlements = groups.stream()
+                .map(group -> (String) group.get("label"))
+                .collect(toSet());
+        boolean virtualHost = entitlements.contains(EntitlementManager.VIRTUALIZATION_ENTITLED) ||
+                !guests.isEmpty();
+        Set<Long> guestIds = guests.stream()
+                .map(guest -> (Long) guest.get("guest_id"))
+                .filter(Objects::nonNull)
+                .collect(toSet());
+        List<SUSEProduct> products = installedProducts.stream()
+                .map(p -> productFactory.lookup((String) p.get("name"), (String) p.get("version"),
+                        (String) p.get("release"), (String) p.get("arch")))
+                .filter(Objects::nonNull)
+                .collect(toList());
+        boolean s390 = s390arch != null && s390arch.getLabel().equals(row.get("arch_label"));
+
+        return new SystemJson(
+            (Long) row.get("id"),
+            (String) row.get("name"),
+            cpus == null ? null : cpus.intValue(),
+            ((Number) row.get("virtual_guest")).intValue() == 0,
+            virtualHost,
+            guestIds,
+            productIdsForServer(products, s390, entitlements).collect(toSet())
+        );
     }
 
     private static Set<Long> getVirtualGuests(Server system) {
@@ -159,14 +215,20 @@ public class MatcherJsonIO {
      * @return an object representation of the JSON input for the matcher
      * about SUSE products on this Server
      */
+    @SuppressWarnings("unchecked")
     public List<ProductJson> getJsonProducts() {
-        return SUSEProductFactory.findAllSUSEProducts().stream()
-                .map(p -> new ProductJson(
-                        p.getProductId(),
-                        p.getFriendlyName(),
-                        p.getChannelFamily() != null ? p.getChannelFamily().getLabel() : "",
-                        p.isBase(),
-                        p.getFree()))
+        // only the needed columns, products and channel families are not loaded
+        List<Object[]> rows = HibernateFactory.getSession().createQuery(
+                "SELECT p.productId, p.friendlyName, cf.label, p.base, p.free " +
+                "FROM com.redhat.rhn.domain.product.SUSEProduct p " +
+                "LEFT JOIN p.channelFamily cf").list();
+        return rows.stream()
+                .map(row -> new ProductJson(
+                        (Long) row[0],
+                        (String) row[1],
+                        row[2] != null ? (String) row[2] : "",
+                        (Boolean) row[3],
+                        (Boolean) row[4]))
                 .collect(toList());
     }
 
@@ -225,14 +287,58 @@ public class MatcherJsonIO {
      * @return an object representation of the JSON input for the matcher
      */
     public String generateMatcherInput(boolean includeSelf, String arch) {
-        return gson.toJson(new InputJson(
-            new Date(),
-            getJsonSystems(includeSelf, arch),
-            getJsonVirtualizationGroups(),
-            getJsonProducts(),
-            getJsonSubscriptions(),
-            getJsonMatches())
-        );
+        StringWriter writer = new StringWriter();
+        try {
+            writeMatcherInput(writer, includeSelf, arch);
+        }
+        catch (IOException e) {
+            // never happens writing to a string
+            throw new IllegalStateException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes input data for subscription-matcher, in the format of {@link InputJson}.
+     * Systems are written while they are fetched, the input is never entirely in memory.
+     *
+     * @param out the writer to write to, it is flushed but not closed
+     * @param includeSelf - true if we want to add the products of the SUMA instance
+     *                      running Matcher to the JSON output
+     * @param arch - cpu architecture of this SUMA instance
+     * @throws IOException if writing fails
+     * @see #generateMatcherInput(boolean, String)
+     */
+    public void writeMatcherInput(Writer out, boolean includeSelf, String arch)
+        throws IOException {
+        JsonWriter writer = gson.newJsonWriter(out);
+        writer.beginObject();
+        writer.name("timestamp");
+        gson.toJson(new Date(), Date.class, writer);
+
+        writer.name("systems");
+        writer.beginArray();
+        forEachJsonSystem(includeSelf, arch,
+                system -> gson.toJson(system, SystemJson.class, writer));
+        writer.endArray();
+
+        writeArray(writer, "virtualization_groups", getJsonVirtualizationGroups(),
+                VirtualizationGroupJson.class);
+        writeArray(writer, "products", getJsonProducts(), ProductJson.class);
+        writeArray(writer, "subscriptions", getJsonSubscriptions(), SubscriptionJson.class);
+        writeArray(writer, "pinned_matches", getJsonMatches(), MatchJson.class);
+        writer.endObject();
+        writer.flush();
+    }
+
+    private <T> void writeArray(JsonWriter writer, String name, List<T> elements,
+            Class<T> type) throws IOException {
+        writer.name(name);
+        writer.beginArray();
+        for (T element : elements) {
+            gson.toJson(element, type, writer);
+        }
+        writer.endArray();
     }
 
     /**
@@ -303,9 +409,8 @@ public class MatcherJsonIO {
      * (For systems without a SUSE base product, empty stream is returned as we don't
      * require SUSE Manager entitlements for such systems).
      */
-    private Stream<Long> productIdsForServer(Server server, Set<String> entitlements) {
-        List<SUSEProduct> products = productFactory.map(server.getInstalledProducts());
-
+    private Stream<Long> productIdsForServer(List<SUSEProduct> products, boolean s390,
+            Set<String> entitlements) {
         if (products.stream().noneMatch(SUSEProduct::isBase)) {
             return Stream.empty();
         }
@@ -313,17 +418,17 @@ public class MatcherJsonIO {
         // add SUSE Manager entitlements
         return concat(
             products.stream().map(SUSEProduct::getProductId),
-            entitlementIdsForServer(server, entitlements)
+            entitlementIdsForServer(s390, entitlements)
         );
     }
 
     /**
      * Returns SUSE Manager entitlement product ids for a server.
      */
-    private Stream<Long> entitlementIdsForServer(Server server, Set<String> entitlements) {
+    private Stream<Long> entitlementIdsForServer(boolean s390, Set<String> entitlements) {
         if (entitlements.contains(EntitlementManager.SALT_ENTITLED) ||
                 entitlements.contains(EntitlementManager.ENTERPRISE_ENTITLED)) {
-            if (server.getServerArch().equals(s390arch)) {
+            if (s390) {
                 return productIdsForS390xSystem.stream();
             }
             else if (entitlements.contains(EntitlementManager.VIRTUALIZATION_ENTITLED)) {
@@ -22,9 +22,12 @@ import com.redhat.rhn.domain.server.PinnedSubscriptionFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -65,14 +68,15 @@ public class MatcherRunner {
         Runtime r = Runtime.getRuntime();
         try {
             Process p = r.exec(args.toArray(new String[0]));
-            PrintWriter stdin = new PrintWriter(p.getOutputStream());
             boolean isISSMaster = IssFactory.getCurrentMaster() == null;
             String arch = System.getProperty("os.arch");
             PinnedSubscriptionFactory.getInstance().cleanStalePins();
-            String s = new MatcherJsonIO().generateMatcherInput(isISSMaster, arch);
-            stdin.println(s);
-            stdin.flush();
-            stdin.close();
+            // stream the input to the matcher instead of building it in memory
+            try (Writer stdin = new BufferedWriter(new OutputStreamWriter(
+                    p.getOutputStream(), StandardCharsets.UTF_8))) {
+                new MatcherJsonIO().writeMatcherInput(stdin, isISSMaster, arch);
+                stdin.write(System.lineSeparator());
+            }
 
             int exitCode = p.waitFor();
             if (exitCode != 0) {
@@ -17,7 +17,12 @@ import com.redhat.rhn.testing.BaseTestCaseWithUser;
 import com.redhat.rhn.testing.ServerTestUtils;
 import com.redhat.rhn.testing.TestUtils;
 
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.suse.manager.matcher.MatcherJsonIO;
+import com.suse.matcher.json.InputJson;
 import com.suse.matcher.json.MatchJson;
 import com.suse.matcher.json.ProductJson;
 import com.suse.matcher.json.SubscriptionJson;
@@ -26,12 +31,15 @@ import com.suse.matcher.json.VirtualizationGroupJson;
 import com.suse.scc.model.SCCSubscription;
 
 import java.io.File;
+import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -137,6 +145,33 @@ public class MatcherJsonIOTest extends BaseTestCaseWithUser {
                 s -> s.getId().equals(MatcherJsonIO.SELF_SYSTEM_ID)));
     }
 
+    public void testWriteMatcherInput() throws Exception {
+        SUSEProductTestUtils.clearAllProducts();
+        SUSEProductTestUtils.createVendorSUSEProducts();
+        Server server = ServerTestUtils.createTestSystem();
+        HibernateFactory.getSession().flush();
+
+        StringWriter out = new StringWriter();
+        new MatcherJsonIO().writeMatcherInput(out, true, AMD64_ARCH);
+        JsonObject input = new JsonParser().parse(out.toString()).getAsJsonObject();
+
+        // the streamed input has the same members as a serialized InputJson
+        JsonObject empty = new GsonBuilder()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create()
+                .toJsonTree(new InputJson(new Date(), new LinkedList<>(), new LinkedList<>(),
+                        new LinkedList<>(), new LinkedList<>(), new LinkedList<>()))
+                .getAsJsonObject();
+        assertEquals(empty.keySet(), input.keySet());
+
+        Set<Long> systemIds = new HashSet<>();
+        input.getAsJsonArray("systems")
+                .forEach(system -> systemIds.add(system.getAsJsonObject().get("id").getAsLong()));
+        assertTrue(systemIds.contains(server.getId()));
+        assertTrue(systemIds.contains(MatcherJsonIO.SELF_SYSTEM_ID));
+        assertTrue(input.getAsJsonArray("products").size() > 0);
+    }
+
     public void testProductsToJson() throws Exception {
         SUSEProductTestUtils.clearAllProducts();
         SUSEProductTestUtils.createVendorSUSEProducts();
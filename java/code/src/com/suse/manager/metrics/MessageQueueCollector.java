@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import com.redhat.rhn.common.messaging.EventLane;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Collector for the lanes of the message queue.
+ */
+public class MessageQueueCollector extends Collector {
+
+    private static final String PREFIX = "message_queue";
+
+    private Supplier<Collection<EventLane>> lanes;
+
+    /**
+     * Standard constructor.
+     * @param lanesIn supplier of the currently active lanes
+     */
+    public MessageQueueCollector(Supplier<Collection<EventLane>> lanesIn) {
+        this.lanes = lanesIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<String> labels = singletonList("lane");
+        GaugeMetricFamily depth = new GaugeMetricFamily(PREFIX + "_lane_depth",
+                PREFIX + " - Messages waiting or being executed", labels);
+        GaugeMetricFamily active = new GaugeMetricFamily(PREFIX + "_lane_threads_active",
+                PREFIX + " - Messages being executed on the shared thread pool", labels);
+        GaugeMetricFamily concurrency = new GaugeMetricFamily(PREFIX + "_lane_concurrency",
+                PREFIX + " - Maximum number of concurrently executed messages", labels);
+        CounterMetricFamily completed = new CounterMetricFamily(PREFIX + "_lane_completed_task_count",
+                PREFIX + " - Number of tasks ever completed", labels);
+
+        for (EventLane lane : lanes.get()) {
+            List<String> values = singletonList(lane.getName());
+            depth.addMetric(values, lane.getDepth());
+            active.addMetric(values, lane.getRunning());
+            concurrency.addMetric(values, lane.getConcurrency());
+            completed.addMetric(values, lane.getCompleted());
+        }
+
+        List<MetricFamilySamples> out = new ArrayList<>();
+        out.add(depth);
+        out.add(active);
+        out.add(concurrency);
+        out.add(completed);
+        out.addAll(EventLane.WAIT_TIME.collect());
+        out.addAll(EventLane.EXECUTION_TIME.collect());
+        out.addAll(EventLane.OVERFLOWS.collect());
+        return out;
+    }
+}
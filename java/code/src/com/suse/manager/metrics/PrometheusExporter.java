@@ -15,12 +15,19 @@
 package com.suse.manager.metrics;
 
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.messaging.EventLane;
+import io.prometheus.client.Collector;
 import io.prometheus.client.exporter.HTTPServer;
 import org.apache.log4j.Logger;
 import org.quartz.Scheduler;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * Exports Prometheus metrics.
@@ -36,6 +43,9 @@ public enum PrometheusExporter {
     // Listening port for non-Servlet based applications
     private static final int PORT = 9800;
 
+    // Lanes of the current message queue dispatcher, if any
+    private final AtomicReference<Supplier<Collection<EventLane>>> messageQueueLanes = new AtomicReference<>();
+
     /**
      * Starts an HTTP server serving metrics. To be used outside of J2EE applications.
      */
@@ -71,4 +81,38 @@ public enum PrometheusExporter {
             new SchedulerCollector(scheduler, schedulerId).register();
         }
     }
+
+    /**
+     * Registers a collector, typically a Histogram or Counter created by the caller.
+     * @param collector the collector
+     */
+    public void registerCollector(Collector collector) {
+        if (ENABLED) {
+            collector.register();
+        }
+    }
+
+    /**
+     * Registers a Taskomatic task queue for monitoring.
+     * @param pendingTasks supplier of the number of pending tasks
+     * @param oldestTaskMillis supplier of the creation time of the oldest pending task in milliseconds
+     * since the epoch, 0 if there is none
+     * @param queueId a unique ID for the queue
+     */
+    public void registerTaskQueue(IntSupplier pendingTasks, LongSupplier oldestTaskMillis, String queueId) {
+        if (ENABLED) {
+            new TaskQueueCollector(pendingTasks, oldestTaskMillis, queueId).register();
+        }
+    }
+
+    /**
+     * Registers the lanes of the message queue for monitoring. The message queue can be restarted,
+     * only the most recently registered lanes are exported.
+     * @param lanes supplier of the currently active lanes
+     */
+    public void registerMessageQueue(Supplier<Collection<EventLane>> lanes) {
+        if (ENABLED && messageQueueLanes.getAndSet(lanes) == null) {
+            new MessageQueueCollector(() -> messageQueueLanes.get().get()).register();
+        }
+    }
 }
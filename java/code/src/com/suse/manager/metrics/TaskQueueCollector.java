@@ -0,0 +1,60 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.manager.metrics;
+
+import io.prometheus.client.Collector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Collector for a Taskomatic task queue backed by rhnTaskQueue.
+ */
+public class TaskQueueCollector extends Collector {
+
+    private IntSupplier pendingTasks;
+    private LongSupplier oldestTaskMillis;
+    private String queueId;
+
+    /**
+     * Standard constructor.
+     * @param pendingTasksIn supplier of the number of pending tasks
+     * @param oldestTaskMillisIn supplier of the creation time of the oldest pending task in
+     * milliseconds since the epoch, 0 if there is none
+     * @param queueIdIn a unique ID for the queue
+     */
+    public TaskQueueCollector(IntSupplier pendingTasksIn, LongSupplier oldestTaskMillisIn, String queueIdIn) {
+        this.pendingTasks = pendingTasksIn;
+        this.oldestTaskMillis = oldestTaskMillisIn;
+        this.queueId = queueIdIn;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> out = new ArrayList<>();
+
+        long oldest = this.oldestTaskMillis.getAsLong();
+        double lag = oldest > 0 ? Math.max(0, System.currentTimeMillis() - oldest) / 1000.0 : 0;
+
+        out.add(CustomCollectorUtils.gaugeFor("queue_pending_tasks",
+                "Number of pending tasks", this.pendingTasks.getAsInt(), this.queueId));
+        out.add(CustomCollectorUtils.gaugeFor("queue_lag_seconds",
+                "Age of the oldest pending task", lag, this.queueId));
+
+        return out;
+    }
+}
@@ -37,12 +37,14 @@ import org.apache.log4j.Logger;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 /**
@@ -52,19 +54,32 @@ public class PGEventStream extends AbstractEventStream implements PGNotification
 
     private static final Logger LOG = Logger.getLogger(PGEventStream.class);
     private static final int MAX_EVENTS_PER_COMMIT = ConfigDefaults.get().getSaltEventsPerCommit();
-    private static final int THREAD_POOL_SIZE = ConfigDefaults.get().getSaltEventThreadPoolSize();
+    private static final int THREAD_POOL_SIZE =
+            Math.min(ConfigDefaults.get().getSaltEventThreadPoolSize(), SaltEventFactory.QUEUE_SLOTS);
+
+    /** Queue 0 is for events without a minion id, queues 1..THREAD_POOL_SIZE for all others. */
+    private static final int QUEUE_COUNT = THREAD_POOL_SIZE + 1;
 
     private PGConnection connection;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(
-            THREAD_POOL_SIZE,
-            new BasicThreadFactory.Builder().namingPattern("salt-event-thread-%d").build()
-    );
+
+    /** One single-threaded executor per queue, so that events of the same minion are processed in order. */
+    private final List<ExecutorService> executorServices = new ArrayList<>(QUEUE_COUNT);
+
+    /** Per queue, true if a drain job has been submitted and has not started reading events yet. */
+    private final List<AtomicBoolean> drainScheduled = new ArrayList<>(QUEUE_COUNT);
 
     /**
      * Default constructor, connects to Postgres and waits for events.
      * @throws SaltException if connection fails
      */
     public PGEventStream() throws SaltException {
+        for (int queue = 0; queue < QUEUE_COUNT; queue++) {
+            executorServices.add(Executors.newSingleThreadExecutor(
+                    new BasicThreadFactory.Builder().namingPattern("salt-event-thread-" + queue + "-%d").build()
+            ));
+            drainScheduled.add(new AtomicBoolean(false));
+        }
+
         PGDataSource dataSource = new PGDataSource();
         Config config = Config.get();
         dataSource.setHost(config.getString(ConfigDefaults.DB_HOST));
@@ -115,32 +130,49 @@ public class PGEventStream extends AbstractEventStream implements PGNotification
 
     @Override
     public void notification(int processId, String channelName, String payload) {
-        // compute the number of jobs we need to do - each job COMMITs individually
-        // jobs = events / MAX_EVENTS_PER_COMMIT (rounded up)
-        long jobs = (SaltEventFactory.countSaltEvents() + MAX_EVENTS_PER_COMMIT - 1) / MAX_EVENTS_PER_COMMIT;
-
-        // queue one handlingTransaction(processEvents) call per job
-        for (int j = 0; j < jobs; j++) {
-            executorService.execute(() -> {
-                List<SaltEvent> uncommittedEvents = new LinkedList<>();
-                TransactionHelper.handlingTransaction(
-                        () -> processEvents(uncommittedEvents),
-                        e -> handleExceptions(uncommittedEvents, e));
-            });
+        // make sure every queue gets drained. A queue that already has a drain job waiting will pick up new events
+        // anyway, so notifications arriving while a queue lags behind do not pile up further jobs
+        for (int queue = 0; queue < QUEUE_COUNT; queue++) {
+            if (drainScheduled.get(queue).compareAndSet(false, true)) {
+                int q = queue;
+                executorServices.get(queue).execute(() -> drainQueue(q));
+            }
         }
     }
 
     /**
-     * Reads one or more events from suseSaltEvent and notifies listeners (typically, {@link PGEventListener}).
+     * Processes events from one queue, one COMMIT every MAX_EVENTS_PER_COMMIT events, until the queue is empty.
+     * @param queue the queue number
+     */
+    private void drainQueue(int queue) {
+        // events inserted after this point will be picked up either by this run or by a newly scheduled one
+        drainScheduled.get(queue).set(false);
+
+        // keep going until a pop comes back empty, also after a failed transaction so that remaining events in the
+        // queue are not left waiting for the next notification
+        int processed;
+        do {
+            List<SaltEvent> uncommittedEvents = new LinkedList<>();
+            TransactionHelper.handlingTransaction(
+                    () -> processEvents(queue, uncommittedEvents),
+                    e -> handleExceptions(uncommittedEvents, e));
+            processed = uncommittedEvents.size();
+        } while (processed > 0 && !isEventStreamClosed());
+    }
+
+    /**
+     * Reads one or more events from one queue in suseSaltEvent and notifies listeners (typically,
+     * {@link PGEventListener}).
+     * @param queue the queue number
      * @param uncommittedEvents used to keep track of events being processed
      */
-    private void processEvents(List<SaltEvent> uncommittedEvents) {
-        Stream<SaltEvent> events = SaltEventFactory.popSaltEvents(MAX_EVENTS_PER_COMMIT)
+    private void processEvents(int queue, List<SaltEvent> uncommittedEvents) {
+        Stream<SaltEvent> events = SaltEventFactory.popSaltEvents(MAX_EVENTS_PER_COMMIT, queue, THREAD_POOL_SIZE)
                 .sorted(comparing(SaltEvent::getMinionId, nullsLast(naturalOrder())).thenComparing(SaltEvent::getId));
 
         events.forEach(event -> {
             if (LOG.isTraceEnabled()) {
-                LOG.trace("Handling event " + event.getId());
+                LOG.trace("Handling event " + event.getId() + " from queue " + queue);
                 LOG.trace(event.getData());
             }
             uncommittedEvents.add(event);
@@ -184,5 +216,8 @@ public class PGEventStream extends AbstractEventStream implements PGNotification
         catch (SQLException e) {
             throw new IOException(e);
         }
+        finally {
+            executorServices.forEach(ExecutorService::shutdown);
+        }
     }
 }
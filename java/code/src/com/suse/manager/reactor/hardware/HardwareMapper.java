@@ -14,6 +14,7 @@
  */
 package com.suse.manager.reactor.hardware;
 
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.org.OrgFactory;
 import com.redhat.rhn.domain.server.CPU;
 import com.redhat.rhn.domain.server.CPUArch;
@@ -45,17 +46,18 @@ import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -250,19 +252,16 @@ public class HardwareMapper {
      * @param udevdb exported contents of udevdb
      */
     public void mapDevices(List<Map<String, Object>> udevdb) {
-        // remove any existing devices in case we're refreshing the hw info
-        for (Device device : server.getDevices()) {
-            ServerFactory.delete(device);
-        }
-        server.getDevices().clear();
-
         if (udevdb == null || udevdb.isEmpty()) {
+            // remove any existing devices in case we're refreshing the hw info
+            updateDevices(Collections.emptyList());
             errors.add("Devices: Salt module 'udevdb.exportdb' returned an empty list");
             LOG.error("Salt module 'udevdb.exportdb' returned an empty list " +
                     "for minion: " + server.getMinionId());
             return;
         }
 
+        List<Device> reported = new LinkedList<>();
         udevdb.forEach(dbdev -> {
             String devpath = (String)dbdev.get(SYSFS_PATH); // sysfs path without /sys
             @SuppressWarnings("unchecked")
@@ -379,9 +378,54 @@ public class HardwareMapper {
                 }
 
                 device.setServer(server);
-                server.getDevices().add(device);
+                reported.add(device);
             }
         });
+        updateDevices(reported);
+    }
+
+    /**
+     * Replace the devices of the server with the reported ones. Rows of devices that did
+     * not change are kept, the others are deleted and inserted in JDBC batches.
+     *
+     * @param reported the devices currently found on the minion
+     */
+    private void updateDevices(List<Device> reported) {
+        Map<List<Object>, LinkedList<Device>> existing = server.getDevices().stream()
+                .collect(Collectors.groupingBy(HardwareMapper::deviceKey,
+                        Collectors.toCollection(LinkedList::new)));
+
+        List<Device> added = new LinkedList<>();
+        for (Device device : reported) {
+            LinkedList<Device> unchanged = existing.get(deviceKey(device));
+            if (unchanged != null && !unchanged.isEmpty()) {
+                unchanged.removeFirst();
+            }
+            else {
+                added.add(device);
+            }
+        }
+        List<Device> removed = existing.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        if (added.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+
+        HibernateFactory.doWithJdbcBatching(() -> {
+            removed.forEach(device -> {
+                server.getDevices().remove(device);
+                ServerFactory.delete(device);
+            });
+            server.getDevices().addAll(added);
+        });
+    }
+
+    private static List<Object> deviceKey(Device device) {
+        return Arrays.asList(device.getBus(), device.getDeviceClass(), device.getDevice(),
+                device.getDriver(), device.getDescription(), device.getPcitype(),
+                device.getDetached(), device.getProp1(), device.getProp2(),
+                device.getProp3(), device.getProp4());
     }
 
     /**
@@ -730,87 +774,81 @@ public class HardwareMapper {
 
         // add/update interfaces from the Salt result
         interfaces.forEach((name, saltIface) -> {
-            NetworkInterface ifaceEntity = server.getNetworkInterface(name);
-            if (ifaceEntity == null) {
+            NetworkInterface iface = server.getNetworkInterface(name);
+            boolean isNew = iface == null;
+            if (isNew) {
                 // we got a new interface
-                ifaceEntity = new NetworkInterface();
+                iface = new NetworkInterface();
+                iface.setServer(server);
+                iface.setName(name);
             }
-            // else update the existing interface
-            final NetworkInterface iface = ifaceEntity;
-
+            // else update the existing interface, Hibernate writes it only if it changed
             iface.setHwaddr(saltIface.getHWAddr());
             iface.setModule(netModules.get(name).orElse(null));
-            iface.setServer(server);
-            iface.setName(name);
-
-            server.addNetworkInterface(iface);
-
-            // we have to do this because we need the id of the interface afterwards
-            ServerFactory.saveNetworkInterface(iface);
-            // flush & refresh iface because generated="insert"
-            // on interfaceId does not seem to work
-            ServerFactory.getSession().flush();
-            ServerFactory.getSession().refresh(iface);
-
-            List<ServerNetAddress4> dbipv4 = ServerNetworkFactory.findServerNetAddress4(iface.getInterfaceId());
-            List<Network.INet> saltipv4 = Optional.ofNullable(saltIface.getInet()).orElse(new LinkedList<>());
-
-            Set<ServerNetAddress4> dbfound = new HashSet<>();
-            for (Network.INet inet : saltipv4) {
-                boolean found = false;
-                for (ServerNetAddress4 dbinet: dbipv4) {
-                    if (inet.getAddress().orElse("").equals(dbinet.getAddress())) {
-                        // update
-                        dbinet.setNetmask(inet.getNetmask().orElse(null));
-                        dbinet.setBroadcast(inet.getBroadcast().orElse(null));
-                        found = true;
-                        dbfound.add(dbinet);
-                        break;
-                    }
+
+            if (isNew) {
+                server.addNetworkInterface(iface);
+                // we have to do this because we need the id of the interface afterwards
+                ServerFactory.saveNetworkInterface(iface);
+                // flush & refresh iface because generated="insert"
+                // on interfaceId does not seem to work
+                ServerFactory.getSession().flush();
+                ServerFactory.getSession().refresh(iface);
+            }
+            Long interfaceId = iface.getInterfaceId();
+
+            Map<String, ServerNetAddress4> dbipv4 = isNew ? new HashMap<>() :
+                    ServerNetworkFactory.findServerNetAddress4(interfaceId).stream()
+                        .collect(Collectors.toMap(ServerNetAddress4::getAddress,
+                                Function.identity(), (a, b) -> a));
+            Map<String, Network.INet> saltipv4 = Optional.ofNullable(saltIface.getInet())
+                    .orElse(new LinkedList<>()).stream()
+                    .collect(Collectors.toMap(inet -> inet.getAddress().orElse(""),
+                            Function.identity(), (a, b) -> a, LinkedHashMap::new));
+            saltipv4.forEach((address, inet) -> {
+                ServerNetAddress4 dbinet = dbipv4.remove(address);
+                boolean isNewAddress = dbinet == null;
+                if (isNewAddress) {
+                    dbinet = new ServerNetAddress4();
+                    dbinet.setInterfaceId(interfaceId);
+                    dbinet.setAddress(inet.getAddress().orElse(null));
                 }
-                if (!found) {
-                    // insert
-                    ServerNetAddress4 ipv4 = new ServerNetAddress4();
-                    ipv4.setInterfaceId(iface.getInterfaceId());
-                    ipv4.setAddress(inet.getAddress().orElse(null));
-                    ipv4.setNetmask(inet.getNetmask().orElse(null));
-                    ipv4.setBroadcast(inet.getBroadcast().orElse(null));
-
-                    ServerNetworkFactory.saveServerNetAddress4(ipv4);
+                // set every field before saving, so that new rows are inserted without an update
+                dbinet.setNetmask(inet.getNetmask().orElse(null));
+                dbinet.setBroadcast(inet.getBroadcast().orElse(null));
+                if (isNewAddress) {
+                    ServerNetworkFactory.saveServerNetAddress4(dbinet);
                 }
-            }
-            dbipv4.stream().filter(ipv4 -> !dbfound.contains(ipv4)).forEach(del ->
-                ServerNetworkFactory.removeServerNetAddress4(del));
-
-            List<ServerNetAddress6> dbipv6 = ServerNetworkFactory.findServerNetAddress6(iface.getInterfaceId());
-            List<Network.INet6> saltipv6 = Optional.ofNullable(saltIface.getInet6()).orElse(new LinkedList<>());
-
-            Set<ServerNetAddress6> dbfound6 = new HashSet<>();
-            for (Network.INet6 inet : saltipv6) {
-                boolean found = false;
-                for (ServerNetAddress6 dbinet: dbipv6) {
-                    if (inet.getAddress().equals(dbinet.getAddress())) {
-                        // update
-                        dbinet.setNetmask(inet.getPrefixlen());
-                        dbinet.setScope(Optional.ofNullable(inet.getScope()).orElse("unknown"));
-                        found = true;
-                        dbfound6.add(dbinet);
-                        break;
-                    }
+            });
+            dbipv4.values().forEach(ServerNetworkFactory::removeServerNetAddress4);
+
+            // the scope is part of the primary key: a changed scope replaces the row
+            Map<List<String>, ServerNetAddress6> dbipv6 = isNew ? new HashMap<>() :
+                    ServerNetworkFactory.findServerNetAddress6(interfaceId).stream()
+                        .collect(Collectors.toMap(
+                                dbinet -> Arrays.asList(dbinet.getAddress(), dbinet.getScope()),
+                                Function.identity(), (a, b) -> a));
+            Map<List<String>, Network.INet6> saltipv6 = Optional.ofNullable(saltIface.getInet6())
+                    .orElse(new LinkedList<>()).stream()
+                    .collect(Collectors.toMap(
+                            inet -> Arrays.asList(inet.getAddress(),
+                                    Optional.ofNullable(inet.getScope()).orElse("unknown")),
+                            Function.identity(), (a, b) -> a, LinkedHashMap::new));
+            saltipv6.forEach((key, inet) -> {
+                ServerNetAddress6 dbinet = dbipv6.remove(key);
+                boolean isNewAddress = dbinet == null;
+                if (isNewAddress) {
+                    dbinet = new ServerNetAddress6();
+                    dbinet.setInterfaceId(interfaceId);
+                    dbinet.setAddress(key.get(0));
+                    dbinet.setScope(key.get(1));
                 }
-                if (!found) {
-                    // insert
-                    ServerNetAddress6 ipv6 = new ServerNetAddress6();
-                    ipv6.setInterfaceId(iface.getInterfaceId());
-                    ipv6.setAddress(inet.getAddress());
-                    ipv6.setNetmask(inet.getPrefixlen());
-                    ipv6.setScope(Optional.ofNullable(inet.getScope()).orElse("unknown"));
-
-                    ServerNetworkFactory.saveServerNetAddress6(ipv6);
+                dbinet.setNetmask(inet.getPrefixlen());
+                if (isNewAddress) {
+                    ServerNetworkFactory.saveServerNetAddress6(dbinet);
                 }
-            }
-            dbipv6.stream().filter(ipv6 -> !dbfound6.contains(ipv6)).forEach(del ->
-                ServerNetworkFactory.removeServerNetAddress6(del));
+            });
+            dbipv6.values().forEach(ServerNetworkFactory::removeServerNetAddress6);
         });
 
         // reset primary IP flag, we will re-compute it
@@ -36,6 +36,7 @@ import com.redhat.rhn.domain.image.ImageInfoFactory;
 import com.redhat.rhn.domain.image.ImageProfile;
 import com.redhat.rhn.domain.image.ImageStore;
 import com.redhat.rhn.domain.product.test.SUSEProductTestUtils;
+import com.redhat.rhn.domain.server.Device;
 import com.redhat.rhn.domain.server.InstalledPackage;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
@@ -401,6 +402,49 @@ public class JobReturnEventMessageActionTest extends JMockBaseTestCaseWithUser {
         assertEquals(3, minion.getPackages().size());
     }
 
+    /**
+     * Test the processing of packages.profileupdate job return event on an existing
+     * minion whose packages were not loaded in the current session, so that the
+     * installed packages are updated in bulk.
+     *
+     * @throws Exception in case of an error
+     */
+    public void testPackagesProfileUpdateMultipleBulk() throws Exception {
+        MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
+        minion.setMinionId("minionsles12-suma3pg.vagrant.local");
+        Action action = ActionFactoryTest.createAction(
+                user, ActionFactory.TYPE_PACKAGES_REFRESH_LIST);
+        action.addServerAction(ActionFactoryTest.createServerAction(minion, action));
+        JobReturnEventMessage message = new JobReturnEventMessage(JobReturnEvent
+                .parse(getJobReturnEvent("packages.profileupdate.json", action.getId()))
+                .get());
+        JobReturnEventMessageAction messageAction = new JobReturnEventMessageAction();
+        messageAction.execute(message);
+        assertEquals(3, minion.getPackages().size());
+
+        // start over with a fresh session, packages of the minion are not loaded
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        // aaa_base is identical, bash was updated to version 500, timezone-java is gone
+        // and java is new
+        message = new JobReturnEventMessage(JobReturnEvent.parse(
+                getJobReturnEvent("packages.profileupdate.updated.json", action.getId()))
+                .get());
+        messageAction.execute(message);
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        Map<String, String> versions = MinionServerFactory
+                .findByMinionId("minionsles12-suma3pg.vagrant.local").get()
+                .getPackages().stream()
+                .collect(Collectors.toMap(p -> p.getName().getName(), p -> p.getEvr().getVersion()));
+        assertEquals(3, versions.size());
+        assertEquals("13.2+git20140911.61c1681", versions.get("aaa_base"));
+        assertEquals("500", versions.get("bash"));
+        assertEquals("1.6", versions.get("java"));
+    }
+
     public void testPackagesProfileUpdateLivePatching() throws Exception {
         MinionServer minion = MinionServerFactoryTest.createTestMinionServer(user);
         minion.setMinionId("minionsles12-suma3pg.vagrant.local");
@@ -944,6 +988,51 @@ public class JobReturnEventMessageActionTest extends JMockBaseTestCaseWithUser {
         return server;
     }
 
+    public void testHardwareProfileUpdateTwiceKeepsUnchangedDevices() throws Exception {
+        MinionServer minion = testHardwareProfileUpdate("hardware.profileupdate.x86.json",
+                (server) -> assertTrue(!server.getDevices().isEmpty()));
+        Set<Long> deviceIds = minion.getDevices().stream()
+                .map(Device::getId)
+                .collect(Collectors.toSet());
+        int interfaceCount = minion.getNetworkInterfaces().size();
+
+        Action action = ActionFactoryTest.createAction(
+                user, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        action.addServerAction(ActionFactoryTest.createServerAction(minion, action));
+        Optional<JobReturnEvent> event = JobReturnEvent.parse(
+                getJobReturnEvent("hardware.profileupdate.x86.json", action.getId()));
+        new JobReturnEventMessageAction().execute(new JobReturnEventMessage(event.get()));
+
+        assertEquals(deviceIds, minion.getDevices().stream()
+                .map(Device::getId)
+                .collect(Collectors.toSet()));
+        assertEquals(interfaceCount, minion.getNetworkInterfaces().size());
+    }
+
+    public void testHardwareProfileUpdateIPv6ScopeChange() throws Exception {
+        MinionServer minion = testHardwareProfileUpdate("hardware.profileupdate.x86.json",
+                (server) -> assertTrue(!server.getNetworkInterfaces().isEmpty()));
+
+        Action action = ActionFactoryTest.createAction(
+                user, ActionFactory.TYPE_HARDWARE_REFRESH_LIST);
+        action.addServerAction(ActionFactoryTest.createServerAction(minion, action));
+        Optional<JobReturnEvent> event = JobReturnEvent.parse(getJobReturnEvent(
+                "hardware.profileupdate.x86.json", action.getId(),
+                Collections.singletonMap("\"scope\": \"link\"", "\"scope\": \"global\"")));
+        new JobReturnEventMessageAction().execute(new JobReturnEventMessage(event.get()));
+        HibernateFactory.getSession().flush();
+        HibernateFactory.getSession().clear();
+
+        minion = MinionServerFactory.lookupById(minion.getId()).get();
+        Map<String, NetworkInterface> ethNames = minion.getNetworkInterfaces().stream()
+                .collect(Collectors.toMap(NetworkInterface::getName, Function.identity()));
+        assertEquals(1, ethNames.get("eth0").getIPv6Addresses().size());
+        assertEquals("fe80::5054:ff:fed0:91", ethNames.get("eth0").getIPv6Addresses().get(0).getAddress());
+        assertEquals("global", ethNames.get("eth0").getIPv6Addresses().get(0).getScope());
+        assertEquals("64", ethNames.get("eth0").getIPv6Addresses().get(0).getNetmask());
+        assertEquals("host", ethNames.get("lo").getIPv6Addresses().get(0).getScope());
+    }
+
     public void testHardwareProfileInfiniband()  throws Exception {
         MinionServer minion = testHardwareProfileUpdate("hardware.profileupdate.infiniband.json", (server) -> {
             Map<String, NetworkInterface> ethNames = server.getNetworkInterfaces().stream().collect(Collectors.toMap(
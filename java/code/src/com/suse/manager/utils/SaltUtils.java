@@ -55,6 +55,7 @@ import com.redhat.rhn.domain.image.ImageRepoDigest;
 import com.redhat.rhn.domain.image.OSImageStoreUtils;
 import com.redhat.rhn.domain.product.SUSEProduct;
 import com.redhat.rhn.domain.product.SUSEProductFactory;
+import com.redhat.rhn.domain.rhnpackage.PackageArch;
 import com.redhat.rhn.domain.rhnpackage.PackageEvr;
 import com.redhat.rhn.domain.rhnpackage.PackageEvrFactory;
 import com.redhat.rhn.domain.rhnpackage.PackageFactory;
@@ -76,6 +77,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.suse.manager.metrics.PrometheusExporter;
 import com.suse.manager.reactor.hardware.CpuArchUtil;
 import com.suse.manager.reactor.hardware.HardwareMapper;
 import com.suse.manager.reactor.messaging.ApplyStatesEventMessage;
@@ -118,9 +120,13 @@ import com.suse.salt.netapi.utils.Xor;
 import com.suse.utils.Json;
 import com.suse.utils.Opt;
 
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.hibernate.Hibernate;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -129,14 +135,17 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Timestamp;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -166,6 +175,21 @@ public class SaltUtils {
     private static final Logger LOG = Logger.getLogger(SaltUtils.class);
     private static final TaskomaticApi TASKOMATIC_API = new TaskomaticApi();
 
+    private static final Histogram PACKAGE_PROFILE_UPDATE_TIME = Histogram.build()
+            .name("package_profile_update_seconds")
+            .help("Time spent updating the installed packages of a minion")
+            .create();
+    private static final Counter PACKAGE_PROFILE_UPDATE_CHANGES = Counter.build()
+            .name("package_profile_update_changed_packages_total")
+            .help("Installed packages added or removed by package profile updates")
+            .labelNames("change")
+            .create();
+
+    static {
+        PrometheusExporter.INSTANCE.registerCollector(PACKAGE_PROFILE_UPDATE_TIME);
+        PrometheusExporter.INSTANCE.registerCollector(PACKAGE_PROFILE_UPDATE_CHANGES);
+    }
+
     public static final SaltUtils INSTANCE = new SaltUtils();
 
     private Path scriptsDir = Paths.get(SUMA_STATE_FILES_ROOT_PATH, SCRIPTS_DIR);
@@ -1209,6 +1233,46 @@ public class SaltUtils {
      */
     private static void updatePackages(MinionServer server,
             PkgProfileUpdateSlsResult result) {
+        Histogram.Timer timer = PACKAGE_PROFILE_UPDATE_TIME.startTimer();
+        try {
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap =
+                result.getInfoInstalled().getChanges().getRet()
+                    .entrySet().stream()
+                    .flatMap(entry ->
+                       entry.getValue().fold(Stream::of, Collection::stream)
+                            .flatMap(x -> {
+                               Map<String, Info> infoTuple = new HashMap<>();
+                               infoTuple.put(entry.getKey(), x);
+                               return infoTuple.entrySet().stream();
+                            })
+                    )
+                    .collect(Collectors.toMap(
+                            SaltUtils::packageToKey,
+                            Function.identity()
+                    ));
+
+            // the bulk path bypasses Hibernate, it cannot be used if the collection
+            // was already loaded as it would get out of sync
+            if (Hibernate.isInitialized(server.getPackages())) {
+                updatePackagesInCollection(server, newPackageMap);
+            }
+            else {
+                updatePackagesInBulk(server, newPackageMap);
+            }
+        }
+        finally {
+            timer.observeDuration();
+        }
+    }
+
+    /**
+     * Updates a minion's packages via the Hibernate collection.
+     *
+     * @param server a Server object corresponding to a minion
+     * @param newPackageMap the packages reported by Salt, by key
+     */
+    private static void updatePackagesInCollection(MinionServer server,
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap) {
         Set<InstalledPackage> packages = server.getPackages();
 
         Map<String, InstalledPackage> oldPackageMap = packages.stream()
@@ -1217,25 +1281,10 @@ public class SaltUtils {
                     Function.identity()
              ));
 
-        Map<String, Map.Entry<String, Pkg.Info>> newPackageMap =
-            result.getInfoInstalled().getChanges().getRet()
-                .entrySet().stream()
-                .flatMap(entry ->
-                   entry.getValue().fold(Stream::of, Collection::stream)
-                        .flatMap(x -> {
-                           Map<String, Info> infoTuple = new HashMap<>();
-                           infoTuple.put(entry.getKey(), x);
-                           return infoTuple.entrySet().stream();
-                        })
-                )
-                .collect(Collectors.toMap(
-                        SaltUtils::packageToKey,
-                        Function.identity()
-                ));
-
         Collection<InstalledPackage> unchanged = oldPackageMap.entrySet().stream().filter(
             e -> newPackageMap.containsKey(e.getKey())
         ).map(Map.Entry::getValue).collect(Collectors.toList());
+        PACKAGE_PROFILE_UPDATE_CHANGES.labels("removed").inc(packages.size() - unchanged.size());
         packages.retainAll(unchanged);
 
         Collection<InstalledPackage> added = newPackageMap.entrySet().stream().filter(
@@ -1244,9 +1293,50 @@ public class SaltUtils {
            e -> createPackageFromSalt(e.getValue().getKey(), e.getValue().getValue(),
                    server)
         ).collect(Collectors.toList());
+        PACKAGE_PROFILE_UPDATE_CHANGES.labels("added").inc(added.size());
         packages.addAll(added);
     }
 
+    /**
+     * Updates a minion's packages by diffing them against the rows in the database and
+     * applying the difference with batched statements, without loading the Hibernate
+     * collection. Ids are only looked up for packages which were actually added.
+     *
+     * @param server a Server object corresponding to a minion
+     * @param newPackageMap the packages reported by Salt, by key
+     */
+    private static void updatePackagesInBulk(MinionServer server,
+            Map<String, Map.Entry<String, Pkg.Info>> newPackageMap) {
+        Set<String> oldKeys = new HashSet<>();
+        List<Map<String, Object>> removed = new ArrayList<>();
+        for (Map<String, Object> row : ServerFactory.listInstalledPackageRows(server.getId())) {
+            String key = packageToKey(row);
+            oldKeys.add(key);
+            if (!newPackageMap.containsKey(key)) {
+                Map<String, Object> ids = new HashMap<>();
+                ids.put("name_id", row.get("name_id"));
+                ids.put("evr_id", row.get("evr_id"));
+                ids.put("package_arch_id", Optional.ofNullable(row.get("package_arch_id")).orElse(-1L));
+                removed.add(ids);
+            }
+        }
+
+        List<Map<String, Object>> added = newPackageMap.entrySet().stream()
+            .filter(e -> !oldKeys.contains(e.getKey()))
+            .map(e -> createPackageRowFromSalt(e.getValue().getKey(), e.getValue().getValue()))
+            .collect(Collectors.toList());
+
+        ServerFactory.deleteInstalledPackages(server.getId(), removed);
+        ServerFactory.insertInstalledPackages(server.getId(), added);
+        PACKAGE_PROFILE_UPDATE_CHANGES.labels("removed").inc(removed.size());
+        PACKAGE_PROFILE_UPDATE_CHANGES.labels("added").inc(added.size());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Packages of minion " + server.getMinionId() + ": " + removed.size() +
+                    " removed, " + added.size() + " added, " + newPackageMap.size() + " total");
+        }
+    }
+
     /**
      * Returns a key string that uniquely identifies an installed package (as a
      * Hibernated object)
@@ -1306,6 +1396,31 @@ public class SaltUtils {
         return packageToKey(entry.getKey(), entry.getValue());
     }
 
+    /**
+     * Returns a key string that uniquely identifies an installed package (as
+     * returned by {@link ServerFactory#listInstalledPackageRows(Long)})
+     *
+     * @param row the package row
+     * @return the key
+     */
+    public static String packageToKey(Map<String, Object> row) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(row.get("name"));
+        sb.append("-");
+        sb.append(
+                new PackageEvr(
+                        (String) row.get("epoch"),
+                        (String) row.get("version"),
+                        (String) row.get("release")
+                ).toString()
+        );
+        sb.append(".");
+        sb.append(Optional.ofNullable(row.get("arch")).orElse("unknown"));
+
+        return sb.toString();
+    }
+
     /**
      * Update the hardware profile for a minion in the database from incoming
      * event data.
@@ -1379,6 +1494,28 @@ public class SaltUtils {
         return pkg;
     }
 
+    /**
+     * Create a row for {@link ServerFactory#insertInstalledPackages(Long, List)} from
+     * package name and info and return it.
+     *
+     * @param name package name from salt
+     * @param info package info from salt
+     * @return the row with name_id, evr_id, package_arch_id and installtime
+     */
+    private static Map<String, Object> createPackageRowFromSalt(String name, Pkg.Info info) {
+        String epoch = info.getEpoch().orElse(null);
+        String release = info.getRelease().orElse("0");
+        String version = info.getVersion().get();
+        PackageArch arch = PackageFactory.lookupPackageArchByLabel(info.getArchitecture().get());
+
+        Map<String, Object> row = new HashMap<>();
+        row.put("name_id", PackageFactory.lookupOrCreatePackageNameId(name));
+        row.put("evr_id", PackageEvrFactory.lookupOrCreatePackageEvr(epoch, version, release).getId());
+        row.put("package_arch_id", arch == null ? null : arch.getId());
+        row.put("installtime", new Timestamp(info.getInstallDateUnixTime().get() * 1000));
+        return row;
+    }
+
     private static ImagePackage createImagePackageFromSalt(
             String name, Pkg.Info info, ImageInfo imageInfo) {
         String epoch = info.getEpoch().orElse(null);
@@ -20,6 +20,7 @@ import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.channel.ChannelFactory;
 import com.redhat.rhn.domain.channel.Comps;
+import com.redhat.rhn.domain.channel.DownloadCaches;
 import com.redhat.rhn.domain.rhnpackage.Package;
 import com.redhat.rhn.domain.rhnpackage.PackageFactory;
 
@@ -31,6 +32,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpStatus;
 import org.jose4j.jwt.JwtClaims;
 import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
 import org.jose4j.jwt.consumer.InvalidJwtException;
 import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
@@ -41,6 +43,7 @@ import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.security.Key;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -176,15 +179,20 @@ public class DownloadController {
             validateToken(token, channel, basename);
         }
 
-        Package pkg = PackageFactory.lookupByChannelLabelNevra(
-                channel, name, version, release, null, arch);
-        if (pkg == null) {
-            halt(HttpStatus.SC_NOT_FOUND,
-                 String.format("%s not found in %s", basename, channel));
-        }
+        List<String> packageKey = Arrays.asList(channel, name, version, release, arch);
+        String pkgPath = DownloadCaches.PACKAGE_PATHS.get(packageKey).orElseGet(() -> {
+            Package pkg = PackageFactory.lookupByChannelLabelNevra(
+                    channel, name, version, release, null, arch);
+            if (pkg == null) {
+                halt(HttpStatus.SC_NOT_FOUND,
+                     String.format("%s not found in %s", basename, channel));
+            }
+            DownloadCaches.PACKAGE_PATHS.put(packageKey, pkg.getPath());
+            return pkg.getPath();
+        });
 
         File file = new File(Config.get().getString(ConfigDefaults.MOUNT_POINT),
-                pkg.getPath()).getAbsoluteFile();
+                pkgPath).getAbsoluteFile();
 
         return downloadFile(request, response, file);
     }
@@ -222,6 +230,10 @@ public class DownloadController {
      * @param filename the filename
      */
     private static void validateToken(String token, String channel, String filename) {
+        List<String> tokenKey = Arrays.asList(token, channel);
+        if (DownloadCaches.VALIDATED_TOKENS.get(tokenKey).isPresent()) {
+            return;
+        }
         AccessTokenFactory.lookupByToken(token).ifPresent(obj -> {
             if (!obj.getValid()) {
                 halt(HttpStatus.SC_FORBIDDEN, "This token is not valid");
@@ -247,6 +259,11 @@ public class DownloadController {
                     halt(HttpStatus.SC_FORBIDDEN, "Token does not provide access to channel %s" + channel);
                 }
             });
+
+            // never keep a token longer than it is valid
+            NumericDate expiration = claims.getExpirationTime();
+            DownloadCaches.VALIDATED_TOKENS.put(tokenKey, true,
+                    expiration != null ? expiration.getValueInMillis() : Long.MAX_VALUE);
         }
         catch (InvalidJwtException | MalformedClaimException e) {
             halt(HttpStatus.SC_FORBIDDEN,
@@ -33,6 +33,7 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -118,7 +119,7 @@ public class NotificationMessageController {
                     }
                 });
 
-        Notification.spreadUpdate();
+        Notification.spreadUpdate(Collections.singleton(user.getId()));
 
         Map<String, String> data = new HashMap<>();
         data.put("severity", "success");
@@ -155,7 +156,7 @@ public class NotificationMessageController {
             }
         });
 
-        Notification.spreadUpdate();
+        Notification.spreadUpdate(Collections.singleton(user.getId()));
 
         Map<String, String> data = new HashMap<>();
         data.put("severity", "success");
@@ -32,19 +32,21 @@ import com.redhat.rhn.domain.channel.AccessTokenFactory;
 import com.redhat.rhn.domain.channel.Channel;
 import com.redhat.rhn.domain.config.ConfigChannel;
 import com.redhat.rhn.domain.org.Org;
-import com.redhat.rhn.domain.server.ManagedServerGroup;
 import com.redhat.rhn.domain.server.MinionServer;
 import com.redhat.rhn.domain.server.MinionServerFactory;
 import com.redhat.rhn.domain.server.Server;
 import com.redhat.rhn.domain.server.ServerGroup;
 import com.redhat.rhn.domain.server.ServerGroupFactory;
 import com.redhat.rhn.domain.server.ServerPath;
+import com.redhat.rhn.domain.server.VirtualInstanceFactory;
 import com.redhat.rhn.domain.state.OrgStateRevision;
 import com.redhat.rhn.domain.state.ServerGroupStateRevision;
 import com.redhat.rhn.domain.state.ServerStateRevision;
 import com.redhat.rhn.domain.state.StateFactory;
 import com.redhat.rhn.domain.state.StateRevision;
 import com.redhat.rhn.domain.user.User;
+import com.redhat.rhn.manager.entitlement.EntitlementManager;
+import com.suse.manager.metrics.PrometheusExporter;
 import com.suse.manager.utils.MachinePasswordUtils;
 import com.suse.manager.webui.controllers.StatesAPI;
 import com.suse.manager.webui.utils.SaltConfigChannelState;
@@ -52,22 +54,27 @@ import com.suse.manager.webui.utils.SaltPillar;
 import com.suse.manager.webui.utils.SaltStateGenerator;
 import com.suse.manager.webui.utils.salt.custom.OSImageInspectSlsResult;
 
+import io.prometheus.client.Counter;
 import org.apache.log4j.Logger;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Service to manage the Salt states generated by Suse Manager.
@@ -99,6 +106,16 @@ public enum SaltStateGeneratorService {
     /** Logger */
     private static final Logger LOG = Logger.getLogger(SaltStateGeneratorService.class);
 
+    private static final Counter PILLAR_FILES = Counter.build()
+            .name("salt_pillar_files_total")
+            .help("Minion pillar files generated, written or skipped as unchanged")
+            .labelNames("result")
+            .create();
+
+    static {
+        PrometheusExporter.INSTANCE.registerCollector(PILLAR_FILES);
+    }
+
     private Path suseManagerStatesFilesRoot;
 
     private Path pillarDataPath;
@@ -131,19 +148,91 @@ public enum SaltStateGeneratorService {
             AccessTokenFactory.refreshTokens(minion, tokensToActivate);
         }
 
-        List<ManagedServerGroup> groups = ServerGroupFactory.listManagedGroups(minion);
-        List<String> addonGroupTypes =
-                ServerGroupFactory.listEntitlementGroups(minion).stream().flatMap(group -> {
-                    if (group.getGroupType() != null) {
-                        return Stream.of(group.getGroupType().getLabel());
-                    }
-                    else {
-                        return Stream.empty();
-                    }
-                }).collect(Collectors.toList());
+        List<ServerGroup> groups = new ArrayList<>(ServerGroupFactory.listManagedGroups(minion));
+        groups.addAll(ServerGroupFactory.listEntitlementGroups(minion));
+        SaltPillar pillar = createPillar(minion, groups, minion.isVirtualHost());
+
+        try {
+            Files.createDirectories(pillarDataPath);
+            writePillarIfChanged(pillar, pillarDataPath.resolve(getServerPillarFileName(minion)));
+        }
+        catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Generate the pillars of many minions at once. The data of all minions is loaded
+     * with a few queries, the pillars are rendered in parallel and only the files whose
+     * content changed are written.
+     * @param minionsIn the minions
+     * @return the number of pillar files written
+     */
+    public int generatePillars(Collection<MinionServer> minionsIn) {
+        if (minionsIn.isEmpty()) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        List<Long> ids = minionsIn.stream().map(MinionServer::getId).distinct()
+                .collect(Collectors.toList());
+        List<MinionServer> minions = MinionServerFactory.lookupByIdsWithAccessTokens(ids);
+        Map<Long, List<ServerGroup>> groups = ServerGroupFactory.listServerGroups(ids);
+        Set<Long> virtualHosts = VirtualInstanceFactory.getInstance().listHostSystemIds(ids);
+
+        // Hibernate entities are not thread safe, only rendering and writing is parallel
+        Map<Path, SaltPillar> pillars = new HashMap<>();
+        for (MinionServer minion : minions) {
+            List<ServerGroup> minionGroups =
+                    groups.getOrDefault(minion.getId(), Collections.emptyList());
+            boolean virtualHost = virtualHosts.contains(minion.getId()) ||
+                    minionGroups.stream().anyMatch(group -> group.getGroupType() != null &&
+                            group.getGroupType().getLabel()
+                                    .equals(EntitlementManager.VIRTUALIZATION.getLabel()));
+            pillars.put(pillarDataPath.resolve(getServerPillarFileName(minion)),
+                    createPillar(minion, minionGroups, virtualHost));
+        }
+        long loaded = System.currentTimeMillis();
+
+        try {
+            Files.createDirectories(pillarDataPath);
+        }
+        catch (IOException e) {
+            LOG.error(e.getMessage(), e);
+            return 0;
+        }
+        int written = (int) pillars.entrySet().parallelStream().filter(entry -> {
+            try {
+                return writePillarIfChanged(entry.getValue(), entry.getKey());
+            }
+            catch (IOException e) {
+                LOG.error(e.getMessage(), e);
+                return false;
+            }
+        }).count();
+
+        LOG.info(String.format("Generated %d pillar files in %d ms (loading %d ms), " +
+                "%d written, %d unchanged", pillars.size(), System.currentTimeMillis() - start,
+                loaded - start, written, pillars.size() - written));
+        return written;
+    }
 
+    /**
+     * Create the pillar of a minion.
+     * @param minion the minion
+     * @param groups the managed and entitlement server groups of the minion
+     * @param virtualHost true if the minion is a virtual host
+     * @return the pillar
+     */
+    private SaltPillar createPillar(MinionServer minion, List<ServerGroup> groups,
+            boolean virtualHost) {
         List<Long> groupIds = groups.stream()
-                .map(ServerGroup::getId).collect(Collectors.toList());
+                .filter(group -> group.getGroupType() == null)
+                .map(ServerGroup::getId).sorted().collect(Collectors.toList());
+        List<String> addonGroupTypes = groups.stream()
+                .filter(group -> group.getGroupType() != null)
+                .map(group -> group.getGroupType().getLabel())
+                .sorted().collect(Collectors.toList());
+
         SaltPillar pillar = new SaltPillar();
         pillar.add("org_id", minion.getOrg().getId());
         pillar.add("group_ids", groupIds.toArray(new Long[groupIds.size()]));
@@ -153,7 +242,8 @@ public enum SaltStateGeneratorService {
         pillar.add("mgr_server", getChannelHost(minion));
         pillar.add("machine_password", MachinePasswordUtils.machinePassword(minion));
 
-        Map<String, Object> chanPillar = new HashMap<>();
+        // sorted so that unchanged pillars render to the same content
+        Map<String, Object> chanPillar = new TreeMap<>();
         minion.getAccessTokens().stream().filter(AccessToken::getValid).forEach(accessToken -> {
             accessToken.getChannels().forEach(chan -> {
                 Map<String, Object> chanProps = getChannelPillarData(minion, accessToken, chan);
@@ -173,25 +263,36 @@ public enum SaltStateGeneratorService {
         // this add the configuration for the beacon that tell us about
         // virtual guests running on that minion
         // TODO: find a better way to detect when the beacon should be configured
-        if (minion.isVirtualHost()) {
+        if (virtualHost) {
             beaconConfig.put("virtpoller", VIRTPOLLER_BEACON_PROPS);
         }
         if (!beaconConfig.isEmpty()) {
             pillar.add("beacons", beaconConfig);
         }
+        return pillar;
+    }
 
-        try {
-            Files.createDirectories(pillarDataPath);
-            Path filePath = pillarDataPath.resolve(
-                    getServerPillarFileName(minion)
-            );
-            com.suse.manager.webui.utils.SaltStateGenerator saltStateGenerator =
-                    new com.suse.manager.webui.utils.SaltStateGenerator(filePath.toFile());
-            saltStateGenerator.generate(pillar);
-        }
-        catch (IOException e) {
-            LOG.error(e.getMessage(), e);
+    /**
+     * Write a pillar file unless it already exists with the same content, so that Salt
+     * does not have to reload unchanged pillars.
+     * @param pillar the pillar
+     * @param filePath the pillar file
+     * @return true if the file was written
+     * @throws IOException if the file cannot be read or written
+     */
+    private boolean writePillarIfChanged(SaltPillar pillar, Path filePath) throws IOException {
+        StringWriter out = new StringWriter();
+        new SaltStateGenerator(out).generate(pillar);
+        byte[] content = out.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (Files.exists(filePath) && Files.size(filePath) == content.length &&
+                Arrays.equals(content, Files.readAllBytes(filePath))) {
+            PILLAR_FILES.labels("skipped").inc();
+            return false;
         }
+        Files.write(filePath, content);
+        PILLAR_FILES.labels("written").inc();
+        return true;
     }
 
     /**
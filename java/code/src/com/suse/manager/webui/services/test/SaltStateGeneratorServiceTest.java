@@ -204,6 +204,42 @@ public class SaltStateGeneratorServiceTest extends BaseTestCaseWithUser {
         assertEquals("0", (String) values.get("pkg_gpgcheck"));
     }
 
+    /**
+     * Test that generating pillars in bulk renders the same content as generating them
+     * one by one, and only writes the files whose content changed.
+     *
+     * @throws Exception - if anything goes wrong
+     */
+    public void testGeneratePillars() throws Exception {
+        MinionServer minion1 = MinionServerFactoryTest.createTestMinionServer(user);
+        minion1.addChannel(ChannelTestUtils.createBaseChannel(user));
+        ServerFactory.save(minion1);
+        MinionServer minion2 = MinionServerFactoryTest.createTestMinionServer(user);
+        minion2.addChannel(ChannelTestUtils.createBaseChannel(user));
+        ServerFactory.save(minion2);
+
+        SaltStateGeneratorService.INSTANCE.generatePillar(minion1);
+        SaltStateGeneratorService.INSTANCE.generatePillar(minion2);
+        Path filePath1 = tmpPillarRoot.resolve(
+                PILLAR_DATA_FILE_PREFIX + "_" + minion1.getMinionId() + "." + PILLAR_DATA_FILE_EXT);
+        Path filePath2 = tmpPillarRoot.resolve(
+                PILLAR_DATA_FILE_PREFIX + "_" + minion2.getMinionId() + "." + PILLAR_DATA_FILE_EXT);
+        byte[] content1 = Files.readAllBytes(filePath1);
+        HibernateFactory.getSession().flush();
+
+        // same content as the files generated one by one
+        assertEquals(0, SaltStateGeneratorService.INSTANCE.generatePillars(
+                Arrays.asList(minion1, minion2)));
+        assertTrue(Arrays.equals(content1, Files.readAllBytes(filePath1)));
+
+        // a missing pillar file is written again
+        Files.delete(filePath2);
+        assertEquals(1, SaltStateGeneratorService.INSTANCE.generatePillars(
+                Arrays.asList(minion1, minion2)));
+        assertTrue(Files.exists(filePath2));
+        assertTrue(Arrays.equals(content1, Files.readAllBytes(filePath1)));
+    }
+
     /**
      * Test that the "host" attribute of the channel of the minion connected to a proxy
      * is populated with the proxy hostname.
@@ -16,8 +16,6 @@ package com.suse.manager.webui.utils;
 
 
 import static com.suse.utils.Opt.flatMap;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toMap;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -28,6 +26,7 @@ import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
 import com.redhat.rhn.common.util.FileUtils;
 import com.redhat.rhn.common.conf.ConfigDefaults;
+import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.action.ActionFactory;
 import com.redhat.rhn.domain.action.server.ServerAction;
 import com.redhat.rhn.domain.server.MinionServer;
@@ -47,19 +46,20 @@ import com.suse.utils.Json;
 import org.apache.log4j.Logger;
 
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Utilities for minion actions
@@ -96,31 +96,39 @@ public class MinionActionUtils {
                         .orElse(false);
     }
 
+    /**
+     * Returns the ids of the actions a minion is currently running, as found in the
+     * metadata of its running jobs.
+     *
+     * @param running list of running jobs on the minion
+     * @return the action ids
+     */
+    public static Set<Long> runningActionIds(List<SaltUtil.RunningInfo> running) {
+        return running.stream()
+                .map(r -> r.getMetadata(JsonElement.class).flatMap(EXTRACT_ACTION_ID))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Checks the current status of the ServerAction by looking
      * at running jobs on the minion and the job cache using the
      * action id we add to the job as metadata.
      *
-     * @param salt the salt service to use
      * @param sa ServerAction to update
      * @param server MinionServer of this ServerAction
-     * @param running list of running jobs on the MinionServer
-     * @param infoMap map from actionIds to Salt job information objects
+     * @param runningActionIds ids of the actions running on the MinionServer
+     * @param jobInfo function returning the Salt job information for an action id,
+     * only called for actions which are not running
      * @return the updated ServerAction
      */
-    public static ServerAction updateMinionActionStatus(SaltService salt, ServerAction sa,
-            MinionServer server, List<SaltUtil.RunningInfo> running,
-            Map<Long, Optional<Info>> infoMap) {
+    public static ServerAction updateMinionActionStatus(ServerAction sa,
+            MinionServer server, Set<Long> runningActionIds,
+            Function<Long, Optional<Info>> jobInfo) {
         long actionId = sa.getParentAction().getId();
-        boolean actionIsRunning = running.stream().filter(r ->
-                r.getMetadata(JsonElement.class)
-                        .flatMap(EXTRACT_ACTION_ID)
-                        .filter(id -> id == actionId)
-                        .isPresent()
-        ).findFirst().isPresent();
-
-        if (!actionIsRunning) {
-            ServerAction serverAction = infoMap.get(actionId)
+        if (!runningActionIds.contains(actionId)) {
+            ServerAction serverAction = jobInfo.apply(actionId)
                     .map(info -> {
                         Optional<JsonElement> result = info
                                 .getResult(server.getMinionId(), JsonElement.class);
@@ -176,58 +184,64 @@ public class MinionActionUtils {
     /**
      * Cleanup all minion actions for which we missed the JobReturnEvent
      *
+     * Pending server actions are grouped by minion. Running jobs are queried once per
+     * batch of minions and the job of an action is looked up at most once, only if
+     * it is not running on some minion. Status changes are flushed once per batch.
+     *
      * @param salt the salt service to use
      */
     public static void cleanupMinionActions(SaltService salt) {
-        ZonedDateTime now = ZonedDateTime.now();
-        // Select only ServerActions that are for minions and where the Action
-        // should already be executed or running
-        List<ServerAction> serverActions =
-            ActionFactory.pendingMinionServerActions().stream().flatMap(a -> {
-                    if (a.getEarliestAction().toInstant()
-                            .atZone(ZoneId.systemDefault())
-                            .isBefore(now.minus(5, ChronoUnit.MINUTES))) {
-                        return a.getServerActions()
-                                .stream()
-                                .filter(sa -> sa.getServer().asMinionServer().isPresent() &&
-                                        // Do not clean up SSH push tasks
-                                        sa.getServer().getContactMethod().getLabel()
-                                        .equals("default"));
-                    }
-                    else {
-                        return Stream.empty();
+        long start = System.currentTimeMillis();
+        // Select only ServerActions where the Action should already be executed or running
+        Date earliestBefore = Date.from(ZonedDateTime.now()
+                .minus(5, ChronoUnit.MINUTES).toInstant());
+        Map<String, List<ServerAction>> serverActionsByMinion =
+                ActionFactory.pendingMinionServerActions(earliestBefore).stream()
+                .collect(Collectors.groupingBy(
+                        sa -> sa.getServer().asMinionServer().get().getMinionId(),
+                        LinkedHashMap::new, Collectors.toList()));
+
+        Map<Long, Optional<Info>> infoMap = new HashMap<>();
+        Function<Long, Optional<Info>> jobInfo =
+                actionId -> infoMap.computeIfAbsent(actionId, id -> infoForActionId(salt, id));
+
+        List<String> minionIds = new ArrayList<>(serverActionsByMinion.keySet());
+        int batchSize = ConfigDefaults.get().getMinionActionCleanupBatchSize();
+        int runningQueries = 0;
+        int checked = 0;
+        for (int i = 0; i < minionIds.size(); i += batchSize) {
+            List<String> batch = minionIds.subList(i, Math.min(i + batchSize, minionIds.size()));
+            Map<String, Result<List<SaltUtil.RunningInfo>>> running =
+                    salt.running(new MinionList(batch));
+            runningQueries++;
+
+            for (String minionId : batch) {
+                Optional<Set<Long>> runningActionIds =
+                        Optional.ofNullable(running.get(minionId)).flatMap(r -> r.fold(
+                                error -> {
+                                    LOG.error(error.toString());
+                                    return Optional.<Set<Long>>empty();
+                                },
+                                runningInfos -> Optional.of(runningActionIds(runningInfos))));
+                if (runningActionIds.isPresent()) {
+                    for (ServerAction sa : serverActionsByMinion.get(minionId)) {
+                        ActionFactory.save(updateMinionActionStatus(sa,
+                                sa.getServer().asMinionServer().get(),
+                                runningActionIds.get(), jobInfo));
+                        checked++;
                     }
                 }
-            ).collect(Collectors.toList());
-
-        List<String> minionIds = serverActions.stream().flatMap(sa ->
-                sa.getServer().asMinionServer()
-                        .map(MinionServer::getMinionId)
-                        .map(Stream::of)
-                        .orElseGet(Stream::empty)
-        ).collect(Collectors.toList());
-
-        Map<String, Result<List<SaltUtil.RunningInfo>>> running =
-                salt.running(new MinionList(minionIds));
-
-        Map<Long, Optional<Jobs.Info>> infoMap = serverActions.stream()
-          .map(sa -> sa.getParentAction().getId())
-          .distinct()
-          .collect(toMap(identity(), id -> infoForActionId(salt, id)));
-
-        serverActions.forEach(sa ->
-                sa.getServer().asMinionServer().ifPresent(minion -> {
-                    Optional.ofNullable(running.get(minion.getMinionId())).ifPresent(r -> {
-                        r.consume(error -> {
-                            LOG.error(error.toString());
-                        },
-                        runningInfos -> {
-                            ActionFactory.save(updateMinionActionStatus(
-                                    salt, sa, minion, runningInfos, infoMap));
-                        });
-                    });
-                })
-        );
+            }
+            HibernateFactory.getSession().flush();
+        }
+
+        long duration = System.currentTimeMillis() - start;
+        if (checked > 0) {
+            LOG.info("Reconciled " + checked + " pending actions of " + minionIds.size() +
+                    " minions in " + duration + " ms (" + (checked * 1000L / Math.max(duration, 1)) +
+                    " actions/s), using " + runningQueries + " running jobs queries and " +
+                    infoMap.size() + " job lookups");
+        }
     }
 
     /**
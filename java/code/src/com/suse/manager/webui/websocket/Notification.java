@@ -14,10 +14,12 @@
  */
 package com.suse.manager.webui.websocket;
 
+import com.redhat.rhn.common.conf.ConfigDefaults;
 import com.redhat.rhn.common.hibernate.HibernateFactory;
 import com.redhat.rhn.domain.notification.UserNotificationFactory;
 
 import com.redhat.rhn.domain.user.User;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.log4j.Logger;
 
 import javax.websocket.OnOpen;
@@ -29,18 +31,22 @@ import javax.websocket.EndpointConfig;
 import javax.websocket.server.ServerEndpoint;
 import java.io.EOFException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * WebSocket EndPoint for showing notifications real-time in web UI.
  * NOTE: there's an EndPoint instance for each WebSocket session
+ *
+ * Unread counts are pushed when notifications are created, read or deleted, counting once
+ * per user for all of their sessions. Notifications changed by other processes, like
+ * Taskomatic, are picked up by a periodic refresh which only pushes changed counts.
  */
 @ServerEndpoint(value = "/websocket/notifications", configurator = WebsocketSessionConfigurator.class)
 public class Notification {
@@ -48,9 +54,10 @@ public class Notification {
     // Logger for this class
     private static final Logger LOG = Logger.getLogger(Notification.class);
 
-    private static final Object LOCK = new Object();
-    private static Map<Session, User> wsSessions = new HashMap<>();
-    private static Set<Session> brokenSessions = new HashSet<>();
+    private static Map<Session, Client> wsSessions = new ConcurrentHashMap<>();
+    private static Set<Session> brokenSessions = ConcurrentHashMap.newKeySet();
+    // last unread count pushed per user id
+    private static Map<Long, Long> pushedCounts = new ConcurrentHashMap<>();
 
     /**
      * Callback executed when the WebSocket is opened.
@@ -123,73 +130,88 @@ public class Notification {
     }
 
     /**
-     * Must be synchronized. Sending messages concurrently from separate threads
-     * will result in IllegalStateException.
+     * Queues a message to be sent asynchronously. Only one message is in flight per session,
+     * messages queued in the meantime are replaced by newer ones, as only the latest count
+     * matters.
      *
      * @param session the WebSocket session
      * @param message the message to be sent
      */
     public static void sendMessage(Session session, String message) {
-        synchronized (session) {
-            try {
-                if (session.isOpen()) {
-                    session.getBasicRemote().sendText(message);
-                }
-                else {
-                    LOG.debug(String.format("Could not send websocket message. Session [id:%s] is already closed.",
-                            session.getId()));
-                    handbreakSession(session);
-                }
-            }
-            catch (IOException e) {
-                LOG.debug(String.format("Could not send websocket message. Session [id:%s] is already closed.",
-                        session.getId()));
-                handbreakSession(session);
-            }
+        Client client = wsSessions.get(session);
+        if (client != null) {
+            client.send(message);
+        }
+        else {
+            LOG.debug(String.format("Could not send websocket message. Session [id:%s] is not registered.",
+                    session.getId()));
         }
     }
 
     /**
-     * A static method to notify all {@link Session}s attached to WebSocket from the outside
-     * Must be synchronized. Sending messages concurrently from separate threads
-     * will result in IllegalStateException.
+     * A static method to notify the {@link Session}s of some users attached to WebSocket
+     * from the outside, to be called when notifications of these users changed.
+     *
+     * @param userIds the ids of the users whose notifications changed
      */
-    public static void spreadUpdate() {
-        synchronized (LOCK) {
-            // if there are unread messages, notify it to all attached WebSocket sessions
-            wsSessions.forEach((session, user) -> {
-                sendMessage(session, String.valueOf(UserNotificationFactory.unreadUserNotificationsSize(user)));
-            });
+    public static void spreadUpdate(Collection<Long> userIds) {
+        Set<Long> connected = connectedUserIds();
+        pushCounts(userIds.stream().filter(connected::contains).collect(Collectors.toSet()), false);
+    }
+
+    /**
+     * Counts unread notifications once per user and sends them to all sessions of the users.
+     *
+     * @param userIds ids of the users to update
+     * @param onlyChanged true to skip users whose count did not change since the last push
+     */
+    private static void pushCounts(Set<Long> userIds, boolean onlyChanged) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> counts = UserNotificationFactory.unreadUserNotificationsSizes(userIds);
+        if (onlyChanged) {
+            counts.entrySet().removeIf(e -> e.getValue().equals(pushedCounts.get(e.getKey())));
         }
+        pushedCounts.putAll(counts);
+        wsSessions.values().forEach(client -> {
+            Long count = counts.get(client.userId);
+            if (count != null) {
+                client.send(String.valueOf(count));
+            }
+        });
+    }
+
+    private static Set<Long> connectedUserIds() {
+        return wsSessions.values().stream().map(client -> client.userId).collect(Collectors.toSet());
     }
 
     /**
      * A static method to clean up all invalid sessions
      */
     public static void clearBrokenSessions() {
-        synchronized (LOCK) {
-            // look for closed sessions in the valid set
-            wsSessions.forEach((s, u) -> {
-                if (!s.isOpen()) {
-                    brokenSessions.add(s);
-                }
-            });
+        // look for closed sessions in the valid set
+        wsSessions.keySet().forEach(s -> {
+            if (!s.isOpen()) {
+                brokenSessions.add(s);
+            }
+        });
 
-            // remove any invalid/broken session from the valid set
-            // try to close it if it is still open
-            brokenSessions.forEach(session -> {
-                wsSessions.remove(session);
-                if (session.isOpen()) {
-                    try {
-                        session.close();
-                    }
-                    catch (IOException e) {
-                        LOG.error("Error trying to close the session manually", e);
-                    }
+        // remove any invalid/broken session from the valid set
+        // try to close it if it is still open
+        brokenSessions.forEach(session -> {
+            brokenSessions.remove(session);
+            wsSessions.remove(session);
+            if (session.isOpen()) {
+                try {
+                    session.close();
                 }
-            });
-            brokenSessions.clear();
-        }
+                catch (IOException e) {
+                    LOG.error("Error trying to close the session manually", e);
+                }
+            }
+        });
+        pushedCounts.keySet().retainAll(connectedUserIds());
     }
 
     /**
@@ -197,9 +219,7 @@ public class Notification {
      * @param session the session to add
      */
     private static void handshakeSession(User user, Session session) {
-        synchronized (LOCK) {
-            wsSessions.put(session, user);
-        }
+        wsSessions.put(session, new Client(session, user.getId()));
     }
 
     /**
@@ -207,27 +227,107 @@ public class Notification {
      * @param session the session to remove
      */
     private static void handbreakSession(Session session) {
-        synchronized (LOCK) {
-            brokenSessions.add(session);
+        brokenSessions.add(session);
+    }
+
+    /**
+     * A WebSocket session with its send queue.
+     */
+    private static class Client {
+
+        private final Session session;
+        private final Long userId;
+        private boolean sending;
+        private String pending;
+
+        Client(Session sessionIn, Long userIdIn) {
+            session = sessionIn;
+            userId = userIdIn;
+        }
+
+        /**
+         * Sends a message, or queues it if another one is being sent. Sending messages
+         * concurrently on one session will result in IllegalStateException.
+         * @param message the message
+         */
+        void send(String message) {
+            synchronized (this) {
+                if (sending) {
+                    pending = message;
+                    return;
+                }
+                sending = true;
+            }
+            sendAsync(message);
+        }
+
+        private void sendAsync(String message) {
+            try {
+                if (session.isOpen()) {
+                    session.getAsyncRemote().sendText(message, result -> {
+                        if (!result.isOK()) {
+                            LOG.debug(String.format("Could not send websocket message to session [id:%s].",
+                                    session.getId()), result.getException());
+                            handbreakSession(session);
+                        }
+                        sendNext();
+                    });
+                    return;
+                }
+                LOG.debug(String.format("Could not send websocket message. Session [id:%s] is already closed.",
+                        session.getId()));
+            }
+            catch (IllegalStateException e) {
+                LOG.debug(String.format("Could not send websocket message to session [id:%s].",
+                        session.getId()), e);
+            }
+            handbreakSession(session);
+            synchronized (this) {
+                sending = false;
+                pending = null;
+            }
+        }
+
+        private void sendNext() {
+            String next;
+            synchronized (this) {
+                next = pending;
+                pending = null;
+                sending = next != null;
+            }
+            if (next != null) {
+                sendAsync(next);
+            }
         }
     }
 
     private static ScheduledExecutorService scheduledExecutorService;
     static {
-        scheduledExecutorService = Executors.newScheduledThreadPool(1);
-        ScheduledFuture scheduledFuture = scheduledExecutorService.scheduleWithFixedDelay(() -> {
+        scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder()
+                .namingPattern("notification-websocket-%d")
+                .daemon(true)
+                .build());
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
             try {
                 clearBrokenSessions();
-                spreadUpdate();
             }
             catch (Exception e) {
                 LOG.error("Notification scheduledExecutorService exception", e);
-                // clear WebSocket connections
-                clearBrokenSessions();
+            }
+        }, 30, 30, TimeUnit.SECONDS);
+
+        // notifications created or deleted by other processes are not pushed
+        int refreshInterval = ConfigDefaults.get().getNotificationsRefreshInterval();
+        scheduledExecutorService.scheduleWithFixedDelay(() -> {
+            try {
+                pushCounts(connectedUserIds(), true);
+            }
+            catch (Exception e) {
+                LOG.error("Notification scheduledExecutorService exception", e);
             }
             finally {
                 HibernateFactory.closeSession();
             }
-        }, 30, 30, TimeUnit.SECONDS);
+        }, refreshInterval, refreshInterval, TimeUnit.SECONDS);
     }
 }
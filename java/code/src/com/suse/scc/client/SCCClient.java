@@ -67,4 +67,16 @@ public interface SCCClient {
      */
     List<SCCOrder> listOrders() throws SCCClientException;
 
+    /**
+     * Tells whether a list returned by this client is known to hold the same data as the
+     * one returned for the same request last time, because SCC reported all of its pages
+     * as not modified.
+     *
+     * @param result a list returned by this client
+     * @return true if the data is unchanged, false if it changed or is not known
+     */
+    default boolean isUnchanged(List<?> result) {
+        return false;
+    }
+
 }
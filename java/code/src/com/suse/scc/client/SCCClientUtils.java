@@ -99,35 +99,47 @@ public class SCCClientUtils {
             throw e;
         }
 
+        File logFile = getSharedFile(logDir, getLogFilename(requestUri, user));
+
+        OutputStream fileOutputStream = new FileOutputStream(logFile);
+        TeeInputStream tis = new TeeInputStream(inputStream, fileOutputStream);
+
+        Reader inputStreamReader = new InputStreamReader(tis);
+        return new BufferedReader(inputStreamReader);
+    }
+
+    /**
+     * Returns a file in a directory, creating both if needed. Files and directories created
+     * by root are handed over to tomcat, as both Tomcat and Taskomatic talk to SCC.
+     * @param dir the directory
+     * @param filename the file name
+     * @return the file
+     * @throws IOException if the file or the directory cannot be created
+     */
+    public static File getSharedFile(String dir, String filename) throws IOException {
         FileSystem fileSystem = FileSystems.getDefault();
         UserPrincipalLookupService service = fileSystem.getUserPrincipalLookupService();
         UserPrincipal tomcatUser = service.lookupPrincipalByName("tomcat");
         UserPrincipal rootUser = service.lookupPrincipalByName("root");
 
-        File logDirFile = new File(logDir);
-        if (!logDirFile.exists()) {
-            FileUtils.forceMkdir(logDirFile);
-            Path logDirPath = logDirFile.toPath();
-            if (Files.getOwner(logDirPath, LinkOption.NOFOLLOW_LINKS).equals(rootUser)) {
-                Files.setOwner(logDirPath, tomcatUser);
+        File dirFile = new File(dir);
+        if (!dirFile.exists()) {
+            FileUtils.forceMkdir(dirFile);
+            Path dirPath = dirFile.toPath();
+            if (Files.getOwner(dirPath, LinkOption.NOFOLLOW_LINKS).equals(rootUser)) {
+                Files.setOwner(dirPath, tomcatUser);
             }
         }
 
-        String logFilename = getLogFilename(requestUri, user);
-        File logFile = new File(logDir + File.separator + logFilename);
-        if (!logFile.exists()) {
-            FileUtils.touch(logFile);
+        File file = new File(dir + File.separator + filename);
+        if (!file.exists()) {
+            FileUtils.touch(file);
         }
-        Path logPath = logFile.toPath();
-        if (Files.getOwner(logPath, LinkOption.NOFOLLOW_LINKS).equals(rootUser)) {
-            Files.setOwner(logPath, tomcatUser);
+        Path path = file.toPath();
+        if (Files.getOwner(path, LinkOption.NOFOLLOW_LINKS).equals(rootUser)) {
+            Files.setOwner(path, tomcatUser);
         }
-
-        OutputStream fileOutputStream = new FileOutputStream(logFile);
-        TeeInputStream tis = new TeeInputStream(inputStream, fileOutputStream);
-
-        Reader inputStreamReader = new InputStreamReader(tis);
-        return new BufferedReader(inputStreamReader);
+        return file;
     }
 
     /**
@@ -39,6 +39,9 @@ public class SCCConfig {
     /** Default directory where to save logging files. */
     public static final String DEFAULT_LOGGING_DIR = "/var/lib/spacewalk/scc/scc-data/";
 
+    /** Default directory where to cache responses for conditional requests. */
+    public static final String DEFAULT_CACHE_DIR = "/var/lib/spacewalk/scc/scc-cache/";
+
     /** The url. */
     private URI url;
 
@@ -57,6 +60,9 @@ public class SCCConfig {
     /** Path to the logging directory. */
     private String loggingDir;
 
+    /** Path to the response cache directory, null to disable conditional requests. */
+    private String cacheDir;
+
     /**
      * Instantiates a new SCC config to read from a local file and default
      * logging directory.
@@ -74,11 +80,12 @@ public class SCCConfig {
      * @param uuidIn the UUID
      */
     public SCCConfig(URI urlIn, String usernameIn, String passwordIn, String uuidIn) {
-        this(urlIn, usernameIn, passwordIn, uuidIn, null, DEFAULT_LOGGING_DIR);
+        this(urlIn, usernameIn, passwordIn, uuidIn, null, DEFAULT_LOGGING_DIR,
+                DEFAULT_CACHE_DIR);
     }
 
     /**
-     * Full constructor.
+     * Instantiates a new SCC config without response cache.
      * @param urlIn the url
      * @param usernameIn the username
      * @param passwordIn the password
@@ -88,12 +95,28 @@ public class SCCConfig {
      */
     public SCCConfig(URI urlIn, String usernameIn, String passwordIn, String uuidIn,
             String localResourcePathIn, String loggingDirIn) {
+        this(urlIn, usernameIn, passwordIn, uuidIn, localResourcePathIn, loggingDirIn, null);
+    }
+
+    /**
+     * Full constructor.
+     * @param urlIn the url
+     * @param usernameIn the username
+     * @param passwordIn the password
+     * @param uuidIn the UUID
+     * @param localResourcePathIn the local resource path
+     * @param loggingDirIn the logging dir
+     * @param cacheDirIn the response cache dir, null to disable conditional requests
+     */
+    public SCCConfig(URI urlIn, String usernameIn, String passwordIn, String uuidIn,
+            String localResourcePathIn, String loggingDirIn, String cacheDirIn) {
         url = urlIn;
         username = usernameIn;
         password = passwordIn;
         uuid = uuidIn;
         localResourcePath = localResourcePathIn;
         loggingDir = loggingDirIn;
+        cacheDir = cacheDirIn;
     }
 
     /**
@@ -143,4 +166,12 @@ public class SCCConfig {
     public String getLoggingDir() {
         return loggingDir;
     }
+
+    /**
+     * Gets the response cache dir.
+     * @return the response cache dir, null if conditional requests are disabled
+     */
+    public String getCacheDir() {
+        return cacheDir;
+    }
 }
@@ -24,33 +24,85 @@ import com.suse.scc.model.SCCOrder;
 import com.suse.scc.model.SCCProduct;
 import com.suse.scc.model.SCCSubscription;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.log4j.Logger;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.lang.reflect.Type;
 import java.net.NoRouteToHostException;
-import java.util.LinkedList;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Class representation of a connection to SCC for issuing API requests.
+ *
+ * Paginated results are fetched concurrently when SCC announces the last page. If a cache
+ * directory is configured, responses are cached together with their ETag and Last-Modified
+ * headers, and requested conditionally the next time, so unchanged pages are not downloaded
+ * again.
  */
 public class SCCWebClient implements SCCClient {
 
+    /** The log. */
+    private static final Logger LOG = Logger.getLogger(SCCWebClient.class);
+
+    /** Maximum number of concurrent requests to SCC. */
+    private static final int MAX_PARALLEL_REQUESTS =
+            ConfigDefaults.get().getSCCMaxParallelRequests();
+
+    /** Pool fetching further pages of paginated results. */
+    private static final ExecutorService PAGE_POOL = Executors.newFixedThreadPool(
+            MAX_PARALLEL_REQUESTS,
+            new BasicThreadFactory.Builder().namingPattern("scc-page-%d").daemon(true).build());
+
+    /** Gson instances are thread safe, the same one parses all responses. */
+    private static final Gson GSON = new GsonBuilder()
+            .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX")
+            .create();
+
+    private static final Pattern PAGE_PATTERN = Pattern.compile("([?&]page=)(\\d+)");
+
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String LINK = "Link";
+
     /** The config object. */
     private final SCCConfig config;
 
+    /** Lists returned by this client whose pages were all served from the cache. */
+    private final Set<List<?>> unchangedResults =
+            Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<List<?>, Boolean>()));
+
     /** Adapter object for handling HTTP requests. */
     private final HttpClientAdapter httpClient;
 
     /**
-     *  Represents a partial result with a pointer to the next one.
+     *  Represents a partial result with pointers to the next and last ones.
      *
      * @param <T> the generic type
      */
@@ -62,15 +114,25 @@ public class SCCWebClient implements SCCClient {
         /** The next url. */
         private final String nextUrl;
 
+        /** The last url. */
+        private final String lastUrl;
+
+        /** True if the result was served from the cache, as SCC reported it not modified. */
+        private final boolean notModified;
+
         /**
          * Instantiates a new paginated result.
          *
          * @param resultIn the result in
          * @param nextUrlIn the next url in
+         * @param lastUrlIn the last url in
+         * @param notModifiedIn true if the result was served from the cache
          */
-        PaginatedResult(T resultIn, String nextUrlIn) {
+        PaginatedResult(T resultIn, String nextUrlIn, String lastUrlIn, boolean notModifiedIn) {
             result = resultIn;
             nextUrl = nextUrlIn;
+            lastUrl = lastUrlIn;
+            notModified = notModifiedIn;
         }
     }
 
@@ -80,7 +142,7 @@ public class SCCWebClient implements SCCClient {
      */
     public SCCWebClient(SCCConfig configIn) {
         config = configIn;
-        httpClient = new HttpClientAdapter();
+        httpClient = new HttpClientAdapter(MAX_PARALLEL_REQUESTS);
     }
 
     /**
@@ -119,8 +181,17 @@ public class SCCWebClient implements SCCClient {
                 SCCOrder.class);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isUnchanged(List<?> result) {
+        return unchangedResults.contains(result);
+    }
+
     /**
      * Perform a GET request and parse the result into list of given {@link Class}.
+     * Pages following the first one are fetched concurrently if their number is known.
      *
      * @param <T> the generic type
      * @param endpoint the GET request endpoint
@@ -130,13 +201,87 @@ public class SCCWebClient implements SCCClient {
      */
     private <T> List<T> getList(String endpoint, Type resultType)
             throws SCCClientException {
-        List<T> result = new LinkedList<T>();
-        PaginatedResult<List<T>> partialResult;
-        do {
-            partialResult = request(endpoint, SCCClientUtils.toListType(resultType), "GET");
-            result.addAll(partialResult.result);
-            endpoint = partialResult.nextUrl;
-        } while (partialResult.nextUrl != null);
+        Type listType = SCCClientUtils.toListType(resultType);
+        PaginatedResult<List<T>> partialResult = request(endpoint, listType, "GET");
+        List<T> result = new ArrayList<T>(partialResult.result);
+        boolean unchanged = partialResult.notModified;
+
+        List<String> pageUrls = listPageUrls(partialResult.nextUrl, partialResult.lastUrl);
+        if (pageUrls.isEmpty()) {
+            // page count unknown, follow the links
+            while (partialResult.nextUrl != null) {
+                partialResult = request(partialResult.nextUrl, listType, "GET");
+                result.addAll(partialResult.result);
+                unchanged &= partialResult.notModified;
+            }
+            return markUnchanged(result, unchanged);
+        }
+
+        List<Future<PaginatedResult<List<T>>>> pages =
+                new ArrayList<Future<PaginatedResult<List<T>>>>(pageUrls.size());
+        try {
+            for (String pageUrl : pageUrls) {
+                pages.add(PAGE_POOL.submit(() -> this.<List<T>>request(pageUrl, listType, "GET")));
+            }
+            for (Future<PaginatedResult<List<T>>> page : pages) {
+                result.addAll(page.get().result);
+                unchanged &= page.get().notModified;
+            }
+            return markUnchanged(result, unchanged);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SCCClientException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof SCCClientException) {
+                throw (SCCClientException) e.getCause();
+            }
+            throw new SCCClientException(e.getCause());
+        }
+        finally {
+            pages.forEach(page -> page.cancel(true));
+        }
+    }
+
+    /**
+     * Remembers a list as unchanged, so that {@link #isUnchanged(List)} reports it.
+     *
+     * @param <T> the generic type
+     * @param result the list
+     * @param unchanged true if all pages of the list were served from the cache
+     * @return the list
+     */
+    private <T> List<T> markUnchanged(List<T> result, boolean unchanged) {
+        if (unchanged) {
+            unchangedResults.add(result);
+        }
+        return result;
+    }
+
+    /**
+     * Lists the endpoints of all pages from the next to the last one, if both links carry
+     * a page number.
+     *
+     * @param nextUrl the endpoint of the next page
+     * @param lastUrl the endpoint of the last page
+     * @return the endpoints in page order, empty if the pages are not numbered
+     */
+    private static List<String> listPageUrls(String nextUrl, String lastUrl) {
+        List<String> result = new ArrayList<String>();
+        if (nextUrl == null || lastUrl == null) {
+            return result;
+        }
+        Matcher next = PAGE_PATTERN.matcher(nextUrl);
+        Matcher last = PAGE_PATTERN.matcher(lastUrl);
+        if (!next.find() || !last.find()) {
+            return result;
+        }
+        int lastPage = Integer.parseInt(last.group(2));
+        for (int page = Integer.parseInt(next.group(2)); page <= lastPage; page++) {
+            result.add(nextUrl.substring(0, next.start()) + next.group(1) + page +
+                    nextUrl.substring(next.end()));
+        }
         return result;
     }
 
@@ -155,6 +300,16 @@ public class SCCWebClient implements SCCClient {
         Reader streamReader = null;
         HttpRequestBase request = SCCRequestFactory.getInstance().initRequest(
                 method, endpoint, config);
+        String filename = SCCClientUtils.getLogFilename(request.getURI(), config.getUsername());
+        Properties cachedHeaders = readCachedHeaders(filename);
+        if (cachedHeaders != null) {
+            if (cachedHeaders.getProperty(ETAG) != null) {
+                request.addHeader("If-None-Match", cachedHeaders.getProperty(ETAG));
+            }
+            if (cachedHeaders.getProperty(LAST_MODIFIED) != null) {
+                request.addHeader("If-Modified-Since", cachedHeaders.getProperty(LAST_MODIFIED));
+            }
+        }
         try {
             // Connect and parse the response on success
             HttpResponse response = httpClient.executeRequest(request,
@@ -162,28 +317,35 @@ public class SCCWebClient implements SCCClient {
 
             int responseCode = response.getStatusLine().getStatusCode();
 
-            if (responseCode == HttpStatus.SC_OK) {
+            if (responseCode == HttpStatus.SC_NOT_MODIFIED && cachedHeaders != null) {
+                LOG.debug("Not modified, using cached response for " + request.getURI());
+                Header linkHeader = response.getFirstHeader(LINK);
+                String link = linkHeader != null ? linkHeader.getValue() :
+                    cachedHeaders.getProperty(LINK);
+                streamReader = getCachedReader(filename);
+                T result = GSON.fromJson(streamReader, resultType);
+                return new PaginatedResult<T>(result, parseLink(link, "next"), parseLink(link, "last"),
+                        true);
+            }
+            else if (responseCode == HttpStatus.SC_OK) {
                 streamReader = SCCClientUtils.getLoggingReader(request.getURI(), response,
                         config.getUsername(), config.getLoggingDir());
 
                 // Parse result type from JSON
-                Gson gson = new GsonBuilder()
-                        .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX")
-                        .create();
-                T result = gson.fromJson(streamReader, resultType);
-
-                String nextUrl = null;
-                Header linkHeader = response.getFirstHeader("Link");
-                if (linkHeader != null) {
-                    String linkHeaderValue = linkHeader.getValue();
-                    Matcher m = Pattern
-                            .compile(".*<" + config.getUrl() + "(.*?)>; rel=\"next\".*")
-                            .matcher(linkHeaderValue);
-                    if (m.matches()) {
-                        nextUrl = m.group(1);
-                    }
+                T result = GSON.fromJson(streamReader, resultType);
+
+                Header linkHeader = response.getFirstHeader(LINK);
+                String link = linkHeader != null ? linkHeader.getValue() : null;
+
+                // read up to the end, so that the logged response is complete
+                while (streamReader.read() != -1) {
+                    // nothing to do
                 }
-                return new PaginatedResult<T>(result, nextUrl);
+                streamReader.close();
+                cacheResponse(filename, response, link);
+
+                return new PaginatedResult<T>(result, parseLink(link, "next"), parseLink(link, "last"),
+                        false);
             }
             else {
                 // Request was not successful
@@ -204,4 +366,112 @@ public class SCCWebClient implements SCCClient {
             SCCClientUtils.closeQuietly(streamReader);
         }
     }
+
+    /**
+     * Extracts the endpoint of a relation from a Link header value.
+     *
+     * @param link the Link header value, can be null
+     * @param rel the relation, like "next"
+     * @return the endpoint relative to the SCC url or null
+     */
+    private String parseLink(String link, String rel) {
+        if (link == null) {
+            return null;
+        }
+        Matcher m = Pattern
+                .compile(".*<" + Pattern.quote(config.getUrl().toString()) + "(.*?)>; rel=\"" + rel + "\".*")
+                .matcher(link);
+        return m.matches() ? m.group(1) : null;
+    }
+
+    /**
+     * Returns the headers cached for a response, if the response is cached as well.
+     *
+     * @param filename the response file name
+     * @return the headers or null if nothing usable is cached
+     */
+    private Properties readCachedHeaders(String filename) {
+        if (config.getCacheDir() == null) {
+            return null;
+        }
+        File headersFile = new File(config.getCacheDir(), filename + ".headers");
+        File responseFile = new File(config.getCacheDir(), filename);
+        if (!headersFile.isFile() || !responseFile.isFile()) {
+            return null;
+        }
+        Properties headers = new Properties();
+        try (InputStream in = new FileInputStream(headersFile)) {
+            headers.load(in);
+            return headers;
+        }
+        catch (IOException e) {
+            LOG.warn("Unable to read cached headers " + headersFile + ", ignoring cache", e);
+            return null;
+        }
+    }
+
+    /**
+     * Returns a reader of a cached response, which is also copied to the logging
+     * directory like responses from SCC are.
+     *
+     * @param filename the response file name
+     * @return the reader
+     * @throws IOException if the cached response cannot be read
+     */
+    private Reader getCachedReader(String filename) throws IOException {
+        File responseFile = new File(config.getCacheDir(), filename);
+        File logFile = SCCClientUtils.getSharedFile(config.getLoggingDir(), filename);
+        Files.copy(responseFile.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return new BufferedReader(new InputStreamReader(new FileInputStream(responseFile),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Caches a complete response from the logging directory along with the headers needed
+     * for conditional requests. Failures are logged only, the next request will not be
+     * conditional then.
+     *
+     * @param filename the response file name
+     * @param response the response
+     * @param link the Link header value, can be null
+     */
+    private void cacheResponse(String filename, HttpResponse response, String link) {
+        if (config.getCacheDir() == null) {
+            return;
+        }
+        Header etag = response.getFirstHeader(ETAG);
+        Header lastModified = response.getFirstHeader(LAST_MODIFIED);
+        try {
+            // headers go first, so that a partially written response is never used
+            File headersFile = SCCClientUtils.getSharedFile(config.getCacheDir(), filename + ".headers");
+            Files.delete(headersFile.toPath());
+            if (etag == null && lastModified == null) {
+                return;
+            }
+
+            File responseFile = SCCClientUtils.getSharedFile(config.getCacheDir(), filename);
+            File logFile = new File(config.getLoggingDir(), filename);
+            Files.copy(logFile.toPath(), responseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+            Properties headers = new Properties();
+            if (etag != null) {
+                headers.setProperty(ETAG, etag.getValue());
+            }
+            if (lastModified != null) {
+                headers.setProperty(LAST_MODIFIED, lastModified.getValue());
+            }
+            if (link != null) {
+                headers.setProperty(LINK, link);
+            }
+            File tmpFile = SCCClientUtils.getSharedFile(config.getCacheDir(), filename + ".headers.tmp");
+            try (OutputStream out = new FileOutputStream(tmpFile)) {
+                headers.store(out, null);
+            }
+            Files.move(tmpFile.toPath(), headersFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            LOG.warn("Unable to cache SCC response " + filename, e);
+        }
+    }
 }
@@ -21,6 +21,8 @@ import com.redhat.rhn.testing.httpservermock.Responder;
 import com.suse.scc.client.SCCClient;
 import com.suse.scc.client.SCCClientException;
 import com.suse.scc.client.SCCClientFactory;
+import com.suse.scc.client.SCCConfig;
+import com.suse.scc.client.SCCWebClient;
 import com.suse.scc.model.SCCProduct;
 import com.suse.scc.model.SCCSubscription;
 import com.suse.scc.model.SCCSystem;
@@ -31,7 +33,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.URI;
+import java.nio.file.Files;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -112,6 +116,58 @@ public class SCCClientTest extends TestCase {
         assertEquals(43, p2.getId());
     }
 
+    /**
+     * Test that responses are served from the cache when SCC answers with 304.
+     */
+    public void testConditionalRequest() throws Exception {
+        HttpServerMock serverMock = new HttpServerMock();
+        URI uri = serverMock.getURI();
+        SCCServerStub stub = new SCCServerStub(uri);
+        int[] notModified = {0};
+        Responder conditionalResponder = new Responder() {
+            @Override
+            public void respond(Request requestIn, Response responseIn) {
+                String etag = "\"" + requestIn.getURI() + "\"";
+                if (etag.equals(requestIn.getValue("If-None-Match"))) {
+                    notModified[0]++;
+                    responseIn.setCode(HttpURLConnection.HTTP_NOT_MODIFIED);
+                    try {
+                        responseIn.getPrintStream().close();
+                    }
+                    catch (IOException e) {
+                        // never happens
+                    }
+                }
+                else {
+                    responseIn.set("ETag", etag);
+                    stub.respond(requestIn, responseIn);
+                }
+            }
+        };
+
+        File cacheDir = Files.createTempDirectory("scc-cache").toFile();
+        try {
+            SCCConfig config = new SCCConfig(uri, "user", "password", null, null,
+                    System.getProperty("java.io.tmpdir"), cacheDir.getAbsolutePath());
+            SCCClient scc = new SCCWebClient(config);
+            List<List<SCCProduct>> results = serverMock.getResult(
+                    () -> Arrays.asList(scc.listProducts(), scc.listProducts()),
+                    conditionalResponder);
+
+            // both pages of the second listing came from the cache
+            assertEquals(2, notModified[0]);
+            assertEquals(2, results.get(0).size());
+            assertEquals(2, results.get(1).size());
+            assertEquals(results.get(0).get(0).getId(), results.get(1).get(0).getId());
+            assertEquals(results.get(0).get(1).getId(), results.get(1).get(1).getId());
+            assertFalse(scc.isUnchanged(results.get(0)));
+            assertTrue(scc.isUnchanged(results.get(1)));
+        }
+        finally {
+            FileUtils.deleteDirectory(cacheDir);
+        }
+    }
+
     /**
      * Test for {@link SCCWebClient#listRepositories()}.
      */
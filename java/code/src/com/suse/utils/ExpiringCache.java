@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.utils;
+
+import com.suse.manager.metrics.PrometheusExporter;
+
+import io.prometheus.client.Counter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Thread safe in-memory cache holding at most a given number of entries for a limited time.
+ * When full, the least recently used entry is evicted.
+ *
+ * Hits and misses are exported to Prometheus, labeled with the cache name.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ExpiringCache<K, V> {
+
+    private static final Counter HITS = Counter.build()
+            .name("cache_hits_total")
+            .help("Lookups answered by an in-memory cache")
+            .labelNames("cache")
+            .create();
+
+    private static final Counter MISSES = Counter.build()
+            .name("cache_misses_total")
+            .help("Lookups not answered by an in-memory cache")
+            .labelNames("cache")
+            .create();
+
+    static {
+        PrometheusExporter.INSTANCE.registerCollector(HITS);
+        PrometheusExporter.INSTANCE.registerCollector(MISSES);
+    }
+
+    private final String name;
+    private final long ttlMillis;
+    private final Map<K, Entry<V>> entries;
+
+    /**
+     * Standard constructor.
+     * @param nameIn the cache name, used as metrics label
+     * @param maxSize the maximum number of entries
+     * @param ttlMillisIn the maximum time entries are kept, in milliseconds
+     */
+    public ExpiringCache(String nameIn, int maxSize, long ttlMillisIn) {
+        name = nameIn;
+        ttlMillis = ttlMillisIn;
+        entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up a value.
+     * @param key the key
+     * @return the value, empty if not cached or expired
+     */
+    public Optional<V> get(K key) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            MISSES.labels(name).inc();
+            return Optional.empty();
+        }
+        HITS.labels(name).inc();
+        return Optional.of(entry.value);
+    }
+
+    /**
+     * Caches a value for the time to live of this cache.
+     * @param key the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * Caches a value for the time to live of this cache, but not longer than a given
+     * point in time.
+     * @param key the key
+     * @param value the value
+     * @param notAfterMillis epoch milliseconds after which the value must not be used
+     */
+    public void put(K key, V value, long notAfterMillis) {
+        long expiresAt = Math.min(System.currentTimeMillis() + ttlMillis, notAfterMillis);
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    /**
+     * Removes all entries with keys matching a predicate.
+     * @param predicate the predicate
+     */
+    public void invalidateIf(Predicate<K> predicate) {
+        synchronized (entries) {
+            entries.keySet().removeIf(predicate);
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * A cached value with its expiration time.
+     * @param <V> the value type
+     */
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V valueIn, long expiresAtIn) {
+            value = valueIn;
+            expiresAt = expiresAtIn;
+        }
+    }
+}
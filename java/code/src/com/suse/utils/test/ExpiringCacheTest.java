@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.suse.utils.test;
+
+import com.suse.utils.ExpiringCache;
+import junit.framework.TestCase;
+
+import java.util.Optional;
+
+/**
+ * Tests for {@link ExpiringCache}.
+ */
+public class ExpiringCacheTest extends TestCase {
+
+    public void testGetAndPut() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, 60000);
+        assertFalse(cache.get("a").isPresent());
+        cache.put("a", 1);
+        assertEquals(Optional.of(1), cache.get("a"));
+    }
+
+    public void testExpiration() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, 60000);
+        cache.put("a", 1, System.currentTimeMillis() - 1);
+        assertFalse(cache.get("a").isPresent());
+
+        ExpiringCache<String, Integer> expired = new ExpiringCache<>("test", 10, -1);
+        expired.put("a", 1);
+        assertFalse(expired.get("a").isPresent());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 2, 60000);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.get("a");
+        cache.put("c", 3);
+        assertTrue(cache.get("a").isPresent());
+        assertFalse(cache.get("b").isPresent());
+        assertTrue(cache.get("c").isPresent());
+    }
+
+    public void testInvalidate() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>("test", 10, 60000);
+        cache.put("a1", 1);
+        cache.put("b1", 2);
+        cache.invalidateIf(key -> key.startsWith("a"));
+        assertFalse(cache.get("a1").isPresent());
+        assertTrue(cache.get("b1").isPresent());
+        cache.clear();
+        assertFalse(cache.get("b1").isPresent());
+    }
+}
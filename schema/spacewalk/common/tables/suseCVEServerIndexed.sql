@@ -0,0 +1,39 @@
+--
+-- Copyright (c) 2018 SUSE LLC
+--
+-- This software is licensed to you under the GNU General Public License,
+-- version 2 (GPLv2). There is NO WARRANTY for this software, express or
+-- implied, including the implied warranties of MERCHANTABILITY or FITNESS
+-- FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+-- along with this software; if not, see
+-- http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+--
+-- Red Hat trademarks are not licensed under GPLv2. No permission is
+-- granted to use or replicate Red Hat trademarks that are incorporated
+-- in this software or its documentation.
+--
+
+CREATE TABLE suseCVEServerIndexed
+(
+    cve_id    NUMBER NOT NULL
+                  CONSTRAINT suse_cvesi_cveid_fk
+                      REFERENCES rhnCVE (id)
+                      ON DELETE CASCADE,
+    server_id NUMBER NOT NULL
+                  CONSTRAINT suse_cvesi_sid_fk
+                      REFERENCES rhnServer (id)
+                      ON DELETE CASCADE,
+    created   timestamp with local time zone
+                  DEFAULT (current_timestamp) NOT NULL
+)
+ENABLE ROW MOVEMENT
+;
+
+CREATE UNIQUE INDEX suse_cvesi_cveid_sid_uq
+    ON suseCVEServerIndexed (cve_id, server_id)
+    TABLESPACE [[8m_tbs]];
+
+CREATE INDEX suse_cvesi_sid_idx
+    ON suseCVEServerIndexed (server_id)
+    TABLESPACE [[8m_tbs]]
+    NOLOGGING;
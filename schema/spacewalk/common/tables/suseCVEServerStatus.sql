@@ -0,0 +1,47 @@
+--
+-- Copyright (c) 2018 SUSE LLC
+--
+-- This software is licensed to you under the GNU General Public License,
+-- version 2 (GPLv2). There is NO WARRANTY for this software, express or
+-- implied, including the implied warranties of MERCHANTABILITY or FITNESS
+-- FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+-- along with this software; if not, see
+-- http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+--
+-- Red Hat trademarks are not licensed under GPLv2. No permission is
+-- granted to use or replicate Red Hat trademarks that are incorporated
+-- in this software or its documentation.
+--
+
+CREATE TABLE suseCVEServerStatus
+(
+    cve_id            NUMBER NOT NULL,
+    server_id         NUMBER NOT NULL,
+    errata_id         NUMBER NOT NULL
+                          CONSTRAINT suse_cvess_eid_fk
+                              REFERENCES rhnErrata (id)
+                              ON DELETE CASCADE,
+    package_id        NUMBER NOT NULL
+                          CONSTRAINT suse_cvess_pid_fk
+                              REFERENCES rhnPackage (id)
+                              ON DELETE CASCADE,
+    package_installed NUMBER,
+    channel_id        NUMBER NOT NULL
+                          CONSTRAINT suse_cvess_cid_fk
+                              REFERENCES rhnChannel (id)
+                              ON DELETE CASCADE,
+    channel_assigned  NUMBER,
+    channel_rank      NUMBER NOT NULL
+)
+ENABLE ROW MOVEMENT
+;
+
+CREATE INDEX suse_cvess_cveid_sid_idx
+    ON suseCVEServerStatus (cve_id, server_id)
+    TABLESPACE [[8m_tbs]]
+    NOLOGGING;
+
+ALTER TABLE suseCVEServerStatus
+    ADD CONSTRAINT suse_cvess_cveid_sid_fk FOREIGN KEY (cve_id, server_id)
+    REFERENCES suseCVEServerIndexed (cve_id, server_id)
+        ON DELETE CASCADE;
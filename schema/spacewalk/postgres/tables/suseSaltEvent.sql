@@ -3,8 +3,9 @@
 CREATE TABLE suseSaltEvent (
   id SERIAL PRIMARY KEY,
   minion_id CHARACTER VARYING(256),
-  data TEXT NOT NULL
+  data TEXT NOT NULL,
+  queue_slot INTEGER NOT NULL DEFAULT 0
 );
 
-CREATE INDEX suse_salt_event_minion_id_idx
-  ON suseSaltEvent (minion_id NULLS LAST, id);
+CREATE INDEX suse_salt_event_queue_slot_idx
+  ON suseSaltEvent (queue_slot, minion_id NULLS LAST, id);
@@ -0,0 +1,31 @@
+-- oracle equivalent source none
+--
+-- Copyright (c) 2018 SUSE LLC
+--
+-- This software is licensed to you under the GNU General Public License,
+-- version 2 (GPLv2). There is NO WARRANTY for this software, express or
+-- implied, including the implied warranties of MERCHANTABILITY or FITNESS
+-- FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+-- along with this software; if not, see
+-- http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+--
+-- triggers for suseSaltEvent
+
+-- spreads events over 64 queue slots by minion id, slot 0 holds events without a minion id
+create or replace function suse_salt_event_queue_trig_fun() returns trigger as
+$$
+begin
+	if new.minion_id is null then
+		new.queue_slot := 0;
+	else
+		new.queue_slot := mod(hashtext(new.minion_id)::bigint & 2147483647, 64) + 1;
+	end if;
+	return new;
+end;
+$$ language plpgsql;
+
+create trigger
+suse_salt_event_queue_trig
+before insert on suseSaltEvent
+for each row
+execute procedure suse_salt_event_queue_trig_fun();
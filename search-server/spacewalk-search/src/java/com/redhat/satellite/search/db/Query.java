@@ -15,6 +15,8 @@
 
 package com.redhat.satellite.search.db;
 
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 
 import java.sql.SQLException;
@@ -67,6 +69,25 @@ public class Query<T> {
         return retval;
     }
 
+    /**
+     * Pass the objects returned by the query to a handler one by one, fetching them from
+     * the database as needed instead of loading the whole list in memory
+     * @param param query param
+     * @param handler called for every object, until it returns false
+     * @throws SQLException something bad happened
+     */
+    public void loadEach(Object param, final RecordHandler<T> handler)
+        throws SQLException {
+        session.select(queryName, param, new ResultHandler() {
+            @SuppressWarnings("unchecked")
+            public void handleResult(ResultContext context) {
+                if (!handler.handleRecord((T)context.getResultObject())) {
+                    context.stop();
+                }
+            }
+        });
+    }
+
     /**
      * Load single object from query
      * @param param query apram
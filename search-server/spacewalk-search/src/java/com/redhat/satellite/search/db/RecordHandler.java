@@ -0,0 +1,31 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+package com.redhat.satellite.search.db;
+
+/**
+ * Callback interface for queries streaming their results
+ *
+ * @param <T> type returned by query
+ * @version $Rev$
+ */
+public interface RecordHandler<T> {
+
+    /**
+     * Called for each object returned by the query
+     * @param record the object
+     * @return true to get the next object, false to stop
+     */
+    boolean handleRecord(T record);
+}
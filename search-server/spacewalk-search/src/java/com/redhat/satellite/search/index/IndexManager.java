@@ -16,9 +16,9 @@
 package com.redhat.satellite.search.index;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
@@ -52,6 +52,7 @@ import org.apache.nutch.searcher.FetchedSegments;
 import org.apache.nutch.searcher.HitDetails;
 import org.apache.nutch.searcher.Summary;
 import org.apache.nutch.util.NutchConfiguration;
+import org.picocontainer.Startable;
 
 import com.redhat.satellite.search.config.Configuration;
 import com.redhat.satellite.search.index.builder.BuilderFactory;
@@ -62,9 +63,14 @@ import com.redhat.satellite.search.rpc.handlers.IndexHandler;
 /**
  * Indexing workhorse class
  *
+ * Keeps one writer per index open for the lifetime of the search server and one
+ * searcher per index, shared by all queries and reopened only once the index changed.
+ * Changes are committed in batches, before a search of the same index and whenever
+ * an indexing task checkpoints its progress.
+ *
  * @version $Rev$
  */
-public class IndexManager {
+public class IndexManager implements Startable {
 
     private static Logger log = Logger.getLogger(IndexManager.class);
     private String indexWorkDir;
@@ -83,6 +89,10 @@ public class IndexManager {
     private Map<String, String> docLocaleLookUp = new TreeMap<String, String>
                                                                                                 (String.CASE_INSENSITIVE_ORDER);
     private Map<String, FetchedSegments> docSegments;
+    private int commitBatchSize;
+    private Map<String, IndexWriter> writers = new HashMap<String, IndexWriter>();
+    private Map<String, Integer> uncommitted = new HashMap<String, Integer>();
+    private Map<String, SharedSearcher> searchers = new HashMap<String, SharedSearcher>();
     /**
      * Constructor
      *
@@ -108,9 +118,52 @@ public class IndexManager {
         initDocLocaleLookup();
         filterDocResults = config.getBoolean("search.doc.limit_results");
         explainResults = config.getBoolean("search.log.explain.results");
+        commitBatchSize = config.getInt("search.index_commit_batch_size", 1000);
         initDocSummary();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void start() {
+    }
+
+    /**
+     * Commits pending changes and closes all writers and searchers
+     */
+    public void stop() {
+        synchronized (writers) {
+            for (Map.Entry<String, IndexWriter> entry : writers.entrySet()) {
+                try {
+                    entry.getValue().close();
+                }
+                catch (IOException e) {
+                    log.error("Unable to close writer of index " + entry.getKey(), e);
+                }
+            }
+            writers.clear();
+            uncommitted.clear();
+        }
+        synchronized (searchers) {
+            for (Map.Entry<String, SharedSearcher> entry : searchers.entrySet()) {
+                try {
+                    entry.getValue().release();
+                }
+                catch (IOException e) {
+                    log.error("Unable to close searcher of " + entry.getKey(), e);
+                }
+            }
+            searchers.clear();
+        }
+    }
+
+    /**
+     * @return number of changes to an index after which they are committed
+     */
+    public int getCommitBatchSize() {
+        return commitBatchSize;
+    }
+
 
     /**
      * @return String of the index working directory
@@ -154,12 +207,13 @@ public class IndexManager {
     public List<Result> search(String indexName, String query, String lang,
             boolean isFineGrained)
             throws IndexingException, QueryParseException {
-        IndexSearcher searcher = null;
-        IndexReader reader = null;
+        SharedSearcher shared = null;
         List<Result> retval = null;
         try {
-            reader = getIndexReader(indexName, lang);
-            searcher = getIndexSearcher(indexName, lang);
+            // make documents added so far visible to this search
+            commit(indexName);
+            shared = acquireSearcher(indexName, lang);
+            IndexSearcher searcher = shared.getSearcher();
             QueryParser qp = getQueryParser(indexName, lang, isFineGrained);
             Query q = qp.parse(query);
             if (log.isDebugEnabled()) {
@@ -173,7 +227,7 @@ public class IndexManager {
             Set<Term> queryTerms = null;
             try {
                 queryTerms = new HashSet<Term>();
-                Query newQ = q.rewrite(reader);
+                Query newQ = q.rewrite(shared.getReader());
                 newQ.extractTerms(queryTerms);
             }
             catch (Exception e) {
@@ -200,11 +254,8 @@ public class IndexManager {
         }
         finally {
             try {
-                if (searcher != null) {
-                    searcher.close();
-                }
-                if (reader != null) {
-                    reader.close();
+                if (shared != null) {
+                    shared.release();
                 }
             }
             catch (IOException ex) {
@@ -226,25 +277,7 @@ public class IndexManager {
         throws IndexingException {
 
         try {
-            IndexWriter writer = getIndexWriter(indexName, lang);
-            try {
-                writer.flush();
-            }
-            finally {
-                try {
-                    writer.close();
-                }
-                finally {
-                    // unlock it if it is locked.
-                    unlockIndex(indexName);
-                }
-            }
-        }
-        catch (CorruptIndexException e) {
-            throw new IndexingException(e);
-        }
-        catch (LockObtainFailedException e) {
-            throw new IndexingException(e);
+            getIndexWriter(indexName, lang).flush();
         }
         catch (IOException e) {
             throw new IndexingException(e);
@@ -253,7 +286,8 @@ public class IndexManager {
 
 
     /**
-     * Adds a document to an index
+     * Adds a document to an index. The document becomes searchable once the index
+     * is committed.
      *
      * @param indexName index to use
      * @param doc Document to be indexed.
@@ -264,32 +298,17 @@ public class IndexManager {
         throws IndexingException {
 
         try {
-            IndexWriter writer = getIndexWriter(indexName, lang);
-            try {
-                writer.addDocument(doc);
-                writer.flush();
-            }
-            finally {
-                try {
-                    writer.close();
-                }
-                finally {
-                    // unlock it if it is locked.
-                    unlockIndex(indexName);
-                }
-            }
-        }
-        catch (CorruptIndexException e) {
-            throw new IndexingException(e);
-        }
-        catch (LockObtainFailedException e) {
-            throw new IndexingException(e);
+            getIndexWriter(indexName, lang).addDocument(doc);
         }
         catch (IOException e) {
             throw new IndexingException(e);
         }
+        changed(indexName);
     }
     /**
+     * Adds a document to an index, replacing any document with the same unique field
+     * value. The document becomes searchable once the index is committed.
+     *
      * @param indexName
      * @param doc document with data to index
      * @param uniqueField field in doc which identifies this uniquely
@@ -299,37 +318,14 @@ public class IndexManager {
     public void addUniqueToIndex(String indexName, Document doc,
             String uniqueField, String lang)
         throws IndexingException {
-        IndexReader reader = null;
-        int numFound = 0;
+        Term term = new Term(uniqueField, doc.get(uniqueField));
         try {
-            reader = getIndexReader(indexName, lang);
-            Term term = new Term(uniqueField, doc.get(uniqueField));
-            numFound = reader.docFreq(term);
-        }
-        catch (FileNotFoundException e) {
-            // Index doesn't exist, so this add will be unique
-            // we don't need to do anything/
+            getIndexWriter(indexName, lang).updateDocument(term, doc);
         }
         catch (IOException e) {
             throw new IndexingException(e);
         }
-        finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                }
-                catch (IOException e) {
-                    //
-                }
-            }
-        }
-        if (numFound > 0) {
-            log.info("Found " + numFound + " <" + indexName + " docs for " +
-                    uniqueField + ":" + doc.get(uniqueField) +
-                    " will remove them now.");
-            removeFromIndex(indexName, uniqueField, doc.get(uniqueField));
-        }
-        addToIndex(indexName, doc, lang);
+        changed(indexName);
     }
 
     /**
@@ -345,27 +341,83 @@ public class IndexManager {
         log.info("Removing <" + indexName + "> " + uniqueField + ":" +
                 objectId);
         Term t = new Term(uniqueField, objectId);
-        IndexReader reader;
         try {
-            reader = getIndexReader(indexName, IndexHandler.DEFAULT_LANG);
-            try {
-                reader.deleteDocuments(t);
-                reader.flush();
+            getIndexWriter(indexName, IndexHandler.DEFAULT_LANG).deleteDocuments(t);
+        }
+        catch (IOException e) {
+            throw new IndexingException(e);
+        }
+        changed(indexName);
+    }
+
+    /**
+     * Counts the committed documents of an index
+     *
+     * @param indexName index to look at
+     * @return number of documents, deleted ones excluded
+     * @throws IndexingException something went wrong reading the index
+     */
+    public int getDocumentCount(String indexName) throws IndexingException {
+        SharedSearcher shared = null;
+        try {
+            shared = acquireSearcher(indexName, IndexHandler.DEFAULT_LANG);
+            return shared.getReader().numDocs();
+        }
+        catch (IOException e) {
+            throw new IndexingException(e);
+        }
+        finally {
+            if (shared != null) {
+                try {
+                    shared.release();
+                }
+                catch (IOException e) {
+                    //
+                }
             }
-            finally {
-               if (reader != null) {
-                    reader.close();
-               }
+        }
+    }
+
+    /**
+     * Commits the pending changes of an index, making them visible to searches.
+     * Does nothing if there are no pending changes.
+     *
+     * @param indexName index to commit
+     * @throws IndexingException something went wrong writing the changes
+     */
+    public void commit(String indexName) throws IndexingException {
+        IndexWriter writer;
+        synchronized (writers) {
+            if (uncommitted.remove(indexName) == null) {
+                return;
             }
+            writer = writers.get(indexName);
         }
-        catch (CorruptIndexException e) {
-            throw new IndexingException(e);
+        try {
+            writer.flush();
         }
         catch (IOException e) {
             throw new IndexingException(e);
         }
     }
 
+    /**
+     * Counts a change to an index, committing once a batch is complete.
+     * @param indexName index which changed
+     * @throws IndexingException something went wrong writing the changes
+     */
+    private void changed(String indexName) throws IndexingException {
+        int pending;
+        synchronized (writers) {
+            Integer count = uncommitted.get(indexName);
+            pending = count == null ? 1 : count + 1;
+            uncommitted.put(indexName, pending);
+        }
+        if (pending >= commitBatchSize) {
+            commit(indexName);
+        }
+    }
+
     /**
      * Unlocks the index at the given directory if it is currently locked.
      * Otherwise, does nothing.
@@ -384,46 +436,54 @@ public class IndexManager {
     private IndexWriter getIndexWriter(String name, String lang)
             throws CorruptIndexException, LockObtainFailedException,
             IOException {
-        String path = indexWorkDir + name;
-        File f = new File(path);
-        f.mkdirs();
-        Analyzer analyzer = getAnalyzer(name, lang);
-        IndexWriter writer = new IndexWriter(path, analyzer);
-        writer.setUseCompoundFile(true);
-        return writer;
+        synchronized (writers) {
+            IndexWriter writer = writers.get(name);
+            if (writer == null) {
+                String path = indexWorkDir + name;
+                File f = new File(path);
+                f.mkdirs();
+                // a lock left behind by a previous run would keep the writer from opening
+                unlockIndex(name);
+                Analyzer analyzer = getAnalyzer(name, lang);
+                writer = new IndexWriter(path, analyzer);
+                writer.setUseCompoundFile(true);
+                writers.put(name, writer);
+            }
+            return writer;
+        }
     }
 
-    private IndexReader getIndexReader(String indexName, String locale)
+    /**
+     * Returns the searcher of an index, reopening it if the index changed since it was
+     * opened. Callers must release the searcher when done.
+     */
+    private SharedSearcher acquireSearcher(String indexName, String locale)
             throws CorruptIndexException, IOException {
-        String path = "";
-        if (indexName.compareTo(BuilderFactory.DOCS_TYPE) == 0) {
-            path = indexWorkDir + File.separator +
-                getDocIndexPath(locale);
-        }
-        else {
-            path = indexWorkDir + indexName;
+        String path = getIndexPath(indexName, locale);
+        synchronized (searchers) {
+            SharedSearcher searcher = searchers.get(path);
+            if (searcher == null || !searcher.isCurrent()) {
+                log.info("IndexManager::acquireSearcher(" + indexName + ", " + locale +
+                        ") opening path = " + path);
+                File f = new File(path);
+                SharedSearcher fresh = new SharedSearcher(
+                        IndexReader.open(FSDirectory.getDirectory(f)));
+                if (searcher != null) {
+                    searcher.release();
+                }
+                searchers.put(path, fresh);
+                searcher = fresh;
+            }
+            searcher.acquire();
+            return searcher;
         }
-        log.info("IndexManager::getIndexReader(" + indexName + ", " + locale +
-                ") path = " + path);
-        File f = new File(path);
-        IndexReader retval = IndexReader.open(FSDirectory.getDirectory(f));
-        return retval;
     }
 
-    private IndexSearcher getIndexSearcher(String indexName, String locale)
-            throws CorruptIndexException, IOException {
-        String path = "";
+    private String getIndexPath(String indexName, String locale) throws IOException {
         if (indexName.compareTo(BuilderFactory.DOCS_TYPE) == 0) {
-            path = indexWorkDir + File.separator +
-                getDocIndexPath(locale);
+            return indexWorkDir + File.separator + getDocIndexPath(locale);
         }
-        else {
-            path = indexWorkDir + indexName;
-        }
-        log.info("IndexManager::getIndexSearcher(" + indexName + ", " + locale +
-                ") path = " + path);
-        IndexSearcher retval = new IndexSearcher(path);
-        return retval;
+        return indexWorkDir + indexName;
     }
 
     private QueryParser getQueryParser(String indexName, String lang,
@@ -633,9 +693,11 @@ public class IndexManager {
     public int deleteRecordsNotInList(Set<String> ids, String indexName,
             String uniqField) {
         int count = 0;
-        IndexReader reader = null;
+        SharedSearcher shared = null;
         try {
-            reader = getIndexReader(indexName, IndexHandler.DEFAULT_LANG);
+            commit(indexName);
+            shared = acquireSearcher(indexName, IndexHandler.DEFAULT_LANG);
+            IndexReader reader = shared.getReader();
 
             // Use maxDoc() to iterate over all docs, numDocs() returns the
             // number of currently alive docs leaving out the deleted ones.
@@ -654,6 +716,7 @@ public class IndexManager {
                     }
                 }
             }
+            commit(indexName);
         }
         catch (IOException e) {
             e.printStackTrace();
@@ -664,9 +727,9 @@ public class IndexManager {
             log.info("deleteRecordsNotInList() caught exception : " + e);
         }
         finally {
-            if (reader != null) {
+            if (shared != null) {
                 try {
-                    reader.close();
+                    shared.release();
                 }
                 catch (IOException e) {
                     //
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2018 SUSE LLC
+ *
+ * This software is licensed to you under the GNU General Public License,
+ * version 2 (GPLv2). There is NO WARRANTY for this software, express or
+ * implied, including the implied warranties of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. You should have received a copy of GPLv2
+ * along with this software; if not, see
+ * http://www.gnu.org/licenses/old-licenses/gpl-2.0.txt.
+ *
+ * Red Hat trademarks are not licensed under GPLv2. No permission is
+ * granted to use or replicate Red Hat trademarks that are incorporated
+ * in this software or its documentation.
+ */
+
+package com.redhat.satellite.search.index;
+
+import java.io.IOException;
+
+import org.apache.log4j.Logger;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Reference counted searcher shared by concurrent queries on one index.
+ *
+ * The IndexManager holds one reference as long as the searcher is current, every query
+ * holds another one while it runs. The underlying reader is closed when the last
+ * reference is released.
+ *
+ * @version $Rev$
+ */
+class SharedSearcher {
+
+    private static Logger log = Logger.getLogger(SharedSearcher.class);
+    private final IndexReader reader;
+    private final IndexSearcher searcher;
+    private int refCount = 1;
+
+    /**
+     * Constructor, the caller holds the first reference
+     *
+     * @param readerIn reader to search, owned by this object from now on
+     */
+    SharedSearcher(IndexReader readerIn) {
+        reader = readerIn;
+        searcher = new IndexSearcher(readerIn);
+    }
+
+    /**
+     * @return the reader
+     */
+    IndexReader getReader() {
+        return reader;
+    }
+
+    /**
+     * @return the searcher
+     */
+    IndexSearcher getSearcher() {
+        return searcher;
+    }
+
+    /**
+     * @return true if the reader still sees the latest committed version of the index
+     */
+    boolean isCurrent() {
+        try {
+            return reader.isCurrent();
+        }
+        catch (IOException e) {
+            // index was removed or replaced, open it again
+            log.info("Unable to check index version, reopening: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Adds a reference
+     */
+    synchronized void acquire() {
+        refCount++;
+    }
+
+    /**
+     * Drops a reference, closing the reader when it was the last one
+     *
+     * @throws IOException if closing the reader fails
+     */
+    synchronized void release() throws IOException {
+        refCount--;
+        if (refCount == 0) {
+            try {
+                searcher.close();
+            }
+            finally {
+                reader.close();
+            }
+        }
+    }
+}
@@ -60,6 +60,30 @@ public class IndexManagerTest extends BaseTestCase {
         assertTrue(results.size() >= 1);
     }
 
+    public void testUniqueIndexing()
+        throws IndexingException, QueryParseException {
+
+        String index = "foo";
+        String objectId = "456";
+        Map<String, String> meta = new HashMap<String, String>();
+        meta.put("name", "uniquefoo");
+        meta.put("desc", "An original foo");
+        DocumentBuilder pdb = new PackageDocumentBuilder();
+        indexManager.addUniqueToIndex(index, pdb.buildDocument(new Long(objectId), meta),
+                "id", "en");
+        meta.put("desc", "A replaced foo");
+        indexManager.addUniqueToIndex(index, pdb.buildDocument(new Long(objectId), meta),
+                "id", "en");
+
+        int found = 0;
+        for (Result result : indexManager.search(index, "name:uniquefoo", "en")) {
+            if (objectId.equals(result.getId())) {
+                found++;
+            }
+        }
+        assertEquals(1, found);
+        assertTrue(indexManager.search(index, "desc:replaced", "en").size() >= 1);
+    }
 
     public void StillNeedsWork_testQueryDocs()
         throws IOException, IndexingException, QueryParseException {
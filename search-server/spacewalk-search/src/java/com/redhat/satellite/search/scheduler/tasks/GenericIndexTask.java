@@ -16,6 +16,7 @@ package com.redhat.satellite.search.scheduler.tasks;
 
 import com.redhat.satellite.search.db.DatabaseManager;
 import com.redhat.satellite.search.db.Query;
+import com.redhat.satellite.search.db.RecordHandler;
 import com.redhat.satellite.search.db.WriteQuery;
 import com.redhat.satellite.search.db.models.GenericRecord;
 import com.redhat.satellite.search.index.IndexManager;
@@ -23,6 +24,7 @@ import com.redhat.satellite.search.index.IndexingException;
 import com.redhat.satellite.search.index.builder.BuilderFactory;
 import com.redhat.satellite.search.index.builder.DocumentBuilder;
 
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.log4j.Logger;
 import org.apache.lucene.document.Document;
 import org.quartz.JobDataMap;
@@ -31,22 +33,36 @@ import org.quartz.JobExecutionException;
 import org.quartz.StatefulJob;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * GenericIndexTask
+ *
+ * Records to index are streamed from the database and indexed in batches: documents
+ * of a batch are built in parallel, added to the index, committed, and only then the
+ * last indexed record is stored in the database.
  * @version $Rev$
  */
 public abstract class GenericIndexTask implements StatefulJob {
 
     private static Logger log = Logger.getLogger(GenericIndexTask.class);
+    private static final ExecutorService BUILDER_POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(),
+            new BasicThreadFactory.Builder().namingPattern("index-builder-%d")
+                .daemon(true).build());
     private String lang = "en";
     /**
      * {@inheritDoc}
@@ -63,21 +79,17 @@ public abstract class GenericIndexTask implements StatefulJob {
             //try to create the index first incase we never actually
             //   have any records (BZ 537502)
             indexManager.createIndex(getIndexName(), lang);
-            List<GenericRecord> data = getRecords(databaseManager);
-            int count = 0;
-            log.info(super.getClass().toString() + "found [" +
-                    data.size() + "] items to index");
-            for (Iterator<GenericRecord> iter = data.iterator(); iter.hasNext();) {
-                GenericRecord current = iter.next();
-                indexRecord(indexManager, current);
-                count++;
-                if (count == 10 || !iter.hasNext()) {
-                    if (System.getProperties().get("isTesting") == null) {
-                        updateLastRecord(databaseManager, current.getId());
-                    }
-                    count = 0;
-                }
-            }
+            Long lastId = getLastRecordId(databaseManager);
+            // an empty index, as after a fresh install or DeleteIndexes, is rebuilt
+            // in bulk without replacing existing documents
+            boolean bulk = lastId == null &&
+                indexManager.getDocumentCount(getIndexName()) == 0;
+            long start = System.currentTimeMillis();
+            int count = indexRecords(databaseManager, indexManager, lastId, bulk);
+            long elapsed = Math.max(1, System.currentTimeMillis() - start);
+            log.info(super.getClass().toString() + " indexed [" + count + "] items in " +
+                    elapsed + " ms (" + (count * 1000L / elapsed) + " items/s" +
+                    (bulk ? ", bulk rebuild" : "") + ")");
             //
             // Check to see if any records have been deleted from database, so
             // we should delete from our indexes.
@@ -129,39 +141,91 @@ public abstract class GenericIndexTask implements StatefulJob {
     }
 
     /**
+     * Indexes one batch of records, then stores the last one as checkpoint
+     * @param databaseManager
      * @param indexManager
-     * @param current
+     * @param batch records ordered by id
+     * @param added unique field values added so far when rebuilding an empty index
+     * in bulk, null otherwise
      */
-    private void indexRecord(IndexManager indexManager,
-            GenericRecord data)
-        throws IndexingException {
+    private void indexBatch(DatabaseManager databaseManager, IndexManager indexManager,
+            List<GenericRecord> batch, Set<String> added)
+        throws SQLException, IndexingException {
 
+        List<Future<Document>> docs = new ArrayList<Future<Document>>(batch.size());
+        for (final GenericRecord data : batch) {
+            docs.add(BUILDER_POOL.submit(new Callable<Document>() {
+                public Document call() {
+                    return buildDocument(data);
+                }
+            }));
+        }
+        for (Future<Document> future : docs) {
+            Document doc;
+            try {
+                doc = future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IndexingException(e);
+            }
+            catch (ExecutionException e) {
+                throw new IndexingException(e.getCause());
+            }
+            // queries can return more rows for the same document, the last one wins
+            if (added != null && added.add(doc.get(getUniqueFieldId()))) {
+                indexManager.addToIndex(getIndexName(), doc, lang);
+            }
+            else {
+                indexManager.addUniqueToIndex(getIndexName(), doc, getUniqueFieldId(),
+                        lang);
+            }
+        }
+        // checkpoint only what is safely stored in the index
+        indexManager.commit(getIndexName());
+        if (System.getProperties().get("isTesting") == null) {
+            updateLastRecord(databaseManager, batch.get(batch.size() - 1).getId());
+        }
+    }
+
+    private Document buildDocument(GenericRecord data) {
         Map<String, String> attrs = getFieldMap(data);
-        log.info(super.getClass().toString() + " Indexing object: " +
-                data.getId() + ": " + attrs.toString());
+        if (log.isDebugEnabled()) {
+            log.debug(super.getClass().toString() + " Indexing object: " +
+                    data.getId() + ": " + attrs.toString());
+        }
         DocumentBuilder pdb = BuilderFactory.getBuilder(getIndexName());
-        Document doc = pdb.buildDocument(new Long(data.getId()), attrs);
-        indexManager.addUniqueToIndex(getIndexName(), doc, getUniqueFieldId(),
-                lang);
+        return pdb.buildDocument(new Long(data.getId()), attrs);
     }
 
-
     /**
      * @param databaseManager
-     * @return
+     * @return the id of the last indexed record, null if nothing was indexed yet
      */
-    private List<GenericRecord> getRecords(DatabaseManager databaseManager)
+    private Long getLastRecordId(DatabaseManager databaseManager)
         throws SQLException {
-        // What was the last object id we indexed?
-        List<GenericRecord> retval = null;
         Query<Long> query = databaseManager.getQuery(getQueryLastRecord());
-        Long sid = null;
         try {
-            sid = query.load();
+            return query.load();
         }
         finally {
             query.close();
         }
+    }
+
+    /**
+     * Streams the records which have not been indexed or need to be reindexed and
+     * indexes them in batches.
+     * @param databaseManager
+     * @param indexManager
+     * @param lastId the id of the last indexed record, can be null
+     * @param bulk true if the index was empty when the task started
+     * @return number of indexed records
+     */
+    private int indexRecords(DatabaseManager databaseManager, IndexManager indexManager,
+            Long lastId, boolean bulk)
+        throws SQLException, IndexingException {
+        Long sid = lastId;
         if (sid == null) {
             sid = new Long(0);
         }
@@ -178,6 +242,7 @@ public abstract class GenericIndexTask implements StatefulJob {
             lastRun = new Date(0);
         }
         // Lookup what objects have not been indexed, or need to be reindexed.
+        BatchIndexer indexer = new BatchIndexer(databaseManager, indexManager, bulk);
         Query<GenericRecord> srvrQuery = databaseManager.getQuery(
                 getQueryRecordsToIndex());
         try {
@@ -186,14 +251,79 @@ public abstract class GenericIndexTask implements StatefulJob {
             params.put("last_modified", lastRun);
             log.info("GenericIndexTask<" + super.getClass().toString() +
                     " last processed id = " + sid + ", lastRun was " + lastRun);
-            retval = srvrQuery.loadList(params);
-            log.info("GenericIndexTask<" + super.getClass().toString() +
-                    " number of results returned = " + retval.size());
+            srvrQuery.loadEach(params, indexer);
         }
         finally {
             srvrQuery.close();
         }
-        return retval;
+        indexer.finish();
+        return indexer.count;
+    }
+
+    /**
+     * Collects streamed records into batches and indexes every complete batch.
+     */
+    private class BatchIndexer implements RecordHandler<GenericRecord> {
+
+        private DatabaseManager databaseManager;
+        private IndexManager indexManager;
+        private Set<String> added;
+        private List<GenericRecord> batch = new ArrayList<GenericRecord>();
+        private int count = 0;
+        private SQLException sqlFailure;
+        private IndexingException indexingFailure;
+
+        BatchIndexer(DatabaseManager databaseManagerIn, IndexManager indexManagerIn,
+                boolean bulkIn) {
+            databaseManager = databaseManagerIn;
+            indexManager = indexManagerIn;
+            added = bulkIn ? new HashSet<String>() : null;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public boolean handleRecord(GenericRecord record) {
+            batch.add(record);
+            if (batch.size() < indexManager.getCommitBatchSize()) {
+                return true;
+            }
+            try {
+                flush();
+                return true;
+            }
+            catch (SQLException e) {
+                sqlFailure = e;
+            }
+            catch (IndexingException e) {
+                indexingFailure = e;
+            }
+            return false;
+        }
+
+        /**
+         * Rethrows a failure which stopped the stream, or indexes the last batch
+         */
+        void finish() throws SQLException, IndexingException {
+            if (sqlFailure != null) {
+                throw sqlFailure;
+            }
+            if (indexingFailure != null) {
+                throw indexingFailure;
+            }
+            flush();
+        }
+
+        private void flush() throws SQLException, IndexingException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            indexBatch(databaseManager, indexManager, batch, added);
+            count += batch.size();
+            log.info(GenericIndexTask.this.getClass().toString() + " indexed [" + count +
+                    "] items so far");
+            batch = new ArrayList<GenericRecord>();
+        }
     }
 
     /**
@@ -66,7 +66,9 @@ public class IndexErrataTask implements Job {
                 Errata current = iter.next();
                 indexErrata(indexManager, current);
                 count++;
-                if (count == 10 || !iter.hasNext()) {
+                if (count == indexManager.getCommitBatchSize() || !iter.hasNext()) {
+                    // checkpoint only what is safely stored in the index
+                    indexManager.commit("errata");
                     if (System.getProperties().get("isTesting") == null) {
                         updateLastErrataId(databaseManager, current.getId());
                     }
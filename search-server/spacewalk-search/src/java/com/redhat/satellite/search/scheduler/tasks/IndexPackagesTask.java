@@ -68,7 +68,9 @@ public class IndexPackagesTask implements Job {
                 RhnPackage current = iter.next();
                 indexPackage(indexManager, current);
                 count++;
-                if (count == 10 || !iter.hasNext()) {
+                if (count == indexManager.getCommitBatchSize() || !iter.hasNext()) {
+                    // checkpoint only what is safely stored in the index
+                    indexManager.commit("package");
                     if (System.getProperties().get("isTesting") == null) {
                         updateLastPackageId(databaseManager, current.getId());
                     }